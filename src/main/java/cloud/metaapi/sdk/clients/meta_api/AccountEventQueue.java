@@ -0,0 +1,156 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class which executes events of an account strictly one after another. Events can be queued from any
+ * thread. The next event is started when the future of the previous one completes, so no thread is
+ * blocked while waiting for an event to finish
+ */
+public class AccountEventQueue {
+
+  private static Logger logger = LogManager.getLogger(AccountEventQueue.class);
+  private String accountId;
+  private Executor executor;
+  private LongConsumer lagListener;
+  private Queue<QueuedEvent> events = new ConcurrentLinkedQueue<>();
+  private AtomicBoolean isProcessing = new AtomicBoolean(false);
+  private boolean isClosed = false;
+
+  private static class QueuedEvent {
+    public Supplier<CompletableFuture<Void>> event;
+    public long queuedAt;
+
+    public QueuedEvent(Supplier<CompletableFuture<Void>> event) {
+      this.event = event;
+      this.queuedAt = System.nanoTime();
+    }
+  }
+
+  /**
+   * Constructs instance of account event queue
+   * @param accountId account id
+   */
+  public AccountEventQueue(String accountId) {
+    this(accountId, Runnable::run);
+  }
+
+  /**
+   * Constructs instance of account event queue which starts events on an executor
+   * @param accountId account id
+   * @param executor executor to start events on, e.g. the worker thread owning the account. The queue is
+   * drained by a task submitted to the executor, which returns as soon as an event has not completed yet
+   */
+  public AccountEventQueue(String accountId, Executor executor) {
+    this(accountId, executor, null);
+  }
+
+  /**
+   * Constructs instance of account event queue which starts events on an executor and reports how long
+   * events waited in the queue
+   * @param accountId account id
+   * @param executor executor to start events on
+   * @param lagListener listener invoked with the time an event waited in the queue in nanoseconds when the
+   * event is started, or {@code null}
+   */
+  public AccountEventQueue(String accountId, Executor executor, LongConsumer lagListener) {
+    this.accountId = accountId;
+    this.executor = executor;
+    this.lagListener = lagListener;
+  }
+
+  /**
+   * Queues an event for execution. The event is started after all previously queued events complete
+   * @param event event to execute
+   * @return true if the event was queued, false if the queue is closed and the event has to be queued to a
+   * new queue of the account
+   */
+  public boolean add(Supplier<CompletableFuture<Void>> event) {
+    synchronized (this) {
+      if (isClosed) {
+        return false;
+      }
+      events.add(new QueuedEvent(event));
+    }
+    if (!isProcessing.get()) {
+      executor.execute(this::processEvents);
+    }
+    return true;
+  }
+
+  /**
+   * Closes the queue if it is idle. A closed queue accepts no more events
+   * @return true if the queue was closed, false if an event is being executed or waiting to be started
+   */
+  public synchronized boolean close() {
+    if (!isClosed && isBusy()) {
+      return false;
+    }
+    isClosed = true;
+    return true;
+  }
+
+  /**
+   * Returns number of events waiting to be started
+   * @return number of queued events
+   */
+  public int size() {
+    return events.size();
+  }
+
+  /**
+   * Returns whether an event is being executed or waiting to be started
+   * @return whether the queue is busy
+   */
+  public boolean isBusy() {
+    return isProcessing.get() || !events.isEmpty();
+  }
+
+  private void processEvents() {
+    while (!events.isEmpty() && isProcessing.compareAndSet(false, true)) {
+      QueuedEvent event;
+      while ((event = events.poll()) != null) {
+        if (lagListener != null) {
+          lagListener.accept(System.nanoTime() - event.queuedAt);
+        }
+        CompletableFuture<Void> future = callEvent(event.event);
+        if (!future.isDone()) {
+          future.whenComplete((result, err) -> {
+            if (err != null) {
+              logger.error("Failed to process event for account " + accountId, err);
+            }
+            isProcessing.set(false);
+            executor.execute(this::processEvents);
+          });
+          return;
+        } else if (future.isCompletedExceptionally()) {
+          future.exceptionally(err -> {
+            logger.error("Failed to process event for account " + accountId, err);
+            return null;
+          });
+        }
+      }
+      isProcessing.set(false);
+    }
+  }
+
+  private CompletableFuture<Void> callEvent(Supplier<CompletableFuture<Void>> event) {
+    try {
+      CompletableFuture<Void> future = event.get();
+      return future != null ? future : CompletableFuture.completedFuture(null);
+    } catch (Throwable err) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(err);
+      return future;
+    }
+  }
+}
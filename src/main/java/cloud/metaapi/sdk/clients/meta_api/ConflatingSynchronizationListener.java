@@ -0,0 +1,354 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import cloud.metaapi.sdk.clients.meta_api.models.*;
+
+/**
+ * Synchronization listener which conflates price updates for a slow listener. Events are accepted
+ * immediately and delivered to the listener one after another on a serial executor, so the listener does
+ * not delay other events of the account even if it blocks. While the listener is processing events, newer
+ * prices are collected and only the latest price per symbol is delivered to the listener afterwards. All
+ * other events are delivered unchanged and in the order they were received relative to the prices
+ */
+public class ConflatingSynchronizationListener extends SynchronizationListener {
+
+  private static Logger logger = LogManager.getLogger(ConflatingSynchronizationListener.class);
+  private SynchronizationListener listener;
+  private Executor executor;
+  private Map<String, PendingPrices> pendingPrices = new ConcurrentHashMap<>();
+  private Queue<Supplier<CompletableFuture<Void>>> events = new ConcurrentLinkedQueue<>();
+  private AtomicBoolean isProcessing = new AtomicBoolean(false);
+  private AtomicLong receivedPrices = new AtomicLong();
+  private AtomicLong deliveredPrices = new AtomicLong();
+  private AtomicLong conflatedPrices = new AtomicLong();
+
+  /**
+   * Price conflation statistics
+   */
+  public static class ConflationStatistics {
+    /**
+     * Number of symbol prices received
+     */
+    public long receivedPrices;
+    /**
+     * Number of symbol prices delivered to the listener
+     */
+    public long deliveredPrices;
+    /**
+     * Number of symbol prices replaced by a newer price of the same symbol before being delivered
+     */
+    public long conflatedPrices;
+  }
+
+  private static class PendingPrices {
+    public Map<String, MetatraderSymbolPrice> latestPrices = new HashMap<>();
+    public PriceBatch batch;
+  }
+
+  private static class PriceBatch {
+    public Map<String, MetatraderSymbolPrice> prices = new LinkedHashMap<>();
+    public Double equity;
+    public Double margin;
+    public Double freeMargin;
+    public Double marginLevel;
+    public Double accountCurrencyExchangeRate;
+  }
+
+  /**
+   * Constructs instance of conflating synchronization listener
+   * @param listener listener to deliver events to
+   * @param executor executor to deliver events on. Events of the listener are never delivered concurrently
+   */
+  public ConflatingSynchronizationListener(SynchronizationListener listener, Executor executor) {
+    this.listener = listener;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns listener events are delivered to
+   * @return wrapped listener
+   */
+  public SynchronizationListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Returns price conflation statistics
+   * @return price conflation statistics
+   */
+  public ConflationStatistics getStatistics() {
+    ConflationStatistics statistics = new ConflationStatistics();
+    statistics.receivedPrices = receivedPrices.get();
+    statistics.deliveredPrices = deliveredPrices.get();
+    statistics.conflatedPrices = conflatedPrices.get();
+    return statistics;
+  }
+
+  @Override
+  public CompletableFuture<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+    PendingPrices pending = pendingPrices.computeIfAbsent(instanceIndex, index -> new PendingPrices());
+    PriceBatch newBatch;
+    synchronized (pending) {
+      newBatch = addPrice(pending, price);
+    }
+    scheduleDelivery(instanceIndex, pending, newBatch);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public CompletableFuture<Void> onSymbolPricesUpdated(String instanceIndex, List<MetatraderSymbolPrice> prices,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    PendingPrices pending = pendingPrices.computeIfAbsent(instanceIndex, index -> new PendingPrices());
+    PriceBatch newBatch = null;
+    synchronized (pending) {
+      for (MetatraderSymbolPrice price : prices) {
+        PriceBatch batch = addPrice(pending, price);
+        newBatch = newBatch != null ? newBatch : batch;
+      }
+      if (pending.batch != null) {
+        pending.batch.equity = equity;
+        pending.batch.margin = margin;
+        pending.batch.freeMargin = freeMargin;
+        pending.batch.marginLevel = marginLevel;
+        pending.batch.accountCurrencyExchangeRate = accountCurrencyExchangeRate;
+      }
+    }
+    scheduleDelivery(instanceIndex, pending, newBatch);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private PriceBatch addPrice(PendingPrices pending, MetatraderSymbolPrice price) {
+    if (pending.latestPrices.put(price.symbol, price) == price) {
+      return null;
+    }
+    receivedPrices.incrementAndGet();
+    PriceBatch newBatch = null;
+    if (pending.batch == null) {
+      newBatch = new PriceBatch();
+      pending.batch = newBatch;
+    }
+    if (pending.batch.prices.put(price.symbol, price) != null) {
+      conflatedPrices.incrementAndGet();
+    }
+    return newBatch;
+  }
+
+  private void scheduleDelivery(String instanceIndex, PendingPrices pending, PriceBatch batch) {
+    if (batch != null) {
+      addEvent(() -> deliverPrices(instanceIndex, pending, batch));
+    }
+  }
+
+  private CompletableFuture<Void> deliverPrices(String instanceIndex, PendingPrices pending, PriceBatch batch) {
+    List<MetatraderSymbolPrice> prices;
+    synchronized (pending) {
+      if (pending.batch == batch) {
+        pending.batch = null;
+      }
+      prices = new ArrayList<>(batch.prices.values());
+    }
+    deliveredPrices.addAndGet(prices.size());
+    CompletableFuture<Void> result = callListener(() -> listener.onSymbolPricesUpdated(instanceIndex, prices,
+      batch.equity, batch.margin, batch.freeMargin, batch.marginLevel, batch.accountCurrencyExchangeRate));
+    for (MetatraderSymbolPrice price : prices) {
+      result = result.thenCompose(ignored -> callListener(() -> listener.onSymbolPriceUpdated(instanceIndex,
+        price)));
+    }
+    return result;
+  }
+
+  private CompletableFuture<Void> deliverEvent(String instanceIndex, Supplier<CompletableFuture<Void>> event) {
+    PendingPrices pending = pendingPrices.get(instanceIndex);
+    if (pending != null) {
+      synchronized (pending) {
+        pending.batch = null;
+      }
+    }
+    addEvent(() -> callListener(event));
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private void addEvent(Supplier<CompletableFuture<Void>> event) {
+    events.add(event);
+    if (isProcessing.compareAndSet(false, true)) {
+      executor.execute(this::processEvents);
+    }
+  }
+
+  private void processEvents() {
+    Supplier<CompletableFuture<Void>> event;
+    while ((event = events.poll()) != null) {
+      CompletableFuture<Void> future = event.get();
+      if (!future.isDone()) {
+        future.whenComplete((result, err) -> executor.execute(this::processEvents));
+        return;
+      }
+    }
+    isProcessing.set(false);
+    if (!events.isEmpty() && isProcessing.compareAndSet(false, true)) {
+      executor.execute(this::processEvents);
+    }
+  }
+
+  private CompletableFuture<Void> callListener(Supplier<CompletableFuture<Void>> event) {
+    try {
+      return event.get().exceptionally(err -> {
+        logger.error("Failed to notify conflated listener about event", err);
+        return null;
+      });
+    } catch (Throwable err) {
+      logger.error("Failed to notify conflated listener about event", err);
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> onConnected(String instanceIndex, int replicas) {
+    return deliverEvent(instanceIndex, () -> listener.onConnected(instanceIndex, replicas));
+  }
+
+  @Override
+  public CompletableFuture<Void> onHealthStatus(String instanceIndex, HealthStatus status) {
+    return deliverEvent(instanceIndex, () -> listener.onHealthStatus(instanceIndex, status));
+  }
+
+  @Override
+  public CompletableFuture<Void> onDisconnected(String instanceIndex) {
+    return deliverEvent(instanceIndex, () -> listener.onDisconnected(instanceIndex));
+  }
+
+  @Override
+  public CompletableFuture<Void> onBrokerConnectionStatusChanged(String instanceIndex, boolean connected) {
+    return deliverEvent(instanceIndex, () -> listener.onBrokerConnectionStatusChanged(instanceIndex, connected));
+  }
+
+  @Override
+  public CompletableFuture<Void> onSynchronizationStarted(String instanceIndex) {
+    return deliverEvent(instanceIndex, () -> listener.onSynchronizationStarted(instanceIndex));
+  }
+
+  @Override
+  public CompletableFuture<Void> onAccountInformationUpdated(String instanceIndex,
+    MetatraderAccountInformation accountInformation) {
+    return deliverEvent(instanceIndex, () -> listener.onAccountInformationUpdated(instanceIndex, accountInformation));
+  }
+
+  @Override
+  public CompletableFuture<Void> onPositionsReplaced(String instanceIndex, List<MetatraderPosition> positions) {
+    return deliverEvent(instanceIndex, () -> listener.onPositionsReplaced(instanceIndex, positions));
+  }
+
+  @Override
+  public CompletableFuture<Void> onPositionUpdated(String instanceIndex, MetatraderPosition position) {
+    return deliverEvent(instanceIndex, () -> listener.onPositionUpdated(instanceIndex, position));
+  }
+
+  @Override
+  public CompletableFuture<Void> onPositionRemoved(String instanceIndex, String positionId) {
+    return deliverEvent(instanceIndex, () -> listener.onPositionRemoved(instanceIndex, positionId));
+  }
+
+  @Override
+  public CompletableFuture<Void> onOrdersReplaced(String instanceIndex, List<MetatraderOrder> orders) {
+    return deliverEvent(instanceIndex, () -> listener.onOrdersReplaced(instanceIndex, orders));
+  }
+
+  @Override
+  public CompletableFuture<Void> onOrderUpdated(String instanceIndex, MetatraderOrder order) {
+    return deliverEvent(instanceIndex, () -> listener.onOrderUpdated(instanceIndex, order));
+  }
+
+  @Override
+  public CompletableFuture<Void> onOrderCompleted(String instanceIndex, String orderId) {
+    return deliverEvent(instanceIndex, () -> listener.onOrderCompleted(instanceIndex, orderId));
+  }
+
+  @Override
+  public CompletableFuture<Void> onHistoryOrderAdded(String instanceIndex, MetatraderOrder historyOrder) {
+    return deliverEvent(instanceIndex, () -> listener.onHistoryOrderAdded(instanceIndex, historyOrder));
+  }
+
+  @Override
+  public CompletableFuture<Void> onDealAdded(String instanceIndex, MetatraderDeal deal) {
+    return deliverEvent(instanceIndex, () -> listener.onDealAdded(instanceIndex, deal));
+  }
+
+  @Override
+  public CompletableFuture<Void> onDealSynchronizationFinished(String instanceIndex, String synchronizationId) {
+    return deliverEvent(instanceIndex, () -> listener.onDealSynchronizationFinished(instanceIndex,
+      synchronizationId));
+  }
+
+  @Override
+  public CompletableFuture<Void> onOrderSynchronizationFinished(String instanceIndex, String synchronizationId) {
+    return deliverEvent(instanceIndex, () -> listener.onOrderSynchronizationFinished(instanceIndex,
+      synchronizationId));
+  }
+
+  @Override
+  public CompletableFuture<Void> onSymbolSpecificationUpdated(String instanceIndex,
+    MetatraderSymbolSpecification specification) {
+    return deliverEvent(instanceIndex, () -> listener.onSymbolSpecificationUpdated(instanceIndex, specification));
+  }
+
+  @Override
+  public CompletableFuture<Void> onSymbolSpecificationRemoved(String instanceIndex, String symbol) {
+    return deliverEvent(instanceIndex, () -> listener.onSymbolSpecificationRemoved(instanceIndex, symbol));
+  }
+
+  @Override
+  public CompletableFuture<Void> onSymbolSpecificationsUpdated(String instanceIndex,
+    List<MetatraderSymbolSpecification> specifications, List<String> removedSymbols) {
+    return deliverEvent(instanceIndex, () -> listener.onSymbolSpecificationsUpdated(instanceIndex, specifications,
+      removedSymbols));
+  }
+
+  @Override
+  public CompletableFuture<Void> onCandlesUpdated(String instanceIndex, List<MetatraderCandle> candles,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    return deliverEvent(instanceIndex, () -> listener.onCandlesUpdated(instanceIndex, candles, equity, margin,
+      freeMargin, marginLevel, accountCurrencyExchangeRate));
+  }
+
+  @Override
+  public CompletableFuture<Void> onTicksUpdated(String instanceIndex, List<MetatraderTick> ticks,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    return deliverEvent(instanceIndex, () -> listener.onTicksUpdated(instanceIndex, ticks, equity, margin, freeMargin,
+      marginLevel, accountCurrencyExchangeRate));
+  }
+
+  @Override
+  public CompletableFuture<Void> onBooksUpdated(String instanceIndex, List<MetatraderBook> books,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+    return deliverEvent(instanceIndex, () -> listener.onBooksUpdated(instanceIndex, books, equity, margin, freeMargin,
+      marginLevel, accountCurrencyExchangeRate));
+  }
+
+  @Override
+  public CompletableFuture<Void> onSubscriptionDowngraded(String instanceIndex, String symbol,
+    List<MarketDataSubscription> updates, List<MarketDataUnsubscription> unsubscriptions) {
+    return deliverEvent(instanceIndex, () -> listener.onSubscriptionDowngraded(instanceIndex, symbol, updates,
+      unsubscriptions));
+  }
+
+  @Override
+  public CompletableFuture<Void> onStreamClosed(String instanceIndex) {
+    return deliverEvent(instanceIndex, () -> listener.onStreamClosed(instanceIndex));
+  }
+}
@@ -0,0 +1,95 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of connected account instance hosts, keyed by account id, then instance number, then instance id in
+ * the format accountId:instanceNumber:host. Lookups do not depend on the total number of connected hosts
+ */
+public class ConnectedHostIndex {
+
+  private Set<String> instanceIds = ConcurrentHashMap.newKeySet();
+  private Map<String, Map<Integer, Set<String>>> instanceIdsByAccounts = new HashMap<>();
+
+  /**
+   * Adds a connected host
+   * @param accountId account id
+   * @param instanceNumber instance number
+   * @param instanceId instance id in the format accountId:instanceNumber:host
+   * @return true if the host was not connected before
+   */
+  public synchronized boolean add(String accountId, int instanceNumber, String instanceId) {
+    if (!instanceIds.add(instanceId)) {
+      return false;
+    }
+    instanceIdsByAccounts.computeIfAbsent(accountId, key -> new HashMap<>())
+      .computeIfAbsent(instanceNumber, key -> new HashSet<>()).add(instanceId);
+    return true;
+  }
+
+  /**
+   * Removes a connected host
+   * @param accountId account id
+   * @param instanceNumber instance number
+   * @param instanceId instance id in the format accountId:instanceNumber:host
+   * @return true if the host was connected
+   */
+  public synchronized boolean remove(String accountId, int instanceNumber, String instanceId) {
+    if (!instanceIds.remove(instanceId)) {
+      return false;
+    }
+    Map<Integer, Set<String>> instances = instanceIdsByAccounts.get(accountId);
+    if (instances != null) {
+      Set<String> hosts = instances.get(instanceNumber);
+      if (hosts != null) {
+        hosts.remove(instanceId);
+        if (hosts.isEmpty()) {
+          instances.remove(instanceNumber);
+        }
+      }
+      if (instances.isEmpty()) {
+        instanceIdsByAccounts.remove(accountId);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if a host is connected
+   * @param instanceId instance id in the format accountId:instanceNumber:host
+   * @return true if the host is connected
+   */
+  public boolean contains(String instanceId) {
+    return instanceIds.contains(instanceId);
+  }
+
+  /**
+   * Returns amount of connected hosts of an account instance
+   * @param accountId account id
+   * @param instanceNumber instance number
+   * @return amount of connected hosts
+   */
+  public synchronized int getHostCount(String accountId, int instanceNumber) {
+    Map<Integer, Set<String>> instances = instanceIdsByAccounts.get(accountId);
+    Set<String> hosts = instances != null ? instances.get(instanceNumber) : null;
+    return hosts != null ? hosts.size() : 0;
+  }
+
+  /**
+   * Checks if a host is the only connected host of its account instance, or if the account instance has no
+   * connected hosts
+   * @param accountId account id
+   * @param instanceNumber instance number
+   * @param instanceId instance id in the format accountId:instanceNumber:host
+   * @return true if there are no other connected hosts of the account instance
+   */
+  public synchronized boolean isOnlyActiveInstance(String accountId, int instanceNumber, String instanceId) {
+    Map<Integer, Set<String>> instances = instanceIdsByAccounts.get(accountId);
+    Set<String> hosts = instances != null ? instances.get(instanceNumber) : null;
+    return hosts == null || hosts.isEmpty() || (hosts.size() == 1 && hosts.contains(instanceId));
+  }
+}
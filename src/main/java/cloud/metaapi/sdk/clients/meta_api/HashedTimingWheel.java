@@ -0,0 +1,172 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import cloud.metaapi.sdk.util.Async;
+
+/**
+ * Hashed timing wheel which runs many restartable timeouts on a single thread. Restarting an armed timeout
+ * only moves its deadline, so timeouts which are restarted often and rarely expire, such as disconnect
+ * detection timeouts, are cheap to maintain. Timeouts expire with the precision of one tick
+ */
+public class HashedTimingWheel {
+
+  private static Logger logger = LogManager.getLogger(HashedTimingWheel.class);
+  private String name;
+  private long tickDurationInNanoseconds;
+  private ArrayDeque<Timeout>[] buckets;
+  private int mask;
+  private Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+  private long startTime;
+  private long tick = 0;
+  private Thread worker;
+  private volatile boolean isStopped = false;
+
+  /**
+   * Restartable timeout
+   */
+  public class Timeout {
+    private Runnable task;
+    private volatile long deadline;
+    private volatile boolean isCancelled = true;
+    private AtomicBoolean isScheduled = new AtomicBoolean(false);
+
+    private Timeout(Runnable task) {
+      this.task = task;
+    }
+
+    /**
+     * Arms the timeout or moves its deadline if it is already armed
+     * @param delayInMilliseconds delay after which the task is run
+     */
+    public void reset(long delayInMilliseconds) {
+      deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayInMilliseconds);
+      isCancelled = false;
+      if (isScheduled.compareAndSet(false, true)) {
+        pendingTimeouts.add(this);
+        start();
+      }
+    }
+
+    /**
+     * Disarms the timeout. The timeout can be armed again with {@link #reset(long)}
+     */
+    public void cancel() {
+      isCancelled = true;
+    }
+
+    /**
+     * Returns whether the timeout is armed
+     * @return whether the timeout is armed
+     */
+    public boolean isActive() {
+      return !isCancelled && isScheduled.get();
+    }
+  }
+
+  /**
+   * Constructs instance of hashed timing wheel
+   * @param name name of the worker thread
+   * @param tickDurationInMilliseconds tick duration in milliseconds
+   * @param wheelSize number of buckets in the wheel, rounded up to a power of two
+   */
+  @SuppressWarnings("unchecked")
+  public HashedTimingWheel(String name, long tickDurationInMilliseconds, int wheelSize) {
+    this.name = name;
+    this.tickDurationInNanoseconds = TimeUnit.MILLISECONDS.toNanos(tickDurationInMilliseconds);
+    int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+    this.buckets = new ArrayDeque[size];
+    for (int i = 0; i < size; ++i) {
+      buckets[i] = new ArrayDeque<>();
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * Creates a timeout which is not armed yet
+   * @param task task to run when the timeout expires. The task is run on the shared thread pool
+   * @return timeout
+   */
+  public Timeout newTimeout(Runnable task) {
+    return new Timeout(task);
+  }
+
+  /**
+   * Stops the worker thread. Armed timeouts do not expire afterwards
+   */
+  public void stop() {
+    isStopped = true;
+  }
+
+  private synchronized void start() {
+    if (worker == null && !isStopped) {
+      startTime = System.nanoTime();
+      worker = new Thread(this::run, name);
+      worker.setDaemon(true);
+      worker.start();
+    }
+  }
+
+  private void run() {
+    while (!isStopped) {
+      long tickDeadline = startTime + (tick + 1) * tickDurationInNanoseconds;
+      long sleepTime = tickDeadline - System.nanoTime();
+      if (sleepTime > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepTime);
+        } catch (InterruptedException e) {
+          return;
+        }
+        continue;
+      }
+      Timeout timeout;
+      while ((timeout = pendingTimeouts.poll()) != null) {
+        place(timeout);
+      }
+      ArrayDeque<Timeout> bucket = buckets[(int) (tick & mask)];
+      int count = bucket.size();
+      long now = System.nanoTime();
+      for (int i = 0; i < count; ++i) {
+        process(bucket.poll(), now);
+      }
+      tick++;
+    }
+  }
+
+  private void process(Timeout timeout, long now) {
+    if (!timeout.isCancelled && timeout.deadline > now) {
+      place(timeout);
+      return;
+    }
+    timeout.isScheduled.set(false);
+    if (timeout.isCancelled) {
+      return;
+    }
+    if (timeout.deadline > now) {
+      if (timeout.isScheduled.compareAndSet(false, true)) {
+        place(timeout);
+      }
+      return;
+    }
+    Runnable task = timeout.task;
+    Async.run(() -> {
+      try {
+        task.run();
+      } catch (Throwable err) {
+        logger.error("Failed to run timeout task", err);
+      }
+    });
+  }
+
+  private void place(Timeout timeout) {
+    long deadlineTick = (timeout.deadline - startTime + tickDurationInNanoseconds - 1) / tickDurationInNanoseconds;
+    buckets[(int) (Math.max(deadlineTick, tick + 1) & mask)].add(timeout);
+  }
+}
@@ -0,0 +1,300 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Reactive Streams publisher of a market data stream with demand-based backpressure, which can be consumed
+ * by reactive libraries directly. Items published before a subscriber subscribed are not delivered to it.
+ * Publishing only queues items: each subscription delivers its items by a drain task on its own executor, so
+ * subscriber code never runs on the thread which publishes items or requests more of them. If a subscriber
+ * requests items slower than they arrive, the items are handled according to the overflow strategy of the
+ * subscription
+ * @param <T> type of published items
+ */
+public class MarketDataPublisher<T> implements Publisher<T> {
+
+  private static Logger logger = LogManager.getLogger(MarketDataPublisher.class);
+  private Function<T, String> keyFunction;
+  private Executor executor;
+  private List<StreamSubscription> subscriptions = new CopyOnWriteArrayList<>();
+  private volatile boolean isCompleted = false;
+
+  /**
+   * Strategy applied to items which were published but not requested yet
+   */
+  public enum OverflowStrategy {
+    /**
+     * Keep items in a buffer. If the buffer is full, the subscription fails with an error
+     */
+    BUFFER,
+    /**
+     * Keep items in a buffer. If the buffer is full, the oldest item is dropped
+     */
+    DROP_OLDEST,
+    /**
+     * Keep only the latest item of each symbol
+     */
+    CONFLATE
+  }
+
+  /**
+   * Subscription options
+   */
+  public static class SubscriptionOptions {
+    /**
+     * Strategy applied to items published but not requested yet. Default is {@code BUFFER}
+     */
+    public OverflowStrategy overflowStrategy = OverflowStrategy.BUFFER;
+    /**
+     * Maximum number of items kept for the subscriber for {@code BUFFER} and {@code DROP_OLDEST}
+     * strategies. Default is 1000
+     */
+    public int bufferSize = 1000;
+    /**
+     * Executor to deliver items to the subscriber on. Signals of a subscription are never delivered
+     * concurrently. By default, the executor of the publisher is used
+     */
+    public Executor executor = null;
+  }
+
+  /**
+   * Constructs instance of market data publisher
+   * @param keyFunction function which returns conflation key of an item, e.g. its symbol
+   * @param executor default executor to deliver items to subscribers on
+   */
+  public MarketDataPublisher(Function<T, String> keyFunction, Executor executor) {
+    this.keyFunction = keyFunction;
+    this.executor = executor;
+  }
+
+  /**
+   * Subscribes to the stream with default options
+   * @param subscriber subscriber
+   */
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    subscribe(subscriber, new SubscriptionOptions());
+  }
+
+  /**
+   * Subscribes to the stream
+   * @param subscriber subscriber
+   * @param options subscription options
+   */
+  public void subscribe(Subscriber<? super T> subscriber, SubscriptionOptions options) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    StreamSubscription subscription = new StreamSubscription(subscriber, options);
+    subscriptions.add(subscription);
+    try {
+      subscriber.onSubscribe(subscription);
+    } catch (Throwable err) {
+      logger.error("Market data subscriber failed to process subscription", err);
+      subscription.cancel();
+    }
+    if (isCompleted) {
+      subscription.isCompleted = true;
+    }
+    subscription.start();
+  }
+
+  /**
+   * Returns number of active subscriptions
+   * @return number of active subscriptions
+   */
+  public int getSubscriberCount() {
+    return subscriptions.size();
+  }
+
+  /**
+   * Publishes an item to all subscribers
+   * @param item item to publish
+   */
+  public void publish(T item) {
+    for (StreamSubscription subscription : subscriptions) {
+      subscription.offer(item);
+    }
+  }
+
+  /**
+   * Completes the stream. Subscribers receive the remaining requested items and then a completion signal
+   */
+  public void complete() {
+    isCompleted = true;
+    for (StreamSubscription subscription : subscriptions) {
+      subscription.complete();
+    }
+  }
+
+  private class StreamSubscription implements Subscription {
+    private Subscriber<? super T> subscriber;
+    private Executor executor;
+    private OverflowStrategy overflowStrategy;
+    private int bufferSize;
+    private ArrayDeque<T> buffer = new ArrayDeque<>();
+    private Map<String, T> latestItems = new LinkedHashMap<>();
+    private AtomicLong requested = new AtomicLong();
+    private AtomicInteger pendingDrains = new AtomicInteger(1);
+    private volatile boolean isCancelled = false;
+    private volatile boolean isCompleted = false;
+    private volatile Throwable error;
+
+    public StreamSubscription(Subscriber<? super T> subscriber, SubscriptionOptions options) {
+      this.subscriber = subscriber;
+      this.executor = options.executor != null ? options.executor : MarketDataPublisher.this.executor;
+      this.overflowStrategy = options.overflowStrategy;
+      this.bufferSize = Math.max(options.bufferSize, 1);
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        fail(new IllegalArgumentException("Number of requested items must be positive, got " + n
+          + " (Reactive Streams rule 3.9)"));
+      } else {
+        requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      isCancelled = true;
+      subscriptions.remove(this);
+      synchronized (this) {
+        buffer.clear();
+        latestItems.clear();
+      }
+    }
+
+    public void offer(T item) {
+      if (isCancelled) {
+        return;
+      }
+      synchronized (this) {
+        if (overflowStrategy == OverflowStrategy.CONFLATE) {
+          latestItems.put(keyFunction.apply(item), item);
+        } else if (buffer.size() < bufferSize) {
+          buffer.add(item);
+        } else if (overflowStrategy == OverflowStrategy.DROP_OLDEST) {
+          buffer.poll();
+          buffer.add(item);
+        } else if (error == null) {
+          error = new IllegalStateException("Market data subscriber buffer of " + bufferSize
+            + " items overflowed");
+        }
+      }
+      drain();
+    }
+
+    public void complete() {
+      isCompleted = true;
+      drain();
+    }
+
+    private void fail(Throwable err) {
+      if (error == null) {
+        error = err;
+      }
+    }
+
+    private synchronized T poll() {
+      if (overflowStrategy == OverflowStrategy.CONFLATE) {
+        Iterator<T> iterator = latestItems.values().iterator();
+        if (!iterator.hasNext()) {
+          return null;
+        }
+        T item = iterator.next();
+        iterator.remove();
+        return item;
+      }
+      return buffer.poll();
+    }
+
+    private synchronized boolean isEmpty() {
+      return buffer.isEmpty() && latestItems.isEmpty();
+    }
+
+    /**
+     * Starts delivery of items once the subscriber has processed its subscription. Until then drains only
+     * count as pending, so that no signal is delivered concurrently with {@code onSubscribe}
+     */
+    public void start() {
+      scheduleDrain();
+    }
+
+    private void drain() {
+      if (pendingDrains.getAndIncrement() != 0) {
+        return;
+      }
+      scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+      try {
+        executor.execute(this::drainLoop);
+      } catch (Throwable err) {
+        logger.error("Failed to schedule delivery to market data subscriber", err);
+        cancel();
+      }
+    }
+
+    private void drainLoop() {
+      int missed = 1;
+      do {
+        while (!isCancelled) {
+          if (error != null) {
+            cancel();
+            try {
+              subscriber.onError(error);
+            } catch (Throwable err) {
+              logger.error("Market data subscriber failed to process error", err);
+            }
+            break;
+          }
+          if (requested.get() == 0) {
+            break;
+          }
+          T item = poll();
+          if (item == null) {
+            break;
+          }
+          if (requested.get() != Long.MAX_VALUE) {
+            requested.decrementAndGet();
+          }
+          try {
+            subscriber.onNext(item);
+          } catch (Throwable err) {
+            logger.error("Market data subscriber failed to process item", err);
+            cancel();
+          }
+        }
+        if (!isCancelled && isCompleted && error == null && isEmpty()) {
+          cancel();
+          try {
+            subscriber.onComplete();
+          } catch (Throwable err) {
+            logger.error("Market data subscriber failed to process completion", err);
+          }
+        }
+        missed = pendingDrains.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
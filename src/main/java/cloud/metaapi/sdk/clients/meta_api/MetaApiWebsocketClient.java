@@ -5,17 +5,25 @@ import java.net.URISyntaxException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -42,6 +50,7 @@ import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException.TooManyR
 import cloud.metaapi.sdk.clients.meta_api.LatencyListener.ResponseTimestamps;
 import cloud.metaapi.sdk.clients.meta_api.LatencyListener.TradeTimestamps;
 import cloud.metaapi.sdk.clients.meta_api.LatencyListener.UpdateTimestamps;
+import cloud.metaapi.sdk.clients.meta_api.PacketDecoder.PricesPacket;
 import cloud.metaapi.sdk.clients.meta_api.models.MarketDataSubscription;
 import cloud.metaapi.sdk.clients.meta_api.models.MarketDataUnsubscription;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountInformation;
@@ -92,19 +101,34 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
   private boolean useSharedClientApi;
   private HttpClient httpClient;
   private ObjectMapper jsonMapper = JsonMapper.getInstance();
+  private PacketDecoder packetDecoder = new PacketDecoder(jsonMapper);
   private Map<String, List<SynchronizationListener>> synchronizationListeners = new ConcurrentHashMap<>();
+  private Map<String, PriceRingBuffer> priceRingBuffers = new ConcurrentHashMap<>();
+  private int priceRingBufferSize;
+  private boolean compactPriceStorage;
   private List<LatencyListener> latencyListeners = new LinkedList<>();
   private List<ReconnectListenerItem> reconnectListeners = new LinkedList<>();
-  private Map<String, String> connectedHosts = new ConcurrentHashMap<>();
+  private ConnectedHostIndex connectedHosts = new ConnectedHostIndex();
   protected List<SocketInstance> socketInstances = new ArrayList<>();
-  protected Map<String, Integer> socketInstancesByAccounts = new ConcurrentHashMap<>();
+  protected SocketInstancePlacement placement;
+  protected Map<String, Integer> socketInstancesByAccounts;
   private SynchronizationThrottler.Options synchronizationThrottlerOpts;
+  private SynchronizationThrottler.GlobalState synchronizationThrottlerState =
+    new SynchronizationThrottler.GlobalState();
   private SubscriptionManager subscriptionManager;
-  private Map<String, Timer> statusTimers = new ConcurrentHashMap<>();
-  private Map<String, List<Supplier<CompletableFuture<Void>>>> eventQueues = new ConcurrentHashMap<>();
+  private RequestRateLimiter requestRateLimiter;
+  private HashedTimingWheel disconnectTimers = new HashedTimingWheel("metaapi-disconnect-timer", 100, 1024);
+  private Map<String, HashedTimingWheel.Timeout> statusTimers = new ConcurrentHashMap<>();
+  private Map<String, AccountEventQueue> eventQueues = new ConcurrentHashMap<>();
+  private ShardedEventExecutor eventShards;
+  private ExecutorService listenerExecutor;
+  private Map<String, SynchronizationPacketHandler> packetHandlers = new ConcurrentHashMap<>();
+  private Set<String> builtInPacketTypes;
+  private Map<String, List<InstanceContext>> instanceContexts = new ConcurrentHashMap<>();
   private SubscribeLock subscribeLock;
   private PacketOrderer packetOrderer;
   private PacketLogger packetLogger;
+  private SdkScheduler scheduler;
   
   private static class RequestResolve {
     public CompletableFuture<JsonNode> future;
@@ -148,6 +172,11 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
      * Synchronization throttler options
      */
     public SynchronizationThrottler.Options synchronizationThrottler = new SynchronizationThrottler.Options();
+    /**
+     * Strategy which selects socket instances for new accounts. By default is
+     * {@link SocketInstancePlacement#FIRST_FIT}
+     */
+    public SocketInstancePlacement.Strategy placementStrategy = SocketInstancePlacement.FIRST_FIT;
     /**
      * Packet logger options
      */
@@ -164,6 +193,14 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
      * Option to use a shared server
      */
     public boolean useSharedClientApi = false;
+    /**
+     * Options for limiting the rate of resubscriptions after reconnects
+     */
+    public ResubscriptionScheduler.Options resubscription = new ResubscriptionScheduler.Options();
+    /**
+     * Options for limiting the rate of requests on client side after too many requests errors
+     */
+    public RequestRateLimiter.Options requestRateLimiter = new RequestRateLimiter.Options();
   }
   
   /**
@@ -174,6 +211,33 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
      * An option to process synchronization events after finishing previous ones
      */
     public boolean sequentialProcessing = false;
+    /**
+     * Number of worker threads to pin accounts to. If set to a positive value, all synchronization events of
+     * an account are processed in order on the worker thread owning the account. By default is 0, which means
+     * that events are processed on the shared thread pool
+     */
+    public int shardCount = 0;
+    /**
+     * Function which returns shard index for an account id, or {@code null} to place accounts by id hash.
+     * Returned value is taken modulo the number of shards
+     */
+    public Function<String, Integer> shardPlacement = null;
+    /**
+     * Number of slots in the ring buffer of each account which has price consumers. Default is 4096
+     */
+    public int priceRingBufferSize = 4096;
+    /**
+     * Number of threads which deliver events to conflating synchronization listeners, price consumers and
+     * market data publishers of the client. By default is 4
+     */
+    public int listenerThreadCount = 4;
+    /**
+     * Whether terminal states store prices in primitive tables instead of price models, see
+     * {@link SymbolPriceTable}. Reduces memory used by accounts with many symbols, but prices read from terminal
+     * states do not contain broker time, account currency exchange rate and latency timestamps. By default is
+     * false
+     */
+    public boolean compactPriceStorage = false;
   }
   
   /**
@@ -181,6 +245,138 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
    */
   public static class PacketLoggerOptions extends PacketLogger.LoggerOptions {}
   
+  /**
+   * Account instance which a synchronization packet belongs to. Instance contexts are created once per
+   * account instance and reused for all its packets
+   */
+  public class InstanceContext {
+    private String accountId;
+    private int instanceNumber;
+    private String host;
+    private String instanceId;
+    private String instanceIndex;
+    private volatile HashedTimingWheel.Timeout disconnectTimer;
+    
+    private InstanceContext(String accountId, int instanceNumber, String host) {
+      this.accountId = accountId;
+      this.instanceNumber = instanceNumber;
+      this.host = host;
+      this.instanceIndex = instanceNumber + ":" + (Js.or(host, 0));
+      this.instanceId = accountId + ":" + instanceIndex;
+    }
+    
+    /**
+     * Returns account id
+     * @return account id
+     */
+    public String getAccountId() {
+      return accountId;
+    }
+    
+    /**
+     * Returns instance number
+     * @return instance number
+     */
+    public int getInstanceNumber() {
+      return instanceNumber;
+    }
+    
+    /**
+     * Returns host name of the instance, or {@code null}
+     * @return host name
+     */
+    public String getHost() {
+      return host;
+    }
+    
+    /**
+     * Returns instance id in the format accountId:instanceNumber:host
+     * @return instance id
+     */
+    public String getInstanceId() {
+      return instanceId;
+    }
+    
+    /**
+     * Returns instance index in the format instanceNumber:host, as passed to synchronization listeners
+     * @return instance index
+     */
+    public String getInstanceIndex() {
+      return instanceIndex;
+    }
+    
+    private boolean isOnlyActiveInstance() {
+      return connectedHosts.isOnlyActiveInstance(accountId, instanceNumber, instanceId);
+    }
+    
+    private CompletableFuture<Void> onDisconnected(boolean isTimeout) {
+      return Async.run(() -> {
+        if (connectedHosts.contains(instanceId)) {
+          List<SynchronizationListener> listeners = getSynchronizationListeners(accountId);
+          if (isOnlyActiveInstance()) {
+            List<CompletableFuture<Void>> onDisconnectedFutures = new ArrayList<>();
+            if (!isTimeout) {
+              onDisconnectedFutures.add(subscriptionManager.onDisconnected(accountId, instanceNumber));
+            }
+            for (SynchronizationListener listener : listeners) {
+              onDisconnectedFutures.add(listener.onDisconnected(instanceIndex).exceptionally(e -> {
+                logger.error(accountId + ":" + instanceIndex + ": Failed to notify "
+                  + "listener about disconnected event", e);
+                return null;
+              }));
+            }
+            CompletableFuture.allOf(onDisconnectedFutures.toArray(new CompletableFuture<?>[0])).join();
+          } else {
+            List<CompletableFuture<Void>> onStreamClosedFutures = new ArrayList<>();
+            packetOrderer.onStreamClosed(instanceId);
+            SocketInstance socketInstance = getSocketInstanceByAccount(accountId);
+            if (socketInstance != null) {
+              socketInstance.synchronizationThrottler.removeIdByParameters(accountId, instanceNumber, host);
+            }
+            for (SynchronizationListener listener : listeners) {
+              onStreamClosedFutures.add(listener.onStreamClosed(instanceIndex).exceptionally(e -> {
+                logger.error(accountId + ":" + instanceIndex + ": Failed to notify "
+                  + "listener about stream closed event", e);
+                return null;
+              }));
+            }
+            CompletableFuture.allOf(onStreamClosedFutures.toArray(new CompletableFuture<?>[0])).join();
+          }
+          if (connectedHosts.remove(accountId, instanceNumber, instanceId)) {
+            placement.onHostDisconnected(accountId);
+          }
+        }
+      });
+    }
+    
+    private void cancelDisconnectTimer() {
+      HashedTimingWheel.Timeout timer = statusTimers.get(instanceId);
+      if (timer != null) {
+        timer.cancel();
+      }
+    }
+    
+    private void removeDisconnectTimer() {
+      disconnectTimer = null;
+      HashedTimingWheel.Timeout timer = statusTimers.remove(instanceId);
+      if (timer != null) {
+        timer.cancel();
+      }
+    }
+    
+    private void resetDisconnectTimer() {
+      if (disconnectTimer == null) {
+        disconnectTimer = statusTimers.computeIfAbsent(instanceId, id -> disconnectTimers.newTimeout(() -> {
+          if (isOnlyActiveInstance()) {
+            subscriptionManager.onTimeout(accountId, instanceNumber);
+          }
+          queueEvent(accountId, () -> onDisconnected(true));
+        }));
+      }
+      disconnectTimer.reset(resetDisconnectTimerTimeout);
+    }
+  }
+  
   /**
    * Constructs MetaApi websocket API client instance
    * @param httpClient HTTP client
@@ -190,6 +386,20 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
    * @throws ValidationException if options are invalid
    */
   public MetaApiWebsocketClient(HttpClient httpClient, String token, ClientOptions opts)
+    throws IOException, ValidationException {
+    this(httpClient, token, opts, SdkScheduler.getDefault());
+  }
+  
+  /**
+   * Constructs MetaApi websocket API client instance
+   * @param httpClient HTTP client
+   * @param token authorization token
+   * @param opts websocket client options
+   * @param scheduler scheduler to run request timeouts and periodic jobs on
+   * @throws IOException if packet logger is enabled and failed to create the log directory
+   * @throws ValidationException if options are invalid
+   */
+  public MetaApiWebsocketClient(HttpClient httpClient, String token, ClientOptions opts, SdkScheduler scheduler)
     throws IOException, ValidationException {
     OptionsValidator validator = new OptionsValidator();
     validator.validateNonZeroInt(opts.packetOrderingTimeout, "packetOrderingTimeout");
@@ -198,6 +408,7 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     validator.validateNonZeroInt(opts.retryOpts.minDelayInSeconds, "retryOpts.minDelayInSeconds");
     validator.validateNonZeroInt(opts.retryOpts.maxDelayInSeconds, "retryOpts.maxDelayInSeconds");
     validator.validateNonZeroLong(opts.retryOpts.subscribeCooldownInSeconds, "retryOpts.subscribeCooldownInSeconds");
+    validator.validateNonZeroInt(opts.eventProcessing.listenerThreadCount, "eventProcessing.listenerThreadCount");
     
     this.httpClient = httpClient;
     this.application = opts.application;
@@ -213,14 +424,46 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     this.maxRetryDelayInSeconds = opts.retryOpts.maxDelayInSeconds;
     this.subscribeCooldownInSeconds = opts.retryOpts.subscribeCooldownInSeconds;
     this.sequentialEventProcessing = opts.eventProcessing.sequentialProcessing;
+    this.priceRingBufferSize = opts.eventProcessing.priceRingBufferSize;
+    this.compactPriceStorage = opts.eventProcessing.compactPriceStorage;
+    if (opts.eventProcessing.shardCount > 0) {
+      this.eventShards = new ShardedEventExecutor(opts.eventProcessing.shardCount,
+        opts.eventProcessing.shardPlacement);
+    }
+    AtomicInteger listenerThreadCounter = new AtomicInteger();
+    this.listenerExecutor = Executors.newFixedThreadPool(opts.eventProcessing.listenerThreadCount, runnable -> {
+      Thread thread = new Thread(runnable, "metaapi-listener-" + listenerThreadCounter.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
     this.useSharedClientApi = opts.useSharedClientApi;
     this.synchronizationThrottlerOpts = opts.synchronizationThrottler;
-    this.subscriptionManager = new SubscriptionManager(this);
-    this.packetOrderer = new PacketOrderer(this, opts.packetOrderingTimeout);
+    this.placement = new SocketInstancePlacement(opts.placementStrategy);
+    this.socketInstancesByAccounts = placement.getInstancesByAccounts();
+    this.scheduler = scheduler;
+    this.subscriptionManager = new SubscriptionManager(this, scheduler, opts.resubscription);
+    this.requestRateLimiter = new RequestRateLimiter(scheduler, opts.requestRateLimiter);
+    this.packetOrderer = new PacketOrderer(this, opts.packetOrderingTimeout, scheduler);
     if (opts.packetLogger.enabled) {
-      this.packetLogger = new PacketLogger(opts.packetLogger);
+      this.packetLogger = new PacketLogger(opts.packetLogger, scheduler);
       this.packetLogger.start();
     }
+    packetHandlers.put("authenticated", this::processAuthenticatedPacket);
+    packetHandlers.put("disconnected", this::processDisconnectedPacket);
+    packetHandlers.put("synchronizationStarted", this::processSynchronizationStartedPacket);
+    packetHandlers.put("accountInformation", this::processAccountInformationPacket);
+    packetHandlers.put("deals", this::processDealsPacket);
+    packetHandlers.put("orders", this::processOrdersPacket);
+    packetHandlers.put("historyOrders", this::processHistoryOrdersPacket);
+    packetHandlers.put("positions", this::processPositionsPacket);
+    packetHandlers.put("update", this::processUpdatePacket);
+    packetHandlers.put("dealSynchronizationFinished", this::processDealSynchronizationFinishedPacket);
+    packetHandlers.put("orderSynchronizationFinished", this::processOrderSynchronizationFinishedPacket);
+    packetHandlers.put("status", this::processStatusPacket);
+    packetHandlers.put("downgradeSubscription", this::processDowngradeSubscriptionPacket);
+    packetHandlers.put("specifications", this::processSpecificationsPacket);
+    packetHandlers.put("prices", this::processPricesPacket);
+    this.builtInPacketTypes = new HashSet<>(packetHandlers.keySet());
   }
   
   /**
@@ -278,16 +521,35 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
    * @return list of subscribed account ids
    */
   public List<String> getSubscribedAccountIds(Integer socketInstanceIndex) {
-    List<String> connectedIds = new ArrayList<>();
-    for (String instanceId : new ArrayList<>(connectedHosts.keySet())) {
-      String accountId = instanceId.split(":")[0];
-      if (!connectedIds.contains(accountId) && socketInstancesByAccounts.containsKey(accountId)
-          && (socketInstancesByAccounts.get(accountId) == socketInstanceIndex || 
-          socketInstanceIndex == null)) {
-        connectedIds.add(accountId);
-      }
-    }
-    return connectedIds;
+    return placement.getSubscribedAccountIds(socketInstanceIndex);
+  }
+  
+  /**
+   * Returns the amount of subscribed accounts
+   * @param socketInstanceIndex socket instance index, or {@code null} to count accounts of all instances
+   * @return amount of subscribed accounts
+   */
+  public int getSubscribedAccountCount(Integer socketInstanceIndex) {
+    return placement.getSubscribedAccountCount(socketInstanceIndex);
+  }
+  
+  /**
+   * Sets placement group of an account, e.g. broker server name. Accounts of the same group are placed on
+   * the same socket instance when {@link SocketInstancePlacement#PACK_BY_GROUP} strategy is used
+   * @param accountId account id
+   * @param group placement group, or {@code null}
+   */
+  public void setPlacementGroup(String accountId, String group) {
+    placement.setGroup(accountId, group);
+  }
+  
+  /**
+   * Removes socket instance assignment of an account, so that the account is placed again on next subscribe
+   * @param accountId account id
+   * @return index of the socket instance the account was assigned to, or {@code null} if it was not assigned
+   */
+  public Integer unassignSocketInstance(String accountId) {
+    return placement.unassign(accountId);
   }
   
   /**
@@ -307,13 +569,7 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
    * @return list of accounts assigned to instance
    */
   public List<String> getAssignedAccounts(int socketInstanceIndex) {
-    List<String> accountIds = new ArrayList<>();
-    socketInstancesByAccounts.keySet().stream().forEach(key -> {
-      if (socketInstancesByAccounts.get(key) == socketInstanceIndex) {
-        accountIds.add(key);
-      }
-    });
-    return accountIds;
+    return placement.getAssignedAccounts(socketInstanceIndex);
   }
 
   private static class SubscribeLock {
@@ -334,13 +590,13 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     if (metadata.type.equals("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER")) {
       subscribeLock = new SubscribeLock() {{
         recommendedRetryTime = metadata.recommendedRetryTime;
-        lockedAtAccounts = getSubscribedAccountIds().size();
+        lockedAtAccounts = getSubscribedAccountCount(null);
         lockedAtTime = Date.from(Instant.now()).getTime();
       }};
       return CompletableFuture.completedFuture(null);
     } else {
-      List<String> subscribedAccounts = getSubscribedAccountIds(socketInstanceIndex);
-      if (subscribedAccounts.size() == 0) {
+      int subscribedAccounts = getSubscribedAccountCount(socketInstanceIndex);
+      if (subscribedAccounts == 0) {
         SocketInstance socketInstance = socketInstances.get(socketInstanceIndex);
         socketInstance.socket.close();
         return reconnect(String.valueOf(socketInstanceIndex));
@@ -349,7 +605,7 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
         instance.subscribeLock = new SubscribeLock() {{
           recommendedRetryTime = metadata.recommendedRetryTime;
           type = metadata.type;
-          lockedAtAccounts = subscribedAccounts.size();
+          lockedAtAccounts = subscribedAccounts;
         }};
         return CompletableFuture.completedFuture(null);
       }
@@ -392,7 +648,7 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
           isReconnecting = false;
           socket = null;
           synchronizationThrottler = new SynchronizationThrottler(self, socketInstanceIndex,
-            synchronizationThrottlerOpts);
+            synchronizationThrottlerOpts, scheduler, synchronizationThrottlerState);
           subscribeLock = null;
           clientId = Math.random();
         }};
@@ -409,8 +665,8 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
       } catch (Exception e) {
         result.completeExceptionally(e);
       }
-      return result.join();
-    });
+      return result;
+    }).thenCompose(result -> result);
   }
   
   private void createSocket(SocketInstance instance, String uri, CompletableFuture<Void> result)
@@ -509,11 +765,7 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     });
     socketInstance.on("response", (Object[] args) -> {
       try {
-        JsonNode uncheckedData = jsonMapper.readTree(args[0].toString());
-        if (uncheckedData.isTextual()) {
-          uncheckedData = jsonMapper.readTree(uncheckedData.asText());
-        }
-        final JsonNode data = uncheckedData;
+        JsonNode data = packetDecoder.decode(args[0]);
         RequestResolve requestResolve = data.has("requestId")
           ? instance.requestResolves.remove(data.get("requestId").asText()) : null;
         if (requestResolve != null) {
@@ -554,7 +806,7 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     });
     socketInstance.on("processingError", (Object[] args) -> {
       try {
-        WebsocketError error = jsonMapper.readValue(args[0].toString(), WebsocketError.class);
+        WebsocketError error = packetDecoder.decode(args[0], WebsocketError.class);
         RequestResolve requestResolve = instance.requestResolves.remove(error.requestId);
         if (requestResolve != null) {
           requestResolve.future.completeExceptionally(convertError(error));
@@ -565,10 +817,8 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     });
     socketInstance.on("synchronization", (Object[] args) -> {
       try {
-        ObjectNode packet = (ObjectNode) jsonMapper.readTree(args[0].toString());
-        if (packet.isTextual()) {
-          packet = (ObjectNode) jsonMapper.readTree(packet.asText());
-        }
+        ObjectNode packet = (ObjectNode) (packetLogger != null ? packetDecoder.decode(args[0])
+          : packetDecoder.decodeSynchronizationPacket(args[0]));
         String synchronizationId = packet.has("synchronizationId")
           ? packet.get("synchronizationId").asText() : null;
         if (synchronizationId == null || instance.synchronizationThrottler.getActiveSynchronizationIds()
@@ -580,7 +830,7 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
           packet.put("type", "noop");
         }
         queuePacket(packet);
-      } catch (JsonProcessingException e) {
+      } catch (IOException e) {
         logger.error("Failed to parse incoming synchronization packet", e);
       }
     });
@@ -600,10 +850,17 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
       }
     });
     synchronizationListeners.clear();
+    priceRingBuffers.values().forEach(PriceRingBuffer::stop);
+    priceRingBuffers.clear();
     latencyListeners.clear();
-    socketInstancesByAccounts.clear();
+    placement.clear();
     socketInstances.clear();
     packetOrderer.stop();
+    disconnectTimers.stop();
+    if (eventShards != null) {
+      eventShards.stop();
+    }
+    listenerExecutor.shutdown();
   }
   
   /**
@@ -949,29 +1206,27 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
    * with {@link TradeException}, check error properties for error code details
    */
   public CompletableFuture<MetatraderTradeResponse> trade(String accountId, MetatraderTrade trade) {
-    return Async.supply(() -> {
-      ObjectNode request = jsonMapper.createObjectNode();
-      request.put("type", "trade");
-      request.set("trade", jsonMapper.valueToTree(trade));
-      return rpcRequest(accountId, request).thenApply(response -> {
-        try {
-          MetatraderTradeResponse tradeResponse = jsonMapper
-            .treeToValue(response.get("response"), MetatraderTradeResponse.class);
-          if (Arrays.asList("ERR_NO_ERROR", "TRADE_RETCODE_PLACED", "TRADE_RETCODE_DONE", 
-            "TRADE_RETCODE_DONE_PARTIAL", "TRADE_RETCODE_NO_CHANGES").contains(tradeResponse.stringCode)
-          ) {
-            return tradeResponse;
-          } else {
-            throw new TradeException(
-              tradeResponse.message,
-              tradeResponse.numericCode,
-              tradeResponse.stringCode
-            );
-          }
-        } catch (Exception e) {
-          throw new CompletionException(e);
+    ObjectNode request = jsonMapper.createObjectNode();
+    request.put("type", "trade");
+    request.set("trade", jsonMapper.valueToTree(trade));
+    return rpcRequest(accountId, request).thenApply(response -> {
+      try {
+        MetatraderTradeResponse tradeResponse = jsonMapper
+          .treeToValue(response.get("response"), MetatraderTradeResponse.class);
+        if (Arrays.asList("ERR_NO_ERROR", "TRADE_RETCODE_PLACED", "TRADE_RETCODE_DONE", 
+          "TRADE_RETCODE_DONE_PARTIAL", "TRADE_RETCODE_NO_CHANGES").contains(tradeResponse.stringCode)
+        ) {
+          return tradeResponse;
+        } else {
+          throw new TradeException(
+            tradeResponse.message,
+            tradeResponse.numericCode,
+            tradeResponse.stringCode
+          );
         }
-      }).join();
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
     });
   }
   
@@ -1261,7 +1516,18 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
       if (err != null && !(err.getCause() instanceof NotFoundException)) {
         throw new CompletionException(err);
       }
-      socketInstancesByAccounts.remove(accountId);
+      placement.unassign(accountId);
+      AccountEventQueue eventQueue = eventQueues.get(accountId);
+      if (eventQueue != null && eventQueue.close()) {
+        eventQueues.remove(accountId, eventQueue);
+        if (eventShards != null) {
+          eventShards.releaseEventQueue(eventQueue);
+        }
+      }
+      List<InstanceContext> contexts = instanceContexts.remove(accountId);
+      if (contexts != null) {
+        contexts.forEach(InstanceContext::removeDisconnectTimer);
+      }
       return response;
     });
   }
@@ -1290,6 +1556,62 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     if (listeners != null) listeners.remove(listener);
   }
   
+  /**
+   * Adds a consumer of symbol prices of an account. Prices are copied once per packet into a ring buffer of
+   * the account, which the consumer reads on the listener executor. Unlike synchronization listeners, a slow consumer
+   * does not delay other consumers or events of the account; instead it skips the prices it has fallen too
+   * far behind on
+   * @param accountId account id
+   * @param handler price handler
+   * @return price consumer
+   */
+  public PriceRingBuffer.Consumer addPriceConsumer(String accountId, PriceRingBuffer.PriceEventHandler handler) {
+    List<PriceRingBuffer.Consumer> consumer = new ArrayList<>();
+    priceRingBuffers.compute(accountId, (id, ringBuffer) -> {
+      PriceRingBuffer result = ringBuffer != null ? ringBuffer : new PriceRingBuffer(id, priceRingBufferSize,
+        listenerExecutor);
+      consumer.add(result.addConsumer(handler));
+      return result;
+    });
+    return consumer.get(0);
+  }
+  
+  /**
+   * Removes a consumer of symbol prices of an account
+   * @param accountId account id
+   * @param consumer price consumer to remove
+   */
+  public void removePriceConsumer(String accountId, PriceRingBuffer.Consumer consumer) {
+    consumer.stop();
+    priceRingBuffers.computeIfPresent(accountId, (id, ringBuffer) ->
+      ringBuffer.getConsumers().isEmpty() ? null : ringBuffer);
+  }
+  
+  /**
+   * Registers a handler for synchronization packets of a type not processed by the client itself. The
+   * handler is invoked in the same order and on the same thread as other events of the account
+   * @param type packet type
+   * @param handler packet handler
+   * @throws ValidationException if the packet type is processed by the client itself
+   */
+  public void registerPacketHandler(String type, SynchronizationPacketHandler handler) throws ValidationException {
+    if (builtInPacketTypes.contains(type)) {
+      throw new ValidationException("Packet type " + type + " is processed by the client and can not be "
+        + "overridden", null);
+    }
+    packetHandlers.put(type, handler);
+  }
+  
+  /**
+   * Removes a handler registered for a synchronization packet type
+   * @param type packet type
+   */
+  public void removePacketHandler(String type) {
+    if (!builtInPacketTypes.contains(type)) {
+      packetHandlers.remove(type);
+    }
+  }
+  
   /**
    * Adds latency listener
    * @param listener latency listener to add
@@ -1342,21 +1664,8 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     List<JsonNode> packets = packetOrderer.restoreOrder(packet).stream()
       .filter(p -> !p.get("type").asText().equals("noop"))
       .collect(Collectors.toList());
-    if (sequentialEventProcessing && packet.has("sequenceNumber")) {
-      List<Supplier<CompletableFuture<Void>>> events = packets.stream().map(packetItem -> {
-        return new Supplier<CompletableFuture<Void>>() {
-          @Override
-          public CompletableFuture<Void> get() {
-            return processSynchronizationPacket(packetItem);
-          }
-        };
-      }).collect(Collectors.toList());
-      if (!eventQueues.containsKey(accountId)) {
-        eventQueues.put(accountId, new ArrayList<>(events));
-        callAccountEvents(accountId);
-      } else {
-        eventQueues.get(accountId).addAll(events);
-      }
+    if (eventShards != null || (sequentialEventProcessing && packet.has("sequenceNumber"))) {
+      packets.forEach(packetItem -> addToEventQueue(accountId, () -> processSynchronizationPacket(packetItem)));
     } else {
       packets.forEach(packetItem -> processSynchronizationPacket(packetItem));
     }
@@ -1368,51 +1677,45 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
    * @param event event to execute
    */
   public void queueEvent(String accountId, Supplier<CompletableFuture<Void>> event) {
-    if (sequentialEventProcessing) {
-      if (!eventQueues.containsKey(accountId)) {
-        List<Supplier<CompletableFuture<Void>>> events = new ArrayList<>();
-        events.add(event);
-        eventQueues.put(accountId, events);
-        callAccountEvents(accountId);
-      } else {
-        eventQueues.get(accountId).add(event);
-      }
+    if (eventShards != null || sequentialEventProcessing) {
+      addToEventQueue(accountId, event);
     } else {
       event.get();
     }
   }
   
-  private CompletableFuture<Void> callAccountEvents(String accountId) {
-    return Async.run(() -> {
-      if (eventQueues.containsKey(accountId)) {
-        while (eventQueues.get(accountId).size() > 0) {
-          eventQueues.get(accountId).get(0).get().join();
-          eventQueues.get(accountId).remove(0);
-        }
-        eventQueues.remove(accountId);
+  private void addToEventQueue(String accountId, Supplier<CompletableFuture<Void>> event) {
+    while (true) {
+      AccountEventQueue eventQueue = eventQueues.computeIfAbsent(accountId, id -> eventShards != null
+        ? eventShards.createEventQueue(id) : new AccountEventQueue(id));
+      if (eventQueue.add(event)) {
+        return;
       }
-    });
+      eventQueues.remove(accountId, eventQueue);
+    }
   }
   
   private CompletableFuture<Void> reconnect(int socketInstanceIndex) {
-    return Async.run(() -> {
+    if (socketInstances.size() <= socketInstanceIndex
+      || !isReconnectRequired(socketInstances.get(socketInstanceIndex))) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return delay(1000).thenRun(() -> {
       try {
-        if (socketInstances.size() > socketInstanceIndex) {
-          SocketInstance instance = socketInstances.get(socketInstanceIndex);
-          while (!instance.socket.connected() && !instance.isReconnecting && instance.connected) {
-            tryReconnect(socketInstanceIndex);
-          }
-        }
+        tryReconnect(socketInstanceIndex);
       } catch (Throwable err) {
         throw new CompletionException(err);
       }
-    });
+    }).thenCompose(ignored -> reconnect(socketInstanceIndex));
+  }
+  
+  private boolean isReconnectRequired(SocketInstance instance) {
+    return !instance.socket.connected() && !instance.isReconnecting && instance.connected;
   }
   
   private void tryReconnect(int socketInstanceIndex) throws Exception {
     SocketInstance instance = socketInstances.get(socketInstanceIndex);
-    Thread.sleep(1000);
-    if (!instance.socket.connected() && !instance.isReconnecting && instance.connected) {
+    if (isReconnectRequired(instance)) {
       instance.sessionId = RandomStringUtils.randomAlphanumeric(32);
       instance.socket.close();
       instance.clientId = Math.random();
@@ -1427,108 +1730,173 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
   }
   
   protected CompletableFuture<JsonNode> rpcRequest(String accountId, ObjectNode request, Long timeoutInSeconds) {
-    return Async.supply(() -> {
-      try {
-        Integer socketInstanceIndex = null;
-        if (socketInstancesByAccounts.containsKey(accountId)) {
-          socketInstanceIndex = socketInstancesByAccounts.get(accountId);
-        } else {
-          while (subscribeLock != null && ((subscribeLock.recommendedRetryTime.getDate().getTime() > Date.from(Instant.now()).getTime()
-            && getSubscribedAccountIds().size() < subscribeLock.lockedAtAccounts) || 
-            (subscribeLock.lockedAtTime + subscribeCooldownInSeconds * 1000 > 
-            Date.from(Instant.now()).getTime() && getSubscribedAccountIds().size() >= subscribeLock.lockedAtAccounts))) {
-            Thread.sleep(1000);
-          }
-          for (int index = 0; index < socketInstances.size(); index++) {
-            int accountCounter = getAssignedAccounts(index).size();
-            SocketInstance instance = socketInstances.get(index);
-            if (instance.subscribeLock != null) {
-              if (instance.subscribeLock.type.equals("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER_PER_SERVER") && 
-              (instance.subscribeLock.recommendedRetryTime.getDate().getTime() > Date.from(Instant.now()).getTime() || 
-              getSubscribedAccountIds(index).size() >= instance.subscribeLock.lockedAtAccounts)) {
-                continue;
-              }
-              if (instance.subscribeLock.type.equals("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_SERVER") && 
-              instance.subscribeLock.recommendedRetryTime.getDate().getTime() > Date.from(Instant.now()).getTime() &&
-              getSubscribedAccountIds(index).size() >= instance.subscribeLock.lockedAtAccounts) {
-                continue;
-              }
-            }
-            if (accountCounter < maxAccountsPerInstance) {
-              socketInstanceIndex = index;
-              break;
-            }
-          }
-          if (socketInstanceIndex == null) {
-            socketInstanceIndex = socketInstances.size();
-            connect().join();
-          }
-          socketInstancesByAccounts.put(accountId, socketInstanceIndex);
-        }
+    return CompletableFuture.completedFuture(accountId).thenCompose(this::getSocketInstanceIndex)
+      .thenCompose(socketInstanceIndex -> {
         SocketInstance instance = socketInstances.get(socketInstanceIndex);
+        CompletableFuture<Void> connectResult = CompletableFuture.completedFuture(null);
         if (!instance.connected) {
-          connect().join();
+          connectResult = connect();
         } else if (!isConnected(socketInstanceIndex)) {
-          instance.connectResult.join();
-        }
-        if (request.get("type").asText().equals("subscribe")) {
-          request.put("sessionId", instance.sessionId);
+          connectResult = instance.connectResult;
         }
-        if (Arrays.asList("trade", "subscribe").indexOf(request.get("type").asText()) != -1) {
-          return makeRequest(accountId, request, timeoutInSeconds);
-        }
-        int retryCounter = 0;
-        while (true) {
-          try {
-            return makeRequest(accountId, request, timeoutInSeconds);
-          } catch (Throwable err) {
-            if (err instanceof TooManyRequestsException) {
-              int calcRetryCounter = retryCounter;
-              int calcRequestTime = 0;
-              while (calcRetryCounter < retries) {
-                calcRetryCounter++;
-                calcRequestTime += Math.min(Math.pow(2, calcRetryCounter) * minRetryDelayInSeconds,
-                  maxRetryDelayInSeconds) * 1000;
-              }
-              long retryTime = ((TooManyRequestsException) err).metadata.recommendedRetryTime.getDate().getTime();
-              if (Date.from(Instant.now()).getTime() + calcRequestTime > retryTime && retryCounter < retries) {
-                if (Date.from(Instant.now()).getTime() < retryTime) {
-                  Thread.sleep(retryTime - Date.from(Instant.now()).getTime());
-                }
-                retryCounter++;
-              } else {
-                throw err;
-              }
-            } else if (Arrays.asList(NotSynchronizedException.class, TimeoutException.class, NotConnectedException.class,
-              InternalException.class).indexOf(err.getClass()) != -1 && retryCounter < retries) {
-              Thread.sleep((long) (Math.min(Math.pow(2, retryCounter) * minRetryDelayInSeconds,
-                maxRetryDelayInSeconds) * 1000));
-              retryCounter++;
-            } else {
-              throw err;
-            }
-            if (!socketInstancesByAccounts.containsKey(accountId)) {
-              throw err;
-            }
+        return connectResult.thenCompose(ignored -> {
+          if (request.get("type").asText().equals("subscribe")) {
+            request.put("sessionId", instance.sessionId);
+          }
+          if (Arrays.asList("trade", "subscribe").indexOf(request.get("type").asText()) != -1) {
+            return makeLimitedRequest(accountId, request, timeoutInSeconds);
           }
+          return makeRequestWithRetries(accountId, request, timeoutInSeconds, 0);
+        });
+      });
+  }
+  
+  private CompletableFuture<Integer> getSocketInstanceIndex(String accountId) {
+    Integer socketInstanceIndex = socketInstancesByAccounts.get(accountId);
+    if (socketInstanceIndex != null) {
+      return CompletableFuture.completedFuture(socketInstanceIndex);
+    }
+    if (isSubscribeLocked()) {
+      return delay(1000).thenCompose(ignored -> getSocketInstanceIndex(accountId));
+    }
+    List<Integer> candidates = new ArrayList<>();
+    for (int index = 0; index < socketInstances.size(); index++) {
+      SocketInstance instance = socketInstances.get(index);
+      if (instance.subscribeLock != null) {
+        if (instance.subscribeLock.type.equals("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER_PER_SERVER") && 
+        (instance.subscribeLock.recommendedRetryTime.getDate().getTime() > Date.from(Instant.now()).getTime() || 
+        getSubscribedAccountCount(index) >= instance.subscribeLock.lockedAtAccounts)) {
+          continue;
         }
-      } catch (Throwable err) {
-        throw new CompletionException(err);
+        if (instance.subscribeLock.type.equals("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_SERVER") && 
+        instance.subscribeLock.recommendedRetryTime.getDate().getTime() > Date.from(Instant.now()).getTime() &&
+        getSubscribedAccountCount(index) >= instance.subscribeLock.lockedAtAccounts) {
+          continue;
+        }
+      }
+      if (placement.getAssignedAccountCount(index) < maxAccountsPerInstance) {
+        candidates.add(index);
+      }
+    }
+    int selectedIndex = placement.selectInstance(accountId, candidates);
+    if (selectedIndex != -1) {
+      placement.assign(accountId, selectedIndex);
+      return CompletableFuture.completedFuture(selectedIndex);
+    }
+    int newSocketInstanceIndex = socketInstances.size();
+    return connect().thenApply(ignored -> {
+      placement.assign(accountId, newSocketInstanceIndex);
+      return newSocketInstanceIndex;
+    });
+  }
+  
+  private boolean isSubscribeLocked() {
+    return subscribeLock != null && ((subscribeLock.recommendedRetryTime.getDate().getTime() > Date.from(Instant.now()).getTime()
+      && getSubscribedAccountCount(null) < subscribeLock.lockedAtAccounts) || 
+      (subscribeLock.lockedAtTime + subscribeCooldownInSeconds * 1000 > 
+      Date.from(Instant.now()).getTime() && getSubscribedAccountCount(null) >= subscribeLock.lockedAtAccounts));
+  }
+  
+  private CompletableFuture<JsonNode> makeRequestWithRetries(String accountId, ObjectNode request,
+    Long timeoutInSeconds, int retryCounter) {
+    CompletableFuture<JsonNode> result = new CompletableFuture<>();
+    makeLimitedRequest(accountId, request, timeoutInSeconds).whenComplete((response, error) -> {
+      if (error == null) {
+        result.complete(response);
+        return;
+      }
+      Throwable err = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      Long retryDelay = getRetryDelay(err, retryCounter);
+      if (retryDelay == null) {
+        result.completeExceptionally(err);
+        return;
       }
+      delay(retryDelay).thenCompose(ignored -> {
+        if (!socketInstancesByAccounts.containsKey(accountId)) {
+          CompletableFuture<JsonNode> failure = new CompletableFuture<>();
+          failure.completeExceptionally(err);
+          return failure;
+        }
+        return makeRequestWithRetries(accountId, request, timeoutInSeconds, retryCounter + 1);
+      }).whenComplete((retryResponse, retryError) -> {
+        if (retryError != null) {
+          result.completeExceptionally(retryError instanceof CompletionException && retryError.getCause() != null
+            ? retryError.getCause() : retryError);
+        } else {
+          result.complete(retryResponse);
+        }
+      });
     });
+    return result;
+  }
+  
+  private Long getRetryDelay(Throwable err, int retryCounter) {
+    if (err instanceof TooManyRequestsException) {
+      int calcRetryCounter = retryCounter;
+      int calcRequestTime = 0;
+      while (calcRetryCounter < retries) {
+        calcRetryCounter++;
+        calcRequestTime += Math.min(Math.pow(2, calcRetryCounter) * minRetryDelayInSeconds,
+          maxRetryDelayInSeconds) * 1000;
+      }
+      long retryTime = ((TooManyRequestsException) err).metadata.recommendedRetryTime.getDate().getTime();
+      long now = Date.from(Instant.now()).getTime();
+      if (now + calcRequestTime > retryTime && retryCounter < retries) {
+        return Math.max(retryTime - now, 0);
+      }
+    } else if (Arrays.asList(NotSynchronizedException.class, TimeoutException.class, NotConnectedException.class,
+      InternalException.class).indexOf(err.getClass()) != -1 && retryCounter < retries) {
+      return (long) (Math.min(Math.pow(2, retryCounter) * minRetryDelayInSeconds, maxRetryDelayInSeconds) * 1000);
+    }
+    return null;
+  }
+  
+  private CompletableFuture<Void> delay(long delayInMilliseconds) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    scheduler.schedule(() -> Async.run(() -> result.complete(null)), delayInMilliseconds);
+    return result;
   }
   
-  private JsonNode makeRequest(String accountId, ObjectNode request, Long timeoutInSeconds) throws Throwable {
+  private CompletableFuture<JsonNode> makeLimitedRequest(String accountId, ObjectNode request,
+    Long timeoutInSeconds) {
+    Integer socketInstanceIndex = socketInstancesByAccounts.get(accountId);
+    if (socketInstanceIndex == null) {
+      return makeRequest(accountId, request, timeoutInSeconds);
+    }
+    String type = request.get("type").asText();
+    long timeoutInMilliseconds = getRequestTimeout(timeoutInSeconds);
+    long startTime = System.currentTimeMillis();
+    return requestRateLimiter.acquire(type, accountId, socketInstanceIndex, timeoutInMilliseconds)
+      .thenCompose(ignored -> makeRequest(accountId, request, Math.max(timeoutInMilliseconds
+        - (System.currentTimeMillis() - startTime), 0)).whenComplete((response, err) -> {
+          Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+          if (cause instanceof TooManyRequestsException) {
+            requestRateLimiter.onTooManyRequests(type, accountId, socketInstanceIndex,
+              ((TooManyRequestsException) cause).metadata);
+          }
+        }));
+  }
+  
+  private CompletableFuture<JsonNode> makeRequest(String accountId, ObjectNode request, Long timeoutInSeconds) {
+    return makeRequest(accountId, request, getRequestTimeout(timeoutInSeconds));
+  }
+  
+  private long getRequestTimeout(Long timeoutInSeconds) {
+    return timeoutInSeconds != null ? timeoutInSeconds * 1000 : requestTimeout;
+  }
+  
+  private CompletableFuture<JsonNode> makeRequest(String accountId, ObjectNode request,
+    long timeoutInMilliseconds) {
     SocketInstance socketInstance = socketInstances.get(socketInstancesByAccounts.get(accountId));
     String requestId = request.has("requestId") ? request.get("requestId").asText() : UUID.randomUUID().toString();
+    RequestResolve resolve = new RequestResolve() {{
+      future = new CompletableFuture<>();
+      type = request.get("type").asText();
+    }};
     try {
       ObjectNode timestamps = jsonMapper.createObjectNode();
       timestamps.put("clientProcessingStarted", new IsoTime(Date.from(Instant.now())).toString());
       request.set("timestamps", timestamps);
-      RequestResolve resolve = new RequestResolve() {{
-        future = new CompletableFuture<>();
-        type = request.get("type").asText();
-      }};
       socketInstance.requestResolves.put(requestId, resolve);
       request.put("accountId", accountId);
       if (!request.has("application")) {
@@ -1538,20 +1906,19 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
         request.put("requestId", requestId);
       }
       socketInstance.socket.emit("request", new JSONObject(jsonMapper.writeValueAsString(request)));
-      if (timeoutInSeconds != null) {
-        return resolve.future.get(timeoutInSeconds, TimeUnit.SECONDS);
-      } else {
-        return resolve.future.get(requestTimeout, TimeUnit.MILLISECONDS);
-      }
-    } catch (java.util.concurrent.TimeoutException e) {
-      throw new TimeoutException("MetaApi websocket client request " + requestId 
-          + " of type " + request.get("type").asText() + " timed out. Please make sure your account is "
-          + "connected to broker before retrying your request.");
-    } catch (InterruptedException | JsonProcessingException | JSONException e) {
-      throw e;
-    } catch (ExecutionException e) {
-      throw e.getCause();
+    } catch (JsonProcessingException | JSONException e) {
+      socketInstance.requestResolves.remove(requestId);
+      resolve.future.completeExceptionally(e);
+      return resolve.future;
     }
+    ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+      socketInstance.requestResolves.remove(requestId, resolve);
+      Async.run(() -> resolve.future.completeExceptionally(new TimeoutException("MetaApi websocket client "
+        + "request " + requestId + " of type " + request.get("type").asText() + " timed out. Please make sure "
+        + "your account is connected to broker before retrying your request.")));
+    }, timeoutInMilliseconds);
+    resolve.future.whenComplete((response, err) -> timeout.cancel(false));
+    return resolve.future;
   }
   
   private Exception convertError(WebsocketError error) {
@@ -1586,523 +1953,568 @@ public class MetaApiWebsocketClient implements OutOfOrderListener {
     }
   }
   
+  /**
+   * Returns metrics of event processing shards
+   * @return list of shard metrics, or empty list if sharded event processing is disabled
+   */
+  public List<ShardedEventExecutor.ShardMetrics> getEventShardMetrics() {
+    return eventShards != null ? eventShards.getMetrics() : new ArrayList<>();
+  }
+  
+  /**
+   * Sets priority of an account for resubscription after reconnects. Accounts with higher priority are
+   * resubscribed first
+   * @param accountId account id
+   * @param priority priority, by default is 0
+   */
+  public void setResubscriptionPriority(String accountId, int priority) {
+    subscriptionManager.setResubscriptionPriority(accountId, priority);
+  }
+  
+  /**
+   * Sets priority of an account for synchronization. When synchronizations are throttled, queued
+   * synchronizations of accounts with higher priority are sent first
+   * @param accountId account id
+   * @param priority priority, by default is 0
+   */
+  public void setSynchronizationPriority(String accountId, int priority) {
+    synchronizationThrottlerState.setPriority(accountId, priority);
+  }
+  
+  /**
+   * Returns metrics of resubscriptions after reconnects
+   * @return resubscription recovery metrics
+   */
+  public ResubscriptionScheduler.RecoveryMetrics getResubscriptionMetrics() {
+    return subscriptionManager.getResubscriptionMetrics();
+  }
+  
+  /**
+   * Returns metrics of the client-side request rate limiter
+   * @return request rate limiter metrics
+   */
+  public RequestRateLimiter.RateLimiterMetrics getRequestRateLimiterMetrics() {
+    return requestRateLimiter.getMetrics();
+  }
+  
+  /**
+   * Returns scheduler which runs request timeouts and periodic jobs of the client
+   * @return scheduler
+   */
+  public SdkScheduler getScheduler() {
+    return scheduler;
+  }
+  
+  /**
+   * Returns executor which delivers events to conflating synchronization listeners, price consumers and market
+   * data publishers of the client. The executor is shut down when the client is closed
+   * @return listener executor
+   */
+  public Executor getListenerExecutor() {
+    return listenerExecutor;
+  }
+  
+  /**
+   * Returns true if terminal states should store prices in primitive tables
+   * @return true if compact price storage is enabled
+   */
+  public boolean isCompactPriceStorageEnabled() {
+    return compactPriceStorage;
+  }
+  
   private CompletableFuture<Void> processSynchronizationPacket(JsonNode data) {
-    return Async.run(() -> {
-      try {
-        String accountId = data.get("accountId").asText();
-        Integer socketInstanceIndex = socketInstancesByAccounts.get(accountId);
-        SocketInstance socketInstance = (socketInstanceIndex != null && socketInstances.size() > socketInstanceIndex)
-            ? socketInstances.get(socketInstanceIndex) : null;
-        String synchronizationId = data.has("synchronizationId") ? data.get("synchronizationId").asText() : null;
-        if (synchronizationId != null && socketInstance != null) {
-          socketInstance.synchronizationThrottler.updateSynchronizationId(synchronizationId);
-        }
-        int instanceNumber = data.has("instanceIndex") ? data.get("instanceIndex").asInt() : 0;
-        String host = data.has("host") ? data.get("host").asText() : null;
-        String instanceId = accountId + ":" + instanceNumber + ":" + (Js.or(host, 0));
-        String instanceIndex = instanceNumber + ":" + (Js.or(host, 0));
-        List<SynchronizationListener> listeners = synchronizationListeners.containsKey(accountId)
-          ? synchronizationListeners.get(accountId) : new ArrayList<>();
-          
-        Supplier<Boolean> isOnlyActiveInstance = () -> {
-          List<String> activeInstanceIds = connectedHosts.keySet().stream().filter(instance ->
-            instance.startsWith(accountId + ":" + instanceNumber)).collect(Collectors.toList());
-          return activeInstanceIds.size() == 0 || activeInstanceIds.size() == 1 && activeInstanceIds.get(0).equals(instanceId);
-        };
-        
-        Function<Boolean, CompletableFuture<Void>> onDisconnected = (isTimeout) -> {
-          return Async.run(() -> {
-            if (connectedHosts.containsKey(instanceId)) {
-              if (isOnlyActiveInstance.get()) {
-                List<CompletableFuture<Void>> onDisconnectedFutures = new ArrayList<>();
-                if (!isTimeout) {
-                  onDisconnectedFutures.add(subscriptionManager.onDisconnected(accountId, instanceNumber));
-                }
-                for (SynchronizationListener listener : listeners) {
-                  onDisconnectedFutures.add(listener.onDisconnected(instanceIndex).exceptionally(e -> {
-                    logger.error(accountId + ":" + instanceIndex + ": Failed to notify "
-                      + "listener about disconnected event", e);
-                    return null;
-                  }));
-                }
-                CompletableFuture.allOf(onDisconnectedFutures.toArray(new CompletableFuture<?>[0])).join();
-              } else {
-                List<CompletableFuture<Void>> onStreamClosedFutures = new ArrayList<>();
-                packetOrderer.onStreamClosed(instanceId);
-                socketInstance.synchronizationThrottler.removeIdByParameters(accountId, instanceNumber, host);
-                for (SynchronizationListener listener : listeners) {
-                  onStreamClosedFutures.add(listener.onStreamClosed(instanceIndex).exceptionally(e -> {
-                    logger.error(accountId + ":" + instanceIndex + ": Failed to notify "
-                      + "listener about stream closed event", e);
-                    return null;
-                  }));
-                }
-                CompletableFuture.allOf(onStreamClosedFutures.toArray(new CompletableFuture<?>[0])).join();
-              }
-              connectedHosts.remove(instanceId);
-            }
+    if (eventShards != null) {
+      return handleSynchronizationPacket(data);
+    }
+    return Async.supply(() -> handleSynchronizationPacket(data)).thenCompose(result -> result);
+  }
+  
+  private CompletableFuture<Void> handleSynchronizationPacket(JsonNode data) {
+    try {
+      String accountId = data.get("accountId").asText();
+      SocketInstance socketInstance = getSocketInstanceByAccount(accountId);
+      if (data.has("synchronizationId") && socketInstance != null) {
+        socketInstance.synchronizationThrottler.updateSynchronizationId(data.get("synchronizationId").asText());
+      }
+      int instanceNumber = data.has("instanceIndex") ? data.get("instanceIndex").asInt() : 0;
+      String host = data.has("host") ? data.get("host").asText() : null;
+      InstanceContext instance = getInstanceContext(accountId, instanceNumber, host);
+      List<SynchronizationListener> listeners = getSynchronizationListeners(accountId);
+      SynchronizationPacketHandler handler = packetHandlers.get(data.get("type").asText());
+      if (handler != null) {
+        CompletableFuture<Void> result = handler.handle(data, instance, listeners);
+        if (result != null) {
+          return result.exceptionally(e -> {
+            logger.error("Failed to process incoming synchronization packet", e);
+            return null;
           });
-        };
-        
-        Runnable cancelDisconnectTimer = () -> {
-          if (statusTimers.containsKey(instanceId)) {
-            statusTimers.get(instanceId).cancel();
-          }
-        };
-        
-        Runnable resetDisconnectTimer = () -> {
-          cancelDisconnectTimer.run();
-          statusTimers.put(instanceId, Js.setTimeout(() -> {
-            if (isOnlyActiveInstance.get()) {
-              subscriptionManager.onTimeout(accountId, instanceNumber);
-            }
-            queueEvent(accountId, () -> onDisconnected.apply(true));
-          }, resetDisconnectTimerTimeout));
-        };
-        
-        String type = data.get("type").asText();
-        if (type.equals("authenticated")) {
-          resetDisconnectTimer.run();
-          if (!data.has("sessionId") || data.get("sessionId").asText().equals(socketInstance.sessionId)) {
-            connectedHosts.put(instanceId, "" + host);
-            List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-            for (SynchronizationListener listener : listeners) {
-              completableFutures.add(listener.onConnected(instanceIndex, data.get("replicas").asInt())
-                .exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about connected event", e);
-                return null;
-              }));
-            }
-            subscriptionManager.cancelSubscribe(accountId + ":" + instanceNumber);
-            CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-          }
-        } else if (type.equals("disconnected")) {
-          cancelDisconnectTimer.run();
-          onDisconnected.apply(false).get();
-        } else if (type.equals("synchronizationStarted")) {
-          List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-          for (SynchronizationListener listener : listeners) {
-            completableFutures.add(listener.onSynchronizationStarted(instanceIndex).exceptionally(e -> {
-              logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about synchronization "
-                + "started event", e);
-              return null;
-            }));
-          }
-          CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-        } else if (type.equals("accountInformation")) {
-          if (data.hasNonNull(type)) {
-            MetatraderAccountInformation accountInformation = jsonMapper
-              .treeToValue(data.get(type), MetatraderAccountInformation.class);
-            List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-            for (SynchronizationListener listener : listeners) {
-              completableFutures.add(listener.onAccountInformationUpdated(instanceIndex, 
-                  accountInformation).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify "
-                  + "listener about accountInformation event", e);
-                return null;
-              }));
-            }
-            CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-          }
-        } else if (type.equals("deals")) {
-          if (data.hasNonNull(type)) {
-            MetatraderDeal[] deals = jsonMapper.treeToValue(data.get(type), MetatraderDeal[].class);
-            for (MetatraderDeal deal : deals) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onDealAdded(instanceIndex, deal).exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about deals event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-        } else if (type.equals("orders")) {
-          List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-          MetatraderOrder[] orders = data.hasNonNull("orders")
-            ? jsonMapper.treeToValue(data.get(type), MetatraderOrder[].class)
-            : new MetatraderOrder[0];
-          for (SynchronizationListener listener : listeners) {
-            completableFutures.add(listener.onOrdersReplaced(instanceIndex, Arrays.asList(orders))
-                .exceptionally(e -> {
-              logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about orders event", e);
-              return null;
-            }));
-          }
-          CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-        } else if (type.equals("historyOrders")) {
-          if (data.hasNonNull(type)) {
-            MetatraderOrder[] historyOrders = jsonMapper.treeToValue(data.get(type), MetatraderOrder[].class);
-            for (MetatraderOrder historyOrder : historyOrders) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onHistoryOrderAdded(instanceIndex, historyOrder)
-                    .exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify "
-                    + "listener about historyOrders event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-        } else if (type.equals("positions")) {
-          List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-          MetatraderPosition[] positions = data.hasNonNull("positions")
-            ? jsonMapper.treeToValue(data.get(type), MetatraderPosition[].class)
-            : new MetatraderPosition[0];
-          for (SynchronizationListener listener : listeners) {
-            completableFutures.add(listener.onPositionsReplaced(instanceIndex, Arrays.asList(positions))
-                .exceptionally(e -> {
-              logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about positions event", e);
-              return null;
-            }));
-          }
-          CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-        } else if (type.equals("update")) {
-          if (data.hasNonNull("accountInformation")) {
-            MetatraderAccountInformation accountInformation = jsonMapper
-              .treeToValue(data.get("accountInformation"), MetatraderAccountInformation.class);
-            List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-            for (SynchronizationListener listener : listeners) {
-              completableFutures.add(listener.onAccountInformationUpdated(instanceIndex,
-                  accountInformation).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about update event", e);
-                return null;
-              }));
-            }
-            CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-          }
-          if (data.hasNonNull("updatedPositions")) {
-            MetatraderPosition[] positions = jsonMapper
-              .treeToValue(data.get("updatedPositions"), MetatraderPosition[].class);
-            for (MetatraderPosition position : positions) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onPositionUpdated(instanceIndex, position)
-                    .exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about update event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-          if (data.hasNonNull("removedPositionIds")) {
-            String[] removedPositionIds = jsonMapper
-              .treeToValue(data.get("removedPositionIds"), String[].class);
-            for (String positionId : removedPositionIds) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onPositionRemoved(instanceIndex, positionId)
-                    .exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about update event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-          if (data.hasNonNull("updatedOrders")) {
-            MetatraderOrder[] updatedOrders = jsonMapper
-              .treeToValue(data.get("updatedOrders"), MetatraderOrder[].class);
-            for (MetatraderOrder order : updatedOrders) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onOrderUpdated(instanceIndex, order)
-                    .exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about update event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-          if (data.hasNonNull("completedOrderIds")) {
-            String[] completedOrderIds = jsonMapper
-              .treeToValue(data.get("completedOrderIds"), String[].class);
-            for (String orderId : completedOrderIds) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onOrderCompleted(instanceIndex, orderId)
-                    .exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about update event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-          if (data.hasNonNull("historyOrders")) {
-            MetatraderOrder[] historyOrders = jsonMapper
-              .treeToValue(data.get("historyOrders"), MetatraderOrder[].class);
-            for (MetatraderOrder historyOrder : historyOrders) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onHistoryOrderAdded(instanceIndex, historyOrder)
-                    .exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about update event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-          if (data.hasNonNull("deals")) {
-            MetatraderDeal[] deals = jsonMapper
-              .treeToValue(data.get("deals"), MetatraderDeal[].class);
-            for (MetatraderDeal deal : deals) {
-              List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                completableFutures.add(listener.onDealAdded(instanceIndex, deal).exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about update event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-          if (data.has("timestamps")) {
-            UpdateTimestamps timestamps = jsonMapper.treeToValue(data.get("timestamps"),
-              UpdateTimestamps.class);
-            timestamps.clientProcessingFinished = new IsoTime();
-            List<CompletableFuture<Void>> onUpdateFutures = new ArrayList<>();
-            for (LatencyListener listener : latencyListeners) {
-              onUpdateFutures.add(listener.onUpdate(accountId, timestamps).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify latency "
-                  + "listener about update event", e);
-                return null;
-              }));
-            }
-            CompletableFuture.allOf(onUpdateFutures.toArray(new CompletableFuture<?>[0])).get();
-          }
-        } else if (type.equals("dealSynchronizationFinished")) {
-          List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-          for (SynchronizationListener listener : listeners) {
-            if (socketInstance != null) {
-              socketInstance.synchronizationThrottler.removeSynchronizationId(synchronizationId);
-            }
-            completableFutures.add(listener.onDealSynchronizationFinished(instanceIndex,
-                data.get("synchronizationId").asText()).exceptionally(e -> {
-              logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                + "about dealSynchronizationFinished event", e);
-              return null;
-            }));
-          }
-          CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-        } else if (type.equals("orderSynchronizationFinished")) {
-          List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
-          for (SynchronizationListener listener : listeners) {
-            completableFutures.add(listener.onOrderSynchronizationFinished(instanceIndex,
-                data.get("synchronizationId").asText()).exceptionally(e -> {
-              logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                + "about orderSynchronizationFinished event", e);
-              return null;
-            }));
-          }
-          CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0])).get();
-        } else if (type.equals("status")) {
-          if (!connectedHosts.containsKey(instanceId)) {
-            if (statusTimers.containsKey(instanceId) && data.has("authenticated") && data.get("authenticated").asBoolean() && 
-              (subscriptionManager.isDisconnectedRetryMode(accountId, instanceNumber) || 
-              !subscriptionManager.isAccountSubscribing(accountId, instanceNumber))) {
-              subscriptionManager.cancelSubscribe(accountId + ":" + instanceNumber);
-              Thread.sleep(10);
-              logger.info("It seems like we are not connected to a running API server yet, "
-                + "retrying subscription for account " + instanceId);
-              ensureSubscribe(accountId, instanceNumber);
-            }
-          } else {
-            resetDisconnectTimer.run();
-            List<CompletableFuture<Void>> onBrokerConnectionStatusChangedFutures = new ArrayList<>();
-            for (SynchronizationListener listener : listeners) {
-              onBrokerConnectionStatusChangedFutures.add(listener
-                  .onBrokerConnectionStatusChanged(instanceIndex, data.get("connected").asBoolean())
-                  .exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                  + "about brokerConnectionStatusChanged event", e);
-                return null;
-              }));
-            }
-            CompletableFuture.allOf(onBrokerConnectionStatusChangedFutures.toArray(new CompletableFuture<?>[0])).get();
-            if (data.hasNonNull("healthStatus")) {
-              List<CompletableFuture<Void>> onHealthStatusFutures = new ArrayList<>();
-              for (SynchronizationListener listener : listeners) {
-                onHealthStatusFutures.add(listener.onHealthStatus(instanceIndex, 
-                    jsonMapper.treeToValue(data.get("healthStatus"), SynchronizationListener.HealthStatus.class))
-                  .exceptionally(e -> {
-                  logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                    + "about server-side healthStatus event", e);
-                  return null;
-                }));
-              }
-              CompletableFuture.allOf(onHealthStatusFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
-        } else if (type.equals("downgradeSubscription")) {
-          logger.info(accountId + ":" + instanceIndex + ": Market data subscriptions for symbol " + data.get("symbol") 
-            + " were downgraded by " + "the server due to rate limits. Updated subscriptions: " + data.get("updates")
-            + ", removed subscriptions: " + data.get("unsubscriptions") 
-            + ". Please read https://metaapi.cloud/docs/client/rateLimiting/ for more details.");
-          List<CompletableFuture<Void>> onSubscriptionDowngradeFutures = new ArrayList<>();
-          for (SynchronizationListener listener : listeners) {
-            onSubscriptionDowngradeFutures.add(listener.onSubscriptionDowngraded(instanceIndex, data.get("symbol").asText(),
-              data.has("updates")
-                ? Arrays.asList(jsonMapper.treeToValue(data.get("updates"), MarketDataSubscription[].class))
-                : new ArrayList<>(),
-              data.has("unsubscriptions")
-                ? Arrays.asList(jsonMapper.treeToValue(data.get("unsubscriptions"), MarketDataUnsubscription[].class))
-                : new ArrayList<>()
-            ).exceptionally(e -> {
-              logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                + "about subscription downgrade event", e);
-              return null;
-            }));
-          }
-          CompletableFuture.allOf(onSubscriptionDowngradeFutures.toArray(new CompletableFuture<?>[0])).get();
-        } else if (type.equals("specifications")) {
-          List<CompletableFuture<Void>> onSymbolSpecificationsUpdatedFutures = new ArrayList<>();
-          List<MetatraderSymbolSpecification> specifications = data.hasNonNull("specifications")
-            ? Arrays.asList(jsonMapper.treeToValue(data.get("specifications"), MetatraderSymbolSpecification[].class))
-            : new ArrayList<>();
-          List<String> removedSymbols = data.hasNonNull("removedSymbols")
-            ? Arrays.asList(jsonMapper.treeToValue(data.get("removedSymbols"), String[].class))
-            : new ArrayList<>();
-          for (SynchronizationListener listener : listeners) {
-            onSymbolSpecificationsUpdatedFutures.add(
-              listener.onSymbolSpecificationsUpdated(instanceIndex, specifications, removedSymbols)
-                  .exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                  + "about specifications updated event", e);
-                return null;
-              }));
-          }
-          CompletableFuture.allOf(onSymbolSpecificationsUpdatedFutures.toArray(new CompletableFuture<?>[0])).get();
-          for (MetatraderSymbolSpecification specification : specifications) {
-            List<CompletableFuture<Void>> onSymbolSpecificationUpdatedFutures = new ArrayList<>();
-            for (SynchronizationListener listener : listeners) {
-              onSymbolSpecificationUpdatedFutures.add(listener.onSymbolSpecificationUpdated(instanceIndex,
-                  specification).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                  + "about specification updated event", e);
-                return null;
-              }));
-            }
-            CompletableFuture.allOf(onSymbolSpecificationUpdatedFutures.toArray(new CompletableFuture<?>[0])).get();
-          }
-          for (String removedSymbol : removedSymbols) {
-            List<CompletableFuture<Void>> onSymbolSpecificationRemovedFutures = new ArrayList<>();
-            for (SynchronizationListener listener : listeners) {
-              onSymbolSpecificationRemovedFutures.add(listener.onSymbolSpecificationRemoved(instanceIndex,
-                  removedSymbol).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener "
-                  + "about specifications removed event", e);
-                return null;
-              }));
-            }
-            CompletableFuture.allOf(onSymbolSpecificationRemovedFutures.toArray(new CompletableFuture<?>[0])).get();
-          }
-        } else if (type.equals("prices")) {
-          List<MetatraderSymbolPrice> prices = Arrays.asList(data.hasNonNull("prices")
-            ? jsonMapper.treeToValue(data.get("prices"), MetatraderSymbolPrice[].class)
-            : new MetatraderSymbolPrice[0]);
-          List<MetatraderCandle> candles = Arrays.asList(data.hasNonNull("candles")
-            ? jsonMapper.treeToValue(data.get("candles"), MetatraderCandle[].class)
-            : new MetatraderCandle[0]);
-          List<MetatraderTick> ticks = Arrays.asList(data.hasNonNull("ticks")
-            ? jsonMapper.treeToValue(data.get("ticks"), MetatraderTick[].class)
-            : new MetatraderTick[0]);
-          List<MetatraderBook> books = Arrays.asList(data.hasNonNull("books")
-            ? jsonMapper.treeToValue(data.get("books"), MetatraderBook[].class)
-            : new MetatraderBook[0]);
-          List<CompletableFuture<Void>> onPricesUpdatedFutures = new ArrayList<>();
-          for (SynchronizationListener listener : listeners) {
-            if (prices.size() != 0) {
-              onPricesUpdatedFutures.add(listener.onSymbolPricesUpdated(instanceIndex, prices, 
-                data.has("equity") ? data.get("equity").asDouble() : null,
-                data.has("margin") ? data.get("margin").asDouble() : null, 
-                data.has("freeMargin") ? data.get("freeMargin").asDouble() : null,
-                data.has("marginLevel") ? data.get("marginLevel").asDouble() : null,
-                data.has("accountCurrencyExchangeRate")
-                  ? data.get("accountCurrencyExchangeRate").asDouble() : null
-                ).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about prices event", e);
-                return null;
-              }));
-            }
-            if (candles.size() != 0) {
-              onPricesUpdatedFutures.add(listener.onCandlesUpdated(instanceIndex, candles, 
-                data.has("equity") ? data.get("equity").asDouble() : null,
-                data.has("margin") ? data.get("margin").asDouble() : null, 
-                data.has("freeMargin") ? data.get("freeMargin").asDouble() : null,
-                data.has("marginLevel") ? data.get("marginLevel").asDouble() : null,
-                data.has("accountCurrencyExchangeRate")
-                  ? data.get("accountCurrencyExchangeRate").asDouble() : null
-                ).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about candles event", e);
-                return null;
-              }));
-            }
-            if (ticks.size() != 0) {
-              onPricesUpdatedFutures.add(listener.onTicksUpdated(instanceIndex, ticks, 
-                data.has("equity") ? data.get("equity").asDouble() : null,
-                data.has("margin") ? data.get("margin").asDouble() : null, 
-                data.has("freeMargin") ? data.get("freeMargin").asDouble() : null,
-                data.has("marginLevel") ? data.get("marginLevel").asDouble() : null,
-                data.has("accountCurrencyExchangeRate")
-                  ? data.get("accountCurrencyExchangeRate").asDouble() : null
-                ).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about ticks event", e);
-                return null;
-              }));
-            }
-            if (books.size() != 0) {
-              onPricesUpdatedFutures.add(listener.onBooksUpdated(instanceIndex, books, 
-                data.has("equity") ? data.get("equity").asDouble() : null,
-                data.has("margin") ? data.get("margin").asDouble() : null, 
-                data.has("freeMargin") ? data.get("freeMargin").asDouble() : null,
-                data.has("marginLevel") ? data.get("marginLevel").asDouble() : null,
-                data.has("accountCurrencyExchangeRate")
-                  ? data.get("accountCurrencyExchangeRate").asDouble() : null
-                ).exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about books event", e);
-                return null;
-              }));
-            }
-          }
-          CompletableFuture.allOf(onPricesUpdatedFutures.toArray(new CompletableFuture<?>[0])).get();
-          for (MetatraderSymbolPrice price : prices) {
-            List<CompletableFuture<Void>> onPriceUpdatedFutures = new ArrayList<>();
-            for (SynchronizationListener listener : listeners) {
-              onPriceUpdatedFutures.add(listener.onSymbolPriceUpdated(instanceIndex, price)
-                  .exceptionally(e -> {
-                logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about price event", e);
-                return null;
-              }));
-            }
-            CompletableFuture.allOf(onPriceUpdatedFutures.toArray(new CompletableFuture<?>[0])).get();
-          }
-          for (MetatraderSymbolPrice price : prices) {
-            if (price.timestamps != null) {
-              price.timestamps.clientProcessingFinished = new IsoTime(Date.from(Instant.now()));
-              List<CompletableFuture<Void>> onSymbolPriceFutures = new ArrayList<>();
-              for (LatencyListener listener : latencyListeners) {
-                onSymbolPriceFutures.add(listener.onSymbolPrice(accountId, price.symbol, price.timestamps)
-                  .exceptionally(e -> {
-                    logger.error(accountId + ":" + instanceIndex + ": Failed to notify latency listener "
-                      + "about price event", e);
-                    return null;
-                  }));
-              }
-              CompletableFuture.allOf(onSymbolPriceFutures.toArray(new CompletableFuture<?>[0])).get();
-            }
-          }
         }
-      } catch (JsonProcessingException | InterruptedException | ExecutionException e) {
-        logger.error("Failed to process incoming synchronization packet", e);
       }
-    });
+    } catch (Exception e) {
+      logger.error("Failed to process incoming synchronization packet", e);
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+  
+  private SocketInstance getSocketInstanceByAccount(String accountId) {
+    Integer socketInstanceIndex = socketInstancesByAccounts.get(accountId);
+    return (socketInstanceIndex != null && socketInstances.size() > socketInstanceIndex)
+      ? socketInstances.get(socketInstanceIndex) : null;
+  }
+  
+  private List<SynchronizationListener> getSynchronizationListeners(String accountId) {
+    List<SynchronizationListener> listeners = synchronizationListeners.get(accountId);
+    return listeners != null ? listeners : new ArrayList<>();
+  }
+  
+  private InstanceContext getInstanceContext(String accountId, int instanceNumber, String host) {
+    List<InstanceContext> contexts = instanceContexts.computeIfAbsent(accountId, id -> new CopyOnWriteArrayList<>());
+    InstanceContext context = findInstanceContext(contexts, instanceNumber, host);
+    if (context == null) {
+      synchronized (contexts) {
+        context = findInstanceContext(contexts, instanceNumber, host);
+        if (context == null) {
+          context = new InstanceContext(accountId, instanceNumber, host);
+          contexts.add(context);
+        }
+      }
+    }
+    return context;
+  }
+  
+  private InstanceContext findInstanceContext(List<InstanceContext> contexts, int instanceNumber, String host) {
+    for (int i = 0; i < contexts.size(); ++i) {
+      InstanceContext context = contexts.get(i);
+      if (context.instanceNumber == instanceNumber && Objects.equals(context.host, host)) {
+        return context;
+      }
+    }
+    return null;
+  }
+  
+  private CompletableFuture<Void> processAuthenticatedPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) {
+    String accountId = instance.getAccountId();
+    int instanceNumber = instance.getInstanceNumber();
+    String instanceId = instance.getInstanceId();
+    String instanceIndex = instance.getInstanceIndex();
+    SocketInstance socketInstance = getSocketInstanceByAccount(accountId);
+    instance.resetDisconnectTimer();
+    if (!data.has("sessionId") || data.get("sessionId").asText().equals(socketInstance.sessionId)) {
+      if (connectedHosts.add(accountId, instanceNumber, instanceId)) {
+        placement.onHostConnected(accountId);
+      }
+      CompletableFuture<Void> result = notifyListeners(listeners,
+        listener -> listener.onConnected(instanceIndex, data.get("replicas").asInt()),
+        accountId + ":" + instanceIndex + ": Failed to notify listener about connected event");
+      subscriptionManager.cancelSubscribe(accountId + ":" + instanceNumber);
+      return result;
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+  
+  private CompletableFuture<Void> processDisconnectedPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) {
+    instance.cancelDisconnectTimer();
+    return instance.onDisconnected(false);
+  }
+  
+  private CompletableFuture<Void> processSynchronizationStartedPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    return notifyListeners(listeners, listener -> listener.onSynchronizationStarted(instanceIndex),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about synchronization started event");
+  }
+  
+  private CompletableFuture<Void> processAccountInformationPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    if (data.hasNonNull("accountInformation")) {
+      MetatraderAccountInformation accountInformation = jsonMapper
+        .treeToValue(data.get("accountInformation"), MetatraderAccountInformation.class);
+      return notifyListeners(listeners,
+        listener -> listener.onAccountInformationUpdated(instanceIndex, accountInformation),
+        accountId + ":" + instanceIndex + ": Failed to notify listener about accountInformation event");
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+  
+  private CompletableFuture<Void> processDealsPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+    if (data.hasNonNull("deals")) {
+      MetatraderDeal[] deals = jsonMapper.treeToValue(data.get("deals"), MetatraderDeal[].class);
+      for (MetatraderDeal deal : deals) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onDealAdded(instanceIndex, deal),
+          accountId + ":" + instanceIndex + ": Failed to notify listener about deals event"));
+      }
+    }
+    return result;
+  }
+  
+  private CompletableFuture<Void> processOrdersPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    MetatraderOrder[] orders = data.hasNonNull("orders")
+      ? jsonMapper.treeToValue(data.get("orders"), MetatraderOrder[].class)
+      : new MetatraderOrder[0];
+    return notifyListeners(listeners, listener -> listener.onOrdersReplaced(instanceIndex, Arrays.asList(orders)),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about orders event");
+  }
+  
+  private CompletableFuture<Void> processHistoryOrdersPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+    if (data.hasNonNull("historyOrders")) {
+      MetatraderOrder[] historyOrders = jsonMapper.treeToValue(data.get("historyOrders"), MetatraderOrder[].class);
+      for (MetatraderOrder historyOrder : historyOrders) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onHistoryOrderAdded(instanceIndex, historyOrder),
+          accountId + ":" + instanceIndex + ": Failed to notify listener about historyOrders event"));
+      }
+    }
+    return result;
+  }
+  
+  private CompletableFuture<Void> processPositionsPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    MetatraderPosition[] positions = data.hasNonNull("positions")
+      ? jsonMapper.treeToValue(data.get("positions"), MetatraderPosition[].class)
+      : new MetatraderPosition[0];
+    return notifyListeners(listeners,
+      listener -> listener.onPositionsReplaced(instanceIndex, Arrays.asList(positions)),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about positions event");
+  }
+  
+  private CompletableFuture<Void> processUpdatePacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    String errorMessage = accountId + ":" + instanceIndex + ": Failed to notify listener about update event";
+    CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+    if (data.hasNonNull("accountInformation")) {
+      MetatraderAccountInformation accountInformation = jsonMapper
+        .treeToValue(data.get("accountInformation"), MetatraderAccountInformation.class);
+      result = result.thenCompose(ignored -> notifyListeners(listeners,
+        listener -> listener.onAccountInformationUpdated(instanceIndex, accountInformation), errorMessage));
+    }
+    if (data.hasNonNull("updatedPositions")) {
+      MetatraderPosition[] positions = jsonMapper
+        .treeToValue(data.get("updatedPositions"), MetatraderPosition[].class);
+      for (MetatraderPosition position : positions) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onPositionUpdated(instanceIndex, position), errorMessage));
+      }
+    }
+    if (data.hasNonNull("removedPositionIds")) {
+      String[] removedPositionIds = jsonMapper
+        .treeToValue(data.get("removedPositionIds"), String[].class);
+      for (String positionId : removedPositionIds) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onPositionRemoved(instanceIndex, positionId), errorMessage));
+      }
+    }
+    if (data.hasNonNull("updatedOrders")) {
+      MetatraderOrder[] updatedOrders = jsonMapper
+        .treeToValue(data.get("updatedOrders"), MetatraderOrder[].class);
+      for (MetatraderOrder order : updatedOrders) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onOrderUpdated(instanceIndex, order), errorMessage));
+      }
+    }
+    if (data.hasNonNull("completedOrderIds")) {
+      String[] completedOrderIds = jsonMapper
+        .treeToValue(data.get("completedOrderIds"), String[].class);
+      for (String orderId : completedOrderIds) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onOrderCompleted(instanceIndex, orderId), errorMessage));
+      }
+    }
+    if (data.hasNonNull("historyOrders")) {
+      MetatraderOrder[] historyOrders = jsonMapper
+        .treeToValue(data.get("historyOrders"), MetatraderOrder[].class);
+      for (MetatraderOrder historyOrder : historyOrders) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onHistoryOrderAdded(instanceIndex, historyOrder), errorMessage));
+      }
+    }
+    if (data.hasNonNull("deals")) {
+      MetatraderDeal[] deals = jsonMapper
+        .treeToValue(data.get("deals"), MetatraderDeal[].class);
+      for (MetatraderDeal deal : deals) {
+        result = result.thenCompose(ignored -> notifyListeners(listeners,
+          listener -> listener.onDealAdded(instanceIndex, deal), errorMessage));
+      }
+    }
+    if (data.has("timestamps")) {
+      UpdateTimestamps timestamps = jsonMapper.treeToValue(data.get("timestamps"),
+        UpdateTimestamps.class);
+      result = result.thenCompose(ignored -> {
+        timestamps.clientProcessingFinished = new IsoTime();
+        return notifyListeners(latencyListeners, listener -> listener.onUpdate(accountId, timestamps),
+          accountId + ":" + instanceIndex + ": Failed to notify latency listener about update event");
+      });
+    }
+    return result;
+  }
+  
+  private CompletableFuture<Void> processDealSynchronizationFinishedPacket(JsonNode data,
+    InstanceContext instance, List<SynchronizationListener> listeners) {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    SocketInstance socketInstance = getSocketInstanceByAccount(accountId);
+    String synchronizationId = data.has("synchronizationId") ? data.get("synchronizationId").asText() : null;
+    if (socketInstance != null && !listeners.isEmpty()) {
+      socketInstance.synchronizationThrottler.removeSynchronizationId(synchronizationId);
+    }
+    return notifyListeners(listeners,
+      listener -> listener.onDealSynchronizationFinished(instanceIndex, data.get("synchronizationId").asText()),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about dealSynchronizationFinished event");
+  }
+  
+  private CompletableFuture<Void> processOrderSynchronizationFinishedPacket(JsonNode data,
+    InstanceContext instance, List<SynchronizationListener> listeners) {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    return notifyListeners(listeners,
+      listener -> listener.onOrderSynchronizationFinished(instanceIndex, data.get("synchronizationId").asText()),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about orderSynchronizationFinished event");
+  }
+  
+  private CompletableFuture<Void> processStatusPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    int instanceNumber = instance.getInstanceNumber();
+    String instanceId = instance.getInstanceId();
+    String instanceIndex = instance.getInstanceIndex();
+    if (!connectedHosts.contains(instanceId)) {
+      if (statusTimers.containsKey(instanceId) && data.has("authenticated") && data.get("authenticated").asBoolean() && 
+        (subscriptionManager.isDisconnectedRetryMode(accountId, instanceNumber) || 
+        !subscriptionManager.isAccountSubscribing(accountId, instanceNumber))) {
+        subscriptionManager.cancelSubscribe(accountId + ":" + instanceNumber);
+        return delay(10).thenRun(() -> {
+          logger.info("It seems like we are not connected to a running API server yet, "
+            + "retrying subscription for account " + instanceId);
+          ensureSubscribe(accountId, instanceNumber);
+        });
+      }
+      return CompletableFuture.completedFuture(null);
+    }
+    instance.resetDisconnectTimer();
+    CompletableFuture<Void> result = notifyListeners(listeners,
+      listener -> listener.onBrokerConnectionStatusChanged(instanceIndex, data.get("connected").asBoolean()),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about brokerConnectionStatusChanged event");
+    if (data.hasNonNull("healthStatus")) {
+      SynchronizationListener.HealthStatus healthStatus = jsonMapper.treeToValue(data.get("healthStatus"),
+        SynchronizationListener.HealthStatus.class);
+      result = result.thenCompose(ignored -> notifyListeners(listeners,
+        listener -> listener.onHealthStatus(instanceIndex, healthStatus),
+        accountId + ":" + instanceIndex + ": Failed to notify listener about server-side healthStatus event"));
+    }
+    return result;
+  }
+  
+  private CompletableFuture<Void> processDowngradeSubscriptionPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    logger.info(accountId + ":" + instanceIndex + ": Market data subscriptions for symbol " + data.get("symbol") 
+      + " were downgraded by " + "the server due to rate limits. Updated subscriptions: " + data.get("updates")
+      + ", removed subscriptions: " + data.get("unsubscriptions") 
+      + ". Please read https://metaapi.cloud/docs/client/rateLimiting/ for more details.");
+    List<MarketDataSubscription> updates = data.has("updates")
+      ? Arrays.asList(jsonMapper.treeToValue(data.get("updates"), MarketDataSubscription[].class))
+      : new ArrayList<>();
+    List<MarketDataUnsubscription> unsubscriptions = data.has("unsubscriptions")
+      ? Arrays.asList(jsonMapper.treeToValue(data.get("unsubscriptions"), MarketDataUnsubscription[].class))
+      : new ArrayList<>();
+    return notifyListeners(listeners, listener -> listener.onSubscriptionDowngraded(instanceIndex,
+      data.get("symbol").asText(), updates, unsubscriptions),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about subscription downgrade event");
+  }
+  
+  private CompletableFuture<Void> processSpecificationsPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    List<MetatraderSymbolSpecification> specifications = data.hasNonNull("specifications")
+      ? Arrays.asList(jsonMapper.treeToValue(data.get("specifications"), MetatraderSymbolSpecification[].class))
+      : new ArrayList<>();
+    List<String> removedSymbols = data.hasNonNull("removedSymbols")
+      ? Arrays.asList(jsonMapper.treeToValue(data.get("removedSymbols"), String[].class))
+      : new ArrayList<>();
+    CompletableFuture<Void> result = notifyListeners(listeners,
+      listener -> listener.onSymbolSpecificationsUpdated(instanceIndex, specifications, removedSymbols),
+      accountId + ":" + instanceIndex + ": Failed to notify listener about specifications updated event");
+    for (MetatraderSymbolSpecification specification : specifications) {
+      result = result.thenCompose(ignored -> notifyListeners(listeners,
+        listener -> listener.onSymbolSpecificationUpdated(instanceIndex, specification),
+        accountId + ":" + instanceIndex + ": Failed to notify listener about specification updated event"));
+    }
+    for (String removedSymbol : removedSymbols) {
+      result = result.thenCompose(ignored -> notifyListeners(listeners,
+        listener -> listener.onSymbolSpecificationRemoved(instanceIndex, removedSymbol),
+        accountId + ":" + instanceIndex + ": Failed to notify listener about specifications removed event"));
+    }
+    return result;
+  }
+  
+  private CompletableFuture<Void> processPricesPacket(JsonNode data, InstanceContext instance,
+    List<SynchronizationListener> listeners) throws Exception {
+    String accountId = instance.getAccountId();
+    String instanceIndex = instance.getInstanceIndex();
+    PricesPacket pricesPacket = packetDecoder.decodePrices(data);
+    List<MetatraderSymbolPrice> prices = pricesPacket.prices;
+    PriceRingBuffer priceRingBuffer = priceRingBuffers.get(accountId);
+    if (priceRingBuffer != null) {
+      priceRingBuffer.publish(instanceIndex, prices);
+    }
+    List<CompletableFuture<Void>> onPricesUpdatedFutures = new ArrayList<>();
+    for (SynchronizationListener listener : listeners) {
+      if (isSynchronousPriceListener(listener)) {
+        notifyPricesUpdated((SynchronousSynchronizationListener) listener, accountId, instanceIndex,
+          pricesPacket);
+        continue;
+      }
+      if (prices.size() != 0) {
+        onPricesUpdatedFutures.add(listener.onSymbolPricesUpdated(instanceIndex, prices,
+          pricesPacket.equity, pricesPacket.margin, pricesPacket.freeMargin, pricesPacket.marginLevel,
+          pricesPacket.accountCurrencyExchangeRate).exceptionally(e -> {
+          logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about prices event", e);
+          return null;
+        }));
+      }
+      if (pricesPacket.candles.size() != 0) {
+        onPricesUpdatedFutures.add(listener.onCandlesUpdated(instanceIndex, pricesPacket.candles,
+          pricesPacket.equity, pricesPacket.margin, pricesPacket.freeMargin, pricesPacket.marginLevel,
+          pricesPacket.accountCurrencyExchangeRate).exceptionally(e -> {
+          logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about candles event", e);
+          return null;
+        }));
+      }
+      if (pricesPacket.ticks.size() != 0) {
+        onPricesUpdatedFutures.add(listener.onTicksUpdated(instanceIndex, pricesPacket.ticks,
+          pricesPacket.equity, pricesPacket.margin, pricesPacket.freeMargin, pricesPacket.marginLevel,
+          pricesPacket.accountCurrencyExchangeRate).exceptionally(e -> {
+          logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about ticks event", e);
+          return null;
+        }));
+      }
+      if (pricesPacket.books.size() != 0) {
+        onPricesUpdatedFutures.add(listener.onBooksUpdated(instanceIndex, pricesPacket.books,
+          pricesPacket.equity, pricesPacket.margin, pricesPacket.freeMargin, pricesPacket.marginLevel,
+          pricesPacket.accountCurrencyExchangeRate).exceptionally(e -> {
+          logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about books event", e);
+          return null;
+        }));
+      }
+    }
+    CompletableFuture<Void> result = onPricesUpdatedFutures.size() != 0
+      ? CompletableFuture.allOf(onPricesUpdatedFutures.toArray(new CompletableFuture<?>[0]))
+      : CompletableFuture.completedFuture(null);
+    for (MetatraderSymbolPrice price : prices) {
+      result = result.thenCompose(ignored -> notifyPriceUpdated(listeners, accountId, instanceIndex, price));
+    }
+    for (MetatraderSymbolPrice price : prices) {
+      if (price.timestamps != null) {
+        result = result.thenCompose(ignored -> {
+          price.timestamps.clientProcessingFinished = new IsoTime(Date.from(Instant.now()));
+          return notifyListeners(latencyListeners,
+            listener -> listener.onSymbolPrice(accountId, price.symbol, price.timestamps),
+            accountId + ":" + instanceIndex + ": Failed to notify latency listener about price event");
+        });
+      }
+    }
+    return result;
+  }
+  
+  private CompletableFuture<Void> notifyPriceUpdated(List<SynchronizationListener> listeners, String accountId,
+    String instanceIndex, MetatraderSymbolPrice price) {
+    List<CompletableFuture<Void>> onPriceUpdatedFutures = null;
+    for (SynchronizationListener listener : listeners) {
+      if (isSynchronousPriceListener(listener)) {
+        try {
+          ((SynchronousSynchronizationListener) listener).onSymbolPriceUpdatedSync(instanceIndex, price);
+        } catch (Throwable e) {
+          logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about price event", e);
+        }
+        continue;
+      }
+      if (onPriceUpdatedFutures == null) {
+        onPriceUpdatedFutures = new ArrayList<>();
+      }
+      onPriceUpdatedFutures.add(listener.onSymbolPriceUpdated(instanceIndex, price)
+          .exceptionally(e -> {
+        logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about price event", e);
+        return null;
+      }));
+    }
+    return onPriceUpdatedFutures != null
+      ? CompletableFuture.allOf(onPriceUpdatedFutures.toArray(new CompletableFuture<?>[0]))
+      : CompletableFuture.completedFuture(null);
+  }
+  
+  private <T> CompletableFuture<Void> notifyListeners(Collection<T> listeners,
+    Function<T, CompletableFuture<Void>> event, String errorMessage) {
+    List<CompletableFuture<Void>> completableFutures = new ArrayList<>();
+    for (T listener : listeners) {
+      completableFutures.add(event.apply(listener).exceptionally(e -> {
+        logger.error(errorMessage, e);
+        return null;
+      }));
+    }
+    return CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture<?>[0]));
+  }
+  
+  private boolean isSynchronousPriceListener(SynchronizationListener listener) {
+    return listener instanceof SynchronousSynchronizationListener
+      && ((SynchronousSynchronizationListener) listener).isSynchronousPriceStreamEnabled();
+  }
+  
+  private void notifyPricesUpdated(SynchronousSynchronizationListener listener, String accountId,
+    String instanceIndex, PricesPacket packet) {
+    if (packet.prices.size() != 0) {
+      try {
+        listener.onSymbolPricesUpdatedSync(instanceIndex, packet.prices, packet.equity, packet.margin,
+          packet.freeMargin, packet.marginLevel, packet.accountCurrencyExchangeRate);
+      } catch (Throwable e) {
+        logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about prices event", e);
+      }
+    }
+    if (packet.candles.size() != 0) {
+      try {
+        listener.onCandlesUpdatedSync(instanceIndex, packet.candles, packet.equity, packet.margin,
+          packet.freeMargin, packet.marginLevel, packet.accountCurrencyExchangeRate);
+      } catch (Throwable e) {
+        logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about candles event", e);
+      }
+    }
+    if (packet.ticks.size() != 0) {
+      try {
+        listener.onTicksUpdatedSync(instanceIndex, packet.ticks, packet.equity, packet.margin,
+          packet.freeMargin, packet.marginLevel, packet.accountCurrencyExchangeRate);
+      } catch (Throwable e) {
+        logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about ticks event", e);
+      }
+    }
+    if (packet.books.size() != 0) {
+      try {
+        listener.onBooksUpdatedSync(instanceIndex, packet.books, packet.equity, packet.margin,
+          packet.freeMargin, packet.marginLevel, packet.accountCurrencyExchangeRate);
+      } catch (Throwable e) {
+        logger.error(accountId + ":" + instanceIndex + ": Failed to notify listener about books event", e);
+      }
+    }
   }
   
   private CompletableFuture<Void> fireReconnected(int socketInstanceIndex) {
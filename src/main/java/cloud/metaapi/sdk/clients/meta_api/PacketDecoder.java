@@ -0,0 +1,395 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderBook;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderCandle;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderTick;
+
+/**
+ * Class which decodes socket.io event arguments into json trees. Each argument is decoded exactly
+ * once: text frames are parsed directly and frames already materialized by the socket.io client as
+ * org.json objects are converted node by node instead of being serialized back to text and parsed again.
+ * Market data arrays of synchronization packets are bound to models straight from the parser without
+ * building json trees for them
+ */
+public class PacketDecoder {
+
+  /**
+   * Json tree of a synchronization packet which carries market data bound while parsing next to the tree.
+   * The bound arrays are not part of the tree, so loggers and packet handlers only see the packet fields
+   */
+  public static class SynchronizationPacket extends ObjectNode {
+    private static final long serialVersionUID = 1L;
+    private transient PricesPacket pricesPacket;
+
+    private SynchronizationPacket(JsonNodeFactory nodeFactory) {
+      super(nodeFactory);
+    }
+
+    /**
+     * Returns market data bound while parsing the packet
+     * @return prices packet, or {@code null} if the packet contained no market data arrays
+     */
+    public PricesPacket getPricesPacket() {
+      return pricesPacket;
+    }
+
+    @Override
+    public SynchronizationPacket deepCopy() {
+      SynchronizationPacket result = new SynchronizationPacket(_nodeFactory);
+      result.pricesPacket = pricesPacket;
+      for (Entry<String, JsonNode> field : _children.entrySet()) {
+        result.set(field.getKey(), field.getValue().deepCopy());
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Decoded prices synchronization packet
+   */
+  public static class PricesPacket {
+    /**
+     * Updated symbol prices, or empty list
+     */
+    public List<MetatraderSymbolPrice> prices = Collections.emptyList();
+    /**
+     * Updated symbol candles, or empty list
+     */
+    public List<MetatraderCandle> candles = Collections.emptyList();
+    /**
+     * Updated symbol ticks, or empty list
+     */
+    public List<MetatraderTick> ticks = Collections.emptyList();
+    /**
+     * Updated order books, or empty list
+     */
+    public List<MetatraderBook> books = Collections.emptyList();
+    /**
+     * Account liquidation value, or {@code null}
+     */
+    public Double equity;
+    /**
+     * Margin used, or {@code null}
+     */
+    public Double margin;
+    /**
+     * Free margin, or {@code null}
+     */
+    public Double freeMargin;
+    /**
+     * Margin level calculated as % of equity/margin, or {@code null}
+     */
+    public Double marginLevel;
+    /**
+     * Current exchange rate of account currency into USD, or {@code null}
+     */
+    public Double accountCurrencyExchangeRate;
+  }
+
+  private ObjectMapper jsonMapper;
+  private JsonNodeFactory nodeFactory;
+  private ObjectReader pricesReader;
+  private ObjectReader candlesReader;
+  private ObjectReader ticksReader;
+  private ObjectReader booksReader;
+
+  /**
+   * Constructs instance of packet decoder
+   * @param jsonMapper json mapper to use for parsing text frames
+   */
+  public PacketDecoder(ObjectMapper jsonMapper) {
+    this.jsonMapper = jsonMapper;
+    this.nodeFactory = jsonMapper.getNodeFactory();
+    this.pricesReader = jsonMapper.readerFor(MetatraderSymbolPrice[].class);
+    this.candlesReader = jsonMapper.readerFor(MetatraderCandle[].class);
+    this.ticksReader = jsonMapper.readerFor(MetatraderTick[].class);
+    this.booksReader = jsonMapper.readerFor(MetatraderBook[].class);
+  }
+
+  /**
+   * Decodes socket.io event argument into a json tree. If the argument turns out to be a json encoded
+   * string, its content is parsed as well
+   * @param arg socket.io event argument
+   * @return decoded json tree
+   * @throws JsonProcessingException if the argument is not a valid json
+   */
+  public JsonNode decode(Object arg) throws JsonProcessingException {
+    JsonNode result;
+    if (arg instanceof JSONObject || arg instanceof JSONArray) {
+      result = convert(arg);
+    } else {
+      result = jsonMapper.readTree(String.valueOf(arg));
+    }
+    if (result.isTextual()) {
+      result = jsonMapper.readTree(result.asText());
+    }
+    return result;
+  }
+
+  /**
+   * Decodes socket.io event argument into an object of specified type
+   * @param <T> type of the object
+   * @param arg socket.io event argument
+   * @param valueType class of the object
+   * @return decoded object
+   * @throws JsonProcessingException if the argument is not a valid json or does not match the type
+   */
+  public <T> T decode(Object arg, Class<T> valueType) throws JsonProcessingException {
+    if (arg instanceof String) {
+      return jsonMapper.readValue((String) arg, valueType);
+    }
+    return jsonMapper.treeToValue(decode(arg), valueType);
+  }
+
+  /**
+   * Decodes socket.io synchronization event argument into a json tree. Price, candle, tick and book arrays
+   * are bound to models directly from the text or org.json frame and returned alongside the tree as a
+   * {@link SynchronizationPacket}, to be picked up by {@link #decodePrices}
+   * @param arg socket.io event argument
+   * @return decoded json tree
+   * @throws IOException if the argument is not a valid json or its market data does not match the models
+   */
+  public JsonNode decodeSynchronizationPacket(Object arg) throws IOException {
+    if (arg instanceof JSONObject) {
+      return decodeSynchronizationPacket((JSONObject) arg);
+    } else if (!(arg instanceof String)) {
+      return decode(arg);
+    }
+    try (JsonParser parser = jsonMapper.getFactory().createParser((String) arg)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return decode(arg);
+      }
+      SynchronizationPacket result = new SynchronizationPacket(nodeFactory);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        ObjectReader reader = parser.nextToken() == JsonToken.START_ARRAY ? getMarketDataReader(name) : null;
+        if (reader != null) {
+          result.pricesPacket = result.pricesPacket != null ? result.pricesPacket : new PricesPacket();
+          setMarketData(result.pricesPacket, name, reader.readValue(parser));
+        } else {
+          JsonNode value = jsonMapper.readTree(parser);
+          result.set(name, value != null ? value : nodeFactory.nullNode());
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Decodes prices synchronization packet. Packet fields are visited once and each price, candle, tick
+   * and book array is bound with a prebuilt reader unless it was already bound while parsing, so the result
+   * can be shared by all listeners
+   * @param packet prices synchronization packet
+   * @return decoded prices packet
+   * @throws IOException if the packet content does not match the price models
+   */
+  public PricesPacket decodePrices(JsonNode packet) throws IOException {
+    PricesPacket decoded = packet instanceof SynchronizationPacket
+      ? ((SynchronizationPacket) packet).getPricesPacket() : null;
+    PricesPacket result = decoded != null ? decoded : new PricesPacket();
+    Iterator<Entry<String, JsonNode>> fields = packet.fields();
+    while (fields.hasNext()) {
+      Entry<String, JsonNode> field = fields.next();
+      JsonNode value = field.getValue();
+      if (value.isNull()) {
+        continue;
+      }
+      switch (field.getKey()) {
+        case "prices":
+          result.prices = Arrays.asList(pricesReader.<MetatraderSymbolPrice[]>readValue(value));
+          break;
+        case "candles":
+          result.candles = Arrays.asList(candlesReader.<MetatraderCandle[]>readValue(value));
+          break;
+        case "ticks":
+          result.ticks = Arrays.asList(ticksReader.<MetatraderTick[]>readValue(value));
+          break;
+        case "books":
+          result.books = Arrays.asList(booksReader.<MetatraderBook[]>readValue(value));
+          break;
+        case "equity":
+          result.equity = value.asDouble();
+          break;
+        case "margin":
+          result.margin = value.asDouble();
+          break;
+        case "freeMargin":
+          result.freeMargin = value.asDouble();
+          break;
+        case "marginLevel":
+          result.marginLevel = value.asDouble();
+          break;
+        case "accountCurrencyExchangeRate":
+          result.accountCurrencyExchangeRate = value.asDouble();
+          break;
+        default:
+          break;
+      }
+    }
+    return result;
+  }
+
+  private JsonNode decodeSynchronizationPacket(JSONObject object) throws IOException {
+    SynchronizationPacket result = new SynchronizationPacket(nodeFactory);
+    Iterator<?> keys = object.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      Object value = object.opt(key);
+      ObjectReader reader = value instanceof JSONArray ? getMarketDataReader(key) : null;
+      if (reader != null) {
+        TokenBuffer buffer = new TokenBuffer(jsonMapper, false);
+        write(buffer, value);
+        try (JsonParser parser = buffer.asParser()) {
+          result.pricesPacket = result.pricesPacket != null ? result.pricesPacket : new PricesPacket();
+          setMarketData(result.pricesPacket, key, reader.readValue(parser));
+        }
+      } else {
+        result.set(key, convert(value));
+      }
+    }
+    return result;
+  }
+
+  private ObjectReader getMarketDataReader(String field) {
+    switch (field) {
+      case "prices":
+        return pricesReader;
+      case "candles":
+        return candlesReader;
+      case "ticks":
+        return ticksReader;
+      case "books":
+        return booksReader;
+      default:
+        return null;
+    }
+  }
+
+  private void setMarketData(PricesPacket packet, String field, Object[] items) {
+    switch (field) {
+      case "prices":
+        packet.prices = Arrays.asList((MetatraderSymbolPrice[]) items);
+        break;
+      case "candles":
+        packet.candles = Arrays.asList((MetatraderCandle[]) items);
+        break;
+      case "ticks":
+        packet.ticks = Arrays.asList((MetatraderTick[]) items);
+        break;
+      case "books":
+        packet.books = Arrays.asList((MetatraderBook[]) items);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void write(JsonGenerator generator, Object value) throws IOException {
+    if (value == null || value == JSONObject.NULL) {
+      generator.writeNull();
+    } else if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      generator.writeStartObject();
+      Iterator<?> keys = object.keys();
+      while (keys.hasNext()) {
+        String key = (String) keys.next();
+        generator.writeFieldName(key);
+        write(generator, object.opt(key));
+      }
+      generator.writeEndObject();
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      generator.writeStartArray();
+      for (int i = 0; i < array.length(); ++i) {
+        write(generator, array.opt(i));
+      }
+      generator.writeEndArray();
+    } else if (value instanceof String) {
+      generator.writeString((String) value);
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer) {
+      generator.writeNumber((Integer) value);
+    } else if (value instanceof Long) {
+      generator.writeNumber((Long) value);
+    } else if (value instanceof Double) {
+      generator.writeNumber((Double) value);
+    } else if (value instanceof Float) {
+      generator.writeNumber((Float) value);
+    } else if (value instanceof BigDecimal) {
+      generator.writeNumber((BigDecimal) value);
+    } else if (value instanceof BigInteger) {
+      generator.writeNumber((BigInteger) value);
+    } else if (value instanceof Number) {
+      generator.writeNumber(((Number) value).doubleValue());
+    } else {
+      generator.writeString(value.toString());
+    }
+  }
+
+  private JsonNode convert(Object value) {
+    if (value == null || value == JSONObject.NULL) {
+      return nodeFactory.nullNode();
+    } else if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      ObjectNode result = nodeFactory.objectNode();
+      Iterator<?> keys = object.keys();
+      while (keys.hasNext()) {
+        String key = (String) keys.next();
+        result.set(key, convert(object.opt(key)));
+      }
+      return result;
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      ArrayNode result = nodeFactory.arrayNode(array.length());
+      for (int i = 0; i < array.length(); ++i) {
+        result.add(convert(array.opt(i)));
+      }
+      return result;
+    } else if (value instanceof String) {
+      return nodeFactory.textNode((String) value);
+    } else if (value instanceof Boolean) {
+      return nodeFactory.booleanNode((Boolean) value);
+    } else if (value instanceof Integer) {
+      return nodeFactory.numberNode((Integer) value);
+    } else if (value instanceof Long) {
+      return nodeFactory.numberNode((Long) value);
+    } else if (value instanceof Double) {
+      return nodeFactory.numberNode((Double) value);
+    } else if (value instanceof Float) {
+      return nodeFactory.numberNode((Float) value);
+    } else if (value instanceof BigDecimal) {
+      return nodeFactory.numberNode((BigDecimal) value);
+    } else if (value instanceof BigInteger) {
+      return nodeFactory.numberNode((BigInteger) value);
+    } else if (value instanceof Number) {
+      return nodeFactory.numberNode(((Number) value).doubleValue());
+    }
+    return nodeFactory.textNode(value.toString());
+  }
+}
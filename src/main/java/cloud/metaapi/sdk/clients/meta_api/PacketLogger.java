@@ -16,9 +16,8 @@ import java.util.Date;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
@@ -47,8 +46,9 @@ public class PacketLogger {
   private Map<String, Map<Integer, PreviousPrice>> previousPrices = new ConcurrentHashMap<>();
   private Map<String, Map<Integer, JsonNode>> lastSNPacket = new ConcurrentHashMap<>();
   private Map<String, WriteQueueItem> writeQueue = new ConcurrentHashMap<>();
-  private Timer recordInterval;
-  private Timer deleteOldLogsInterval;
+  private SdkScheduler scheduler;
+  private ScheduledFuture<?> recordInterval;
+  private ScheduledFuture<?> deleteOldLogsInterval;
   private String root;
   
   /**
@@ -102,6 +102,17 @@ public class PacketLogger {
    * @throws ValidationException if specified opts are invalid
    */
   public PacketLogger(LoggerOptions opts) throws IOException, ValidationException {
+    this(opts, SdkScheduler.getDefault());
+  }
+  
+  /**
+   * Constructs the class
+   * @param opts packet logger options
+   * @param scheduler scheduler to run the record and cleanup jobs on
+   * @throws IOException if log directory cannot be created
+   * @throws ValidationException if specified opts are invalid
+   */
+  public PacketLogger(LoggerOptions opts, SdkScheduler scheduler) throws IOException, ValidationException {
     OptionsValidator validator = new OptionsValidator();
     validator.validateNonZeroInt(opts.fileNumberLimit, "packetLogger.fileNumberLimit");
     validator.validateNonZeroInt(opts.logFileSizeInHours, "packetLogger.logFileSizeInHours");
@@ -110,6 +121,7 @@ public class PacketLogger {
     this.logFileSizeInHours = opts.logFileSizeInHours;
     this.compressSpecifications = opts.compressSpecifications;
     this.compressPrices = opts.compressPrices;
+    this.scheduler = scheduler;
     this.root = "./.metaapi/logs";
     Files.createDirectories(FileSystems.getDefault().getPath(this.root));
   }
@@ -261,26 +273,15 @@ public class PacketLogger {
   /**
    * Initializes the packet logger
    */
-  public void start() {
+  public synchronized void start() {
     previousPrices.clear();
     if (recordInterval == null) {
-      PacketLogger self = this;
-      recordInterval = new Timer();
-      recordInterval.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          self.appendLogs();
-        }
-      }, 1000, 1000);
-      deleteOldLogsInterval = new Timer();
-      deleteOldLogsInterval.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          try {
-            self.deleteOldData();
-          } catch (IOException e) {
-            logger.error("Failed to delete old data", e);
-          }
+      recordInterval = scheduler.scheduleWithFixedDelay(this::appendLogs, 1000, 1000);
+      deleteOldLogsInterval = scheduler.scheduleWithFixedDelay(() -> {
+        try {
+          deleteOldData();
+        } catch (IOException e) {
+          logger.error("Failed to delete old data", e);
         }
       }, 10000, 10000);
     }
@@ -289,11 +290,11 @@ public class PacketLogger {
   /**
    * Deinitializes the packet logger
    */
-  public void stop() {
+  public synchronized void stop() {
     if (recordInterval != null) {
-      recordInterval.cancel();
+      recordInterval.cancel(false);
       recordInterval = null;
-      deleteOldLogsInterval.cancel();
+      deleteOldLogsInterval.cancel(false);
       deleteOldLogsInterval = null;
     }
   }
@@ -6,8 +6,7 @@ import java.util.Date;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -60,7 +59,8 @@ public class PacketOrderer {
   private Map<String, Integer> lastSessionStartTimestamp = new ConcurrentHashMap<>();
   private Map<String, List<Packet>> packetsByInstance = new ConcurrentHashMap<>();
   private int waitListSizeLimit = 100;
-  private Timer outOfOrderJob;
+  private SdkScheduler scheduler;
+  private ScheduledFuture<?> outOfOrderJob;
   
   /**
    * Constructs the class
@@ -68,35 +68,40 @@ public class PacketOrderer {
    * @param orderingTimeoutInSeconds packet ordering timeout
    */
   public PacketOrderer(OutOfOrderListener outOfOrderListener, int orderingTimeoutInSeconds) {
+    this(outOfOrderListener, orderingTimeoutInSeconds, SdkScheduler.getDefault());
+  }
+  
+  /**
+   * Constructs the class
+   * @param outOfOrderListener listener which will receive out of order packet events
+   * @param orderingTimeoutInSeconds packet ordering timeout
+   * @param scheduler scheduler to run the out of order job on
+   */
+  public PacketOrderer(OutOfOrderListener outOfOrderListener, int orderingTimeoutInSeconds,
+    SdkScheduler scheduler) {
     this.outOfOrderListener = outOfOrderListener;
     this.orderingTimeoutInSeconds = orderingTimeoutInSeconds;
+    this.scheduler = scheduler;
   }
   
   /**
    * Initializes the packet orderer
    */
-  public void start() {
-    final PacketOrderer self = this;
+  public synchronized void start() {
     sequenceNumberByInstance = new ConcurrentHashMap<>();
     lastSessionStartTimestamp = new ConcurrentHashMap<>();
     packetsByInstance = new ConcurrentHashMap<>();
     if (outOfOrderJob == null) {
-      outOfOrderJob = new Timer();
-      outOfOrderJob.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          self.emitOutOfOrderEvents();
-        }
-      }, 1000, 1000);
+      outOfOrderJob = scheduler.scheduleWithFixedDelay(this::emitOutOfOrderEvents, 1000, 1000);
     }
   }
   
   /**
    * Deinitialized the packet orderer
    */
-  public void stop() {
+  public synchronized void stop() {
     if (outOfOrderJob != null) {
-      outOfOrderJob.cancel();
+      outOfOrderJob.cancel(false);
       outOfOrderJob = null;
     }
   }
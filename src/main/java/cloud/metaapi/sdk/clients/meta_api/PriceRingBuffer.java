@@ -0,0 +1,310 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Ring buffer which distributes symbol prices of an account to independent consumers. Prices are copied
+ * into pre-allocated slots once per packet, and each consumer reads the slots on a shared executor at its own
+ * pace. A consumer is scheduled only when prices are published and never runs concurrently with itself. The
+ * buffer never waits for consumers: a consumer which falls behind by more than the buffer capacity skips the
+ * overwritten prices, which are counted as missed
+ */
+public class PriceRingBuffer {
+
+  private static Logger logger = LogManager.getLogger(PriceRingBuffer.class);
+  private String accountId;
+  private Executor executor;
+  private Slot[] slots;
+  private int mask;
+  private volatile long cursor = -1;
+  private List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+  /**
+   * Symbol price read from the ring buffer. The event object is reused by the consumer for all prices,
+   * so handlers must copy the values they need to keep
+   */
+  public static class PriceEvent {
+    /**
+     * Sequence number of the price in the ring buffer
+     */
+    public long sequence;
+    /**
+     * Index of the account instance the price was received from
+     */
+    public String instanceIndex;
+    /**
+     * Symbol (e.g. a currency pair or an index)
+     */
+    public String symbol;
+    /**
+     * Bid price
+     */
+    public double bid;
+    /**
+     * Ask price
+     */
+    public double ask;
+    /**
+     * Tick value for a profitable position
+     */
+    public double profitTickValue;
+    /**
+     * Tick value for a losing position
+     */
+    public double lossTickValue;
+    /**
+     * Current exchange rate of account currency into USD, or {@code null}
+     */
+    public Double accountCurrencyExchangeRate;
+    /**
+     * Quote time
+     */
+    public IsoTime time;
+    /**
+     * Quote time, in broker timezone, YYYY-MM-DD HH:mm:ss.SSS format
+     */
+    public String brokerTime;
+  }
+
+  /**
+   * Handler of prices read from the ring buffer
+   */
+  public interface PriceEventHandler {
+
+    /**
+     * Processes a price
+     * @param event price event, reused for subsequent prices
+     * @throws Exception if failed to process the price
+     */
+    void onPrice(PriceEvent event) throws Exception;
+  }
+
+  private static class Slot {
+    public volatile long sequence = -1;
+    public volatile String instanceIndex;
+    public volatile String symbol;
+    public volatile double bid;
+    public volatile double ask;
+    public volatile double profitTickValue;
+    public volatile double lossTickValue;
+    public volatile Double accountCurrencyExchangeRate;
+    public volatile IsoTime time;
+    public volatile String brokerTime;
+  }
+
+  /**
+   * Consumer of the ring buffer which processes prices on the executor of the buffer
+   */
+  public class Consumer {
+    private PriceEventHandler handler;
+    private PriceEvent event = new PriceEvent();
+    private AtomicBoolean isScheduled = new AtomicBoolean(false);
+    private volatile long sequence;
+    private volatile long missedEvents = 0;
+    private volatile boolean isRunning = true;
+
+    private Consumer(PriceEventHandler handler) {
+      this.handler = handler;
+      this.sequence = cursor;
+    }
+
+    /**
+     * Returns sequence number of the last processed price
+     * @return sequence number of the last processed price, or -1 if no prices were processed
+     */
+    public long getSequence() {
+      return sequence;
+    }
+
+    /**
+     * Returns number of prices published but not processed yet
+     * @return number of pending prices
+     */
+    public long getLag() {
+      return Math.min(cursor - sequence, slots.length);
+    }
+
+    /**
+     * Returns number of prices skipped because they were overwritten before the consumer read them
+     * @return number of missed prices
+     */
+    public long getMissedEvents() {
+      return missedEvents;
+    }
+
+    /**
+     * Stops the consumer
+     */
+    public void stop() {
+      isRunning = false;
+      consumers.remove(this);
+    }
+
+    private void schedule() {
+      if (isRunning && sequence < cursor && isScheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this::run);
+        } catch (Throwable err) {
+          isScheduled.set(false);
+          logger.error(accountId + ": Failed to schedule price consumer of ring buffer", err);
+        }
+      }
+    }
+
+    private void run() {
+      long next = sequence + 1;
+      long processed = 0;
+      while (isRunning && processed < slots.length) {
+        long available = cursor;
+        if (next > available) {
+          break;
+        }
+        if (available - next >= slots.length) {
+          long first = available - slots.length + 1;
+          missedEvents += first - next;
+          next = first;
+        }
+        if (!read(next)) {
+          awaitPublish();
+          continue;
+        }
+        try {
+          handler.onPrice(event);
+        } catch (Throwable err) {
+          logger.error(accountId + ": Failed to process price from ring buffer", err);
+        }
+        sequence = next++;
+        processed++;
+      }
+      isScheduled.set(false);
+      schedule();
+    }
+
+    private void awaitPublish() {
+      synchronized (PriceRingBuffer.this) {
+        // a slot fails to read only while a publisher is overwriting it, so instead of spinning the consumer
+        // blocks until the publisher releases the buffer and then reads the cursor again
+      }
+    }
+
+    private boolean read(long sequence) {
+      Slot slot = slots[(int) (sequence & mask)];
+      if (slot.sequence != sequence) {
+        return false;
+      }
+      event.sequence = sequence;
+      event.instanceIndex = slot.instanceIndex;
+      event.symbol = slot.symbol;
+      event.bid = slot.bid;
+      event.ask = slot.ask;
+      event.profitTickValue = slot.profitTickValue;
+      event.lossTickValue = slot.lossTickValue;
+      event.accountCurrencyExchangeRate = slot.accountCurrencyExchangeRate;
+      event.time = slot.time;
+      event.brokerTime = slot.brokerTime;
+      return slot.sequence == sequence;
+    }
+  }
+
+  /**
+   * Constructs instance of price ring buffer
+   * @param accountId account id
+   * @param capacity number of slots, rounded up to a power of two
+   * @param executor executor to run consumers on. Prices of a consumer are never processed concurrently
+   */
+  public PriceRingBuffer(String accountId, int capacity, Executor executor) {
+    this.accountId = accountId;
+    this.executor = executor;
+    int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    this.slots = new Slot[size];
+    for (int i = 0; i < size; ++i) {
+      slots[i] = new Slot();
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * Returns number of slots in the buffer
+   * @return buffer capacity
+   */
+  public int getCapacity() {
+    return slots.length;
+  }
+
+  /**
+   * Returns sequence number of the last published price
+   * @return sequence number of the last published price, or -1 if no prices were published
+   */
+  public long getCursor() {
+    return cursor;
+  }
+
+  /**
+   * Returns active consumers
+   * @return active consumers
+   */
+  public List<Consumer> getConsumers() {
+    return consumers;
+  }
+
+  /**
+   * Publishes prices of a packet to the buffer and schedules idle consumers
+   * @param instanceIndex index of the account instance the prices were received from
+   * @param prices prices to publish
+   */
+  public void publish(String instanceIndex, List<MetatraderSymbolPrice> prices) {
+    if (prices.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      long sequence = cursor;
+      for (MetatraderSymbolPrice price : prices) {
+        Slot slot = slots[(int) (++sequence & mask)];
+        slot.sequence = -1;
+        slot.instanceIndex = instanceIndex;
+        slot.symbol = price.symbol;
+        slot.bid = price.bid;
+        slot.ask = price.ask;
+        slot.profitTickValue = price.profitTickValue;
+        slot.lossTickValue = price.lossTickValue;
+        slot.accountCurrencyExchangeRate = price.accountCurrencyExchangeRate;
+        slot.time = price.time;
+        slot.brokerTime = price.brokerTime;
+        slot.sequence = sequence;
+        cursor = sequence;
+      }
+    }
+    for (Consumer consumer : consumers) {
+      consumer.schedule();
+    }
+  }
+
+  /**
+   * Adds a consumer which processes prices published after it was added
+   * @param handler price handler
+   * @return consumer
+   */
+  public Consumer addConsumer(PriceEventHandler handler) {
+    Consumer consumer = new Consumer(handler);
+    consumers.add(consumer);
+    return consumer;
+  }
+
+  /**
+   * Stops all consumers
+   */
+  public void stop() {
+    for (Consumer consumer : consumers) {
+      consumer.stop();
+    }
+  }
+}
@@ -0,0 +1,345 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import cloud.metaapi.sdk.clients.TimeoutException;
+import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException;
+import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException.TooManyRequestsExceptionMetadata;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+import cloud.metaapi.sdk.util.Async;
+
+/**
+ * Client-side request rate limiter. Token buckets are kept per request type, per account and per socket
+ * instance and are tuned from the too many requests errors returned by the server, so that subsequent
+ * requests are queued and released asynchronously instead of being rejected. A request which would wait
+ * longer than its timeout allows is rejected right away. A bucket is removed after a full rate limit period
+ * without errors
+ */
+public class RequestRateLimiter {
+
+  private SdkScheduler scheduler;
+  private boolean enabled;
+  private double safetyFactor;
+  private long maxTradeWaitInMilliseconds;
+  private Map<String, Bucket> buckets = new HashMap<>();
+  private volatile boolean hasBuckets = false;
+  private LinkedList<PendingRequest> queue = new LinkedList<>();
+  private Map<String, Integer> queuedRequestCounts = new HashMap<>();
+  private ScheduledFuture<?> releaseTask;
+  private long releaseTime;
+  private long delayedRequests = 0;
+  private long tooManyRequestsErrors = 0;
+
+  /**
+   * Request rate limiter options
+   */
+  public static class Options {
+    /**
+     * Whether requests are limited on client side after too many requests errors. By default is true
+     */
+    public boolean enabled = true;
+    /**
+     * Fraction of the request rate allowed by the server which is used by the client. By default is 0.9
+     */
+    public double safetyFactor = 0.9;
+    /**
+     * Maximum time a trade request can wait for a rate limit in milliseconds. Trade requests which would wait
+     * longer, e.g. because the server paused trading for the account, are rejected immediately with too many
+     * requests error, so that a delayed trade is not executed at an outdated price. By default is 0
+     */
+    public long maxTradeWaitInMilliseconds = 0;
+  }
+
+  /**
+   * Request rate limiter metrics
+   */
+  public static class RateLimiterMetrics {
+    /**
+     * Number of requests waiting to be sent
+     */
+    public int queuedRequests;
+    /**
+     * Number of active rate limits
+     */
+    public int activeLimits;
+    /**
+     * Number of requests which were delayed by the limiter
+     */
+    public long delayedRequests;
+    /**
+     * Number of too many requests errors used to tune the limiter
+     */
+    public long tooManyRequestsErrors;
+  }
+
+  private static class Bucket {
+    public double ratePerSecond;
+    public double capacity;
+    public double tokens;
+    public long refilledAt;
+    public long pausedUntil;
+    public long expiresAt;
+    public TooManyRequestsExceptionMetadata metadata;
+  }
+
+  private static class PendingRequest {
+    public String requestType;
+    public List<String> keys;
+    public long deadline;
+    public CompletableFuture<Void> future = new CompletableFuture<>();
+  }
+
+  /**
+   * Constructs instance of request rate limiter
+   * @param scheduler scheduler to release queued requests on
+   * @param opts request rate limiter options
+   */
+  public RequestRateLimiter(SdkScheduler scheduler, Options opts) {
+    this.scheduler = scheduler;
+    this.enabled = opts.enabled;
+    this.safetyFactor = Math.min(Math.max(opts.safetyFactor, 0.1), 1);
+    this.maxTradeWaitInMilliseconds = Math.max(opts.maxTradeWaitInMilliseconds, 0);
+  }
+
+  /**
+   * Waits until a request can be sent
+   * @param requestType request type
+   * @param accountId account id
+   * @param socketInstanceIndex socket instance index
+   * @return completable future which resolves when the request can be sent
+   */
+  public CompletableFuture<Void> acquire(String requestType, String accountId, int socketInstanceIndex) {
+    return acquire(requestType, accountId, socketInstanceIndex, Long.MAX_VALUE);
+  }
+
+  /**
+   * Waits until a request can be sent, but not longer than the request timeout
+   * @param requestType request type
+   * @param accountId account id
+   * @param socketInstanceIndex socket instance index
+   * @param maxWaitInMilliseconds maximum time to wait in milliseconds. Trade requests wait no longer than
+   * allowed by {@link Options#maxTradeWaitInMilliseconds}
+   * @return completable future which resolves when the request can be sent. Completes exceptionally with
+   * {@link TooManyRequestsException} if the request would have to wait longer than allowed, or with
+   * {@link TimeoutException} if the request was not released in time
+   */
+  public CompletableFuture<Void> acquire(String requestType, String accountId, int socketInstanceIndex,
+    long maxWaitInMilliseconds) {
+    if (!hasBuckets) {
+      return CompletableFuture.completedFuture(null);
+    }
+    long maxWait = TimeUnit.MILLISECONDS.toNanos(requestType.equals("trade")
+      ? Math.min(maxWaitInMilliseconds, maxTradeWaitInMilliseconds) : maxWaitInMilliseconds);
+    List<String> keys = getKeys(requestType, accountId, socketInstanceIndex);
+    PendingRequest request = new PendingRequest();
+    request.requestType = requestType;
+    request.keys = keys;
+    synchronized (this) {
+      long now = System.nanoTime();
+      removeExpiredBuckets(now);
+      if (!hasQueuedRequests(keys) && tryTake(keys, now)) {
+        return CompletableFuture.completedFuture(null);
+      }
+      long waitTime = getWaitTime(keys, now);
+      if (waitTime > maxWait) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        result.completeExceptionally(createTooManyRequestsException(requestType, keys, waitTime));
+        return result;
+      }
+      request.deadline = maxWait < Long.MAX_VALUE - now ? now + maxWait : Long.MAX_VALUE;
+      queue.add(request);
+      keys.forEach(key -> queuedRequestCounts.merge(key, 1, Integer::sum));
+      delayedRequests++;
+      scheduleRelease(now, waitTime);
+    }
+    return request.future;
+  }
+
+  /**
+   * Tunes rate limits from a too many requests error. Subscription limits are not handled since they are
+   * enforced by socket instance subscribe locks
+   * @param requestType type of the rejected request
+   * @param accountId account id of the rejected request
+   * @param socketInstanceIndex socket instance index of the rejected request
+   * @param metadata too many requests error metadata
+   */
+  public void onTooManyRequests(String requestType, String accountId, int socketInstanceIndex,
+    TooManyRequestsExceptionMetadata metadata) {
+    if (!enabled || metadata == null || metadata.recommendedRetryTime == null
+      || (metadata.type != null && metadata.type.startsWith("LIMIT_ACCOUNT_SUBSCRIPTIONS"))) {
+      return;
+    }
+    String key;
+    if (metadata.type != null && metadata.type.contains("PER_ACCOUNT")) {
+      key = "account:" + accountId;
+    } else if (metadata.type != null && metadata.type.contains("PER_SERVER")) {
+      key = "instance:" + socketInstanceIndex;
+    } else {
+      key = "type:" + requestType;
+    }
+    synchronized (this) {
+      long now = System.nanoTime();
+      long pausedUntil = now + TimeUnit.MILLISECONDS.toNanos(Math.max(0,
+        metadata.recommendedRetryTime.getDate().getTime() - System.currentTimeMillis()));
+      double periodInSeconds = Math.max(metadata.periodInMinutes, 1) * 60;
+      Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+      bucket.ratePerSecond = metadata.requestsPerPeriodAllowed * safetyFactor / periodInSeconds;
+      bucket.capacity = Math.max(bucket.ratePerSecond, 1);
+      bucket.tokens = 1;
+      if (bucket.expiresAt == 0 || pausedUntil - bucket.pausedUntil > 0) {
+        bucket.pausedUntil = pausedUntil;
+      }
+      bucket.refilledAt = bucket.pausedUntil;
+      bucket.expiresAt = bucket.pausedUntil + TimeUnit.SECONDS.toNanos((long) periodInSeconds);
+      bucket.metadata = metadata;
+      hasBuckets = true;
+      tooManyRequestsErrors++;
+    }
+  }
+
+  /**
+   * Returns request rate limiter metrics
+   * @return request rate limiter metrics
+   */
+  public synchronized RateLimiterMetrics getMetrics() {
+    RateLimiterMetrics metrics = new RateLimiterMetrics();
+    metrics.queuedRequests = queue.size();
+    metrics.activeLimits = buckets.size();
+    metrics.delayedRequests = delayedRequests;
+    metrics.tooManyRequestsErrors = tooManyRequestsErrors;
+    return metrics;
+  }
+
+  private void release() {
+    List<PendingRequest> released = new ArrayList<>();
+    List<PendingRequest> expired = new ArrayList<>();
+    synchronized (this) {
+      releaseTask = null;
+      long now = System.nanoTime();
+      removeExpiredBuckets(now);
+      long waitTime = Long.MAX_VALUE;
+      Iterator<PendingRequest> iterator = queue.iterator();
+      while (iterator.hasNext()) {
+        PendingRequest request = iterator.next();
+        boolean isReleased = tryTake(request.keys, now);
+        if (isReleased || now - request.deadline >= 0) {
+          iterator.remove();
+          request.keys.forEach(key -> queuedRequestCounts.computeIfPresent(key,
+            (k, count) -> count > 1 ? count - 1 : null));
+          (isReleased ? released : expired).add(request);
+        } else {
+          waitTime = Math.min(waitTime, Math.min(getWaitTime(request.keys, now), request.deadline - now));
+        }
+      }
+      if (!queue.isEmpty()) {
+        scheduleRelease(now, waitTime);
+      }
+    }
+    if (!released.isEmpty() || !expired.isEmpty()) {
+      Async.run(() -> {
+        released.forEach(request -> request.future.complete(null));
+        expired.forEach(request -> request.future.completeExceptionally(new TimeoutException("Request of type "
+          + request.requestType + " timed out while waiting for client-side request rate limit")));
+      });
+    }
+  }
+
+  private TooManyRequestsException createTooManyRequestsException(String requestType, List<String> keys,
+    long waitTime) {
+    TooManyRequestsExceptionMetadata metadata = new TooManyRequestsExceptionMetadata();
+    for (String key : keys) {
+      Bucket bucket = buckets.get(key);
+      if (bucket != null && bucket.metadata != null) {
+        metadata.type = bucket.metadata.type;
+        metadata.periodInMinutes = bucket.metadata.periodInMinutes;
+        metadata.requestsPerPeriodAllowed = bucket.metadata.requestsPerPeriodAllowed;
+      }
+    }
+    metadata.recommendedRetryTime = new IsoTime(new Date(System.currentTimeMillis()
+      + TimeUnit.NANOSECONDS.toMillis(waitTime)));
+    return new TooManyRequestsException("Request of type " + requestType + " was rejected by client-side "
+      + "request rate limit, please retry after " + metadata.recommendedRetryTime, metadata);
+  }
+
+  private void scheduleRelease(long now, long waitTime) {
+    long time = now + waitTime;
+    if (releaseTask != null && releaseTime - time <= 0) {
+      return;
+    }
+    if (releaseTask != null) {
+      releaseTask.cancel(false);
+    }
+    releaseTime = time;
+    releaseTask = scheduler.schedule(this::release, Math.max(TimeUnit.NANOSECONDS.toMillis(waitTime), 1));
+  }
+
+  private boolean hasQueuedRequests(List<String> keys) {
+    for (String key : keys) {
+      if (buckets.containsKey(key) && queuedRequestCounts.containsKey(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean tryTake(List<String> keys, long now) {
+    for (String key : keys) {
+      Bucket bucket = buckets.get(key);
+      if (bucket != null) {
+        refill(bucket, now);
+        if (now - bucket.pausedUntil < 0 || (bucket.ratePerSecond > 0 && bucket.tokens < 1)) {
+          return false;
+        }
+      }
+    }
+    for (String key : keys) {
+      Bucket bucket = buckets.get(key);
+      if (bucket != null && bucket.ratePerSecond > 0) {
+        bucket.tokens -= 1;
+      }
+    }
+    return true;
+  }
+
+  private long getWaitTime(List<String> keys, long now) {
+    long result = 0;
+    for (String key : keys) {
+      Bucket bucket = buckets.get(key);
+      if (bucket != null) {
+        if (now - bucket.pausedUntil < 0) {
+          result = Math.max(result, bucket.pausedUntil - now);
+        } else if (bucket.ratePerSecond > 0 && bucket.tokens < 1) {
+          result = Math.max(result, (long) ((1 - bucket.tokens) / bucket.ratePerSecond * 1e9));
+        }
+      }
+    }
+    return result;
+  }
+
+  private void refill(Bucket bucket, long now) {
+    if (now - bucket.refilledAt > 0) {
+      bucket.tokens = Math.min(bucket.capacity,
+        bucket.tokens + (now - bucket.refilledAt) / 1e9 * bucket.ratePerSecond);
+      bucket.refilledAt = now;
+    }
+  }
+
+  private void removeExpiredBuckets(long now) {
+    buckets.values().removeIf(bucket -> now - bucket.expiresAt > 0);
+    hasBuckets = !buckets.isEmpty();
+  }
+
+  private List<String> getKeys(String requestType, String accountId, int socketInstanceIndex) {
+    return Arrays.asList("type:" + requestType, "account:" + accountId, "instance:" + socketInstanceIndex);
+  }
+}
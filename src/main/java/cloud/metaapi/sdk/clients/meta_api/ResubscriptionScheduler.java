@@ -0,0 +1,315 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException.TooManyRequestsExceptionMetadata;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Token bucket scheduler which limits the rate of account resubscriptions after socket reconnects. Accounts
+ * with higher priority are resubscribed first. When the server reports too many requests, the scheduler
+ * pauses until the recommended retry time and halves its rate, then speeds up again as subscriptions succeed
+ */
+public class ResubscriptionScheduler {
+
+  private static Logger logger = LogManager.getLogger(ResubscriptionScheduler.class);
+  private SdkScheduler scheduler;
+  private double maxRatePerSecond;
+  private double minRatePerSecond;
+  private int burst;
+  private double ratePerSecond;
+  private double tokens;
+  private long refilledAt = System.nanoTime();
+  private long pausedUntil = refilledAt;
+  private long sequence = 0;
+  private PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> a.priority != b.priority
+    ? Integer.compare(b.priority, a.priority) : Long.compare(a.sequence, b.sequence));
+  private Map<String, Entry> queuedEntries = new HashMap<>();
+  private Map<String, Integer> priorities = new ConcurrentHashMap<>();
+  private Set<String> unrecoveredAccounts = new HashSet<>();
+  private ScheduledFuture<?> drainTask;
+  private long recoveryStartedAt;
+  private long tooManyRequestsErrors = 0;
+  private long recoveries = 0;
+  private Double lastRecoveryTimeInMilliseconds;
+  private double maxRecoveryTimeInMilliseconds = 0;
+
+  /**
+   * Resubscription scheduler options
+   */
+  public static class Options {
+    /**
+     * Number of resubscriptions allowed per second. By default is 50
+     */
+    public double ratePerSecond = 50;
+    /**
+     * Number of resubscriptions which can be sent at once after a pause. By default is 50
+     */
+    public int burst = 50;
+    /**
+     * Rate the scheduler can slow down to after too many requests errors. By default is 1
+     */
+    public double minRatePerSecond = 1;
+  }
+
+  /**
+   * Resubscription recovery metrics
+   */
+  public static class RecoveryMetrics {
+    /**
+     * Number of resubscriptions waiting to be sent
+     */
+    public int queuedResubscriptions;
+    /**
+     * Number of accounts which have not resubscribed successfully yet
+     */
+    public int unrecoveredAccounts;
+    /**
+     * Current resubscription rate per second
+     */
+    public double ratePerSecond;
+    /**
+     * Number of too many requests errors received for subscribe requests
+     */
+    public long tooManyRequestsErrors;
+    /**
+     * Number of completed recoveries. A recovery starts when resubscriptions are scheduled while all accounts
+     * are subscribed, and completes when all of them are resubscribed
+     */
+    public long recoveries;
+    /**
+     * Duration of the last completed recovery in milliseconds, or {@code null}
+     */
+    public Double lastRecoveryTimeInMilliseconds;
+    /**
+     * Maximum duration of a recovery in milliseconds
+     */
+    public double maxRecoveryTimeInMilliseconds;
+    /**
+     * Time until which resubscriptions are paused, or {@code null}
+     */
+    public IsoTime pausedUntil;
+  }
+
+  private static class Entry {
+    public String accountId;
+    public int priority;
+    public long sequence;
+    public Runnable task;
+  }
+
+  /**
+   * Constructs instance of resubscription scheduler
+   * @param scheduler scheduler to run resubscriptions on
+   * @param opts resubscription scheduler options
+   */
+  public ResubscriptionScheduler(SdkScheduler scheduler, Options opts) {
+    this.scheduler = scheduler;
+    this.maxRatePerSecond = Math.max(opts.ratePerSecond, opts.minRatePerSecond);
+    this.minRatePerSecond = opts.minRatePerSecond;
+    this.burst = Math.max(opts.burst, 1);
+    this.ratePerSecond = maxRatePerSecond;
+    this.tokens = burst;
+  }
+
+  /**
+   * Sets resubscription priority of an account. Accounts with higher priority are resubscribed first
+   * @param accountId account id
+   * @param priority priority, by default is 0
+   */
+  public void setPriority(String accountId, int priority) {
+    priorities.put(accountId, priority);
+  }
+
+  /**
+   * Marks accounts as waiting for resubscription before their resubscriptions are queued, so that a recovery
+   * covers all accounts of a reconnected socket
+   * @param accountIds account ids
+   */
+  public synchronized void addPendingAccounts(List<String> accountIds) {
+    if (unrecoveredAccounts.isEmpty() && !accountIds.isEmpty()) {
+      recoveryStartedAt = System.nanoTime();
+    }
+    unrecoveredAccounts.addAll(accountIds);
+  }
+
+  /**
+   * Queues a resubscription of an account. If the account is already queued, the queued task is replaced
+   * @param accountId account id
+   * @param task task which sends the subscribe request
+   */
+  public void schedule(String accountId, Runnable task) {
+    schedule(Collections.singletonMap(accountId, task));
+  }
+
+  /**
+   * Queues resubscriptions of several accounts before sending any of them, so that accounts with higher
+   * priority are resubscribed first. If an account is already queued, the queued task is replaced
+   * @param tasks tasks which send the subscribe requests by account ids, ordered by the time they were requested
+   */
+  public void schedule(Map<String, Runnable> tasks) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      if (unrecoveredAccounts.isEmpty()) {
+        recoveryStartedAt = System.nanoTime();
+      }
+      for (Map.Entry<String, Runnable> task : tasks.entrySet()) {
+        String accountId = task.getKey();
+        unrecoveredAccounts.add(accountId);
+        Entry entry = queuedEntries.get(accountId);
+        if (entry != null) {
+          entry.task = task.getValue();
+          continue;
+        }
+        entry = new Entry();
+        entry.accountId = accountId;
+        entry.priority = priorities.getOrDefault(accountId, 0);
+        entry.sequence = sequence++;
+        entry.task = task.getValue();
+        queue.add(entry);
+        queuedEntries.put(accountId, entry);
+      }
+      if (drainTask != null) {
+        return;
+      }
+    }
+    drain();
+  }
+
+  /**
+   * Removes an account from the queue and from recovery tracking
+   * @param accountId account id
+   */
+  public synchronized void cancel(String accountId) {
+    Entry entry = queuedEntries.remove(accountId);
+    if (entry != null) {
+      queue.remove(entry);
+    }
+    if (unrecoveredAccounts.remove(accountId)) {
+      checkRecovered();
+    }
+  }
+
+  /**
+   * Invoked when a subscribe request of an account succeeded
+   * @param accountId account id
+   */
+  public synchronized void onSubscribed(String accountId) {
+    ratePerSecond = Math.min(ratePerSecond + maxRatePerSecond / burst, maxRatePerSecond);
+    if (!queuedEntries.containsKey(accountId) && unrecoveredAccounts.remove(accountId)) {
+      checkRecovered();
+    }
+  }
+
+  /**
+   * Invoked when a subscribe request failed with too many requests error. Pauses resubscriptions until the
+   * recommended retry time and halves the resubscription rate
+   * @param metadata too many requests error metadata
+   */
+  public void onTooManyRequests(TooManyRequestsExceptionMetadata metadata) {
+    synchronized (this) {
+      tooManyRequestsErrors++;
+      refill(System.nanoTime());
+      ratePerSecond = Math.max(ratePerSecond / 2, minRatePerSecond);
+      tokens = 0;
+      if (metadata != null && metadata.recommendedRetryTime != null) {
+        long delay = metadata.recommendedRetryTime.getDate().getTime() - System.currentTimeMillis();
+        if (delay > 0) {
+          pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+        }
+      }
+      if (drainTask != null) {
+        drainTask.cancel(false);
+        drainTask = null;
+      }
+    }
+    drain();
+  }
+
+  /**
+   * Returns recovery metrics
+   * @return recovery metrics
+   */
+  public synchronized RecoveryMetrics getMetrics() {
+    RecoveryMetrics metrics = new RecoveryMetrics();
+    metrics.queuedResubscriptions = queue.size();
+    metrics.unrecoveredAccounts = unrecoveredAccounts.size();
+    metrics.ratePerSecond = ratePerSecond;
+    metrics.tooManyRequestsErrors = tooManyRequestsErrors;
+    metrics.recoveries = recoveries;
+    metrics.lastRecoveryTimeInMilliseconds = lastRecoveryTimeInMilliseconds;
+    metrics.maxRecoveryTimeInMilliseconds = maxRecoveryTimeInMilliseconds;
+    long pauseLeft = pausedUntil - System.nanoTime();
+    if (pauseLeft > 0) {
+      metrics.pausedUntil = new IsoTime(new Date(System.currentTimeMillis()
+        + TimeUnit.NANOSECONDS.toMillis(pauseLeft)));
+    }
+    return metrics;
+  }
+
+  private void drain() {
+    List<Runnable> tasks = new ArrayList<>();
+    synchronized (this) {
+      drainTask = null;
+      long now = System.nanoTime();
+      refill(now);
+      if (pausedUntil - now > 0) {
+        scheduleDrain(pausedUntil - now);
+        return;
+      }
+      while (!queue.isEmpty() && tokens >= 1) {
+        Entry entry = queue.poll();
+        queuedEntries.remove(entry.accountId);
+        tokens -= 1;
+        tasks.add(entry.task);
+      }
+      if (!queue.isEmpty()) {
+        scheduleDrain((long) ((1 - tokens) / ratePerSecond * 1000000000L));
+      }
+    }
+    for (Runnable task : tasks) {
+      try {
+        task.run();
+      } catch (Throwable err) {
+        logger.error("[" + new IsoTime() + "] Failed to run resubscription task", err);
+      }
+    }
+  }
+
+  private void scheduleDrain(long delayInNanoseconds) {
+    if (drainTask == null) {
+      drainTask = scheduler.schedule(this::drain,
+        Math.max(TimeUnit.NANOSECONDS.toMillis(delayInNanoseconds), 1));
+    }
+  }
+
+  private void refill(long now) {
+    tokens = Math.min(tokens + (now - refilledAt) / 1000000000.0 * ratePerSecond, burst);
+    refilledAt = now;
+  }
+
+  private void checkRecovered() {
+    if (unrecoveredAccounts.isEmpty()) {
+      double recoveryTime = (System.nanoTime() - recoveryStartedAt) / 1000000.0;
+      lastRecoveryTimeInMilliseconds = recoveryTime;
+      maxRecoveryTimeInMilliseconds = Math.max(maxRecoveryTimeInMilliseconds, recoveryTime);
+      recoveries++;
+    }
+  }
+}
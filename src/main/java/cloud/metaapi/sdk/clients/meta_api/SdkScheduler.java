@@ -0,0 +1,241 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Scheduler which runs delayed and periodic SDK jobs on a small fixed set of threads, so that the number of
+ * timer threads does not depend on the number of accounts. Scheduled tasks are expected to be short, tasks
+ * which block should hand their work off to the shared thread pool
+ */
+public class SdkScheduler {
+
+  private static Logger logger = LogManager.getLogger(SdkScheduler.class);
+  private static SdkScheduler defaultScheduler;
+  private ScheduledThreadPoolExecutor executor;
+  private AtomicLong scheduledTasks = new AtomicLong();
+  private AtomicLong executedTasks = new AtomicLong();
+  private AtomicLong totalLagInNanoseconds = new AtomicLong();
+  private volatile long lastLagInNanoseconds;
+  private volatile long maxLagInNanoseconds;
+
+  /**
+   * Scheduler options
+   */
+  public static class Options {
+    /**
+     * Number of scheduler threads. By default is 2
+     */
+    public int threadCount = 2;
+    /**
+     * Name prefix of scheduler threads. By default is {@code metaapi-scheduler}
+     */
+    public String threadName = "metaapi-scheduler";
+  }
+
+  /**
+   * Scheduler metrics
+   */
+  public static class SchedulerMetrics {
+    /**
+     * Number of scheduler threads
+     */
+    public int threadCount;
+    /**
+     * Number of tasks waiting for execution, including periodic tasks
+     */
+    public int pendingTasks;
+    /**
+     * Number of tasks scheduled since the scheduler was created
+     */
+    public long scheduledTasks;
+    /**
+     * Number of task runs, periodic tasks are counted once per run
+     */
+    public long executedTasks;
+    /**
+     * Delay of the last task run behind its planned time in milliseconds
+     */
+    public double lastLagInMilliseconds;
+    /**
+     * Maximum delay of a task run behind its planned time in milliseconds
+     */
+    public double maxLagInMilliseconds;
+    /**
+     * Average delay of a task run behind its planned time in milliseconds
+     */
+    public double averageLagInMilliseconds;
+  }
+
+  private class TrackedTask implements Runnable {
+    private Runnable task;
+    private long delayInNanoseconds;
+    private volatile long plannedTime;
+
+    private TrackedTask(Runnable task, long initialDelayInMilliseconds, long delayInMilliseconds) {
+      this.task = task;
+      this.delayInNanoseconds = TimeUnit.MILLISECONDS.toNanos(delayInMilliseconds);
+      this.plannedTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelayInMilliseconds);
+    }
+
+    @Override
+    public void run() {
+      long lag = Math.max(System.nanoTime() - plannedTime, 0);
+      lastLagInNanoseconds = lag;
+      if (lag > maxLagInNanoseconds) {
+        maxLagInNanoseconds = lag;
+      }
+      totalLagInNanoseconds.addAndGet(lag);
+      executedTasks.incrementAndGet();
+      try {
+        task.run();
+      } catch (Throwable err) {
+        logger.error("Failed to run scheduled task", err);
+      }
+      plannedTime = System.nanoTime() + delayInNanoseconds;
+    }
+  }
+
+  private static class CancelledFuture implements ScheduledFuture<Object> {
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(0, other.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return true;
+    }
+
+    @Override
+    public boolean isDone() {
+      return true;
+    }
+
+    @Override
+    public Object get() {
+      return null;
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) {
+      return null;
+    }
+  }
+
+  /**
+   * Constructs instance of scheduler with default options
+   */
+  public SdkScheduler() {
+    this(new Options());
+  }
+
+  /**
+   * Constructs instance of scheduler
+   * @param opts scheduler options
+   */
+  public SdkScheduler(Options opts) {
+    AtomicInteger threadCounter = new AtomicInteger();
+    executor = new ScheduledThreadPoolExecutor(Math.max(opts.threadCount, 1), runnable -> {
+      Thread thread = new Thread(runnable, opts.threadName + "-" + threadCounter.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Returns scheduler shared by components created outside of a MetaApi instance
+   * @return default scheduler
+   */
+  public static synchronized SdkScheduler getDefault() {
+    if (defaultScheduler == null) {
+      defaultScheduler = new SdkScheduler();
+    }
+    return defaultScheduler;
+  }
+
+  /**
+   * Runs a task once after a delay. If the scheduler is stopped, the task is not run
+   * @param task task to run
+   * @param delayInMilliseconds delay in milliseconds
+   * @return future which can be used to cancel the task
+   */
+  public ScheduledFuture<?> schedule(Runnable task, long delayInMilliseconds) {
+    try {
+      ScheduledFuture<?> result = executor.schedule(new TrackedTask(task, delayInMilliseconds, 0),
+        delayInMilliseconds, TimeUnit.MILLISECONDS);
+      scheduledTasks.incrementAndGet();
+      return result;
+    } catch (RejectedExecutionException err) {
+      logger.debug("Scheduler is stopped, task is not scheduled");
+      return new CancelledFuture();
+    }
+  }
+
+  /**
+   * Runs a task periodically until cancelled or the scheduler is stopped. The next run is planned after the
+   * previous one finishes, so runs of the same task never overlap
+   * @param task task to run
+   * @param initialDelayInMilliseconds delay before the first run in milliseconds
+   * @param delayInMilliseconds delay between the end of a run and the start of the next one in milliseconds
+   * @return future which can be used to cancel the task
+   */
+  public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelayInMilliseconds,
+    long delayInMilliseconds) {
+    try {
+      ScheduledFuture<?> result = executor.scheduleWithFixedDelay(new TrackedTask(task,
+        initialDelayInMilliseconds, delayInMilliseconds), initialDelayInMilliseconds, delayInMilliseconds,
+        TimeUnit.MILLISECONDS);
+      scheduledTasks.incrementAndGet();
+      return result;
+    } catch (RejectedExecutionException err) {
+      logger.debug("Scheduler is stopped, task is not scheduled");
+      return new CancelledFuture();
+    }
+  }
+
+  /**
+   * Returns scheduler metrics
+   * @return scheduler metrics
+   */
+  public SchedulerMetrics getMetrics() {
+    long executedTasks = this.executedTasks.get();
+    SchedulerMetrics metrics = new SchedulerMetrics();
+    metrics.threadCount = executor.getCorePoolSize();
+    metrics.pendingTasks = executor.getQueue().size();
+    metrics.scheduledTasks = scheduledTasks.get();
+    metrics.executedTasks = executedTasks;
+    metrics.lastLagInMilliseconds = lastLagInNanoseconds / 1000000.0;
+    metrics.maxLagInMilliseconds = maxLagInNanoseconds / 1000000.0;
+    metrics.averageLagInMilliseconds = executedTasks != 0
+      ? totalLagInNanoseconds.get() / 1000000.0 / executedTasks : 0;
+    return metrics;
+  }
+
+  /**
+   * Stops scheduler threads. Pending tasks are discarded
+   */
+  public void stop() {
+    executor.shutdownNow();
+  }
+}
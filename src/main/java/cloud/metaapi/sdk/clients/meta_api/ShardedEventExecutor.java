@@ -0,0 +1,204 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Class which executes account events on a fixed set of worker threads. Each account is pinned to one
+ * worker, so events of an account are executed one after another in the order they were queued. Events can
+ * be executed directly or through account event queues created by the executor, which submit only drain
+ * tasks to the worker. Shard metrics count the events themselves in both cases
+ */
+public class ShardedEventExecutor {
+
+  private static Logger logger = LogManager.getLogger(ShardedEventExecutor.class);
+
+  /**
+   * Shard metrics
+   */
+  public static class ShardMetrics {
+    /**
+     * Shard index
+     */
+    public int index;
+    /**
+     * Number of events waiting for execution
+     */
+    public int queueDepth;
+    /**
+     * Number of events executed
+     */
+    public long executedEvents;
+    /**
+     * Time the last started event waited in the queue in milliseconds
+     */
+    public double lastLagInMilliseconds;
+    /**
+     * Maximum time an event waited in the queue in milliseconds
+     */
+    public double maxLagInMilliseconds;
+    /**
+     * Average time an event waited in the queue in milliseconds
+     */
+    public double averageLagInMilliseconds;
+  }
+
+  private static class Shard {
+    public ThreadPoolExecutor executor;
+    public Set<AccountEventQueue> eventQueues = ConcurrentHashMap.newKeySet();
+    public AtomicInteger queuedEvents = new AtomicInteger();
+    public AtomicLong executedEvents = new AtomicLong();
+    public AtomicLong totalLagInNanoseconds = new AtomicLong();
+    public volatile long lastLagInNanoseconds;
+    public volatile long maxLagInNanoseconds;
+
+    public void onEventStarted(long lag) {
+      lastLagInNanoseconds = lag;
+      if (lag > maxLagInNanoseconds) {
+        maxLagInNanoseconds = lag;
+      }
+      totalLagInNanoseconds.addAndGet(lag);
+      executedEvents.incrementAndGet();
+    }
+  }
+
+  private List<Shard> shards = new ArrayList<>();
+  private Function<String, Integer> placement;
+
+  /**
+   * Constructs instance of sharded event executor
+   * @param shardCount number of worker threads
+   * @param placement function which returns shard index for an account id, or {@code null} to place
+   * accounts by id hash
+   */
+  public ShardedEventExecutor(int shardCount, Function<String, Integer> placement) {
+    this.placement = placement;
+    for (int i = 0; i < shardCount; ++i) {
+      final int index = i;
+      Shard shard = new Shard();
+      shard.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "metaapi-event-shard-" + index);
+          thread.setDaemon(true);
+          return thread;
+        });
+      shards.add(shard);
+    }
+  }
+
+  /**
+   * Returns index of the shard an account is pinned to
+   * @param accountId account id
+   * @return shard index
+   */
+  public int getShardIndex(String accountId) {
+    int index = placement != null ? placement.apply(accountId) : accountId.hashCode();
+    return Math.floorMod(index, shards.size());
+  }
+
+  /**
+   * Executes an event on the worker thread owning the account
+   * @param accountId account id
+   * @param event event to execute
+   * @return completable future which resolves when the event is executed
+   */
+  public CompletableFuture<Void> execute(String accountId, Runnable event) {
+    Shard shard = shards.get(getShardIndex(accountId));
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    long queuedAt = System.nanoTime();
+    shard.queuedEvents.incrementAndGet();
+    try {
+      shard.executor.execute(() -> {
+        shard.queuedEvents.decrementAndGet();
+        shard.onEventStarted(System.nanoTime() - queuedAt);
+        try {
+          event.run();
+          result.complete(null);
+        } catch (Throwable err) {
+          result.completeExceptionally(err);
+        }
+      });
+    } catch (RejectedExecutionException err) {
+      shard.queuedEvents.decrementAndGet();
+      result.completeExceptionally(err);
+    }
+    return result;
+  }
+
+  /**
+   * Creates a queue of account events which are started one after another on the worker owning the account.
+   * Events waiting in the queue count in the queue depth and lag of the shard until the queue is released
+   * @param accountId account id
+   * @return account event queue
+   */
+  public AccountEventQueue createEventQueue(String accountId) {
+    Shard shard = shards.get(getShardIndex(accountId));
+    AccountEventQueue eventQueue = new AccountEventQueue(accountId, task -> {
+      try {
+        shard.executor.execute(task);
+      } catch (RejectedExecutionException err) {
+        logger.error("Failed to start events of account " + accountId + " on a stopped shard", err);
+      }
+    }, shard::onEventStarted);
+    shard.eventQueues.add(eventQueue);
+    return eventQueue;
+  }
+
+  /**
+   * Stops counting events of an account event queue in shard metrics. Should be invoked when the queue is closed
+   * @param eventQueue account event queue created by this executor
+   */
+  public void releaseEventQueue(AccountEventQueue eventQueue) {
+    for (Shard shard : shards) {
+      shard.eventQueues.remove(eventQueue);
+    }
+  }
+
+  /**
+   * Returns metrics of each shard
+   * @return list of shard metrics ordered by shard index
+   */
+  public List<ShardMetrics> getMetrics() {
+    List<ShardMetrics> result = new ArrayList<>();
+    for (int i = 0; i < shards.size(); ++i) {
+      Shard shard = shards.get(i);
+      long executedEvents = shard.executedEvents.get();
+      ShardMetrics metrics = new ShardMetrics();
+      metrics.index = i;
+      int queueDepth = shard.queuedEvents.get();
+      for (AccountEventQueue eventQueue : shard.eventQueues) {
+        queueDepth += eventQueue.size();
+      }
+      metrics.queueDepth = queueDepth;
+      metrics.executedEvents = executedEvents;
+      metrics.lastLagInMilliseconds = shard.lastLagInNanoseconds / 1000000.0;
+      metrics.maxLagInMilliseconds = shard.maxLagInNanoseconds / 1000000.0;
+      metrics.averageLagInMilliseconds = executedEvents != 0
+        ? shard.totalLagInNanoseconds.get() / 1000000.0 / executedEvents : 0;
+      result.add(metrics);
+    }
+    return result;
+  }
+
+  /**
+   * Stops worker threads. Events which have not started yet are discarded
+   */
+  public void stop() {
+    for (Shard shard : shards) {
+      shard.executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,328 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of socket instances assigned to accounts and selects socket instances for new accounts. Account
+ * counts and subscribed accounts of each socket instance are maintained incrementally, so that placement and
+ * load queries do not depend on the total number of accounts
+ */
+public class SocketInstancePlacement {
+
+  private Map<String, Integer> instancesByAccounts = new ConcurrentHashMap<>();
+  private Map<String, Integer> instancesByAccountsView = Collections.unmodifiableMap(instancesByAccounts);
+  private Map<String, Integer> connectedHostCounts = new HashMap<>();
+  private Map<String, String> groups = new ConcurrentHashMap<>();
+  private Map<String, Map<Integer, Integer>> groupCounts = new HashMap<>();
+  private Set<String> subscribedAccounts = new HashSet<>();
+  private List<InstanceState> instances = new ArrayList<>();
+  private Strategy strategy;
+
+  /**
+   * Strategy which selects a socket instance for a new account
+   */
+  public interface Strategy {
+
+    /**
+     * Selects a socket instance for an account
+     * @param accountId account id
+     * @param group placement group of the account, e.g. broker server name, or {@code null}
+     * @param placement current placement of accounts
+     * @param candidates indexes of socket instances which can accept the account, in ascending order
+     * @return index of the selected socket instance, or -1 to create a new socket instance
+     */
+    int selectInstance(String accountId, String group, SocketInstancePlacement placement, List<Integer> candidates);
+  }
+
+  /**
+   * Places an account on the first socket instance which has free capacity. This is the default strategy
+   */
+  public static final Strategy FIRST_FIT = (accountId, group, placement, candidates) ->
+    candidates.isEmpty() ? -1 : candidates.get(0);
+
+  /**
+   * Places an account on the socket instance with the least amount of assigned accounts
+   */
+  public static final Strategy LEAST_LOADED = (accountId, group, placement, candidates) -> {
+    int result = -1;
+    for (int index : candidates) {
+      if (result == -1 || placement.getAssignedAccountCount(index) < placement.getAssignedAccountCount(result)) {
+        result = index;
+      }
+    }
+    return result;
+  };
+
+  /**
+   * Places accounts of the same placement group, e.g. broker server, on the same socket instance while it has
+   * free capacity. Accounts of new groups and accounts without group are placed on the least loaded socket
+   * instance
+   */
+  public static final Strategy PACK_BY_GROUP = (accountId, group, placement, candidates) -> {
+    int result = -1;
+    if (group != null) {
+      int maxCount = 0;
+      for (int index : candidates) {
+        int count = placement.getGroupAccountCount(group, index);
+        if (count > maxCount) {
+          maxCount = count;
+          result = index;
+        }
+      }
+    }
+    return result != -1 ? result : LEAST_LOADED.selectInstance(accountId, group, placement, candidates);
+  };
+
+  /**
+   * Places an account on the socket instance chosen by rendezvous hashing of the account id, so that an
+   * account gets the same socket instance as long as it has free capacity
+   */
+  public static final Strategy CONSISTENT_HASHING = (accountId, group, placement, candidates) -> {
+    int result = -1;
+    long maxWeight = Long.MIN_VALUE;
+    for (int index : candidates) {
+      long weight = mix(accountId.hashCode() * 31L + index);
+      if (weight > maxWeight) {
+        maxWeight = weight;
+        result = index;
+      }
+    }
+    return result;
+  };
+
+  private static class InstanceState {
+    public Set<String> assignedAccounts = new HashSet<>();
+    public Set<String> subscribedAccounts = new HashSet<>();
+  }
+
+  /**
+   * Constructs instance of socket instance placement
+   * @param strategy strategy which selects socket instances for new accounts, or {@code null} to use
+   * {@link #FIRST_FIT}
+   */
+  public SocketInstancePlacement(Strategy strategy) {
+    this.strategy = strategy != null ? strategy : FIRST_FIT;
+  }
+
+  /**
+   * Selects a socket instance for an account using the placement strategy. The account is not assigned
+   * @param accountId account id
+   * @param candidates indexes of socket instances which can accept the account, in ascending order
+   * @return index of the selected socket instance, or -1 if a new socket instance should be created
+   */
+  public synchronized int selectInstance(String accountId, List<Integer> candidates) {
+    int index = strategy.selectInstance(accountId, groups.get(accountId), this, candidates);
+    return candidates.contains(index) ? index : -1;
+  }
+
+  /**
+   * Returns read-only map of socket instance indexes by account ids
+   * @return map of socket instance indexes by account ids
+   */
+  public Map<String, Integer> getInstancesByAccounts() {
+    return instancesByAccountsView;
+  }
+
+  /**
+   * Returns index of socket instance assigned to an account
+   * @param accountId account id
+   * @return socket instance index, or {@code null} if the account is not assigned
+   */
+  public Integer getInstanceIndex(String accountId) {
+    return instancesByAccounts.get(accountId);
+  }
+
+  /**
+   * Assigns an account to a socket instance
+   * @param accountId account id
+   * @param socketInstanceIndex socket instance index
+   */
+  public synchronized void assign(String accountId, int socketInstanceIndex) {
+    Integer previousIndex = instancesByAccounts.put(accountId, socketInstanceIndex);
+    if (previousIndex != null) {
+      if (previousIndex == socketInstanceIndex) {
+        return;
+      }
+      removeFromInstance(accountId, previousIndex);
+    }
+    InstanceState instance = getInstance(socketInstanceIndex);
+    instance.assignedAccounts.add(accountId);
+    if (connectedHostCounts.containsKey(accountId)) {
+      instance.subscribedAccounts.add(accountId);
+      subscribedAccounts.add(accountId);
+    }
+    String group = groups.get(accountId);
+    if (group != null) {
+      groupCounts.computeIfAbsent(group, key -> new HashMap<>()).merge(socketInstanceIndex, 1, Integer::sum);
+    }
+  }
+
+  /**
+   * Removes socket instance assignment of an account
+   * @param accountId account id
+   * @return index of the socket instance the account was assigned to, or {@code null} if it was not assigned
+   */
+  public synchronized Integer unassign(String accountId) {
+    Integer index = instancesByAccounts.remove(accountId);
+    if (index != null) {
+      removeFromInstance(accountId, index);
+    }
+    return index;
+  }
+
+  /**
+   * Removes all assignments. Connected hosts and placement groups are kept
+   */
+  public synchronized void clear() {
+    instancesByAccounts.clear();
+    instances.clear();
+    groupCounts.clear();
+    subscribedAccounts.clear();
+  }
+
+  /**
+   * Sets placement group of an account, e.g. the broker server name. The group is used by
+   * {@link #PACK_BY_GROUP} strategy
+   * @param accountId account id
+   * @param group placement group, or {@code null}
+   */
+  public synchronized void setGroup(String accountId, String group) {
+    Integer index = instancesByAccounts.get(accountId);
+    String previousGroup = group != null ? groups.put(accountId, group) : groups.remove(accountId);
+    if (index != null) {
+      if (previousGroup != null) {
+        decrementGroupCount(previousGroup, index);
+      }
+      if (group != null) {
+        groupCounts.computeIfAbsent(group, key -> new HashMap<>()).merge(index, 1, Integer::sum);
+      }
+    }
+  }
+
+  /**
+   * Returns amount of accounts of a placement group assigned to a socket instance
+   * @param group placement group
+   * @param socketInstanceIndex socket instance index
+   * @return amount of accounts
+   */
+  public synchronized int getGroupAccountCount(String group, int socketInstanceIndex) {
+    Map<Integer, Integer> counts = groupCounts.get(group);
+    return counts != null ? counts.getOrDefault(socketInstanceIndex, 0) : 0;
+  }
+
+  /**
+   * Invoked when a host of an account connected
+   * @param accountId account id
+   */
+  public synchronized void onHostConnected(String accountId) {
+    if (connectedHostCounts.merge(accountId, 1, Integer::sum) == 1) {
+      Integer index = instancesByAccounts.get(accountId);
+      if (index != null) {
+        getInstance(index).subscribedAccounts.add(accountId);
+        subscribedAccounts.add(accountId);
+      }
+    }
+  }
+
+  /**
+   * Invoked when a host of an account disconnected
+   * @param accountId account id
+   */
+  public synchronized void onHostDisconnected(String accountId) {
+    if (connectedHostCounts.computeIfPresent(accountId, (key, count) -> count > 1 ? count - 1 : null) == null) {
+      Integer index = instancesByAccounts.get(accountId);
+      if (index != null && index < instances.size()) {
+        instances.get(index).subscribedAccounts.remove(accountId);
+      }
+      subscribedAccounts.remove(accountId);
+    }
+  }
+
+  /**
+   * Returns amount of accounts assigned to a socket instance
+   * @param socketInstanceIndex socket instance index
+   * @return amount of assigned accounts
+   */
+  public synchronized int getAssignedAccountCount(int socketInstanceIndex) {
+    return socketInstanceIndex < instances.size() ? instances.get(socketInstanceIndex).assignedAccounts.size() : 0;
+  }
+
+  /**
+   * Returns accounts assigned to a socket instance
+   * @param socketInstanceIndex socket instance index
+   * @return list of account ids
+   */
+  public synchronized List<String> getAssignedAccounts(int socketInstanceIndex) {
+    return socketInstanceIndex < instances.size()
+      ? new ArrayList<>(instances.get(socketInstanceIndex).assignedAccounts) : new ArrayList<>();
+  }
+
+  /**
+   * Returns amount of subscribed accounts, i.e. assigned accounts with at least one connected host
+   * @param socketInstanceIndex socket instance index, or {@code null} to count accounts of all instances
+   * @return amount of subscribed accounts
+   */
+  public synchronized int getSubscribedAccountCount(Integer socketInstanceIndex) {
+    if (socketInstanceIndex == null) {
+      return subscribedAccounts.size();
+    }
+    return socketInstanceIndex < instances.size()
+      ? instances.get(socketInstanceIndex).subscribedAccounts.size() : 0;
+  }
+
+  /**
+   * Returns subscribed accounts, i.e. assigned accounts with at least one connected host
+   * @param socketInstanceIndex socket instance index, or {@code null} to return accounts of all instances
+   * @return list of account ids
+   */
+  public synchronized List<String> getSubscribedAccountIds(Integer socketInstanceIndex) {
+    if (socketInstanceIndex == null) {
+      return new ArrayList<>(subscribedAccounts);
+    }
+    return socketInstanceIndex < instances.size()
+      ? new ArrayList<>(instances.get(socketInstanceIndex).subscribedAccounts) : new ArrayList<>();
+  }
+
+  private InstanceState getInstance(int socketInstanceIndex) {
+    while (instances.size() <= socketInstanceIndex) {
+      instances.add(new InstanceState());
+    }
+    return instances.get(socketInstanceIndex);
+  }
+
+  private void removeFromInstance(String accountId, int socketInstanceIndex) {
+    if (socketInstanceIndex < instances.size()) {
+      InstanceState instance = instances.get(socketInstanceIndex);
+      instance.assignedAccounts.remove(accountId);
+      instance.subscribedAccounts.remove(accountId);
+    }
+    subscribedAccounts.remove(accountId);
+    String group = groups.get(accountId);
+    if (group != null) {
+      decrementGroupCount(group, socketInstanceIndex);
+    }
+  }
+
+  private void decrementGroupCount(String group, int socketInstanceIndex) {
+    Map<Integer, Integer> counts = groupCounts.get(group);
+    if (counts != null) {
+      counts.computeIfPresent(socketInstanceIndex, (key, count) -> count > 1 ? count - 1 : null);
+      if (counts.isEmpty()) {
+        groupCounts.remove(group);
+      }
+    }
+  }
+
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+    value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return value ^ (value >>> 33);
+  }
+}
@@ -2,14 +2,15 @@ package cloud.metaapi.sdk.clients.meta_api;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -17,7 +18,6 @@ import org.apache.logging.log4j.Logger;
 
 import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException;
 import cloud.metaapi.sdk.clients.models.IsoTime;
-import cloud.metaapi.sdk.util.Async;
 import cloud.metaapi.sdk.util.Js;
 import cloud.metaapi.sdk.util.ServiceProvider;
 
@@ -29,26 +29,74 @@ public class SubscriptionManager {
   private static Logger logger = LogManager.getLogger(SubscriptionManager.class);
   private MetaApiWebsocketClient websocketClient;
   private Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
-  private Set<String> awaitingResubscribe = new HashSet<>();
+  private Map<String, Set<Subscription>> subscriptionsByAccount = new ConcurrentHashMap<>();
+  private Set<String> awaitingResubscribe = ConcurrentHashMap.newKeySet();
+  private SdkScheduler scheduler;
+  private ResubscriptionScheduler resubscriptionScheduler;
+  
+  private enum SubscriptionState {
+    SUBSCRIBING,
+    WAITING,
+    CANCELLED
+  }
   
   private static class Subscription {
-    public boolean shouldRetry;
-    public Task task;
-    public Timer waitTask;
-    public CompletableFuture<Boolean> future;
+    public String instanceId;
+    public String accountId;
+    public Integer instanceNumber;
     public boolean isDisconnectedRetryMode;
+    public SubscriptionState state = SubscriptionState.SUBSCRIBING;
+    public int retryIntervalInSeconds = 3;
+    public ScheduledFuture<?> waitTask;
+    public CompletableFuture<Void> completion = new CompletableFuture<>();
   }
   
-  private static class Task {
-    public CompletableFuture<Boolean> future;
+  /**
+   * Constructs the subscription manager
+   * @param websocketClient websocket client to use for sending requests
+   */
+  public SubscriptionManager(MetaApiWebsocketClient websocketClient) {
+    this(websocketClient, SdkScheduler.getDefault());
   }
   
   /**
    * Constructs the subscription manager
    * @param websocketClient websocket client to use for sending requests
+   * @param scheduler scheduler to run subscription retries on
    */
-  public SubscriptionManager(MetaApiWebsocketClient websocketClient) {
+  public SubscriptionManager(MetaApiWebsocketClient websocketClient, SdkScheduler scheduler) {
+    this(websocketClient, scheduler, new ResubscriptionScheduler.Options());
+  }
+  
+  /**
+   * Constructs the subscription manager
+   * @param websocketClient websocket client to use for sending requests
+   * @param scheduler scheduler to run subscription retries on
+   * @param resubscriptionOpts options for limiting the rate of resubscriptions after reconnects
+   */
+  public SubscriptionManager(MetaApiWebsocketClient websocketClient, SdkScheduler scheduler,
+    ResubscriptionScheduler.Options resubscriptionOpts) {
     this.websocketClient = websocketClient;
+    this.scheduler = scheduler;
+    this.resubscriptionScheduler = new ResubscriptionScheduler(scheduler, resubscriptionOpts);
+  }
+  
+  /**
+   * Sets priority of an account for resubscription after reconnects. Accounts with higher priority are
+   * resubscribed first
+   * @param accountId account id
+   * @param priority priority, by default is 0
+   */
+  public void setResubscriptionPriority(String accountId, int priority) {
+    resubscriptionScheduler.setPriority(accountId, priority);
+  }
+  
+  /**
+   * Returns metrics of resubscriptions after reconnects
+   * @return resubscription recovery metrics
+   */
+  public ResubscriptionScheduler.RecoveryMetrics getResubscriptionMetrics() {
+    return resubscriptionScheduler.getMetrics();
   }
   
   /**
@@ -84,84 +132,86 @@ public class SubscriptionManager {
   }
   
   /**
-   * Schedules to send subscribe requests to an account until cancelled
+   * Schedules to send subscribe requests to an account until cancelled. Subscribe requests are sent one at a
+   * time, and the next request is planned on the scheduler when a response is received, so no thread waits
+   * while the subscription is in progress
    * @param accountId id of the MetaTrader account
    * @param instanceNumber instance index number
    * @param isDisconnectedRetryMode whether to start subscription in disconnected retry mode.
    * Subscription task in disconnected mode will be immediately replaced when the status packet is received
-   * @return completable future when the operation is completed
+   * @return completable future which resolves when the subscription is cancelled
    */
   public CompletableFuture<Void> subscribe(String accountId, Integer instanceNumber,
     boolean isDisconnectedRetryMode) {
     String instanceId = accountId + ":" + Js.or(instanceNumber, 0);
-    if (!subscriptions.containsKey(instanceId)) {
-      Subscription newSubscription = new Subscription() {{
-        shouldRetry = true;
-        task = null;
-        waitTask = null;
-        future = null;
-      }}; 
-      newSubscription.isDisconnectedRetryMode = isDisconnectedRetryMode;
-      subscriptions.put(instanceId, newSubscription);
-      return Async.run(() -> {
-        int subscribeRetryIntervalInSeconds = 3;
-        while (subscriptions.get(instanceId).shouldRetry) {
-          CompletableFuture<Boolean> resolveSubscribe = new CompletableFuture<>();
-          subscriptions.get(instanceId).task = new Task() {{ future = resolveSubscribe; }};
-          subscribeTask(accountId, instanceNumber, subscribeRetryIntervalInSeconds, resolveSubscribe);
-          subscriptions.get(instanceId).task.future.join();
-          if (!subscriptions.get(instanceId).shouldRetry) {
-            break;
-          }
-          int retryInterval = subscribeRetryIntervalInSeconds;
-          subscribeRetryIntervalInSeconds = Math.min(subscribeRetryIntervalInSeconds * 2, 300);
-          CompletableFuture<Boolean> subscribeFuture = new CompletableFuture<>();
-          Timer waitTask = Js.setTimeout(() -> subscribeFuture.complete(true), retryInterval * 1000);
-          subscriptions.get(instanceId).waitTask = waitTask;
-          subscriptions.get(instanceId).future = subscribeFuture;
-          boolean result = subscriptions.get(instanceId).future.join();
-          subscriptions.get(instanceId).future = null;
-          if (!result) {
-            break;
-          }
-        }
-        subscriptions.remove(instanceId);
-      });
-    } else {
+    Subscription newSubscription = new Subscription();
+    newSubscription.instanceId = instanceId;
+    newSubscription.accountId = accountId;
+    newSubscription.instanceNumber = instanceNumber;
+    newSubscription.isDisconnectedRetryMode = isDisconnectedRetryMode;
+    if (subscriptions.putIfAbsent(instanceId, newSubscription) != null) {
       return CompletableFuture.completedFuture(null);
     }
+    subscriptionsByAccount.compute(accountId, (id, accountSubscriptions) -> {
+      accountSubscriptions = accountSubscriptions != null ? accountSubscriptions : ConcurrentHashMap.newKeySet();
+      accountSubscriptions.add(newSubscription);
+      return accountSubscriptions;
+    });
+    sendSubscribeRequest(newSubscription);
+    return newSubscription.completion;
   }
   
-  private CompletableFuture<Void> subscribeTask(String accountId, Integer instanceNumber,
-    int subscribeRetryIntervalInSeconds, CompletableFuture<Boolean> subscribeFuture) {
-    return Async.run(() -> {
-      try {
-        websocketClient.subscribe(accountId, instanceNumber).join();
-      } catch (CompletionException err) {
-        if (err.getCause() instanceof TooManyRequestsException) {
-          TooManyRequestsException tooManyRequestsErr = (TooManyRequestsException) err.getCause();
-          int socketInstanceIndex = websocketClient.getSocketInstancesByAccounts().get(accountId);
-          if (tooManyRequestsErr.metadata.type.equals("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER")) {
-            logger.info(err);
-          }
-          if (Arrays.asList("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER", "LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_SERVER", 
-            "LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER_PER_SERVER").indexOf(tooManyRequestsErr.metadata.type) != -1) {
-            websocketClient.getSocketInstancesByAccounts().remove(accountId);
+  private void sendSubscribeRequest(Subscription subscription) {
+    synchronized (subscription) {
+      if (subscription.state == SubscriptionState.CANCELLED) {
+        return;
+      }
+      subscription.state = SubscriptionState.SUBSCRIBING;
+      subscription.waitTask = null;
+    }
+    try {
+      websocketClient.subscribe(subscription.accountId, subscription.instanceNumber)
+        .whenComplete((result, err) -> onSubscribeResponse(subscription, err));
+    } catch (Throwable err) {
+      onSubscribeResponse(subscription, err);
+    }
+  }
+  
+  private void onSubscribeResponse(Subscription subscription, Throwable err) {
+    try {
+      long retryDelay = subscription.retryIntervalInSeconds * 1000L;
+      Throwable cause = err instanceof CompletionException ? err.getCause() : err;
+      if (err == null) {
+        resubscriptionScheduler.onSubscribed(subscription.accountId);
+      } else if (cause instanceof TooManyRequestsException) {
+        TooManyRequestsException tooManyRequestsErr = (TooManyRequestsException) cause;
+        resubscriptionScheduler.onTooManyRequests(tooManyRequestsErr.metadata);
+        if (tooManyRequestsErr.metadata.type.equals("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER")) {
+          logger.info(err);
+        }
+        if (Arrays.asList("LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER", "LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_SERVER", 
+          "LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER_PER_SERVER").indexOf(tooManyRequestsErr.metadata.type) != -1) {
+          Integer socketInstanceIndex = websocketClient.unassignSocketInstance(subscription.accountId);
+          if (socketInstanceIndex != null) {
             websocketClient.lockSocketInstance(socketInstanceIndex, tooManyRequestsErr.metadata);
-          } else {
-            long retryTime = ((TooManyRequestsException) err.getCause()).metadata.recommendedRetryTime.getDate().getTime();
-            if (new IsoTime().getDate().getTime() + subscribeRetryIntervalInSeconds * 1000 < retryTime) {
-              try {
-                Thread.sleep(retryTime - new IsoTime().getDate().getTime() - subscribeRetryIntervalInSeconds * 1000);
-              } catch (InterruptedException e) { 
-                logger.error(e);
-              }
-            }
           }
+        } else {
+          long retryTime = tooManyRequestsErr.metadata.recommendedRetryTime.getDate().getTime();
+          retryDelay = Math.max(retryDelay, retryTime - new IsoTime().getDate().getTime());
         }
       }
-      subscribeFuture.complete(null);
-    });
+      synchronized (subscription) {
+        if (subscription.state != SubscriptionState.SUBSCRIBING) {
+          return;
+        }
+        subscription.state = SubscriptionState.WAITING;
+        subscription.retryIntervalInSeconds = Math.min(subscription.retryIntervalInSeconds * 2, 300);
+        subscription.waitTask = scheduler.schedule(() -> sendSubscribeRequest(subscription), retryDelay);
+      }
+    } catch (Throwable e) {
+      logger.error("[" + new IsoTime() + "] Failed to process subscribe response for account "
+        + subscription.instanceId, e);
+    }
   }
   
   /**
@@ -169,16 +219,24 @@ public class SubscriptionManager {
    * @param instanceId instance id to cancel subscription task for
    */
   public void cancelSubscribe(String instanceId) {
-    if (subscriptions.containsKey(instanceId)) {
-      Subscription subscription = subscriptions.get(instanceId);
-      if (subscription.future != null) {
-        subscription.future.complete(false);
-        subscription.waitTask.cancel();
-      }
-      if (subscription.task != null) {
-        subscription.task.future.complete(false);
+    Subscription subscription = subscriptions.get(instanceId);
+    if (subscription != null) {
+      synchronized (subscription) {
+        if (subscription.state == SubscriptionState.CANCELLED) {
+          return;
+        }
+        subscription.state = SubscriptionState.CANCELLED;
+        if (subscription.waitTask != null) {
+          subscription.waitTask.cancel(false);
+          subscription.waitTask = null;
+        }
       }
-      subscription.shouldRetry = false;
+      subscriptions.remove(instanceId, subscription);
+      subscriptionsByAccount.computeIfPresent(subscription.accountId, (id, accountSubscriptions) -> {
+        accountSubscriptions.remove(subscription);
+        return accountSubscriptions.isEmpty() ? null : accountSubscriptions;
+      });
+      subscription.completion.complete(null);
     }
   }
 
@@ -187,6 +245,8 @@ public class SubscriptionManager {
    * @param accountId account id to cancel subscription tasks for
    */
   public void cancelAccount(String accountId) {
+    awaitingResubscribe.remove(accountId);
+    resubscriptionScheduler.cancel(accountId);
     for (String instanceId : subscriptions.keySet().stream().filter(key -> key.startsWith(accountId))
       .collect(Collectors.toList())) {
       cancelSubscribe(instanceId);
@@ -209,23 +269,26 @@ public class SubscriptionManager {
    * Invoked when connection to MetaTrader terminal terminated
    * @param accountId id of the MetaTrader account
    * @param instanceNumber instance index number
-   * @return completable future when the operation is completed
+   * @return completable future which resolves when resubscription is started
    */
   public CompletableFuture<Void> onDisconnected(String accountId, int instanceNumber) {
-    return Async.run(() -> {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    scheduler.schedule(() -> {
       try {
-        Thread.sleep((long) (Math.max(ServiceProvider.getRandom() * 5, 1) * 1000));
-      } catch (InterruptedException e) {
-        logger.error(e);
-      }
-      if (websocketClient.getSocketInstancesByAccounts().containsKey(accountId)) {
-        subscribe(accountId, instanceNumber, true);
+        if (websocketClient.getSocketInstancesByAccounts().containsKey(accountId)) {
+          subscribe(accountId, instanceNumber, true);
+        }
+        result.complete(null);
+      } catch (Throwable err) {
+        result.completeExceptionally(err);
       }
-    });
+    }, (long) (Math.max(ServiceProvider.getRandom() * 5, 1) * 1000));
+    return result;
   }
 
   /**
-   * Invoked when connection to MetaApi websocket API restored after a disconnect.
+   * Invoked when connection to MetaApi websocket API restored after a disconnect. After a random delay of up
+   * to 5 seconds, accounts of the reconnect are queued to the rate limited resubscription scheduler at once
    * @param socketInstanceIndex socket instance index
    * @param reconnectAccountIds account ids to reconnect
    */
@@ -238,25 +301,46 @@ public class SubscriptionManager {
           cancelSubscribe(instanceId);
         }
       }
-      reconnectAccountIds.forEach(accountId -> {
-        Async.run(() -> {
-          try {
-            if (!awaitingResubscribe.contains(accountId)) {
-              awaitingResubscribe.add(accountId);
-              while (isAccountSubscribing(accountId, null)) {
-                Thread.sleep(1000);
-              }
-              awaitingResubscribe.remove(accountId);
-              Thread.sleep((long) (ServiceProvider.getRandom() * 5000));
-              subscribe(accountId, null, false);
-            }
-          } catch (Throwable err) {
-            logger.error("[" + new IsoTime() + "] Account " + accountId + " resubscribe task failed", err);
-          }
-        });
-      });
+      resubscriptionScheduler.addPendingAccounts(reconnectAccountIds);
+      long delay = (long) (ServiceProvider.getRandom() * 5000);
+      List<String> resubscribingAccountIds = new ArrayList<>();
+      for (String accountId : reconnectAccountIds) {
+        if (!awaitingResubscribe.add(accountId)) {
+          continue;
+        }
+        CompletableFuture<Void> notSubscribing = whenAccountIsNotSubscribing(accountId);
+        if (notSubscribing.isDone()) {
+          resubscribingAccountIds.add(accountId);
+        } else {
+          notSubscribing.thenRun(() -> scheduler.schedule(() ->
+            scheduleResubscriptions(Collections.singletonList(accountId)), delay));
+        }
+      }
+      if (!resubscribingAccountIds.isEmpty()) {
+        scheduler.schedule(() -> scheduleResubscriptions(resubscribingAccountIds), delay);
+      }
     } catch (Throwable err) {
       logger.error("[" + new IsoTime() + "] Failed to process subscribe manager reconnected event", err);
     }
   }
-}
\ No newline at end of file
+  
+  private void scheduleResubscriptions(List<String> accountIds) {
+    Map<String, Runnable> resubscriptions = new LinkedHashMap<>();
+    for (String accountId : accountIds) {
+      if (awaitingResubscribe.remove(accountId)) {
+        resubscriptions.put(accountId, () -> subscribe(accountId, null, false));
+      }
+    }
+    resubscriptionScheduler.schedule(resubscriptions);
+  }
+  
+  private CompletableFuture<Void> whenAccountIsNotSubscribing(String accountId) {
+    List<CompletableFuture<Void>> completions = subscriptionsByAccount.getOrDefault(accountId,
+      Collections.emptySet()).stream().map(subscription -> subscription.completion).collect(Collectors.toList());
+    if (completions.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.allOf(completions.toArray(new CompletableFuture<?>[0]))
+      .thenCompose(ignored -> whenAccountIsNotSubscribing(accountId));
+  }
+}
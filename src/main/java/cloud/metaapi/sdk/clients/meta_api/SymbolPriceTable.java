@@ -0,0 +1,216 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Compact storage of the latest symbol prices. Symbols are interned to int ids shared by all tables, and
+ * bid, ask, tick values and quote time are kept in parallel primitive arrays indexed by symbol id and updated
+ * in place, so a table holds no objects per price. Broker time, account currency exchange rate and latency
+ * timestamps of the prices are not stored
+ */
+public class SymbolPriceTable {
+
+  private static Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+  private static volatile String[] symbols = new String[256];
+  private boolean[] present = new boolean[0];
+  private double[] bids = new double[0];
+  private double[] asks = new double[0];
+  private double[] profitTickValues = new double[0];
+  private double[] lossTickValues = new double[0];
+  private long[] times = new long[0];
+
+  /**
+   * Symbol price read from the table. The quote object is supplied by the caller and can be reused for
+   * subsequent reads
+   */
+  public static class Quote {
+    /**
+     * Symbol id
+     */
+    public int symbolId;
+    /**
+     * Bid price
+     */
+    public double bid;
+    /**
+     * Ask price
+     */
+    public double ask;
+    /**
+     * Tick value for a profitable position
+     */
+    public double profitTickValue;
+    /**
+     * Tick value for a losing position
+     */
+    public double lossTickValue;
+    /**
+     * Quote time in milliseconds since epoch
+     */
+    public long time;
+  }
+
+  /**
+   * Returns id of a symbol, assigning a new id if the symbol has not been seen before
+   * @param symbol symbol (e.g. currency pair or an index)
+   * @return symbol id
+   */
+  public static int getSymbolId(String symbol) {
+    Integer id = symbolIds.get(symbol);
+    return id != null ? id : addSymbol(symbol);
+  }
+
+  /**
+   * Returns id of a symbol without assigning a new one
+   * @param symbol symbol (e.g. currency pair or an index)
+   * @return symbol id, or -1 if the symbol has not been seen before
+   */
+  public static int findSymbolId(String symbol) {
+    Integer id = symbolIds.get(symbol);
+    return id != null ? id : -1;
+  }
+
+  /**
+   * Returns symbol by id
+   * @param symbolId symbol id
+   * @return symbol, or {@code null} if the id has not been assigned
+   */
+  public static String getSymbol(int symbolId) {
+    String[] currentSymbols = symbols;
+    return symbolId >= 0 && symbolId < currentSymbols.length ? currentSymbols[symbolId] : null;
+  }
+
+  /**
+   * Stores a symbol price
+   * @param price symbol price
+   * @return true if the table had no price for the symbol before
+   */
+  public synchronized boolean update(MetatraderSymbolPrice price) {
+    int id = getSymbolId(price.symbol);
+    if (id >= present.length) {
+      int length = Math.max(id + 1, present.length * 2);
+      present = Arrays.copyOf(present, length);
+      bids = Arrays.copyOf(bids, length);
+      asks = Arrays.copyOf(asks, length);
+      profitTickValues = Arrays.copyOf(profitTickValues, length);
+      lossTickValues = Arrays.copyOf(lossTickValues, length);
+      times = Arrays.copyOf(times, length);
+    }
+    boolean added = !present[id];
+    present[id] = true;
+    bids[id] = price.bid;
+    asks[id] = price.ask;
+    profitTickValues[id] = price.profitTickValue;
+    lossTickValues[id] = price.lossTickValue;
+    times[id] = price.time != null ? price.time.getDate().getTime() : 0;
+    return added;
+  }
+
+  /**
+   * Returns true if the table contains a price for a symbol
+   * @param symbolId symbol id
+   * @return true if the table contains a price for the symbol
+   */
+  public synchronized boolean hasPrice(int symbolId) {
+    return symbolId >= 0 && symbolId < present.length && present[symbolId];
+  }
+
+  /**
+   * Reads a symbol price into a quote without allocating objects
+   * @param symbolId symbol id
+   * @param quote quote to fill
+   * @return true if the price was found, false if the table has no price for the symbol
+   */
+  public synchronized boolean read(int symbolId, Quote quote) {
+    if (!hasPrice(symbolId)) {
+      return false;
+    }
+    quote.symbolId = symbolId;
+    quote.bid = bids[symbolId];
+    quote.ask = asks[symbolId];
+    quote.profitTickValue = profitTickValues[symbolId];
+    quote.lossTickValue = lossTickValues[symbolId];
+    quote.time = times[symbolId];
+    return true;
+  }
+
+  /**
+   * Returns bid price of a symbol
+   * @param symbolId symbol id
+   * @return bid price, or {@link Double#NaN} if the table has no price for the symbol
+   */
+  public synchronized double getBid(int symbolId) {
+    return hasPrice(symbolId) ? bids[symbolId] : Double.NaN;
+  }
+
+  /**
+   * Returns ask price of a symbol
+   * @param symbolId symbol id
+   * @return ask price, or {@link Double#NaN} if the table has no price for the symbol
+   */
+  public synchronized double getAsk(int symbolId) {
+    return hasPrice(symbolId) ? asks[symbolId] : Double.NaN;
+  }
+
+  /**
+   * Returns a symbol price as a new price model
+   * @param symbolId symbol id
+   * @return symbol price, or {@code null} if the table has no price for the symbol
+   */
+  public synchronized MetatraderSymbolPrice getPrice(int symbolId) {
+    if (!hasPrice(symbolId)) {
+      return null;
+    }
+    MetatraderSymbolPrice result = new MetatraderSymbolPrice();
+    result.symbol = getSymbol(symbolId);
+    result.bid = bids[symbolId];
+    result.ask = asks[symbolId];
+    result.profitTickValue = profitTickValues[symbolId];
+    result.lossTickValue = lossTickValues[symbolId];
+    result.time = new IsoTime(new Date(times[symbolId]));
+    return result;
+  }
+
+  /**
+   * Returns symbols which the table contains prices for
+   * @return list of symbols
+   */
+  public synchronized List<String> getSymbols() {
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < present.length; ++i) {
+      if (present[i]) {
+        result.add(getSymbol(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes all prices from the table
+   */
+  public synchronized void clear() {
+    Arrays.fill(present, false);
+  }
+
+  private static synchronized int addSymbol(String symbol) {
+    Integer id = symbolIds.get(symbol);
+    if (id != null) {
+      return id;
+    }
+    int newId = symbolIds.size();
+    if (newId == symbols.length) {
+      symbols = Arrays.copyOf(symbols, newId * 2);
+    }
+    symbols[newId] = symbol;
+    symbolIds.put(symbol, newId);
+    return newId;
+  }
+}
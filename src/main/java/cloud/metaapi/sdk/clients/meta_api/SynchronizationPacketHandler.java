@@ -0,0 +1,27 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import cloud.metaapi.sdk.clients.meta_api.MetaApiWebsocketClient.InstanceContext;
+
+/**
+ * Handler of a synchronization packet type
+ */
+@FunctionalInterface
+public interface SynchronizationPacketHandler {
+
+  /**
+   * Processes a synchronization packet
+   * @param packet packet data
+   * @param instance account instance the packet belongs to
+   * @param listeners synchronization listeners of the account
+   * @return completable future which resolves when the packet is processed. The next packet of the account
+   * is processed after the future resolves, without blocking a thread while waiting for it
+   * @throws Exception if failed to process the packet
+   */
+  CompletableFuture<Void> handle(JsonNode packet, InstanceContext instance, List<SynchronizationListener> listeners)
+    throws Exception;
+}
@@ -1,24 +1,24 @@
 package cloud.metaapi.sdk.clients.meta_api;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.stream.Collectors;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import cloud.metaapi.sdk.clients.OptionsValidator;
 import cloud.metaapi.sdk.clients.TimeoutException;
 import cloud.metaapi.sdk.clients.error_handler.ValidationException;
-import cloud.metaapi.sdk.clients.models.IsoTime;
 import cloud.metaapi.sdk.util.Async;
 import cloud.metaapi.sdk.util.Js;
 import cloud.metaapi.sdk.util.ServiceProvider;
@@ -29,17 +29,23 @@ import cloud.metaapi.sdk.util.ServiceProvider;
  */
 public class SynchronizationThrottler {
   
-  private static Logger logger = LogManager.getLogger(SynchronizationThrottler.class);
   private int maxConcurrentSynchronizations;
   private int queueTimeoutInSeconds;
   private int synchronizationTimeoutInSeconds;
   private MetaApiWebsocketClient client;
   private int socketInstanceIndex;
+  private GlobalState globalState;
   protected Map<String, Long> synchronizationIds = new ConcurrentHashMap<>();
-  private Map<String, AccountData> accountsBySynchronizationIds = new ConcurrentHashMap<>();
-  private List<SynchronizationQueueItem> synchronizationQueue = new ArrayList<>();
-  private Timer removeOldSyncIdsTimer = null;
-  private Timer processQueueTimer = null;
+  private Map<String, Synchronization> synchronizationsById = new HashMap<>();
+  private Map<String, Set<Synchronization>> synchronizationsByInstance = new HashMap<>();
+  private Map<String, Integer> synchronizingAccounts = new ConcurrentHashMap<>();
+  private TreeSet<Synchronization> synchronizationQueue = new TreeSet<>(Comparator
+    .comparingInt((Synchronization s) -> -s.priority).thenComparingLong(s -> s.sequence));
+  private TreeSet<Synchronization> queueDeadlines = new TreeSet<>(Comparator
+    .comparingLong((Synchronization s) -> s.queueTime).thenComparingLong(s -> s.sequence));
+  private long sequence = 0;
+  private SdkScheduler scheduler;
+  private ScheduledFuture<?> removeOldSyncIdsTimer = null;
   
   /**
    * Options for synchronization throttler
@@ -61,16 +67,66 @@ public class SynchronizationThrottler {
     public int synchronizationTimeoutInSeconds = 10;
   }
   
-  private static class AccountData {
-    public String accountId;
-    public int instanceIndex;
-    public String host;
+  /**
+   * State shared by synchronization throttlers of all socket instances of a websocket client
+   */
+  public static class GlobalState {
+    private AtomicInteger synchronizingAccounts = new AtomicInteger();
+    private Map<String, Integer> priorities = new ConcurrentHashMap<>();
+    
+    /**
+     * Sets synchronization priority of an account. Queued synchronizations of accounts with higher
+     * priority are sent first
+     * @param accountId account id
+     * @param priority priority, by default is 0
+     */
+    public void setPriority(String accountId, int priority) {
+      priorities.put(accountId, priority);
+    }
+    
+    /**
+     * Returns synchronization priority of an account
+     * @param accountId account id
+     * @return priority
+     */
+    public int getPriority(String accountId) {
+      return priorities.getOrDefault(accountId, 0);
+    }
+    
+    /**
+     * Returns the amount of synchronizing accounts summed over all socket instances
+     * @return the amount of synchronizing accounts
+     */
+    public int getSynchronizingAccountCount() {
+      return synchronizingAccounts.get();
+    }
+    
+    /**
+     * Counts an account which started synchronizing on a socket instance
+     */
+    void incrementSynchronizingAccounts() {
+      synchronizingAccounts.incrementAndGet();
+    }
+    
+    /**
+     * Stops counting accounts which finished synchronizing on a socket instance
+     * @param count number of accounts
+     */
+    void decrementSynchronizingAccounts(int count) {
+      synchronizingAccounts.addAndGet(-count);
+    }
   }
   
-  private static class SynchronizationQueueItem {
+  private static class Synchronization {
     public String synchronizationId;
-    public CompletableFuture<String> future;
+    public String accountId;
+    public int instanceIndex;
+    public String host;
+    public int priority;
+    public long sequence;
     public long queueTime;
+    public boolean queued;
+    public CompletableFuture<String> future = new CompletableFuture<>();
   }
   
   /**
@@ -82,6 +138,20 @@ public class SynchronizationThrottler {
    */
   public SynchronizationThrottler(MetaApiWebsocketClient client, int socketInstanceIndex, Options opts)
     throws ValidationException {
+    this(client, socketInstanceIndex, opts, SdkScheduler.getDefault(), new GlobalState());
+  }
+  
+  /**
+   * Constructs the synchronization throttler
+   * @param client MetaApi websocket client
+   * @param socketInstanceIndex index of socket instance that uses the throttler
+   * @param opts Synchronization throttler options
+   * @param scheduler scheduler to run the throttler jobs on
+   * @param globalState state shared by throttlers of all socket instances of the client
+   * @throws ValidationException if specified options are invalid 
+   */
+  public SynchronizationThrottler(MetaApiWebsocketClient client, int socketInstanceIndex, Options opts,
+    SdkScheduler scheduler, GlobalState globalState) throws ValidationException {
     OptionsValidator validator = new OptionsValidator();
     validator.validateNonZeroInt(opts.maxConcurrentSynchronizations, "synchronizationThrottler.maxConcurrentSynchronizations");
     validator.validateNonZeroInt(opts.queueTimeoutInSeconds, "synchronizationThrottler.queueTimeoutInSeconds");
@@ -92,63 +162,63 @@ public class SynchronizationThrottler {
     this.synchronizationTimeoutInSeconds = opts.synchronizationTimeoutInSeconds;
     this.client = client;
     this.socketInstanceIndex = socketInstanceIndex;
+    this.scheduler = scheduler;
+    this.globalState = globalState;
   }
   
   /**
    * Initializes the synchronization throttler
    */
-  void start() {
+  synchronized void start() {
     if (removeOldSyncIdsTimer == null) {
-      removeOldSyncIdsTimer = new Timer();
-      removeOldSyncIdsTimer.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          removeOldSyncIdsJob();
-        }
-      }, 1000, 1000);
-      processQueueTimer = new Timer();
-      processQueueTimer.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          processQueueJob();
-        }
-      }, 1000, 1000);
+      removeOldSyncIdsTimer = scheduler.scheduleWithFixedDelay(this::removeOldSyncIdsJob, 1000, 1000);
     }
   }
   
   /**
    * Deinitializes the throttler
    */
-  void stop() {
+  synchronized void stop() {
     if (removeOldSyncIdsTimer != null) {
-      removeOldSyncIdsTimer.cancel();
+      removeOldSyncIdsTimer.cancel(false);
       removeOldSyncIdsTimer = null;
-      processQueueTimer.cancel();
-      processQueueTimer = null;
     }
   }
   
   private void removeOldSyncIdsJob() {
-    long now = ServiceProvider.getNow().toEpochMilli();
-    for (String key : new ArrayList<>(synchronizationIds.keySet())) {
-      if ((now - synchronizationIds.get(key)) > synchronizationTimeoutInSeconds * 1000) {
-        synchronizationIds.remove(key);
+    List<Synchronization> started;
+    List<Synchronization> expired = new ArrayList<>();
+    synchronized (this) {
+      long now = ServiceProvider.getNow().toEpochMilli();
+      for (String key : new ArrayList<>(synchronizationIds.keySet())) {
+        if ((now - synchronizationIds.get(key)) > synchronizationTimeoutInSeconds * 1000) {
+          removeSlot(key);
+        }
       }
+      while (!queueDeadlines.isEmpty() && now - queueDeadlines.first().queueTime > queueTimeoutInSeconds * 1000) {
+        Synchronization synchronization = queueDeadlines.first();
+        dequeue(synchronization);
+        removeSynchronization(synchronization);
+        expired.add(synchronization);
+      }
+      started = advanceQueue();
     }
-    while (synchronizationQueue.size() > 0 && (ServiceProvider.getNow().toEpochMilli() 
-      - synchronizationQueue.get(0).queueTime > queueTimeoutInSeconds * 1000)) {
-      removeFromQueue(synchronizationQueue.get(0).synchronizationId, "timeout");
-    }
-    advanceQueue();
+    expired.forEach(synchronization -> synchronization.future.complete("timeout"));
+    started.forEach(synchronization -> synchronization.future.complete("synchronize"));
   }
   
   /**
    * Fills a synchronization slot with synchronization id
    * @param synchronizationId Synchronization id
    */
-  public void updateSynchronizationId(String synchronizationId) {
-    if (accountsBySynchronizationIds.containsKey(synchronizationId)) {
-      synchronizationIds.put(synchronizationId, ServiceProvider.getNow().toEpochMilli());
+  public synchronized void updateSynchronizationId(String synchronizationId) {
+    Synchronization synchronization = synchronizationsById.get(synchronizationId);
+    if (synchronization != null && !synchronization.queued) {
+      if (synchronizationIds.put(synchronizationId, ServiceProvider.getNow().toEpochMilli()) == null) {
+        if (synchronizingAccounts.merge(synchronization.accountId, 1, Integer::sum) == 1) {
+          globalState.incrementSynchronizingAccounts();
+        }
+      }
     }
   }
   
@@ -157,22 +227,15 @@ public class SynchronizationThrottler {
    * @return the list of currently synchronizing account ids
    */
   public List<String> getSynchronizingAccounts() {
-    List<String> synchronizingAccounts = new ArrayList<>();
-    synchronizationIds.keySet().forEach(key -> {
-      AccountData accountData = accountsBySynchronizationIds.get(key);
-      if(accountData != null && synchronizingAccounts.indexOf(accountData.accountId) == -1) {
-        synchronizingAccounts.add(accountData.accountId);
-      }
-    });
-    return synchronizingAccounts;
+    return new ArrayList<>(synchronizingAccounts.keySet());
   }
   
   /**
    * Returns the list of currenly active synchronization ids
    * @return Synchronization ids
    */
-  public List<String> getActiveSynchronizationIds() {
-    return new ArrayList<>(accountsBySynchronizationIds.keySet());
+  public synchronized List<String> getActiveSynchronizationIds() {
+    return new ArrayList<>(synchronizationsById.keySet());
   }
   
   /**
@@ -181,7 +244,7 @@ public class SynchronizationThrottler {
    */
   public int getMaxConcurrentSynchronizations() {
     int calculatedMax = Math.max((int) Math.ceil(
-      client.getSubscribedAccountIds(socketInstanceIndex).size() / 10.0), 1);
+      client.getSubscribedAccountCount(socketInstanceIndex) / 10.0), 1);
     return Math.min(calculatedMax, maxConcurrentSynchronizations);
   }
   
@@ -190,12 +253,7 @@ public class SynchronizationThrottler {
    * @return Flag whether there are free slots for synchronization requests
    */
   public boolean isSynchronizationAvailable() {
-    if (Js.reduce(client.getSocketInstances(), (acc, socketInstance) -> 
-      acc + socketInstance.synchronizationThrottler.getSynchronizingAccounts().size(), 0) >=
-      maxConcurrentSynchronizations) {
-      return false;
-    }
-    return getSynchronizingAccounts().size() < getMaxConcurrentSynchronizations();
+    return isSynchronizationAvailable(getMaxConcurrentSynchronizations());
   }
   
   /**
@@ -205,13 +263,14 @@ public class SynchronizationThrottler {
    * @param host account host name
    */
   public void removeIdByParameters(String accountId, int instanceIndex, String host) {
-    for (String key : new ArrayList<>(accountsBySynchronizationIds.keySet())) {
-      if (accountsBySynchronizationIds.get(key).accountId.equals(accountId) &&
-          accountsBySynchronizationIds.get(key).instanceIndex == instanceIndex &&
-          Js.or(accountsBySynchronizationIds.get(key).host, "").equals(Js.or(host, ""))) {
-        removeSynchronizationId(key);
-      }
+    List<Synchronization> cancelled = new ArrayList<>();
+    List<Synchronization> started;
+    synchronized (this) {
+      removeByParameters(accountId, instanceIndex, Js.or(host, ""), cancelled);
+      started = advanceQueue();
     }
+    cancelled.forEach(synchronization -> synchronization.future.complete("cancel"));
+    started.forEach(synchronization -> synchronization.future.complete("synchronize"));
   }
   
   /**
@@ -219,82 +278,105 @@ public class SynchronizationThrottler {
    * @param synchronizationId Synchronization id
    */
   public void removeSynchronizationId(String synchronizationId) {
-    if (accountsBySynchronizationIds.containsKey(synchronizationId)) {
-      String accountId = accountsBySynchronizationIds.get(synchronizationId).accountId;
-      int instanceIndex = accountsBySynchronizationIds.get(synchronizationId).instanceIndex;
-      String host = Js.or(accountsBySynchronizationIds.get(synchronizationId).host, "");
-      for (String key : new ArrayList<>(accountsBySynchronizationIds.keySet())) {
-        if (accountsBySynchronizationIds.get(key).accountId.equals(accountId) &&
-            accountsBySynchronizationIds.get(key).instanceIndex == instanceIndex &&
-            Js.or(accountsBySynchronizationIds.get(key).host, "").equals(host)) {
-          removeFromQueue(key, "cancel");
-          accountsBySynchronizationIds.remove(key);
-        }
+    List<Synchronization> cancelled = new ArrayList<>();
+    List<Synchronization> started;
+    synchronized (this) {
+      Synchronization synchronization = synchronizationsById.get(synchronizationId);
+      if (synchronization != null) {
+        removeByParameters(synchronization.accountId, synchronization.instanceIndex,
+          Js.or(synchronization.host, ""), cancelled);
       }
+      removeSlot(synchronizationId);
+      started = advanceQueue();
     }
-    if (synchronizationIds.containsKey(synchronizationId)) {
-      synchronizationIds.remove(synchronizationId);
-    }
-    advanceQueue();
+    cancelled.forEach(synchronization -> synchronization.future.complete("cancel"));
+    started.forEach(synchronization -> synchronization.future.complete("synchronize"));
   }
   
   /**
    * Clears synchronization ids on disconnect
    */
   public void onDisconnect() {
-    synchronizationQueue.forEach(synchronization -> {
-      synchronization.future.complete("cancel");
-    });
-    synchronizationIds.clear();
-    accountsBySynchronizationIds.clear();
-    synchronizationQueue.clear();
+    List<Synchronization> cancelled;
+    synchronized (this) {
+      cancelled = new ArrayList<>(synchronizationQueue);
+      globalState.decrementSynchronizingAccounts(synchronizingAccounts.size());
+      synchronizationIds.clear();
+      synchronizingAccounts.clear();
+      synchronizationsById.clear();
+      synchronizationsByInstance.clear();
+      synchronizationQueue.clear();
+      queueDeadlines.clear();
+    }
+    cancelled.forEach(synchronization -> synchronization.future.complete("cancel"));
     stop();
     start();
   }
   
-  private void advanceQueue() {
-    int index = 0;
-    while (isSynchronizationAvailable() && synchronizationQueue.size() > 0 && 
-        index < synchronizationQueue.size()) {
-      SynchronizationQueueItem queueItem = synchronizationQueue.get(index);
-      queueItem.future.complete("synchronize");
-      updateSynchronizationId(queueItem.synchronizationId);
-      index++;
+  private boolean isSynchronizationAvailable(int maxSynchronizations) {
+    if (globalState.getSynchronizingAccountCount() >= maxConcurrentSynchronizations) {
+      return false;
     }
+    return synchronizingAccounts.size() < maxSynchronizations;
   }
   
-  private void removeFromQueue(String synchronizationId, String result) {
-    new ArrayList<>(synchronizationQueue).forEach(syncItem -> {
-      if (syncItem.synchronizationId.equals(synchronizationId)) {
-        syncItem.future.complete(result);
+  private List<Synchronization> advanceQueue() {
+    List<Synchronization> started = new ArrayList<>();
+    if (!synchronizationQueue.isEmpty()) {
+      int maxSynchronizations = getMaxConcurrentSynchronizations();
+      while (!synchronizationQueue.isEmpty() && isSynchronizationAvailable(maxSynchronizations)) {
+        Synchronization synchronization = synchronizationQueue.first();
+        dequeue(synchronization);
+        updateSynchronizationId(synchronization.synchronizationId);
+        started.add(synchronization);
       }
-    });
-    synchronizationQueue = synchronizationQueue.stream()
-      .filter(item -> !item.synchronizationId.equals(synchronizationId))
-      .collect(Collectors.toList());
+    }
+    return started;
   }
   
-  private CompletableFuture<Void> processQueueJob() {
-    return Async.run(() -> {
-      try {
-        while (synchronizationQueue.size() > 0) {
-          SynchronizationQueueItem queueItem = synchronizationQueue.get(0);
-          queueItem.future.join();
-          
-          // Often synchronizationQueue.remove(0) raises IndexOutOfBoundsException because
-          // somehow synchronizationQueue size becomes 0 right after checking it. This is a
-          // hook that tells Java to do not hurry
-          Async.run(() -> {}).join();
-
-          if (synchronizationQueue.size() > 0 && synchronizationQueue.get(0).synchronizationId
-            .equals(queueItem.synchronizationId)) {
-            synchronizationQueue.remove(0);
+  private void removeByParameters(String accountId, int instanceIndex, String host,
+    List<Synchronization> cancelled) {
+    Set<Synchronization> synchronizations = synchronizationsByInstance.get(accountId + ":" + instanceIndex);
+    if (synchronizations != null) {
+      for (Synchronization synchronization : new ArrayList<>(synchronizations)) {
+        if (Js.or(synchronization.host, "").equals(host)) {
+          if (synchronization.queued) {
+            dequeue(synchronization);
+            cancelled.add(synchronization);
           }
+          removeSynchronization(synchronization);
         }
-      } catch (Throwable err) {
-        logger.info("[" + new IsoTime() + "] Error processing queue job", err);
       }
-    });
+    }
+  }
+  
+  private void removeSynchronization(Synchronization synchronization) {
+    removeSlot(synchronization.synchronizationId);
+    synchronizationsById.remove(synchronization.synchronizationId);
+    String instanceKey = synchronization.accountId + ":" + synchronization.instanceIndex;
+    Set<Synchronization> synchronizations = synchronizationsByInstance.get(instanceKey);
+    if (synchronizations != null) {
+      synchronizations.remove(synchronization);
+      if (synchronizations.isEmpty()) {
+        synchronizationsByInstance.remove(instanceKey);
+      }
+    }
+  }
+  
+  private void removeSlot(String synchronizationId) {
+    if (synchronizationIds.remove(synchronizationId) != null) {
+      Synchronization synchronization = synchronizationsById.get(synchronizationId);
+      if (synchronization != null && synchronizingAccounts.computeIfPresent(synchronization.accountId,
+          (accountId, count) -> count > 1 ? count - 1 : null) == null) {
+        globalState.decrementSynchronizingAccounts(1);
+      }
+    }
+  }
+  
+  private void dequeue(Synchronization synchronization) {
+    synchronization.queued = false;
+    synchronizationQueue.remove(synchronization);
+    queueDeadlines.remove(synchronization);
   }
   
   /**
@@ -305,38 +387,52 @@ public class SynchronizationThrottler {
    */
   public CompletableFuture<Boolean> scheduleSynchronize(String accountId, ObjectNode request) {
     return Async.supply(() -> {
-      String synchronizationId = request.get("requestId").asText();
       int instanceIndex = request.has("instanceIndex") ? request.get("instanceIndex").asInt() : -1;
-      for (String key : new ArrayList<>(accountsBySynchronizationIds.keySet())) {
-        if (accountsBySynchronizationIds.get(key).accountId.equals(accountId) &&
-            accountsBySynchronizationIds.get(key).instanceIndex == instanceIndex) {
-          removeSynchronizationId(key);
+      String instanceKey = accountId + ":" + instanceIndex;
+      Synchronization synchronization = new Synchronization();
+      synchronization.synchronizationId = request.get("requestId").asText();
+      synchronization.accountId = accountId;
+      synchronization.instanceIndex = instanceIndex;
+      synchronization.host = request.hasNonNull("host") ? request.get("host").asText() : null;
+      synchronization.priority = globalState.getPriority(accountId);
+      List<Synchronization> cancelled = new ArrayList<>();
+      List<Synchronization> started;
+      synchronized (this) {
+        Set<Synchronization> previous = synchronizationsByInstance.get(instanceKey);
+        if (previous != null) {
+          for (Synchronization previousSynchronization : new ArrayList<>(previous)) {
+            if (previousSynchronization.queued) {
+              dequeue(previousSynchronization);
+              cancelled.add(previousSynchronization);
+            }
+            removeSynchronization(previousSynchronization);
+          }
         }
-      }
-      AccountData accountData = new AccountData();
-      accountData.accountId = accountId;
-      accountData.instanceIndex = instanceIndex;
-      accountData.host = request.hasNonNull("host") ? request.get("host").asText() : null;
-      accountsBySynchronizationIds.put(synchronizationId, accountData);
-      if (!isSynchronizationAvailable()) {
-        CompletableFuture<String> requestFuture = new CompletableFuture<>();
-        String sid = synchronizationId;
-        synchronizationQueue.add(new SynchronizationQueueItem() {{
-          synchronizationId = sid;
-          future = requestFuture;
-          queueTime = ServiceProvider.getNow().toEpochMilli();
-        }});
-        String result = requestFuture.join();
-        if (result.equals("cancel")) {
-          return false;
-        } else if (result.equals("timeout")) {
-          throw new CompletionException(new TimeoutException("Account " + accountId 
-            + " synchronization " + synchronizationId + "timed out in synchronization queue"));
+        synchronizationsById.put(synchronization.synchronizationId, synchronization);
+        synchronizationsByInstance.computeIfAbsent(instanceKey, key -> new HashSet<>()).add(synchronization);
+        started = advanceQueue();
+        if (isSynchronizationAvailable()) {
+          updateSynchronizationId(synchronization.synchronizationId);
+          started.add(synchronization);
+        } else {
+          synchronization.queued = true;
+          synchronization.sequence = sequence++;
+          synchronization.queueTime = ServiceProvider.getNow().toEpochMilli();
+          synchronizationQueue.add(synchronization);
+          queueDeadlines.add(synchronization);
         }
       }
-      updateSynchronizationId(synchronizationId);
-      client.rpcRequest(accountId, request, null).join();
-      return true;
+      cancelled.forEach(s -> s.future.complete("cancel"));
+      started.forEach(s -> s.future.complete("synchronize"));
+      return synchronization.future;
+    }).thenCompose(future -> future).thenCompose(result -> {
+      if (result.equals("cancel")) {
+        return CompletableFuture.completedFuture(false);
+      } else if (result.equals("timeout")) {
+        throw new CompletionException(new TimeoutException("Account " + accountId + " synchronization "
+          + request.get("requestId").asText() + " timed out in synchronization queue"));
+      }
+      return client.rpcRequest(accountId, request, null).thenApply(response -> true);
     });
   }
 }
@@ -0,0 +1,82 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import java.util.List;
+
+import cloud.metaapi.sdk.clients.meta_api.models.*;
+
+/**
+ * Defines interface for a synchronization listener which handles price stream events synchronously. The
+ * websocket client invokes the synchronous callbacks of synchronization listeners implementing this interface
+ * and enabling them with {@link #isSynchronousPriceStreamEnabled()} directly on the event processing thread,
+ * instead of their asynchronous price stream callbacks and without creating completable futures. Callbacks
+ * should therefore return quickly and must not block. Other events are delivered through the regular
+ * asynchronous callbacks
+ */
+public interface SynchronousSynchronizationListener {
+
+  /**
+   * Returns whether price stream events should be delivered to the synchronous callbacks of the listener. If
+   * false, the listener receives them through its asynchronous callbacks
+   * @return whether synchronous price stream callbacks are enabled
+   */
+  boolean isSynchronousPriceStreamEnabled();
+
+  /**
+   * Invoked when a symbol price was updated
+   * @param instanceIndex index of an account instance connected
+   * @param price updated MetaTrader symbol price
+   */
+  default void onSymbolPriceUpdatedSync(String instanceIndex, MetatraderSymbolPrice price) {}
+
+  /**
+   * Invoked when prices for several symbols were updated
+   * @param instanceIndex index of an account instance connected
+   * @param prices updated MetaTrader symbol prices
+   * @param equity account liquidation value
+   * @param margin margin used
+   * @param freeMargin free margin
+   * @param marginLevel margin level calculated as % of equity/margin
+   * @param accountCurrencyExchangeRate current exchange rate of account currency into USD
+   */
+  default void onSymbolPricesUpdatedSync(String instanceIndex, List<MetatraderSymbolPrice> prices,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {}
+
+  /**
+   * Invoked when symbol candles were updated
+   * @param instanceIndex index of an account instance connected
+   * @param candles updated MetaTrader symbol candles
+   * @param equity account liquidation value
+   * @param margin margin used
+   * @param freeMargin free margin
+   * @param marginLevel margin level calculated as % of equity/margin
+   * @param accountCurrencyExchangeRate current exchange rate of account currency into USD
+   */
+  default void onCandlesUpdatedSync(String instanceIndex, List<MetatraderCandle> candles,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {}
+
+  /**
+   * Invoked when symbol ticks were updated
+   * @param instanceIndex index of an account instance connected
+   * @param ticks updated MetaTrader symbol ticks
+   * @param equity account liquidation value
+   * @param margin margin used
+   * @param freeMargin free margin
+   * @param marginLevel margin level calculated as % of equity/margin
+   * @param accountCurrencyExchangeRate current exchange rate of account currency into USD
+   */
+  default void onTicksUpdatedSync(String instanceIndex, List<MetatraderTick> ticks,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {}
+
+  /**
+   * Invoked when order books were updated
+   * @param instanceIndex index of an account instance connected
+   * @param books updated MetaTrader order books
+   * @param equity account liquidation value
+   * @param margin margin used
+   * @param freeMargin free margin
+   * @param marginLevel margin level calculated as % of equity/margin
+   * @param accountCurrencyExchangeRate current exchange rate of account currency into USD
+   */
+  default void onBooksUpdatedSync(String instanceIndex, List<MetatraderBook> books,
+    Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {}
+}
@@ -22,7 +22,10 @@ public class SynchronizationOptions {
      */
     public Integer timeoutInSeconds;
     /**
-     * Interval between account reloads while waiting for a change, or {@code null}. Default is 1s
+     * Interval between account reloads while waiting for a change, or {@code null}. Default is 1s. Not used
+     * since synchronization completion is signalled by synchronization events
+     * @deprecated synchronization is no longer awaited by polling
      */
+    @Deprecated
     public Integer intervalInMilliseconds;
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package cloud.metaapi.sdk.meta_api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Predicate;
+
+import cloud.metaapi.sdk.clients.TimeoutException;
+import cloud.metaapi.sdk.clients.error_handler.NotFoundException;
+import cloud.metaapi.sdk.clients.meta_api.MetatraderAccountClient;
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
+import cloud.metaapi.sdk.clients.meta_api.models.AccountsFilter;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto;
+
+/**
+ * Waits for MetaTrader accounts to reach a state by polling the REST API. Accounts waited at the same time
+ * are refreshed together with one accounts list request per interval instead of one request per account
+ */
+public class AccountStatePoller {
+
+  private static final int PAGE_SIZE = 1000;
+  private MetatraderAccountClient metatraderAccountClient;
+  private SdkScheduler scheduler;
+  private Map<String, List<Waiter>> waitersByAccounts = new HashMap<>();
+  private ScheduledFuture<?> pollJob;
+  private boolean polling = false;
+
+  private static class Waiter {
+    public MetatraderAccount account;
+    public Predicate<MetatraderAccountDto> condition;
+    public int intervalInMilliseconds;
+    public boolean polled = false;
+    public CompletableFuture<Void> future = new CompletableFuture<>();
+    public ScheduledFuture<?> timeout;
+  }
+
+  /**
+   * Constructs account state poller instance
+   * @param metatraderAccountClient MetaTrader account REST API client
+   * @param scheduler scheduler which runs polls and timeouts
+   */
+  public AccountStatePoller(MetatraderAccountClient metatraderAccountClient, SdkScheduler scheduler) {
+    this.metatraderAccountClient = metatraderAccountClient;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Waits until an account reaches a state. The account data is updated on each poll. Completes
+   * exceptionally with {@link TimeoutException} if the account has not reached the state within timeout
+   * @param account MetaTrader account
+   * @param condition condition of the account state, receives {@code null} if the account is not found
+   * @param timeoutInSeconds wait timeout in seconds
+   * @param intervalInMilliseconds interval between polls in milliseconds
+   * @param timeoutMessage message of the timeout exception
+   * @return completable future which resolves when the account has reached the state
+   */
+  public CompletableFuture<Void> waitFor(MetatraderAccount account, Predicate<MetatraderAccountDto> condition,
+    int timeoutInSeconds, int intervalInMilliseconds, String timeoutMessage) {
+    Waiter waiter = new Waiter();
+    waiter.account = account;
+    waiter.condition = condition;
+    waiter.intervalInMilliseconds = intervalInMilliseconds;
+    synchronized (this) {
+      waitersByAccounts.computeIfAbsent(account.getId(), key -> new ArrayList<>()).add(waiter);
+      waiter.timeout = scheduler.schedule(() -> {
+        if (removeWaiter(waiter)) {
+          waiter.future.completeExceptionally(new TimeoutException(timeoutMessage));
+        }
+      }, timeoutInSeconds * 1000L);
+      if (!polling && pollJob == null) {
+        pollJob = scheduler.schedule(this::poll, 0);
+      }
+    }
+    return waiter.future;
+  }
+
+  /**
+   * Returns amount of accounts being waited for
+   * @return amount of accounts
+   */
+  public synchronized int getAccountCount() {
+    return waitersByAccounts.size();
+  }
+
+  private void poll() {
+    Map<String, List<Waiter>> waiters = new HashMap<>();
+    synchronized (this) {
+      pollJob = null;
+      polling = true;
+      waitersByAccounts.forEach((accountId, accountWaiters) -> {
+        accountWaiters.forEach(waiter -> waiter.polled = true);
+        waiters.put(accountId, new ArrayList<>(accountWaiters));
+      });
+    }
+    CompletableFuture<Void> result;
+    if (waiters.size() > 1) {
+      result = getAccounts(waiters.keySet(), 0, new HashMap<>())
+        .thenAccept(accounts -> waiters.forEach((accountId, accountWaiters) ->
+          checkWaiters(accountWaiters, accounts.get(accountId))))
+        .handle((value, err) -> err == null ? CompletableFuture.<Void>completedFuture(null) : pollAccounts(waiters))
+        .thenCompose(future -> future);
+    } else {
+      result = pollAccounts(waiters);
+    }
+    result.whenComplete((value, err) -> {
+      synchronized (this) {
+        polling = false;
+        if (!waitersByAccounts.isEmpty()) {
+          long delay = Long.MAX_VALUE;
+          for (List<Waiter> accountWaiters : waitersByAccounts.values()) {
+            for (Waiter waiter : accountWaiters) {
+              delay = Math.min(delay, waiter.polled ? waiter.intervalInMilliseconds : 0);
+            }
+          }
+          pollJob = scheduler.schedule(this::poll, delay);
+        }
+      }
+    });
+  }
+
+  private CompletableFuture<Void> pollAccounts(Map<String, List<Waiter>> waiters) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    waiters.forEach((accountId, accountWaiters) -> futures.add(metatraderAccountClient.getAccount(accountId)
+      .handle((account, err) -> {
+        Throwable cause = err instanceof CompletionException ? err.getCause() : err;
+        if (cause == null || cause instanceof NotFoundException) {
+          checkWaiters(accountWaiters, account);
+        } else {
+          failWaiters(accountWaiters, cause);
+        }
+        return null;
+      })));
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private CompletableFuture<Map<String, MetatraderAccountDto>> getAccounts(Set<String> accountIds, int offset,
+    Map<String, MetatraderAccountDto> result) {
+    AccountsFilter filter = new AccountsFilter();
+    filter.offset = offset;
+    filter.limit = PAGE_SIZE;
+    return metatraderAccountClient.getAccounts(filter).thenCompose(accounts -> {
+      for (MetatraderAccountDto account : accounts) {
+        if (accountIds.contains(account._id)) {
+          result.put(account._id, account);
+        }
+      }
+      if (result.size() == accountIds.size() || accounts.size() < PAGE_SIZE) {
+        return CompletableFuture.completedFuture(result);
+      }
+      return getAccounts(accountIds, offset + accounts.size(), result);
+    });
+  }
+
+  private void checkWaiters(List<Waiter> waiters, MetatraderAccountDto account) {
+    for (Waiter waiter : waiters) {
+      if (account != null) {
+        waiter.account.update(account);
+      }
+      if (waiter.condition.test(account)) {
+        if (removeWaiter(waiter)) {
+          waiter.timeout.cancel(false);
+          waiter.future.complete(null);
+        }
+      } else if (account == null && removeWaiter(waiter)) {
+        waiter.timeout.cancel(false);
+        waiter.future.completeExceptionally(new NotFoundException("Account " + waiter.account.getId()
+          + " not found"));
+      }
+    }
+  }
+
+  private void failWaiters(List<Waiter> waiters, Throwable err) {
+    for (Waiter waiter : waiters) {
+      if (removeWaiter(waiter)) {
+        waiter.timeout.cancel(false);
+        waiter.future.completeExceptionally(err);
+      }
+    }
+  }
+
+  private synchronized boolean removeWaiter(Waiter waiter) {
+    List<Waiter> waiters = waitersByAccounts.get(waiter.account.getId());
+    if (waiters == null || !waiters.remove(waiter)) {
+      return false;
+    }
+    if (waiters.isEmpty()) {
+      waitersByAccounts.remove(waiter.account.getId());
+    }
+    return true;
+  }
+}
@@ -12,26 +12,28 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Timer;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
 import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.SynchronousSynchronizationListener;
 import cloud.metaapi.sdk.clients.meta_api.models.ConnectionHealthStatus;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSession;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSessions;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolSpecification;
 import cloud.metaapi.sdk.meta_api.reservoir.Reservoir;
-import cloud.metaapi.sdk.util.Js;
 import cloud.metaapi.sdk.util.ServiceProvider;
 
 /**
  * Tracks connection health status
  */
-public class ConnectionHealthMonitor extends SynchronizationListener {
+public class ConnectionHealthMonitor extends SynchronizationListener
+  implements SynchronousSynchronizationListener {
 
   protected static int minMeasureInterval = 1000;
   protected static int minQuoteInterval = 60000;
@@ -41,7 +43,8 @@ public class ConnectionHealthMonitor extends SynchronizationListener {
   private Date priceUpdatedAt;
   private long offset;
   private boolean quotesHealthy = false;
-  private Timer updateMeasurementsInterval;
+  private SdkScheduler scheduler;
+  private ScheduledFuture<?> updateMeasurementsInterval;
   private Map<String, HealthStatus> serverHealthStatus = new ConcurrentHashMap<>();
   
   /**
@@ -49,9 +52,19 @@ public class ConnectionHealthMonitor extends SynchronizationListener {
    * @param connection MetaApi connection instance
    */
   public ConnectionHealthMonitor(MetaApiConnection connection) {
+    this(connection, SdkScheduler.getDefault());
+  }
+  
+  /**
+   * Constructs the listener
+   * @param connection MetaApi connection instance
+   * @param scheduler scheduler to run measurements on
+   */
+  public ConnectionHealthMonitor(MetaApiConnection connection, SdkScheduler scheduler) {
     super();
     this.connection = connection;
-    this.updateMeasurementsInterval = Js.setTimeout(() -> updateMeasurements(), getRandomTimeout());
+    this.scheduler = scheduler;
+    this.updateMeasurementsInterval = scheduler.schedule(() -> updateMeasurements(), getRandomTimeout());
     this.uptimeReservoirs = new ConcurrentHashMap<>();
     this.uptimeReservoirs.put("5m", new Reservoir(300, 5 * 60 * 1000));
     this.uptimeReservoirs.put("1h", new Reservoir(600, 60 * 60 * 1000));
@@ -59,21 +72,43 @@ public class ConnectionHealthMonitor extends SynchronizationListener {
     this.uptimeReservoirs.put("1w", new Reservoir(24 * 7, 7 * 24 * 60 * 60 * 1000));
   }
   
-  private void updateMeasurements() {
+  private synchronized void updateMeasurements() {
+    if (updateMeasurementsInterval == null) {
+      return;
+    }
     updateQuoteHealthStatus();
     measureUptime();
-    updateMeasurementsInterval = Js.setTimeout(() -> updateMeasurements(), getRandomTimeout());
+    updateMeasurementsInterval = scheduler.schedule(() -> updateMeasurements(), getRandomTimeout());
   }
   
   /**
    * Stops health monitor
    */
-  public void stop() {
-    updateMeasurementsInterval.cancel();
+  public synchronized void stop() {
+    if (updateMeasurementsInterval != null) {
+      updateMeasurementsInterval.cancel(false);
+      updateMeasurementsInterval = null;
+    }
+  }
+  
+  /**
+   * Returns whether prices are processed by synchronous callbacks. Subclasses receive prices through the
+   * asynchronous callbacks unless they override this method
+   * @return whether synchronous price stream callbacks are enabled
+   */
+  @Override
+  public boolean isSynchronousPriceStreamEnabled() {
+    return getClass() == ConnectionHealthMonitor.class;
   }
   
   @Override
   public CompletableFuture<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+    onSymbolPriceUpdatedSync(instanceIndex, price);
+    return CompletableFuture.completedFuture(null);
+  }
+  
+  @Override
+  public void onSymbolPriceUpdatedSync(String instanceIndex, MetatraderSymbolPrice price) {
     try {
       SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
       long brokerTimestamp = formatter.parse(price.brokerTime).getTime();
@@ -84,7 +119,6 @@ public class ConnectionHealthMonitor extends SynchronizationListener {
         + connection.getAccount().getId(), e);
       e.printStackTrace();
     }
-    return CompletableFuture.completedFuture(null);
   }
   
   @Override
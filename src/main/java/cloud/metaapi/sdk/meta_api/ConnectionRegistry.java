@@ -1,10 +1,21 @@
 package cloud.metaapi.sdk.meta_api;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import cloud.metaapi.sdk.clients.meta_api.MetaApiWebsocketClient;
+import cloud.metaapi.sdk.clients.meta_api.models.SynchronizationOptions;
 import cloud.metaapi.sdk.clients.models.IsoTime;
 import cloud.metaapi.sdk.util.Async;
 import cloud.metaapi.sdk.util.ServiceProvider;
@@ -16,9 +27,182 @@ public class ConnectionRegistry {
   
   private MetaApiWebsocketClient metaApiWebsocketClient;
   private Map<String, MetaApiConnection> connections;
-  private Map<String, CompletableFuture<Void>> connectionLocks;
+  private Map<String, CompletableFuture<MetaApiConnection>> connectionLocks;
   private String application;
   
+  /**
+   * Options for connecting many accounts at once
+   */
+  public static class ConnectAllOptions {
+    /**
+     * Maximum amount of history storages loaded from disk at the same time. By default is 8
+     */
+    public int historyLoadConcurrency = 8;
+    /**
+     * Function which returns history storage for an account, or {@code null} to use default storages
+     */
+    public Function<MetatraderAccount, HistoryStorage> historyStorageProvider = null;
+    /**
+     * Whether to wait for each connection to synchronize. By default is {@code false}
+     */
+    public boolean waitSynchronized = false;
+    /**
+     * Synchronization options used when waiting for synchronization, or {@code null}
+     */
+    public SynchronizationOptions synchronizationOptions = null;
+  }
+  
+  /**
+   * Aggregate metrics of connecting many accounts at once
+   */
+  public static class ConnectAllMetrics {
+    /**
+     * Total amount of accounts
+     */
+    public int totalAccounts;
+    /**
+     * Amount of accounts with loaded history storage
+     */
+    public int initializedAccounts;
+    /**
+     * Amount of accounts for which subscription was initiated
+     */
+    public int subscribedAccounts;
+    /**
+     * Amount of synchronized accounts, if waiting for synchronization is enabled
+     */
+    public int synchronizedAccounts;
+    /**
+     * Amount of accounts which failed to connect
+     */
+    public int failedAccounts;
+    /**
+     * Time since the start of the operation in milliseconds
+     */
+    public double elapsedTimeInMilliseconds;
+    /**
+     * Average time of history storage loading in milliseconds
+     */
+    public double averageInitializationTimeInMilliseconds;
+    /**
+     * Average time from the start of the operation until an account is synchronized in milliseconds
+     */
+    public double averageSynchronizationTimeInMilliseconds;
+  }
+  
+  /**
+   * Progress of connecting many accounts at once
+   */
+  public static class ConnectAllProgress {
+    private Map<String, CompletableFuture<MetaApiConnection>> connections = new LinkedHashMap<>();
+    private CompletableFuture<Void> completion = new CompletableFuture<>();
+    private long startedAt = System.nanoTime();
+    private AtomicInteger pendingAccounts = new AtomicInteger();
+    private AtomicInteger initializedAccounts = new AtomicInteger();
+    private AtomicInteger subscribedAccounts = new AtomicInteger();
+    private AtomicInteger synchronizedAccounts = new AtomicInteger();
+    private AtomicInteger failedAccounts = new AtomicInteger();
+    private AtomicLong totalInitializationTime = new AtomicLong();
+    private AtomicLong totalSynchronizationTime = new AtomicLong();
+    
+    /**
+     * Returns connection futures by account ids. A future completes when the account is connected, or when it
+     * is synchronized if waiting for synchronization is enabled
+     * @return connection futures by account ids
+     */
+    public Map<String, CompletableFuture<MetaApiConnection>> getConnections() {
+      return Collections.unmodifiableMap(connections);
+    }
+    
+    /**
+     * Returns future which completes when all accounts are either connected or failed to connect
+     * @return completable future
+     */
+    public CompletableFuture<Void> getCompletion() {
+      return completion;
+    }
+    
+    /**
+     * Returns aggregate metrics
+     * @return aggregate metrics
+     */
+    public ConnectAllMetrics getMetrics() {
+      ConnectAllMetrics metrics = new ConnectAllMetrics();
+      metrics.totalAccounts = connections.size();
+      metrics.initializedAccounts = initializedAccounts.get();
+      metrics.subscribedAccounts = subscribedAccounts.get();
+      metrics.synchronizedAccounts = synchronizedAccounts.get();
+      metrics.failedAccounts = failedAccounts.get();
+      metrics.elapsedTimeInMilliseconds = (System.nanoTime() - startedAt) / 1000000.0;
+      metrics.averageInitializationTimeInMilliseconds = metrics.initializedAccounts != 0
+        ? totalInitializationTime.get() / 1000000.0 / metrics.initializedAccounts : 0;
+      metrics.averageSynchronizationTimeInMilliseconds = metrics.synchronizedAccounts != 0
+        ? totalSynchronizationTime.get() / 1000000.0 / metrics.synchronizedAccounts : 0;
+      return metrics;
+    }
+    
+    private void onAccountCompleted(Throwable err) {
+      if (err != null) {
+        failedAccounts.incrementAndGet();
+      }
+      if (pendingAccounts.decrementAndGet() == 0) {
+        completion.complete(null);
+      }
+    }
+  }
+  
+  private static class ConcurrencyLimiter {
+    private int limit;
+    private int running = 0;
+    private Queue<Runnable> pendingTasks = new ArrayDeque<>();
+    
+    private ConcurrencyLimiter(int limit) {
+      this.limit = Math.max(limit, 1);
+    }
+    
+    private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+      CompletableFuture<T> result = new CompletableFuture<>();
+      Runnable runnable = () -> {
+        CompletableFuture<T> future;
+        try {
+          future = task.get();
+        } catch (Throwable err) {
+          future = new CompletableFuture<>();
+          future.completeExceptionally(err);
+        }
+        future.whenComplete((value, err) -> {
+          release();
+          if (err != null) {
+            result.completeExceptionally(err);
+          } else {
+            result.complete(value);
+          }
+        });
+      };
+      synchronized (this) {
+        if (running >= limit) {
+          pendingTasks.add(runnable);
+          return result;
+        }
+        running++;
+      }
+      runnable.run();
+      return result;
+    }
+    
+    private void release() {
+      Runnable next;
+      synchronized (this) {
+        next = pendingTasks.poll();
+        if (next == null) {
+          running--;
+          return;
+        }
+      }
+      Async.run(next);
+    }
+  }
+  
   /**
    * Constructs a MetaTrader connection registry instance with default parameters
    * @param metaApiWebsocketClient MetaApi websocket client
@@ -58,31 +242,93 @@ public class ConnectionRegistry {
    */
   public CompletableFuture<MetaApiConnection> connect(MetatraderAccount account, HistoryStorage historyStorage,
     IsoTime historyStartTime) {
-    if (connections.containsKey(account.getId())) {
-      return CompletableFuture.completedFuture(connections.get(account.getId()));
-    } else {
-      return Async.supply(() -> {
-        while (connectionLocks.containsKey(account.getId())) {
-          connectionLocks.get(account.getId()).join();
-        }
-        if (connections.containsKey(account.getId())) {
-          return connections.get(account.getId());
+    return connect(account, historyStorage, historyStartTime, null, null);
+  }
+  
+  /**
+   * Connects many accounts at once. History storages are loaded in parallel with bounded concurrency and
+   * each account is subscribed as soon as its history storage is loaded, so that subscribe requests of
+   * different accounts are sent without waiting for each other
+   * @param accounts MetaTrader accounts to connect to
+   * @param options connect options, or {@code null}
+   * @return progress of the operation
+   */
+  public ConnectAllProgress connectAll(List<MetatraderAccount> accounts, ConnectAllOptions options) {
+    ConnectAllOptions opts = options != null ? options : new ConnectAllOptions();
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(opts.historyLoadConcurrency);
+    ConnectAllProgress progress = new ConnectAllProgress();
+    Map<String, MetatraderAccount> accountsById = new LinkedHashMap<>();
+    accounts.forEach(account -> accountsById.putIfAbsent(account.getId(), account));
+    progress.pendingAccounts.set(accountsById.size() + 1);
+    for (MetatraderAccount account : accountsById.values()) {
+      HistoryStorage historyStorage = opts.historyStorageProvider != null
+        ? opts.historyStorageProvider.apply(account) : null;
+      CompletableFuture<MetaApiConnection> result = connect(account, historyStorage, null, limiter, progress)
+        .thenCompose(connection -> {
+          if (!opts.waitSynchronized) {
+            return CompletableFuture.completedFuture(connection);
+          }
+          return connection.waitSynchronized(opts.synchronizationOptions).thenApply(ignored -> {
+            progress.totalSynchronizationTime.addAndGet(System.nanoTime() - progress.startedAt);
+            progress.synchronizedAccounts.incrementAndGet();
+            return connection;
+          });
+        });
+      progress.connections.put(account.getId(), result);
+      result.whenComplete((connection, err) -> progress.onAccountCompleted(err));
+    }
+    progress.onAccountCompleted(null);
+    return progress;
+  }
+  
+  private CompletableFuture<MetaApiConnection> connect(MetatraderAccount account, HistoryStorage historyStorage,
+    IsoTime historyStartTime, ConcurrencyLimiter limiter, ConnectAllProgress progress) {
+    String accountId = account.getId();
+    MetaApiConnection existingConnection = connections.get(accountId);
+    if (existingConnection != null) {
+      return CompletableFuture.completedFuture(existingConnection);
+    }
+    CompletableFuture<MetaApiConnection> result = new CompletableFuture<>();
+    CompletableFuture<MetaApiConnection> connectionLock = connectionLocks.putIfAbsent(accountId, result);
+    if (connectionLock != null) {
+      return connectionLock;
+    }
+    existingConnection = connections.get(accountId);
+    if (existingConnection != null) {
+      connectionLocks.remove(accountId, result);
+      result.complete(existingConnection);
+      return result;
+    }
+    try {
+      MetaApiConnection connection = ServiceProvider.createMetaApiConnection(
+        metaApiWebsocketClient, account, historyStorage, this, historyStartTime);
+      CompletableFuture<Void> initialization = limiter != null ? limiter.submit(() -> {
+        long initializationStartedAt = System.nanoTime();
+        return connection.initialize().thenRun(() -> {
+          progress.totalInitializationTime.addAndGet(System.nanoTime() - initializationStartedAt);
+          progress.initializedAccounts.incrementAndGet();
+        });
+      }) : connection.initialize();
+      initialization.thenCompose(ignored -> connection.subscribe()).whenComplete((ignored, err) -> {
+        if (err == null) {
+          connections.put(accountId, connection);
         }
-        CompletableFuture<Void> connectionLockResolve = new CompletableFuture<>();
-        connectionLocks.put(account.getId(), connectionLockResolve);
-        MetaApiConnection connection = ServiceProvider.createMetaApiConnection(
-          metaApiWebsocketClient, account, historyStorage, this, historyStartTime);
-        try {
-          connection.initialize().join();
-          connection.subscribe().join();
-          connections.put(account.getId(), connection);
-        } finally {
-          connectionLocks.remove(account.getId());
-          connectionLockResolve.complete(null);
+        connectionLocks.remove(accountId, result);
+        if (err != null) {
+          result.completeExceptionally(err instanceof CompletionException && err.getCause() != null
+            ? err.getCause() : err);
+        } else {
+          if (progress != null) {
+            progress.subscribedAccounts.incrementAndGet();
+          }
+          result.complete(connection);
         }
-        return connection;
       });
+    } catch (Throwable err) {
+      connectionLocks.remove(accountId, result);
+      result.completeExceptionally(err);
     }
+    return result;
   }
   
   /**
@@ -100,4 +346,4 @@ public class ConnectionRegistry {
   public String getApplication() {
     return application;
   }
-}
\ No newline at end of file
+}
@@ -12,10 +12,9 @@ import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,6 +27,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
 import cloud.metaapi.sdk.util.Async;
@@ -48,7 +48,7 @@ public class HistoryFileManager {
   private int startNewDealIndex = -1;
   private List<Integer> historyOrdersSize = new ArrayList<>();
   private int startNewOrderIndex = -1;
-  private Timer updateDiskStorageJob = null;
+  private ScheduledFuture<?> updateDiskStorageJob = null;
   private boolean isUpdating = false;
   
   /**
@@ -94,17 +94,20 @@ public class HistoryFileManager {
    * Starts a job to periodically save history on disk
    */
   public void startUpdateJob() {
+    startUpdateJob(SdkScheduler.getDefault());
+  }
+  
+  /**
+   * Starts a job to periodically save history on disk
+   * @param scheduler scheduler to run the job on
+   */
+  public synchronized void startUpdateJob(SdkScheduler scheduler) {
     if (updateDiskStorageJob == null) {
-      final HistoryFileManager self = this;
-      updateDiskStorageJob = new Timer();
-      updateDiskStorageJob.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          self.updateDiskStorage().exceptionally(e -> {
-            logger.error("Failed update disk storage of account " + accountId, e);
-            return null;
-          });
-        }
+      updateDiskStorageJob = scheduler.scheduleWithFixedDelay(() -> {
+        updateDiskStorage().exceptionally(e -> {
+          logger.error("Failed update disk storage of account " + accountId, e);
+          return null;
+        });
       }, updateJobIntervalInMilliseconds, updateJobIntervalInMilliseconds);
     }
   }
@@ -112,9 +115,9 @@ public class HistoryFileManager {
   /**
    * Stops a job to periodically save history on disk
    */
-  public void stopUpdateJob() {
+  public synchronized void stopUpdateJob() {
     if (updateDiskStorageJob != null) {
-      updateDiskStorageJob.cancel();
+      updateDiskStorageJob.cancel(false);
       updateDiskStorageJob = null;
     }
   }
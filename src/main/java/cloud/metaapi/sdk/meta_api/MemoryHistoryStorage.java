@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderDeal;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
 import cloud.metaapi.sdk.clients.models.IsoTime;
@@ -41,11 +42,21 @@ public class MemoryHistoryStorage extends HistoryStorage {
    * @param application id, or {@code null}. By default is {@code MetaApi}
    */
   public MemoryHistoryStorage(String accountId, String application) {
+    this(accountId, application, SdkScheduler.getDefault());
+  }
+  
+  /**
+   * Constructs the in-memory history store instance
+   * @param accountId account id
+   * @param application id, or {@code null}. By default is {@code MetaApi}
+   * @param scheduler scheduler to run the disk storage update job on
+   */
+  public MemoryHistoryStorage(String accountId, String application, SdkScheduler scheduler) {
     super();
     this.accountId = accountId;
     if (application == null) application = "MetaApi";
     fileManager = ServiceProvider.createHistoryFileManager(this.accountId, application, this);
-    fileManager.startUpdateJob();
+    fileManager.startUpdateJob(scheduler);
   }
   
   @Override
@@ -16,6 +16,10 @@ import cloud.metaapi.sdk.clients.meta_api.MetaApiWebsocketClient.EventProcessing
 import cloud.metaapi.sdk.clients.meta_api.MetatraderAccountClient;
 import cloud.metaapi.sdk.clients.meta_api.MetatraderDemoAccountClient;
 import cloud.metaapi.sdk.clients.meta_api.ProvisioningProfileClient;
+import cloud.metaapi.sdk.clients.meta_api.RequestRateLimiter;
+import cloud.metaapi.sdk.clients.meta_api.ResubscriptionScheduler;
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
+import cloud.metaapi.sdk.clients.meta_api.SocketInstancePlacement;
 import cloud.metaapi.sdk.clients.meta_api.SynchronizationThrottler;
 import cloud.metaapi.sdk.util.Async;
 
@@ -31,6 +35,7 @@ public class MetaApi {
   private ConnectionRegistry connectionRegistry;
   private MetatraderDemoAccountApi metatraderDemoAccountApi;
   private LatencyMonitor latencyMonitor;
+  private SdkScheduler scheduler;
   
   /**
    * MetaApi options
@@ -96,6 +101,23 @@ public class MetaApi {
      * Option to use a shared server
      */
     public boolean useSharedClientApi = false;
+    /**
+     * Options of the scheduler which runs timeouts and periodic jobs of all accounts
+     */
+    public SdkScheduler.Options scheduler = new SdkScheduler.Options();
+    /**
+     * Options for limiting the rate of resubscriptions after reconnects
+     */
+    public ResubscriptionScheduler.Options resubscription = new ResubscriptionScheduler.Options();
+    /**
+     * Strategy which selects socket instances for new accounts. By default is
+     * {@link SocketInstancePlacement#FIRST_FIT}
+     */
+    public SocketInstancePlacement.Strategy placementStrategy = SocketInstancePlacement.FIRST_FIT;
+    /**
+     * Options for limiting the rate of requests on client side after too many requests errors
+     */
+    public RequestRateLimiter.Options requestRateLimiter = new RequestRateLimiter.Options();
   }
   
   /**
@@ -138,6 +160,14 @@ public class MetaApi {
     return metatraderAccountApi;
   }
   
+  /**
+   * Returns registry of account connections, which can connect many accounts at once
+   * @return connection registry
+   */
+  public ConnectionRegistry getConnectionRegistry() {
+    return connectionRegistry;
+  }
+  
   /**
    * Returns MetaTrader demo account API
    * @return MetaTrader demo account API
@@ -154,12 +184,21 @@ public class MetaApi {
     return latencyMonitor;
   }
   
+  /**
+   * Returns metrics of the scheduler which runs timeouts and periodic jobs
+   * @return scheduler metrics
+   */
+  public SdkScheduler.SchedulerMetrics getSchedulerMetrics() {
+    return scheduler.getMetrics();
+  }
+  
   /**
    * Closes all clients and connections
    */
   public void close() {
     metaApiWebsocketClient.removeLatencyListener(latencyMonitor);
     metaApiWebsocketClient.close();
+    scheduler.stop();
     Async.shutdownExecutor();
   }
   
@@ -177,6 +216,7 @@ public class MetaApi {
     validator.validateNonZeroInt(opts.connectTimeout, "connectTimeout");
     validator.validateNonZeroInt(opts.packetOrderingTimeout, "packetOrderingTimeout");
     validator.validateNonZeroInt(opts.demoAccountRequestTimeout, "demoAccountRequestTimeout");
+    validator.validateNonZeroInt(opts.scheduler.threadCount, "scheduler.threadCount");
     
     HttpClient httpClient = new HttpClient(opts.requestTimeout * 1000, opts.connectTimeout * 1000, opts.retryOpts);
     HttpClient historicalMarketDataHttpClient = new HttpClient(opts.historicalMarketDataRequestTimeout * 1000,
@@ -195,14 +235,18 @@ public class MetaApi {
     websocketOptions.eventProcessing = opts.eventProcessing;
     websocketOptions.useSharedClientApi = opts.useSharedClientApi;
     websocketOptions.region = opts.region;
-    metaApiWebsocketClient = new MetaApiWebsocketClient(httpClient, token, websocketOptions);
+    websocketOptions.resubscription = opts.resubscription;
+    websocketOptions.placementStrategy = opts.placementStrategy;
+    websocketOptions.requestRateLimiter = opts.requestRateLimiter;
+    scheduler = new SdkScheduler(opts.scheduler);
+    metaApiWebsocketClient = new MetaApiWebsocketClient(httpClient, token, websocketOptions, scheduler);
     provisioningProfileApi = new ProvisioningProfileApi(new ProvisioningProfileClient(httpClient, token, opts.domain));
     connectionRegistry = new ConnectionRegistry(metaApiWebsocketClient, opts.application);
     HistoricalMarketDataClient historicalMarketDataClient = new HistoricalMarketDataClient(
       historicalMarketDataHttpClient, token, opts.region, opts.domain);
     metatraderAccountApi = new MetatraderAccountApi(new MetatraderAccountClient(httpClient, token, opts.domain),
       metaApiWebsocketClient, connectionRegistry, new ExpertAdvisorClient(httpClient, token, opts.domain),
-        historicalMarketDataClient);
+        historicalMarketDataClient, scheduler);
     metatraderDemoAccountApi = new MetatraderDemoAccountApi(
       new MetatraderDemoAccountClient(demoAccountHttpClient, token, opts.domain));
     if (opts.enableLatencyMonitor) {
@@ -11,6 +11,9 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -18,9 +21,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import cloud.metaapi.sdk.clients.TimeoutException;
+import cloud.metaapi.sdk.clients.meta_api.ConflatingSynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.ConflatingSynchronizationListener.ConflationStatistics;
+import cloud.metaapi.sdk.clients.meta_api.MarketDataPublisher;
 import cloud.metaapi.sdk.clients.meta_api.MetaApiWebsocketClient;
 import cloud.metaapi.sdk.clients.meta_api.ReconnectListener;
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
 import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.SynchronousSynchronizationListener;
 import cloud.metaapi.sdk.clients.meta_api.TradeException;
 import cloud.metaapi.sdk.clients.meta_api.models.MarketDataSubscription;
 import cloud.metaapi.sdk.clients.meta_api.models.MarketDataUnsubscription;
@@ -58,9 +66,12 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
   private TerminalState terminalState;
   private HistoryStorage historyStorage;
   private ConnectionHealthMonitor healthMonitor;
+  private SdkScheduler scheduler;
   private Map<String, Subscriptions> subscriptions = new ConcurrentHashMap<>();
   private Map<String, State> stateByInstanceIndex = new ConcurrentHashMap<>();
+  private List<SynchronizationWaiter> synchronizationWaiters = new CopyOnWriteArrayList<>();
   private List<SynchronizationListener> synchronizationListeners = new ArrayList<>(); 
+  private MarketDataStreamListener marketDataStreamListener;
   private boolean closed = false;
 
   private static class State {
@@ -75,10 +86,73 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
     public boolean disconnected = false;
   }
   
+  private static class SynchronizationWaiter {
+    public String instanceIndex;
+    public String synchronizationId;
+    public CompletableFuture<Boolean> future = new CompletableFuture<>();
+    public ScheduledFuture<?> timeout;
+  }
+  
   private static class Subscriptions {
     List<MarketDataSubscription> subscriptions;
   }
   
+  private static class MarketDataStreamListener extends SynchronizationListener
+    implements SynchronousSynchronizationListener {
+    public MarketDataPublisher<MetatraderSymbolPrice> prices;
+    public MarketDataPublisher<MetatraderCandle> candles;
+    public MarketDataPublisher<MetatraderTick> ticks;
+    public MarketDataPublisher<MetatraderBook> books;
+    
+    public MarketDataStreamListener(Executor executor) {
+      prices = new MarketDataPublisher<>(price -> price.symbol, executor);
+      candles = new MarketDataPublisher<>(candle -> candle.symbol + ":" + candle.timeframe, executor);
+      ticks = new MarketDataPublisher<>(tick -> tick.symbol, executor);
+      books = new MarketDataPublisher<>(book -> book.symbol, executor);
+    }
+    
+    @Override
+    public boolean isSynchronousPriceStreamEnabled() {
+      return true;
+    }
+    
+    @Override
+    public void onSymbolPriceUpdatedSync(String instanceIndex, MetatraderSymbolPrice price) {
+      prices.publish(price);
+    }
+    
+    @Override
+    public void onCandlesUpdatedSync(String instanceIndex, List<MetatraderCandle> candles, Double equity,
+      Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+      for (MetatraderCandle candle : candles) {
+        this.candles.publish(candle);
+      }
+    }
+    
+    @Override
+    public void onTicksUpdatedSync(String instanceIndex, List<MetatraderTick> ticks, Double equity,
+      Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+      for (MetatraderTick tick : ticks) {
+        this.ticks.publish(tick);
+      }
+    }
+    
+    @Override
+    public void onBooksUpdatedSync(String instanceIndex, List<MetatraderBook> books, Double equity,
+      Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+      for (MetatraderBook book : books) {
+        this.books.publish(book);
+      }
+    }
+    
+    public void complete() {
+      prices.complete();
+      candles.complete();
+      ticks.complete();
+      books.complete();
+    }
+  }
+  
   /**
    * Constructs MetaApi MetaTrader Api connection
    * @param websocketClient MetaApi websocket client
@@ -116,10 +190,11 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
     this.account = account;
     this.connectionRegistry = connectionRegistry;
     this.historyStartTime = historyStartTime;
-    this.terminalState = new TerminalState();
-    this.historyStorage = historyStorage != null 
-      ? historyStorage : new MemoryHistoryStorage(account.getId(), connectionRegistry.getApplication());
-    this.healthMonitor = new ConnectionHealthMonitor(this);
+    this.scheduler = Js.or(websocketClient.getScheduler(), SdkScheduler.getDefault());
+    this.terminalState = new TerminalState(websocketClient.isCompactPriceStorageEnabled());
+    this.historyStorage = historyStorage != null ? historyStorage
+      : new MemoryHistoryStorage(account.getId(), connectionRegistry.getApplication(), scheduler);
+    this.healthMonitor = new ConnectionHealthMonitor(this, scheduler);
     websocketClient.addSynchronizationListener(account.getId(), this);
     websocketClient.addSynchronizationListener(account.getId(), this.terminalState);
     websocketClient.addSynchronizationListener(account.getId(), this.historyStorage);
@@ -837,6 +912,7 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
    */
   public CompletableFuture<Void> subscribe() {
     if (!closed) {
+      websocketClient.setPlacementGroup(account.getId(), account.getServer());
       websocketClient.ensureSubscribe(account.getId(), null);
     }
     return CompletableFuture.completedFuture(null);
@@ -1086,8 +1162,22 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
    * @param listener synchronization listener to add
    */
   public void addSynchronizationListener(SynchronizationListener listener)  {
-    synchronizationListeners.add(listener);
-    websocketClient.addSynchronizationListener(account.getId(), listener);
+    addSynchronizationListener(listener, false);
+  }
+  
+  /**
+   * Adds synchronization listener
+   * @param listener synchronization listener to add
+   * @param conflatePrices whether to conflate price events for the listener. If enabled, events are delivered
+   * to the listener on the listener executor of the websocket client, and a listener which processes prices
+   * slower than they arrive receives only the latest price of each symbol and does not delay other events of
+   * the account. Order, position and deal events are never conflated and are delivered in order
+   */
+  public void addSynchronizationListener(SynchronizationListener listener, boolean conflatePrices) {
+    SynchronizationListener accountListener = conflatePrices
+      ? new ConflatingSynchronizationListener(listener, websocketClient.getListenerExecutor()) : listener;
+    synchronizationListeners.add(accountListener);
+    websocketClient.addSynchronizationListener(account.getId(), accountListener);
   }
   
   /**
@@ -1097,6 +1187,76 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
   public void removeSynchronizationListener(SynchronizationListener listener) {
     synchronizationListeners.remove(listener);
     websocketClient.removeSynchronizationListener(account.getId(), listener);
+    for (SynchronizationListener accountListener : new ArrayList<>(synchronizationListeners)) {
+      if (accountListener instanceof ConflatingSynchronizationListener
+        && ((ConflatingSynchronizationListener) accountListener).getListener() == listener) {
+        synchronizationListeners.remove(accountListener);
+        websocketClient.removeSynchronizationListener(account.getId(), accountListener);
+      }
+    }
+  }
+  
+  /**
+   * Returns publisher of symbol prices of the account. The publisher delivers prices of the symbols subscribed
+   * to with {@link #subscribeToMarketData} on the listener executor of the websocket client, with
+   * demand-based backpressure
+   * @return symbol price publisher
+   */
+  public MarketDataPublisher<MetatraderSymbolPrice> getPricePublisher() {
+    return getMarketDataStreamListener().prices;
+  }
+  
+  /**
+   * Returns publisher of candles of the account. The publisher delivers candles of the symbols subscribed
+   * to with {@link #subscribeToMarketData} on the listener executor of the websocket client, with
+   * demand-based backpressure. Candles are conflated by symbol and timeframe
+   * @return candle publisher
+   */
+  public MarketDataPublisher<MetatraderCandle> getCandlePublisher() {
+    return getMarketDataStreamListener().candles;
+  }
+  
+  /**
+   * Returns publisher of ticks of the account. The publisher delivers ticks of the symbols subscribed
+   * to with {@link #subscribeToMarketData} on the listener executor of the websocket client, with
+   * demand-based backpressure
+   * @return tick publisher
+   */
+  public MarketDataPublisher<MetatraderTick> getTickPublisher() {
+    return getMarketDataStreamListener().ticks;
+  }
+  
+  /**
+   * Returns publisher of order books of the account. The publisher delivers order books of the symbols
+   * subscribed to with {@link #subscribeToMarketData} on the listener executor of the websocket client,
+   * with demand-based backpressure
+   * @return order book publisher
+   */
+  public MarketDataPublisher<MetatraderBook> getBookPublisher() {
+    return getMarketDataStreamListener().books;
+  }
+  
+  private synchronized MarketDataStreamListener getMarketDataStreamListener() {
+    if (marketDataStreamListener == null) {
+      marketDataStreamListener = new MarketDataStreamListener(websocketClient.getListenerExecutor());
+      websocketClient.addSynchronizationListener(account.getId(), marketDataStreamListener);
+    }
+    return marketDataStreamListener;
+  }
+  
+  /**
+   * Returns price conflation statistics of a listener added with price conflation enabled
+   * @param listener synchronization listener
+   * @return price conflation statistics, or {@code null} if prices are not conflated for the listener
+   */
+  public ConflationStatistics getConflationStatistics(SynchronizationListener listener) {
+    for (SynchronizationListener accountListener : synchronizationListeners) {
+      if (accountListener instanceof ConflatingSynchronizationListener
+        && ((ConflatingSynchronizationListener) accountListener).getListener() == listener) {
+        return ((ConflatingSynchronizationListener) accountListener).getStatistics();
+      }
+    }
+    return null;
   }
   
   @Override
@@ -1135,6 +1295,7 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
     String synchronizationId) {
     State state = getState(instanceIndex);
     state.dealsSynchronized.add(synchronizationId);
+    checkSynchronizationWaiters();
     return CompletableFuture.completedFuture(null);
   }
   
@@ -1143,6 +1304,7 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
     String synchronizationId) {
     State state = getState(instanceIndex);
     state.ordersSynchronized.add(synchronizationId);
+    checkSynchronizationWaiters();
     return CompletableFuture.completedFuture(null);
   }
   
@@ -1214,54 +1376,61 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
    * @return completable future which resolves when synchronization to MetaTrader terminal is completed
    */
   public CompletableFuture<Void> waitSynchronized(SynchronizationOptions options) {
-    if (options == null) options = new SynchronizationOptions();
-    SynchronizationOptions opts = options;
-    return Async.run(() -> {
+    SynchronizationOptions opts = options != null ? options : new SynchronizationOptions();
+    int timeoutInSeconds = (opts.timeoutInSeconds != null ? opts.timeoutInSeconds : 300);
+    String applicationPattern = (opts.applicationPattern != null ? opts.applicationPattern :
+      (account.getApplication().equals("CopyFactory") ? "CopyFactory.*|RPC" : "RPC"));
+    SynchronizationWaiter waiter = new SynchronizationWaiter();
+    waiter.instanceIndex = opts.instanceIndex;
+    waiter.synchronizationId = opts.synchronizationId;
+    synchronizationWaiters.add(waiter);
+    waiter.timeout = scheduler.schedule(() -> {
+      if (synchronizationWaiters.remove(waiter)) {
+        waiter.future.complete(false);
+      }
+    }, timeoutInSeconds * 1000L);
+    checkSynchronizationWaiters();
+    return waiter.future.thenCompose(isSynchronized -> {
       String instanceIndex = opts.instanceIndex;
       String synchronizationId = opts.synchronizationId;
-      int timeoutInSeconds = (opts.timeoutInSeconds != null ? opts.timeoutInSeconds : 300);
-      int intervalInMilliseconds = (opts.intervalInMilliseconds != null ? opts.intervalInMilliseconds : 1000);
-      String applicationPattern = (opts.applicationPattern != null ? opts.applicationPattern :
-        (account.getApplication().equals("CopyFactory") ? "CopyFactory.*|RPC" : "RPC"));
-      long startTime = Instant.now().getEpochSecond();
-      long timeoutTime = startTime + timeoutInSeconds;
-      try {
-        boolean isSynchronized;
-        while (!(isSynchronized = isSynchronized(instanceIndex, synchronizationId).get())
-          && timeoutTime > Instant.now().getEpochSecond()) {
-          Thread.sleep(intervalInMilliseconds);
-        };
-        State state = null;
-        if (instanceIndex == null) {
-          for (State s : stateByInstanceIndex.values()) {
-            if (isSynchronized(s.instanceIndex, synchronizationId).join()) {
-              state = s;
-              instanceIndex = s.instanceIndex;
-            }
+      State state = null;
+      if (instanceIndex == null) {
+        for (State s : stateByInstanceIndex.values()) {
+          if (isSynchronized(s.instanceIndex, synchronizationId).join()) {
+            state = s;
+            instanceIndex = s.instanceIndex;
           }
-        } else {
-          String finalInstanceIndex = instanceIndex;
-          state = stateByInstanceIndex.values().stream()
-            .filter(s -> s.instanceIndex.equals(finalInstanceIndex)).findFirst().orElse(null);
-        }
-        if (!isSynchronized) {
-          throw new TimeoutException("Timed out waiting for account MetApi to synchronize to MetaTrader account " 
-            + account.getId() + ", synchronization id " + (
-              synchronizationId != null ? synchronizationId
-              : (state != null && state.lastSynchronizationId != null ? state.lastSynchronizationId 
-                : (state != null && state.lastDisconnectedSynchronizationId != null
-                  ? state.lastDisconnectedSynchronizationId : null))
-            )
-          );
         }
-        websocketClient.waitSynchronized(account.getId(), getInstanceNumber(instanceIndex), applicationPattern,
-          (long) timeoutInSeconds).get();
-      } catch (Exception e) {
-        throw new CompletionException(e);
+      } else {
+        String finalInstanceIndex = instanceIndex;
+        state = stateByInstanceIndex.values().stream()
+          .filter(s -> s.instanceIndex.equals(finalInstanceIndex)).findFirst().orElse(null);
       }
+      if (!isSynchronized) {
+        throw new CompletionException(new TimeoutException("Timed out waiting for account MetApi to "
+          + "synchronize to MetaTrader account " + account.getId() + ", synchronization id " + (
+            synchronizationId != null ? synchronizationId
+            : (state != null && state.lastSynchronizationId != null ? state.lastSynchronizationId 
+              : (state != null && state.lastDisconnectedSynchronizationId != null
+                ? state.lastDisconnectedSynchronizationId : null))
+          )
+        ));
+      }
+      return websocketClient.waitSynchronized(account.getId(), getInstanceNumber(instanceIndex),
+        applicationPattern, (long) timeoutInSeconds);
     });
   }
   
+  private void checkSynchronizationWaiters() {
+    for (SynchronizationWaiter waiter : synchronizationWaiters) {
+      if (isSynchronized(waiter.instanceIndex, waiter.synchronizationId).join()
+        && synchronizationWaiters.remove(waiter)) {
+        waiter.timeout.cancel(false);
+        waiter.future.complete(true);
+      }
+    }
+  }
+  
   /**
    * Closes the connection. The instance of the class should no longer be used after this method is invoked.
    * @return completable future resolving when connection is closed
@@ -1278,6 +1447,12 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
         for (SynchronizationListener listener : synchronizationListeners) {
           websocketClient.removeSynchronizationListener(account.getId(), listener);
         }
+        synchronized (this) {
+          if (marketDataStreamListener != null) {
+            websocketClient.removeSynchronizationListener(account.getId(), marketDataStreamListener);
+            marketDataStreamListener.complete();
+          }
+        }
         websocketClient.removeReconnectListener(this);
         connectionRegistry.remove(account.getId());
         healthMonitor.stop();
@@ -1342,7 +1517,7 @@ public class MetaApiConnection extends SynchronizationListener implements Reconn
         logger.error("MetaApi websocket client for account " + account.getId() + ":"
           + instanceIndex + " failed to synchronize", e.getCause());
         if (state.shouldSynchronize.equals(key)) {
-          Js.setTimeout(() -> ensureSynchronized(instanceIndex, key),
+          scheduler.schedule(() -> Async.run(() -> ensureSynchronized(instanceIndex, key)),
             1000 * state.synchronizationRetryIntervalInSeconds);
           state.synchronizationRetryIntervalInSeconds = Math.min(
             state.synchronizationRetryIntervalInSeconds * 2, 300);
@@ -1,11 +1,11 @@
 package cloud.metaapi.sdk.meta_api;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import cloud.metaapi.sdk.clients.TimeoutException;
@@ -39,6 +39,7 @@ public class MetatraderAccount {
   private ConnectionRegistry connectionRegistry;
   private HistoricalMarketDataClient historicalMarketDataClient;
   private ExpertAdvisorClient expertAdvisorClient;
+  private AccountStatePoller accountStatePoller;
   
   /**
    * Constructs a MetaTrader account entity
@@ -48,15 +49,19 @@ public class MetatraderAccount {
    * @param connectionRegistry metatrader account connection registry
    * @param expertAdvisorClient expert advisor REST API client
    * @param historicalMarketDataClient historical market data REST API client
+   * @param accountStatePoller poller which waits for account state changes, shared by all accounts of the
+   * MetaApi instance
    */
   public MetatraderAccount(MetatraderAccountDto data, MetatraderAccountClient metatraderAccountClient,
     MetaApiWebsocketClient metaApiWebsocketClient, ConnectionRegistry connectionRegistry,
-    ExpertAdvisorClient expertAdvisorClient, HistoricalMarketDataClient historicalMarketDataClient) {
+    ExpertAdvisorClient expertAdvisorClient, HistoricalMarketDataClient historicalMarketDataClient,
+    AccountStatePoller accountStatePoller) {
     this.data = data;
     this.metatraderAccountClient = metatraderAccountClient;
     this.connectionRegistry = connectionRegistry;
     this.expertAdvisorClient = expertAdvisorClient;
     this.historicalMarketDataClient = historicalMarketDataClient;
+    this.accountStatePoller = accountStatePoller;
   }
   
   /**
@@ -233,6 +238,10 @@ public class MetatraderAccount {
     return metatraderAccountClient.getAccount(getId()).thenAccept(account -> data = account);
   }
   
+  void update(MetatraderAccountDto data) {
+    this.data = data;
+  }
+  
   /**
    * Removes MetaTrader account. Cloud account transitions to DELETING state. 
    * It takes some time for an account to be eventually deleted. Self-hosted 
@@ -324,24 +333,8 @@ public class MetatraderAccount {
    * @return completable future which resolves when account is deployed
    */
   public CompletableFuture<Void> waitDeployed(Integer timeoutInSeconds, Integer intervalInMilliseconds) {
-    CompletableFuture<Void> result = new CompletableFuture<>();
-    Async.run(() -> {
-      long startTime = Instant.now().getEpochSecond();
-      long timeoutTime = startTime + (timeoutInSeconds != null ? timeoutInSeconds : 300);
-      try {
-        reload().get();
-        while (getState() != DeploymentState.DEPLOYED && timeoutTime > Instant.now().getEpochSecond()) {
-          Thread.sleep(intervalInMilliseconds != null ? intervalInMilliseconds : 1000);
-          reload().get();
-        };
-        if (getState() != DeploymentState.DEPLOYED) 
-          throw new TimeoutException("Timed out waiting for account " + getId() + " to be deployed");
-        result.complete(null);
-      } catch (Exception e) {
-        result.completeExceptionally(e);
-      }
-    });
-    return result;
+    return waitFor(account -> account != null && account.state == DeploymentState.DEPLOYED,
+      timeoutInSeconds, intervalInMilliseconds, "Timed out waiting for account " + getId() + " to be deployed");
   }
   
   /**
@@ -353,24 +346,8 @@ public class MetatraderAccount {
    * @return completable future which resolves when account is undeployed
    */
   public CompletableFuture<Void> waitUndeployed(Integer timeoutInSeconds, Integer intervalInMilliseconds) {
-    CompletableFuture<Void> result = new CompletableFuture<>();
-    Async.run(() -> {
-      long startTime = Instant.now().getEpochSecond();
-      long timeoutTime = startTime + (timeoutInSeconds != null ? timeoutInSeconds : 300);
-      try {
-        reload().get();
-        while (getState() != DeploymentState.UNDEPLOYED && timeoutTime > Instant.now().getEpochSecond()) {
-          Thread.sleep(intervalInMilliseconds != null ? intervalInMilliseconds : 1000);
-          reload().get();
-        };
-        if (getState() != DeploymentState.UNDEPLOYED) 
-          throw new TimeoutException("Timed out waiting for account " + getId() + " to be undeployed");
-        result.complete(null);
-      } catch (Exception e) {
-        result.completeExceptionally(e);
-      }
-    });
-    return result;
+    return waitFor(account -> account != null && account.state == DeploymentState.UNDEPLOYED,
+      timeoutInSeconds, intervalInMilliseconds, "Timed out waiting for account " + getId() + " to be undeployed");
   }
   
   /**
@@ -381,23 +358,8 @@ public class MetatraderAccount {
    * @return completable future which resolves when account is deleted
    */
   public CompletableFuture<Void> waitRemoved(Integer timeoutInSeconds, Integer intervalInMilliseconds) {
-    CompletableFuture<Void> result = new CompletableFuture<>();
-    Async.run(() -> {
-      long startTime = Instant.now().getEpochSecond();
-      long timeoutTime = startTime + (timeoutInSeconds != null ? timeoutInSeconds : 300);
-      try {
-        reload().get();
-        while (timeoutTime > Instant.now().getEpochSecond()) {
-          Thread.sleep(intervalInMilliseconds != null ? intervalInMilliseconds : 1000);
-          reload().get();
-        };
-        throw new TimeoutException("Timed out waiting for account " + getId() + " to be deleted");
-      } catch (Exception e) {
-        if (e.getCause() instanceof NotFoundException) result.complete(null);
-        else result.completeExceptionally(e);
-      }
-    });
-    return result;
+    return waitFor(account -> account == null, timeoutInSeconds, intervalInMilliseconds,
+      "Timed out waiting for account " + getId() + " to be deleted");
   }
   
   /**
@@ -420,26 +382,15 @@ public class MetatraderAccount {
    * @return completable future which resolves when API server is connected to the broker
    */
   public CompletableFuture<Void> waitConnected(Integer timeoutInSeconds, Integer intervalInMilliseconds) {
-    CompletableFuture<Void> result = new CompletableFuture<>();
-    Async.run(() -> {
-      long startTime = Instant.now().getEpochSecond();
-      long timeoutTime = startTime + (timeoutInSeconds != null ? timeoutInSeconds : 300);
-      try {
-        reload().get();
-        while (  getConnectionStatus() != ConnectionStatus.CONNECTED 
-            && timeoutTime > Instant.now().getEpochSecond()
-        ) {
-          Thread.sleep(intervalInMilliseconds != null ? intervalInMilliseconds : 1000);
-          reload().get();
-        };
-        if (getConnectionStatus() != ConnectionStatus.CONNECTED) 
-          throw new TimeoutException("Timed out waiting for account " + getId() + " to connect to the broker");
-        result.complete(null);
-      } catch (Exception e) {
-        result.completeExceptionally(e);
-      }
-    });
-    return result;
+    return waitFor(account -> account != null && account.connectionStatus == ConnectionStatus.CONNECTED,
+      timeoutInSeconds, intervalInMilliseconds, "Timed out waiting for account " + getId()
+      + " to connect to the broker");
+  }
+  
+  private CompletableFuture<Void> waitFor(Predicate<MetatraderAccountDto> condition, Integer timeoutInSeconds,
+    Integer intervalInMilliseconds, String timeoutMessage) {
+    return accountStatePoller.waitFor(this, condition, timeoutInSeconds != null ? timeoutInSeconds : 300,
+      intervalInMilliseconds != null ? intervalInMilliseconds : 1000, timeoutMessage);
   }
   
   /**
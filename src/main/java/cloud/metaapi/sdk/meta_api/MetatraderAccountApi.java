@@ -9,6 +9,7 @@ import cloud.metaapi.sdk.clients.meta_api.HistoricalMarketDataClient;
 import cloud.metaapi.sdk.clients.meta_api.ExpertAdvisorClient;
 import cloud.metaapi.sdk.clients.meta_api.MetaApiWebsocketClient;
 import cloud.metaapi.sdk.clients.meta_api.MetatraderAccountClient;
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
 import cloud.metaapi.sdk.clients.meta_api.models.AccountsFilter;
 import cloud.metaapi.sdk.clients.meta_api.models.NewMetatraderAccountDto;
 
@@ -22,6 +23,7 @@ public class MetatraderAccountApi {
   private ConnectionRegistry connectionRegistry;
   private HistoricalMarketDataClient historicalMarketDataClient;
   private ExpertAdvisorClient expertAdvisorClient;
+  private AccountStatePoller accountStatePoller;
   
   /**
    * Constructs a MetaTrader account API instance
@@ -34,11 +36,29 @@ public class MetatraderAccountApi {
   public MetatraderAccountApi(MetatraderAccountClient metatraderAccountClient,
     MetaApiWebsocketClient metaApiWebsocketClient, ConnectionRegistry connectionRegistry,
     ExpertAdvisorClient expertAdvisorClient, HistoricalMarketDataClient historicalMarketDataClient) {
+    this(metatraderAccountClient, metaApiWebsocketClient, connectionRegistry, expertAdvisorClient,
+      historicalMarketDataClient, SdkScheduler.getDefault());
+  }
+  
+  /**
+   * Constructs a MetaTrader account API instance
+   * @param metatraderAccountClient MetaTrader account REST API client
+   * @param metaApiWebsocketClient MetaApi websocket client
+   * @param connectionRegistry metatrader account connection registry
+   * @param expertAdvisorClient expert advisor REST API client
+   * @param historicalMarketDataClient historical market data REST API client
+   * @param scheduler scheduler which runs account state polls
+   */
+  public MetatraderAccountApi(MetatraderAccountClient metatraderAccountClient,
+    MetaApiWebsocketClient metaApiWebsocketClient, ConnectionRegistry connectionRegistry,
+    ExpertAdvisorClient expertAdvisorClient, HistoricalMarketDataClient historicalMarketDataClient,
+    SdkScheduler scheduler) {
     this.metatraderAccountClient = metatraderAccountClient;
     this.metaApiWebsocketClient = metaApiWebsocketClient;
     this.connectionRegistry = connectionRegistry;
     this.expertAdvisorClient = expertAdvisorClient;
     this.historicalMarketDataClient = historicalMarketDataClient;
+    this.accountStatePoller = new AccountStatePoller(metatraderAccountClient, scheduler);
   }
   
   /**
@@ -57,7 +77,8 @@ public class MetatraderAccountApi {
   public CompletableFuture<List<MetatraderAccount>> getAccounts(AccountsFilter accountsFilter) {
     return metatraderAccountClient.getAccounts(accountsFilter).thenApply(accounts -> {
       return accounts.stream().map(accountDto -> new MetatraderAccount(accountDto, metatraderAccountClient,
-        metaApiWebsocketClient, connectionRegistry, expertAdvisorClient, historicalMarketDataClient))
+        metaApiWebsocketClient, connectionRegistry, expertAdvisorClient, historicalMarketDataClient,
+        accountStatePoller))
         .collect(Collectors.toList());
     });
   }
@@ -70,7 +91,7 @@ public class MetatraderAccountApi {
   public CompletableFuture<MetatraderAccount> getAccount(String accountId) {
     return metatraderAccountClient.getAccount(accountId).thenApply(accountDto -> {
       return new MetatraderAccount(accountDto, metatraderAccountClient, metaApiWebsocketClient,
-        connectionRegistry, expertAdvisorClient, historicalMarketDataClient);
+        connectionRegistry, expertAdvisorClient, historicalMarketDataClient, accountStatePoller);
     });
   }
   
@@ -81,7 +102,7 @@ public class MetatraderAccountApi {
   public CompletableFuture<MetatraderAccount> getAccountByToken() {
     return metatraderAccountClient.getAccountByToken().thenApply(accountDto -> {
       return new MetatraderAccount(accountDto, metatraderAccountClient, metaApiWebsocketClient,
-        connectionRegistry, expertAdvisorClient, historicalMarketDataClient);
+        connectionRegistry, expertAdvisorClient, historicalMarketDataClient, accountStatePoller);
     });
   }
   
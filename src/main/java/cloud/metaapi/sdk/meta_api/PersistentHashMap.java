@@ -0,0 +1,318 @@
+package cloud.metaapi.sdk.meta_api;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable hash map with structural sharing, implemented as a hash array mapped trie. Adding or removing a
+ * key copies only the trie nodes on the path to the key, so a new version of a map with n keys is created in
+ * O(log n) time and shares the rest of the trie with the previous version. The map can be read from any
+ * thread without locking. Mutating methods of the {@link Map} interface throw
+ * {@link UnsupportedOperationException}
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int BITS = 5;
+  private static final int HASH_SIZE = 32;
+  private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+  private final Node root;
+  private final int size;
+  private Set<Entry<K, V>> entrySet;
+
+  /**
+   * Trie node. Children are either entries or nested nodes. Nodes below the hash depth store the entries of
+   * colliding hashes in a plain array and have an empty bitmap
+   */
+  private static class Node {
+    public final int bitmap;
+    public final Object[] children;
+
+    public Node(int bitmap, Object[] children) {
+      this.bitmap = bitmap;
+      this.children = children;
+    }
+  }
+
+  private PersistentHashMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Returns empty map
+   * @param <K> type of keys
+   * @param <V> type of values
+   * @return empty map
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  /**
+   * Returns a map which contains the entries of this map and the specified mapping
+   * @param key key
+   * @param value value
+   * @return new map, or this map if it already contains the same mapping
+   */
+  public PersistentHashMap<K, V> plus(K key, V value) {
+    boolean[] added = new boolean[1];
+    Node newRoot = put(root, hash(key), new SimpleImmutableEntry<>(key, value), 0, added);
+    return newRoot == root ? this : new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+  }
+
+  /**
+   * Returns a map which contains the entries of this map except for the specified key
+   * @param key key
+   * @return new map, or this map if it does not contain the key
+   */
+  public PersistentHashMap<K, V> minus(Object key) {
+    Node newRoot = remove(root, hash(key), key, 0);
+    return newRoot == root ? this : new PersistentHashMap<>(newRoot, size - 1);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return find(key) != null;
+  }
+
+  @Override
+  public V get(Object key) {
+    Entry<K, V> entry = find(key);
+    return entry != null ? entry.getValue() : null;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new AbstractSet<Entry<K, V>>() {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+    return entrySet;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Entry<K, V> find(Object key) {
+    int hash = hash(key);
+    Node node = root;
+    int shift = 0;
+    while (node != null) {
+      if (shift >= HASH_SIZE) {
+        for (Object child : node.children) {
+          if (Objects.equals(((Entry<K, V>) child).getKey(), key)) {
+            return (Entry<K, V>) child;
+          }
+        }
+        return null;
+      }
+      int bit = bit(hash, shift);
+      if ((node.bitmap & bit) == 0) {
+        return null;
+      }
+      Object child = node.children[index(node.bitmap, bit)];
+      if (child instanceof Node) {
+        node = (Node) child;
+        shift += BITS;
+      } else {
+        return Objects.equals(((Entry<K, V>) child).getKey(), key) ? (Entry<K, V>) child : null;
+      }
+    }
+    return null;
+  }
+
+  private static Node put(Node node, int hash, Entry<?, ?> entry, int shift, boolean[] added) {
+    if (node == null) {
+      added[0] = true;
+      return shift >= HASH_SIZE ? new Node(0, new Object[] {entry})
+        : new Node(bit(hash, shift), new Object[] {entry});
+    }
+    if (shift >= HASH_SIZE) {
+      for (int i = 0; i < node.children.length; ++i) {
+        Entry<?, ?> child = (Entry<?, ?>) node.children[i];
+        if (Objects.equals(child.getKey(), entry.getKey())) {
+          return child.getValue() == entry.getValue() ? node : new Node(0, replace(node.children, i, entry));
+        }
+      }
+      added[0] = true;
+      return new Node(0, insert(node.children, node.children.length, entry));
+    }
+    int bit = bit(hash, shift);
+    int index = index(node.bitmap, bit);
+    if ((node.bitmap & bit) == 0) {
+      added[0] = true;
+      return new Node(node.bitmap | bit, insert(node.children, index, entry));
+    }
+    Object child = node.children[index];
+    Object newChild;
+    if (child instanceof Node) {
+      newChild = put((Node) child, hash, entry, shift + BITS, added);
+    } else {
+      Entry<?, ?> childEntry = (Entry<?, ?>) child;
+      if (Objects.equals(childEntry.getKey(), entry.getKey())) {
+        newChild = childEntry.getValue() == entry.getValue() ? child : entry;
+      } else {
+        added[0] = true;
+        newChild = merge(childEntry, hash(childEntry.getKey()), entry, hash, shift + BITS);
+      }
+    }
+    return newChild == child ? node : new Node(node.bitmap, replace(node.children, index, newChild));
+  }
+
+  private static Node merge(Entry<?, ?> entry1, int hash1, Entry<?, ?> entry2, int hash2, int shift) {
+    if (shift >= HASH_SIZE) {
+      return new Node(0, new Object[] {entry1, entry2});
+    }
+    int bit1 = bit(hash1, shift);
+    int bit2 = bit(hash2, shift);
+    if (bit1 == bit2) {
+      return new Node(bit1, new Object[] {merge(entry1, hash1, entry2, hash2, shift + BITS)});
+    }
+    return new Node(bit1 | bit2, Integer.compareUnsigned(bit1, bit2) < 0
+      ? new Object[] {entry1, entry2} : new Object[] {entry2, entry1});
+  }
+
+  private static Node remove(Node node, int hash, Object key, int shift) {
+    if (node == null) {
+      return null;
+    }
+    if (shift >= HASH_SIZE) {
+      for (int i = 0; i < node.children.length; ++i) {
+        if (Objects.equals(((Entry<?, ?>) node.children[i]).getKey(), key)) {
+          return node.children.length == 1 ? null : new Node(0, delete(node.children, i));
+        }
+      }
+      return node;
+    }
+    int bit = bit(hash, shift);
+    if ((node.bitmap & bit) == 0) {
+      return node;
+    }
+    int index = index(node.bitmap, bit);
+    Object child = node.children[index];
+    Object newChild;
+    if (child instanceof Node) {
+      Node newNode = remove((Node) child, hash, key, shift + BITS);
+      if (newNode == child) {
+        return node;
+      }
+      newChild = newNode != null && newNode.children.length == 1 && !(newNode.children[0] instanceof Node)
+        ? newNode.children[0] : newNode;
+    } else if (Objects.equals(((Entry<?, ?>) child).getKey(), key)) {
+      newChild = null;
+    } else {
+      return node;
+    }
+    if (newChild != null) {
+      return new Node(node.bitmap, replace(node.children, index, newChild));
+    }
+    return node.children.length == 1 ? null : new Node(node.bitmap & ~bit, delete(node.children, index));
+  }
+
+  private static int hash(Object key) {
+    int hash = key != null ? key.hashCode() : 0;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & (HASH_SIZE - 1));
+  }
+
+  private static int index(int bitmap, int bit) {
+    return Integer.bitCount(bitmap & (bit - 1));
+  }
+
+  private static Object[] insert(Object[] array, int index, Object value) {
+    Object[] result = new Object[array.length + 1];
+    System.arraycopy(array, 0, result, 0, index);
+    result[index] = value;
+    System.arraycopy(array, index, result, index + 1, array.length - index);
+    return result;
+  }
+
+  private static Object[] replace(Object[] array, int index, Object value) {
+    Object[] result = Arrays.copyOf(array, array.length);
+    result[index] = value;
+    return result;
+  }
+
+  private static Object[] delete(Object[] array, int index) {
+    Object[] result = new Object[array.length - 1];
+    System.arraycopy(array, 0, result, 0, index);
+    System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+    return result;
+  }
+
+  private class EntryIterator implements Iterator<Entry<K, V>> {
+    private Deque<Node> nodes = new ArrayDeque<>();
+    private Deque<Integer> indexes = new ArrayDeque<>();
+    private Entry<K, V> next;
+
+    public EntryIterator() {
+      if (root != null) {
+        nodes.push(root);
+        indexes.push(0);
+      }
+      next = advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Entry<K, V> result = next;
+      next = advance();
+      return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<K, V> advance() {
+      while (!nodes.isEmpty()) {
+        Node node = nodes.peek();
+        int index = indexes.pop();
+        if (index == node.children.length) {
+          nodes.pop();
+          continue;
+        }
+        indexes.push(index + 1);
+        Object child = node.children[index];
+        if (child instanceof Node) {
+          nodes.push((Node) child);
+          indexes.push(0);
+        } else {
+          return (Entry<K, V>) child;
+        }
+      }
+      return null;
+    }
+  }
+}
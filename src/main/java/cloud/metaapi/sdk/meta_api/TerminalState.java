@@ -2,19 +2,29 @@ package cloud.metaapi.sdk.meta_api;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import cloud.metaapi.sdk.clients.meta_api.SymbolPriceTable;
 import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
+import cloud.metaapi.sdk.clients.meta_api.SynchronousSynchronizationListener;
 import cloud.metaapi.sdk.clients.meta_api.models.*;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder.OrderType;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition.PositionType;
@@ -24,7 +34,7 @@ import cloud.metaapi.sdk.util.Js;
 /**
  * Responsible for storing a local copy of remote terminal state
  */
-public class TerminalState extends SynchronizationListener {
+public class TerminalState extends SynchronizationListener implements SynchronousSynchronizationListener {
 
   /**
    * Defines timeout of waiting for a broker connection status changed signal.
@@ -33,19 +43,45 @@ public class TerminalState extends SynchronizationListener {
   protected int statusTimerTimeoutInMilliseconds = 60000;
   
   private Map<String, State> stateByInstanceIndex = new ConcurrentHashMap<>();
+  private boolean compactPriceStorage;
+  private volatile boolean snapshotsEnabled = false;
+  private AtomicLong snapshotVersion = new AtomicLong();
+  private volatile StateRanking stateRanking = new StateRanking(new ArrayList<>());
   private Map<String, List<CompletableFuture<Void>>> waitForPriceResolves = new ConcurrentHashMap<>(); 
   
+  /**
+   * States ordered from the best to the worst one with the best states resolved for symbols. Replaced as a
+   * whole when the order or the symbols of the states change
+   */
+  private static class StateRanking {
+    public List<State> states;
+    public Map<String, State> statesBySpecificationSymbol = new ConcurrentHashMap<>();
+    public Map<String, State> statesByPriceSymbol = new ConcurrentHashMap<>();
+    
+    public StateRanking(List<State> states) {
+      this.states = states;
+    }
+  }
+  
   private static class State {
-    @SuppressWarnings("unused")
     public String instanceIndex;
     public boolean connected = false;
     public boolean connectedToBroker = false;
     public MetatraderAccountInformation accountInformation = null;
-    public List<MetatraderPosition> positions = new ArrayList<>();
-    public List<MetatraderOrder> orders = new ArrayList<>();
+    public Map<String, MetatraderPosition> positionsById = new LinkedHashMap<>();
+    public Map<String, Map<String, MetatraderPosition>> positionsBySymbol = new HashMap<>();
+    public Set<MetatraderPosition> positionsWithoutProfit = new HashSet<>();
+    public Map<String, MetatraderOrder> ordersById = new LinkedHashMap<>();
+    public Map<String, Map<String, MetatraderOrder>> ordersBySymbol = new HashMap<>();
+    public long mt5ProfitInCents = 0;
+    public long mt4Profit = 0;
+    public int positionsWithoutPrice = 0;
+    public volatile List<MetatraderPosition> positions = new ArrayList<>();
+    public volatile List<MetatraderOrder> orders = new ArrayList<>();
     public List<MetatraderSymbolSpecification> specifications = new ArrayList<>();
     public Map<String, MetatraderSymbolSpecification> specificationsBySymbol = new ConcurrentHashMap<>();
     public Map<String, MetatraderSymbolPrice> pricesBySymbol = new ConcurrentHashMap<>();
+    public SymbolPriceTable priceTable = null;
     public Map<String, Date> completedOrders = new ConcurrentHashMap<>();
     public Map<String, Date> removedPositions = new ConcurrentHashMap<>();
     @SuppressWarnings("unused")
@@ -54,6 +90,308 @@ public class TerminalState extends SynchronizationListener {
     public long lastUpdateTime = 0;
     public int initializationCounter = 0;
     public int specificationCount = 0;
+    public volatile boolean snapshotsEnabled = false;
+    public volatile TerminalStateSnapshot snapshot = null;
+    public boolean accountInformationChanged = false;
+    public Set<String> changedPositionSymbols = new HashSet<>();
+    public Set<String> changedOrderSymbols = new HashSet<>();
+    public Set<String> changedPriceSymbols = new HashSet<>();
+    
+    public synchronized List<MetatraderPosition> getPositions() {
+      if (positions == null) {
+        positions = new ArrayList<>(positionsById.values());
+      }
+      return positions;
+    }
+    
+    public synchronized List<MetatraderOrder> getOrders() {
+      if (orders == null) {
+        orders = new ArrayList<>(ordersById.values());
+      }
+      return orders;
+    }
+    
+    public synchronized void replacePositions(List<MetatraderPosition> newPositions) {
+      for (String symbol : positionsBySymbol.keySet()) {
+        changePositions(symbol);
+      }
+      positionsById.clear();
+      positionsBySymbol.clear();
+      positionsWithoutProfit.clear();
+      mt5ProfitInCents = 0;
+      mt4Profit = 0;
+      positionsWithoutPrice = 0;
+      for (MetatraderPosition position : newPositions) {
+        putPosition(position);
+      }
+    }
+    
+    public synchronized MetatraderPosition putPosition(MetatraderPosition position) {
+      MetatraderPosition previous = positionsById.put(position.id, position);
+      if (previous != null) {
+        removeFromSymbol(positionsBySymbol, previous.symbol, previous.id);
+        changePositions(previous.symbol);
+        positionsWithoutProfit.remove(previous);
+        removeProfit(previous);
+        if (!hasPrice(previous.symbol)) {
+          positionsWithoutPrice--;
+        }
+      }
+      positionsBySymbol.computeIfAbsent(position.symbol, key -> new LinkedHashMap<>()).put(position.id, position);
+      changePositions(position.symbol);
+      if (position.unrealizedProfit == null) {
+        positionsWithoutProfit.add(position);
+      }
+      addProfit(position);
+      if (!hasPrice(position.symbol)) {
+        positionsWithoutPrice++;
+      }
+      positions = null;
+      return previous;
+    }
+    
+    public synchronized MetatraderPosition removePosition(String positionId) {
+      MetatraderPosition position = positionsById.remove(positionId);
+      if (position != null) {
+        removeFromSymbol(positionsBySymbol, position.symbol, positionId);
+        changePositions(position.symbol);
+        positionsWithoutProfit.remove(position);
+        removeProfit(position);
+        if (!hasPrice(position.symbol)) {
+          positionsWithoutPrice--;
+        }
+        positions = null;
+      }
+      return position;
+    }
+    
+    public synchronized void replaceOrders(List<MetatraderOrder> newOrders) {
+      for (String symbol : ordersBySymbol.keySet()) {
+        changeOrders(symbol);
+      }
+      ordersById.clear();
+      ordersBySymbol.clear();
+      for (MetatraderOrder order : newOrders) {
+        putOrder(order);
+      }
+    }
+    
+    public synchronized MetatraderOrder putOrder(MetatraderOrder order) {
+      MetatraderOrder previous = ordersById.put(order.id, order);
+      if (previous != null) {
+        removeFromSymbol(ordersBySymbol, previous.symbol, previous.id);
+        changeOrders(previous.symbol);
+      }
+      ordersBySymbol.computeIfAbsent(order.symbol, key -> new LinkedHashMap<>()).put(order.id, order);
+      changeOrders(order.symbol);
+      orders = null;
+      return previous;
+    }
+    
+    public synchronized MetatraderOrder removeOrder(String orderId) {
+      MetatraderOrder order = ordersById.remove(orderId);
+      if (order != null) {
+        removeFromSymbol(ordersBySymbol, order.symbol, orderId);
+        changeOrders(order.symbol);
+        orders = null;
+      }
+      return order;
+    }
+    
+    public synchronized boolean putPrice(MetatraderSymbolPrice price) {
+      changePrice(price.symbol);
+      if (priceTable != null ? priceTable.update(price) : pricesBySymbol.put(price.symbol, price) == null) {
+        Map<String, MetatraderPosition> symbolPositions = positionsBySymbol.get(price.symbol);
+        if (symbolPositions != null) {
+          positionsWithoutPrice -= symbolPositions.size();
+        }
+        return true;
+      }
+      return false;
+    }
+    
+    public synchronized void clearPrices() {
+      for (String symbol : getPriceSymbols()) {
+        changePrice(symbol);
+      }
+      pricesBySymbol.clear();
+      if (priceTable != null) {
+        priceTable.clear();
+      }
+      positionsWithoutPrice = positionsById.size();
+    }
+    
+    public synchronized void setAccountInformation(MetatraderAccountInformation accountInformation) {
+      this.accountInformation = accountInformation;
+      changeAccountInformation();
+    }
+    
+    public void changeAccountInformation() {
+      if (snapshotsEnabled) {
+        accountInformationChanged = true;
+      }
+    }
+    
+    public void changePositions(String symbol) {
+      if (snapshotsEnabled) {
+        changedPositionSymbols.add(symbol);
+      }
+    }
+    
+    public void changeOrders(String symbol) {
+      if (snapshotsEnabled) {
+        changedOrderSymbols.add(symbol);
+      }
+    }
+    
+    public void changePrice(String symbol) {
+      if (snapshotsEnabled) {
+        changedPriceSymbols.add(symbol);
+      }
+    }
+    
+    public synchronized void enableSnapshots(AtomicLong versions) {
+      if (!snapshotsEnabled) {
+        snapshotsEnabled = true;
+        snapshot = new TerminalStateSnapshot();
+        accountInformationChanged = true;
+        changedPositionSymbols.addAll(positionsBySymbol.keySet());
+        changedOrderSymbols.addAll(ordersBySymbol.keySet());
+        changedPriceSymbols.addAll(getPriceSymbols());
+        publishSnapshot(versions);
+      }
+    }
+    
+    /**
+     * Publishes a new snapshot if the state has changed. Only the lists of the changed symbols are copied, the
+     * rest is shared with the previous snapshot
+     */
+    public synchronized void publishSnapshot(AtomicLong versions) {
+      if (!snapshotsEnabled || (!accountInformationChanged && changedPositionSymbols.isEmpty()
+          && changedOrderSymbols.isEmpty() && changedPriceSymbols.isEmpty())) {
+        return;
+      }
+      TerminalStateSnapshot previous = snapshot;
+      MetatraderAccountInformation newAccountInformation = accountInformationChanged
+        ? copyAccountInformation(accountInformation) : previous.getAccountInformation().orElse(null);
+      PersistentHashMap<String, List<MetatraderPosition>> newPositions = updateSymbols(
+        previous.getPositionsBySymbol(), positionsBySymbol, changedPositionSymbols, TerminalState::copyPosition);
+      PersistentHashMap<String, List<MetatraderOrder>> newOrders = updateSymbols(previous.getOrdersBySymbol(),
+        ordersBySymbol, changedOrderSymbols, TerminalState::copyOrder);
+      PersistentHashMap<String, MetatraderSymbolPrice> newPrices = previous.getPricesBySymbol();
+      for (String symbol : changedPriceSymbols) {
+        MetatraderSymbolPrice price = getPrice(symbol);
+        newPrices = price != null ? newPrices.plus(symbol, price) : newPrices.minus(symbol);
+      }
+      accountInformationChanged = false;
+      changedPositionSymbols.clear();
+      changedOrderSymbols.clear();
+      changedPriceSymbols.clear();
+      snapshot = new TerminalStateSnapshot(versions.incrementAndGet(), newAccountInformation, newPositions,
+        newOrders, newPrices);
+    }
+    
+    private static <T> PersistentHashMap<String, List<T>> updateSymbols(
+      PersistentHashMap<String, List<T>> previous, Map<String, Map<String, T>> itemsBySymbol,
+      Set<String> changedSymbols, Function<T, T> copyFunction) {
+      PersistentHashMap<String, List<T>> result = previous;
+      for (String symbol : changedSymbols) {
+        Map<String, T> items = itemsBySymbol.get(symbol);
+        if (items != null) {
+          List<T> copies = new ArrayList<>(items.size());
+          for (T item : items.values()) {
+            copies.add(copyFunction.apply(item));
+          }
+          result = result.plus(symbol, Collections.unmodifiableList(copies));
+        } else {
+          result = result.minus(symbol);
+        }
+      }
+      return result;
+    }
+    
+    public boolean hasPrice(String symbol) {
+      if (symbol == null) {
+        return false;
+      }
+      return priceTable != null ? priceTable.hasPrice(SymbolPriceTable.findSymbolId(symbol))
+        : pricesBySymbol.containsKey(symbol);
+    }
+    
+    public MetatraderSymbolPrice getPrice(String symbol) {
+      if (symbol == null) {
+        return null;
+      }
+      return priceTable != null ? priceTable.getPrice(SymbolPriceTable.findSymbolId(symbol))
+        : pricesBySymbol.get(symbol);
+    }
+    
+    public boolean readPrice(int symbolId, SymbolPriceTable.Quote quote) {
+      if (priceTable != null) {
+        return priceTable.read(symbolId, quote);
+      }
+      MetatraderSymbolPrice price = pricesBySymbol.get(SymbolPriceTable.getSymbol(symbolId));
+      if (price == null) {
+        return false;
+      }
+      quote.symbolId = symbolId;
+      quote.bid = price.bid;
+      quote.ask = price.ask;
+      quote.profitTickValue = price.profitTickValue;
+      quote.lossTickValue = price.lossTickValue;
+      quote.time = price.time != null ? price.time.getDate().getTime() : 0;
+      return true;
+    }
+    
+    private Set<String> getPriceSymbols() {
+      return priceTable != null ? new HashSet<>(priceTable.getSymbols()) : pricesBySymbol.keySet();
+    }
+    
+    public void addProfit(MetatraderPosition position) {
+      mt5ProfitInCents += getMt5ProfitInCents(position);
+      mt4Profit += getMt4Profit(position);
+    }
+    
+    public void removeProfit(MetatraderPosition position) {
+      mt5ProfitInCents -= getMt5ProfitInCents(position);
+      mt4Profit -= getMt4Profit(position);
+    }
+    
+    private static long getMt5ProfitInCents(MetatraderPosition position) {
+      return Math.round(Js.or(position.unrealizedProfit, 0.0) * 100.0) + Math.round(Js.or(position.swap, 0.0) * 100.0);
+    }
+    
+    private static long getMt4Profit(MetatraderPosition position) {
+      return Math.round(Js.or(position.swap, 0.0) * 100) / 100 + Math.round(Js.or(position.commission, 0.0) * 100) / 100
+        + Math.round(Js.or(position.unrealizedProfit, 0.0) * 100) / 100;
+    }
+    
+    private static <T> void removeFromSymbol(Map<String, Map<String, T>> itemsBySymbol, String symbol, String id) {
+      Map<String, T> items = itemsBySymbol.get(symbol);
+      if (items != null) {
+        items.remove(id);
+        if (items.isEmpty()) {
+          itemsBySymbol.remove(symbol);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Constructs terminal state instance
+   */
+  public TerminalState() {
+    this(false);
+  }
+  
+  /**
+   * Constructs terminal state instance
+   * @param compactPriceStorage whether prices are stored in {@link SymbolPriceTable} instead of price models.
+   * Prices returned by {@link #getPrice(String)} are then created on each call and do not contain broker time,
+   * account currency exchange rate and latency timestamps
+   */
+  public TerminalState(boolean compactPriceStorage) {
+    this.compactPriceStorage = compactPriceStorage;
   }
   
   /**
@@ -85,7 +423,7 @@ public class TerminalState extends SynchronizationListener {
    * @return a local copy of MetaTrader positions opened
    */
   public List<MetatraderPosition> getPositions() {
-    return getBestState().positions;
+    return getBestState().getPositions();
   }
   
   /**
@@ -93,7 +431,7 @@ public class TerminalState extends SynchronizationListener {
    * @return a local copy of MetaTrader orders opened
    */
   public List<MetatraderOrder> getOrders() {
-    return getBestState().orders;
+    return getBestState().getOrders();
   }
   
   /**
@@ -121,7 +459,40 @@ public class TerminalState extends SynchronizationListener {
    * if price for a symbol is not found
    */
   public Optional<MetatraderSymbolPrice> getPrice(String symbol) {
-    return Optional.ofNullable(getBestState(symbol, "price").pricesBySymbol.get(symbol));
+    return Optional.ofNullable(getBestState(symbol, "price").getPrice(symbol));
+  }
+  
+  /**
+   * Reads MetaTrader symbol price by symbol id without allocating objects
+   * @param symbolId symbol id, see {@link SymbolPriceTable#getSymbolId(String)}
+   * @param quote quote to fill with the price
+   * @return true if the price was found, false if price for a symbol is not found
+   */
+  public boolean getPrice(int symbolId, SymbolPriceTable.Quote quote) {
+    String symbol = SymbolPriceTable.getSymbol(symbolId);
+    State state = symbol != null ? findBestState(symbol, "price") : null;
+    return state != null && state.readPrice(symbolId, quote);
+  }
+  
+  /**
+   * Returns an immutable snapshot of account information, positions, orders and prices. Snapshots are
+   * published only after this method has been called for the first time, so the first call returns the
+   * current state
+   * @return latest snapshot of the terminal state
+   */
+  public TerminalStateSnapshot getSnapshot() {
+    if (!snapshotsEnabled) {
+      synchronized (this) {
+        if (!snapshotsEnabled) {
+          snapshotsEnabled = true;
+          for (State state : stateByInstanceIndex.values()) {
+            state.enableSnapshots(snapshotVersion);
+          }
+        }
+      }
+    }
+    TerminalStateSnapshot snapshot = getBestState().snapshot;
+    return snapshot != null ? snapshot : new TerminalStateSnapshot();
   }
   
   /**
@@ -186,15 +557,17 @@ public class TerminalState extends SynchronizationListener {
   @Override
   public CompletableFuture<Void> onSynchronizationStarted(String instanceIndex) {
     State state = getState(instanceIndex);
-    state.accountInformation = null;
-    state.positions.clear();
-    state.orders.clear();
+    state.setAccountInformation(null);
+    state.replacePositions(new ArrayList<>());
+    state.replaceOrders(new ArrayList<>());
     state.specifications.clear();
     state.specificationsBySymbol.clear();
-    state.pricesBySymbol.clear();
+    state.clearPrices();
     state.completedOrders.clear();
     state.removedPositions.clear();
     state.positionsInitialized = false;
+    state.publishSnapshot(snapshotVersion);
+    invalidateSymbolStates();
     return CompletableFuture.completedFuture(null);
   }
   
@@ -202,8 +575,9 @@ public class TerminalState extends SynchronizationListener {
   public CompletableFuture<Void> onAccountInformationUpdated(String instanceIndex,
     MetatraderAccountInformation accountInformation) {
     State state = getState(instanceIndex);
-    state.accountInformation = accountInformation;
-    state.initializationCounter = 1;
+    state.setAccountInformation(accountInformation);
+    state.publishSnapshot(snapshotVersion);
+    updateInitializationCounter(state, 1);
     return CompletableFuture.completedFuture(null);
   }
   
@@ -211,27 +585,20 @@ public class TerminalState extends SynchronizationListener {
   public CompletableFuture<Void> onPositionsReplaced(String instanceIndex,
     List<MetatraderPosition> positions) {
     State state = getState(instanceIndex);
-    state.positions = new ArrayList<>(positions);
+    state.replacePositions(positions);
+    state.publishSnapshot(snapshotVersion);
     state.removedPositions.clear();
     state.positionsInitialized = true;
-    state.initializationCounter = 2;
+    updateInitializationCounter(state, 2);
     return CompletableFuture.completedFuture(null);
   }
 
   @Override
   public CompletableFuture<Void> onPositionUpdated(String instanceIndex, MetatraderPosition position) {
     State state = getState(instanceIndex);
-    int index = -1;
-    for (int i = 0; i < state.positions.size(); ++i) {
-      if (state.positions.get(i).id.equals(position.id)) {
-        index = i;
-        break;
-      }
-    }
-    if (index != -1) {
-      state.positions.set(index, position);
-    } else if (!state.removedPositions.containsKey(position.id)) {
-      state.positions.add(position);
+    if (state.positionsById.containsKey(position.id) || !state.removedPositions.containsKey(position.id)) {
+      state.putPosition(position);
+      state.publishSnapshot(snapshotVersion);
     }
     return CompletableFuture.completedFuture(null);
   }
@@ -239,9 +606,7 @@ public class TerminalState extends SynchronizationListener {
   @Override
   public CompletableFuture<Void> onPositionRemoved(String instanceIndex, String positionId) {
     State state = getState(instanceIndex);
-    Optional<MetatraderPosition> position = state.positions.stream()
-      .filter(p -> p.id.equals(positionId)).findFirst();
-    if (!position.isPresent()) {
+    if (state.removePosition(positionId) == null) {
       for (Entry<String, Date> e : state.removedPositions.entrySet()) {
         if (e.getValue().getTime() + 5 * 60 * 1000 < Date.from(Instant.now()).getTime()) {
           state.removedPositions.remove(e.getKey());
@@ -249,7 +614,7 @@ public class TerminalState extends SynchronizationListener {
       }
       state.removedPositions.put(positionId, Date.from(Instant.now()));
     } else {
-      state.positions.removeIf(p -> p.id.equals(positionId));
+      state.publishSnapshot(snapshotVersion);
     }
     return CompletableFuture.completedFuture(null);
   }
@@ -257,27 +622,20 @@ public class TerminalState extends SynchronizationListener {
   @Override
   public CompletableFuture<Void> onOrdersReplaced(String instanceIndex, List<MetatraderOrder> orders) {
     State state = getState(instanceIndex);
-    state.orders = new ArrayList<>(orders);
+    state.replaceOrders(orders);
+    state.publishSnapshot(snapshotVersion);
     state.completedOrders.clear();
     state.ordersInitialized = true;
-    state.initializationCounter = 3;
+    updateInitializationCounter(state, 3);
     return CompletableFuture.completedFuture(null);
   }
 
   @Override
   public CompletableFuture<Void> onOrderUpdated(String instanceIndex, MetatraderOrder order) {
     State state = getState(instanceIndex);
-    int index = -1;
-    for (int i = 0; i < state.orders.size(); ++i) {
-      if (state.orders.get(i).id.equals(order.id)) {
-        index = i;
-        break;
-      }
-    }
-    if (index != -1) {
-      state.orders.set(index, order);
-    } else if (!state.completedOrders.containsKey(order.id)) {
-      state.orders.add(order);
+    if (state.ordersById.containsKey(order.id) || !state.completedOrders.containsKey(order.id)) {
+      state.putOrder(order);
+      state.publishSnapshot(snapshotVersion);
     }
     return CompletableFuture.completedFuture(null);
   }
@@ -285,9 +643,7 @@ public class TerminalState extends SynchronizationListener {
   @Override
   public CompletableFuture<Void> onOrderCompleted(String instanceIndex, String orderId) {
     State state = getState(instanceIndex);
-    Optional<MetatraderOrder> order = state.orders.stream()
-      .filter(o -> !o.id.equals(orderId)).findFirst();
-    if (!order.isPresent()) {
+    if (state.removeOrder(orderId) == null) {
       for (Entry<String, Date> e : state.completedOrders.entrySet()) {
         if (e.getValue().getTime() + 5 * 60 * 1000 < Date.from(Instant.now()).getTime()) {
           state.completedOrders.remove(e.getKey());
@@ -295,7 +651,7 @@ public class TerminalState extends SynchronizationListener {
       }
       state.completedOrders.put(orderId, Date.from(Instant.now()));
     } else {
-      state.orders.removeIf(o -> o.id.equals(orderId));
+      state.publishSnapshot(snapshotVersion);
     }
     return CompletableFuture.completedFuture(null);
   }
@@ -324,51 +680,101 @@ public class TerminalState extends SynchronizationListener {
     for (String symbol : removedSymbols) {
       state.specificationsBySymbol.remove(symbol);
     }
-    state.specificationCount = state.specifications.size();
+    synchronized (this) {
+      state.specificationCount = state.specifications.size();
+      updateStateRanking();
+    }
+    invalidateSymbolStates();
     return CompletableFuture.completedFuture(null);
   }
   
+  /**
+   * Returns whether prices are processed by synchronous callbacks. Subclasses receive prices through the
+   * asynchronous callbacks unless they override this method
+   * @return whether synchronous price stream callbacks are enabled
+   */
+  @Override
+  public boolean isSynchronousPriceStreamEnabled() {
+    return getClass() == TerminalState.class;
+  }
+  
   @Override
   public CompletableFuture<Void> onSymbolPricesUpdated(String instanceIndex,
+    List<MetatraderSymbolPrice> prices, Double equity, Double margin, Double freeMargin,
+    Double marginLevel, Double accountCurrencyExchangeRate) {
+    onSymbolPricesUpdatedSync(instanceIndex, prices, equity, margin, freeMargin, marginLevel,
+      accountCurrencyExchangeRate);
+    return CompletableFuture.completedFuture(null);
+  }
+  
+  @Override
+  public void onSymbolPricesUpdatedSync(String instanceIndex,
     List<MetatraderSymbolPrice> prices, Double equity, Double margin, Double freeMargin,
     Double marginLevel, Double accountCurrencyExchangeRate) {
     State state = getState(instanceIndex);
-    state.lastUpdateTime = 0;
+    long lastUpdateTime = 0;
     for (MetatraderSymbolPrice price : prices) {
-      if (price.time.getDate().getTime() > state.lastUpdateTime) {
-        state.lastUpdateTime = price.time.getDate().getTime();
+      if (price.time.getDate().getTime() > lastUpdateTime) {
+        lastUpdateTime = price.time.getDate().getTime();
+      }
+    }
+    if (state.lastUpdateTime != lastUpdateTime) {
+      synchronized (this) {
+        state.lastUpdateTime = lastUpdateTime;
+        updateStateRanking();
       }
     }
     boolean pricesInitialized = false;
-    for (MetatraderSymbolPrice price : prices) {
-      state.pricesBySymbol.put(price.symbol, price);
-      List<MetatraderPosition> positions = state.positions.stream()
-        .filter(p -> p.symbol.equals(price.symbol)).collect(Collectors.toList());
-      List<MetatraderPosition> otherPositions = state.positions.stream()
-        .filter(p -> !p.symbol.equals(price.symbol)).collect(Collectors.toList());
-      List<MetatraderOrder> orders = state.orders.stream()
-          .filter(o -> o.symbol.equals(price.symbol)).collect(Collectors.toList());
-      pricesInitialized = true;
-      for (MetatraderPosition position : otherPositions) {
-        MetatraderSymbolPrice p = state.pricesBySymbol.get(position.symbol);
-        if (p != null) {
-          if (position.unrealizedProfit == null) {
-            updatePositionProfits(position, p);
+    boolean newSymbols = false;
+    synchronized (state) {
+      for (MetatraderSymbolPrice price : prices) {
+        newSymbols = state.putPrice(price) || newSymbols;
+      }
+      if (!prices.isEmpty()) {
+        pricesInitialized = state.positionsWithoutPrice == 0;
+        Iterator<MetatraderPosition> iterator = state.positionsWithoutProfit.iterator();
+        while (iterator.hasNext()) {
+          MetatraderPosition position = iterator.next();
+          MetatraderSymbolPrice price = state.getPrice(position.symbol);
+          if (price != null) {
+            state.removeProfit(position);
+            updatePositionProfits(position, price, getSpecification(position.symbol));
+            state.addProfit(position);
+            state.changePositions(position.symbol);
+          }
+          if (position.unrealizedProfit != null) {
+            iterator.remove();
           }
-        } else {
-          pricesInitialized = false;
         }
       }
-      for (MetatraderPosition position : positions) {
-        updatePositionProfits(position, price);
-      }
-      for (MetatraderOrder order : orders) {
-        order.currentPrice = (order.type == OrderType.ORDER_TYPE_BUY
-          || order.type == OrderType.ORDER_TYPE_BUY_LIMIT
-          || order.type == OrderType.ORDER_TYPE_BUY_STOP
-          || order.type == OrderType.ORDER_TYPE_BUY_STOP_LIMIT
-        ? price.ask : price.bid);
+      for (MetatraderSymbolPrice price : prices) {
+        Map<String, MetatraderPosition> positions = state.positionsBySymbol.get(price.symbol);
+        if (positions != null) {
+          state.changePositions(price.symbol);
+          Optional<MetatraderSymbolSpecification> specification = getSpecification(price.symbol);
+          for (MetatraderPosition position : positions.values()) {
+            state.removeProfit(position);
+            updatePositionProfits(position, price, specification);
+            state.addProfit(position);
+          }
+        }
+        Map<String, MetatraderOrder> orders = state.ordersBySymbol.get(price.symbol);
+        if (orders != null) {
+          state.changeOrders(price.symbol);
+          for (MetatraderOrder order : orders.values()) {
+            order.currentPrice = (order.type == OrderType.ORDER_TYPE_BUY
+              || order.type == OrderType.ORDER_TYPE_BUY_LIMIT
+              || order.type == OrderType.ORDER_TYPE_BUY_STOP
+              || order.type == OrderType.ORDER_TYPE_BUY_STOP_LIMIT
+            ? price.ask : price.bid);
+          }
+        }
       }
+    }
+    if (newSymbols) {
+      invalidateSymbolStates();
+    }
+    for (MetatraderSymbolPrice price : prices) {
       List<CompletableFuture<Void>> priceResolves = waitForPriceResolves.get(price.symbol);
       if (priceResolves != null && priceResolves.size() > 0) {
         for (CompletableFuture<Void> resolve : priceResolves) {
@@ -377,37 +783,42 @@ public class TerminalState extends SynchronizationListener {
         waitForPriceResolves.remove(price.symbol);
       }
     }
-    if (state.accountInformation != null) {
-      if (state.positionsInitialized && pricesInitialized) {
-        String platform = state.accountInformation.platform;
-        if (platform != null && platform.equals("mt5")) {
-          state.accountInformation.equity = equity != null ? equity : state.accountInformation.balance +
-            Js.reduce(state.positions, (acc, p) -> acc + 
-              Math.round(Js.or(p.unrealizedProfit, 0.0) * 100.0) / 100.0 + Math.round(Js.or(p.swap, 0.0) * 100.0) / 100.0, 0.0);
+    synchronized (state) {
+      if (state.accountInformation != null) {
+        if (state.positionsInitialized && pricesInitialized) {
+          String platform = state.accountInformation.platform;
+          if (platform != null && platform.equals("mt5")) {
+            state.accountInformation.equity = equity != null ? equity : state.accountInformation.balance +
+              state.mt5ProfitInCents / 100.0;
+          } else {
+            state.accountInformation.equity = equity != null ? equity : state.accountInformation.balance +
+              state.mt4Profit;
+          }
+          state.accountInformation.equity = Math.round(state.accountInformation.equity * 100.0) / 100.0;
         } else {
-          state.accountInformation.equity = equity != null ? equity : state.accountInformation.balance +
-            Js.reduce(state.positions, (acc, p) -> acc + Math.round(Js.or(p.swap, 0.0) * 100) / 100 +
-              Math.round(Js.or(p.commission, 0.0) * 100) / 100 + Math.round(Js.or(p.unrealizedProfit, 0.0) * 100) / 100, 0.0);
+          state.accountInformation.equity = equity != null ? equity : state.accountInformation.equity;
         }
-        state.accountInformation.equity = Math.round(state.accountInformation.equity * 100.0) / 100.0;
-      } else {
-        state.accountInformation.equity = equity != null ? equity : state.accountInformation.equity;
+        state.accountInformation.margin = margin != null ? margin : state.accountInformation.margin;
+        state.accountInformation.freeMargin = freeMargin != null ? freeMargin : state.accountInformation.freeMargin;
+        state.accountInformation.marginLevel = freeMargin != null ? marginLevel : state.accountInformation.marginLevel;
+        state.changeAccountInformation();
       }
-      state.accountInformation.margin = margin != null ? margin : state.accountInformation.margin;
-      state.accountInformation.freeMargin = freeMargin != null ? freeMargin : state.accountInformation.freeMargin;
-      state.accountInformation.marginLevel = freeMargin != null ? marginLevel : state.accountInformation.marginLevel;
+      state.publishSnapshot(snapshotVersion);
     }
-    return CompletableFuture.completedFuture(null);
   }
   
   @Override
   public CompletableFuture<Void> onStreamClosed(String instanceIndex) {
-    stateByInstanceIndex.remove(instanceIndex);
+    synchronized (this) {
+      if (stateByInstanceIndex.remove(instanceIndex) != null) {
+        updateStateRanking();
+      }
+    }
     return CompletableFuture.completedFuture(null);
   }
   
-  private void updatePositionProfits(MetatraderPosition position, MetatraderSymbolPrice price) {
-    Optional<MetatraderSymbolSpecification> specification = getSpecification(position.symbol);
+  private void updatePositionProfits(MetatraderPosition position, MetatraderSymbolPrice price,
+    Optional<MetatraderSymbolSpecification> specification) {
     if (specification.isPresent()) {
       double multiplier = Math.pow(10, specification.get().digits);
       if (position.profit != null) {
@@ -438,42 +849,195 @@ public class TerminalState extends SynchronizationListener {
   }
   
   private State getState(String instanceIndex) {
-    if (!stateByInstanceIndex.containsKey(instanceIndex)) {
-      stateByInstanceIndex.put(instanceIndex, constructTerminalState(instanceIndex));
+    State state = stateByInstanceIndex.get(instanceIndex);
+    if (state == null) {
+      synchronized (this) {
+        state = stateByInstanceIndex.get(instanceIndex);
+        if (state == null) {
+          state = constructTerminalState(instanceIndex);
+          if (snapshotsEnabled) {
+            state.enableSnapshots(snapshotVersion);
+          }
+          stateByInstanceIndex.put(instanceIndex, state);
+          updateStateRanking();
+        }
+      }
     }
-    return stateByInstanceIndex.get(instanceIndex);
+    return state;
   }
   
   private State constructTerminalState(String instanceIndex) {
     State result = new State();
     result.instanceIndex = instanceIndex;
+    if (compactPriceStorage && instanceIndex != null) {
+      result.priceTable = new SymbolPriceTable();
+    }
+    return result;
+  }
+  
+  private static MetatraderAccountInformation copyAccountInformation(MetatraderAccountInformation source) {
+    if (source == null) {
+      return null;
+    }
+    MetatraderAccountInformation result = new MetatraderAccountInformation();
+    result.platform = source.platform;
+    result.broker = source.broker;
+    result.currency = source.currency;
+    result.server = source.server;
+    result.balance = source.balance;
+    result.equity = source.equity;
+    result.margin = source.margin;
+    result.freeMargin = source.freeMargin;
+    result.leverage = source.leverage;
+    result.marginLevel = source.marginLevel;
+    result.tradeAllowed = source.tradeAllowed;
+    result.investorMode = source.investorMode;
+    result.marginMode = source.marginMode;
+    result.name = source.name;
+    result.login = source.login;
+    result.credit = source.credit;
+    return result;
+  }
+  
+  private static MetatraderPosition copyPosition(MetatraderPosition source) {
+    MetatraderPosition result = new MetatraderPosition();
+    result.id = source.id;
+    result.type = source.type;
+    result.symbol = source.symbol;
+    result.magic = source.magic;
+    result.time = source.time;
+    result.brokerTime = source.brokerTime;
+    result.updateTime = source.updateTime;
+    result.openPrice = source.openPrice;
+    result.currentPrice = source.currentPrice;
+    result.currentTickValue = source.currentTickValue;
+    result.stopLoss = source.stopLoss;
+    result.takeProfit = source.takeProfit;
+    result.volume = source.volume;
+    result.swap = source.swap;
+    result.profit = source.profit;
+    result.comment = source.comment;
+    result.clientId = source.clientId;
+    result.unrealizedProfit = source.unrealizedProfit;
+    result.realizedProfit = source.realizedProfit;
+    result.commission = source.commission;
+    result.reason = source.reason;
+    result.accountCurrencyExchangeRate = source.accountCurrencyExchangeRate;
+    result.originalComment = source.originalComment;
+    result.updatePending = source.updatePending;
+    return result;
+  }
+  
+  private static MetatraderOrder copyOrder(MetatraderOrder source) {
+    MetatraderOrder result = new MetatraderOrder();
+    result.id = source.id;
+    result.type = source.type;
+    result.state = source.state;
+    result.magic = source.magic;
+    result.time = source.time;
+    result.brokerTime = source.brokerTime;
+    result.doneTime = source.doneTime;
+    result.doneBrokerTime = source.doneBrokerTime;
+    result.symbol = source.symbol;
+    result.openPrice = source.openPrice;
+    result.currentPrice = source.currentPrice;
+    result.stopLoss = source.stopLoss;
+    result.takeProfit = source.takeProfit;
+    result.volume = source.volume;
+    result.currentVolume = source.currentVolume;
+    result.positionId = source.positionId;
+    result.comment = source.comment;
+    result.originalComment = source.originalComment;
+    result.clientId = source.clientId;
+    result.platform = source.platform;
+    result.updatePending = source.updatePending;
+    result.reason = source.reason;
+    result.fillingMode = source.fillingMode;
+    result.expirationType = source.expirationType;
+    result.expirationTime = source.expirationTime;
+    result.accountCurrencyExchangeRate = source.accountCurrencyExchangeRate;
+    result.closeByPositionId = source.closeByPositionId;
+    result.stopLimitPrice = source.stopLimitPrice;
     return result;
   }
   
+  private synchronized void updateInitializationCounter(State state, int initializationCounter) {
+    if (state.initializationCounter != initializationCounter) {
+      state.initializationCounter = initializationCounter;
+      updateStateRanking();
+    }
+  }
+  
+  /**
+   * Reorders the states if their ranking has changed. The ranking fields of the states are modified only
+   * while holding the lock of this object, so they can not change during sorting
+   */
+  private synchronized void updateStateRanking() {
+    List<State> states = stateRanking.states;
+    boolean sorted = states.size() == stateByInstanceIndex.size();
+    for (int i = 1; sorted && i < states.size(); ++i) {
+      sorted = compareStates(states.get(i - 1), states.get(i)) <= 0;
+    }
+    if (!sorted) {
+      List<State> newStates = new ArrayList<>();
+      for (State state : states) {
+        if (stateByInstanceIndex.get(state.instanceIndex) == state) {
+          newStates.add(state);
+        }
+      }
+      for (State state : stateByInstanceIndex.values()) {
+        if (!newStates.contains(state)) {
+          newStates.add(state);
+        }
+      }
+      newStates.sort(TerminalState::compareStates);
+      stateRanking = new StateRanking(newStates);
+    }
+  }
+  
+  private synchronized void invalidateSymbolStates() {
+    stateRanking = new StateRanking(stateRanking.states);
+  }
+  
+  private static int compareStates(State first, State second) {
+    if (first.initializationCounter != second.initializationCounter) {
+      return Integer.compare(second.initializationCounter, first.initializationCounter);
+    } else if (first.initializationCounter == 3) {
+      return Long.compare(second.lastUpdateTime, first.lastUpdateTime);
+    } else if (first.initializationCounter == 0) {
+      return Integer.compare(second.specificationCount, first.specificationCount);
+    }
+    return 0;
+  }
+  
   private State getBestState() {
-    return getBestState(null, "default");
+    List<State> states = stateRanking.states;
+    return !states.isEmpty() ? states.get(0) : constructTerminalState(null);
   }
   
   private State getBestState(String symbol, String mode) {
-    State result = null;
-    Long maxUpdateTime = -1L;
-    int maxInitializationCounter = -1;
-    int maxSpecificationCount = -1;
-    for (State state : stateByInstanceIndex.values()) {
-      if (maxInitializationCounter < state.initializationCounter ||
-          maxInitializationCounter == state.initializationCounter && maxInitializationCounter == 3 &&
-          maxUpdateTime < state.lastUpdateTime ||
-          maxInitializationCounter == state.initializationCounter && maxInitializationCounter == 0 &&
-          maxSpecificationCount < state.specificationCount) {
-        if (symbol == null || (mode.equals("specification") && state.specificationsBySymbol.containsKey(symbol)) ||
-            (mode.equals("price") && state.pricesBySymbol.containsKey(symbol))) {
-          maxUpdateTime = state.lastUpdateTime;
-          maxInitializationCounter = state.initializationCounter;
-          maxSpecificationCount = state.specificationCount;
+    if (symbol == null) {
+      return getBestState();
+    }
+    State result = findBestState(symbol, mode);
+    return result != null ? result : constructTerminalState(null);
+  }
+  
+  private State findBestState(String symbol, String mode) {
+    StateRanking ranking = stateRanking;
+    Map<String, State> statesBySymbol = mode.equals("price") ? ranking.statesByPriceSymbol
+      : ranking.statesBySpecificationSymbol;
+    State result = statesBySymbol.get(symbol);
+    if (result == null) {
+      for (State state : ranking.states) {
+        if ((mode.equals("specification") && state.specificationsBySymbol.containsKey(symbol)) ||
+            (mode.equals("price") && state.hasPrice(symbol))) {
+          statesBySymbol.put(symbol, state);
           result = state;
+          break;
         }
       }
     }
-    return result != null ? result : constructTerminalState(null);
+    return result;
   }
-}
\ No newline at end of file
+}
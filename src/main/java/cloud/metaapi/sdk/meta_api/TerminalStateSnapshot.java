@@ -0,0 +1,149 @@
+package cloud.metaapi.sdk.meta_api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountInformation;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderOrder;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+
+/**
+ * Immutable consistent view of a terminal state. A new snapshot is published by the terminal state after each
+ * change, sharing the data of unchanged symbols with the previous snapshot through persistent maps. Snapshots
+ * can be read from any thread without locking. The models returned by a snapshot are shared with other
+ * snapshots and must not be modified
+ */
+public class TerminalStateSnapshot {
+
+  private long version;
+  private MetatraderAccountInformation accountInformation;
+  private PersistentHashMap<String, List<MetatraderPosition>> positionsBySymbol;
+  private PersistentHashMap<String, List<MetatraderOrder>> ordersBySymbol;
+  private PersistentHashMap<String, MetatraderSymbolPrice> pricesBySymbol;
+  private volatile List<MetatraderPosition> positions;
+  private volatile List<MetatraderOrder> orders;
+
+  /**
+   * Constructs empty terminal state snapshot
+   */
+  TerminalStateSnapshot() {
+    this(0, null, PersistentHashMap.empty(), PersistentHashMap.empty(), PersistentHashMap.empty());
+  }
+
+  /**
+   * Constructs terminal state snapshot
+   * @param version snapshot version
+   * @param accountInformation account information, or {@code null}
+   * @param positionsBySymbol unmodifiable lists of positions by symbols
+   * @param ordersBySymbol unmodifiable lists of orders by symbols
+   * @param pricesBySymbol prices by symbols
+   */
+  TerminalStateSnapshot(long version, MetatraderAccountInformation accountInformation,
+    PersistentHashMap<String, List<MetatraderPosition>> positionsBySymbol,
+    PersistentHashMap<String, List<MetatraderOrder>> ordersBySymbol,
+    PersistentHashMap<String, MetatraderSymbolPrice> pricesBySymbol) {
+    this.version = version;
+    this.accountInformation = accountInformation;
+    this.positionsBySymbol = positionsBySymbol;
+    this.ordersBySymbol = ordersBySymbol;
+    this.pricesBySymbol = pricesBySymbol;
+  }
+
+  /**
+   * Returns snapshot version. Versions of the snapshots published by a terminal state are monotonically
+   * increasing
+   * @return snapshot version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns account information
+   * @return account information or empty optional if it has not been received
+   */
+  public Optional<MetatraderAccountInformation> getAccountInformation() {
+    return Optional.ofNullable(accountInformation);
+  }
+
+  /**
+   * Returns MetaTrader positions opened, grouped by symbols
+   * @return unmodifiable list of positions
+   */
+  public List<MetatraderPosition> getPositions() {
+    if (positions == null) {
+      positions = flatten(positionsBySymbol.values());
+    }
+    return positions;
+  }
+
+  /**
+   * Returns MetaTrader positions opened by symbol
+   * @param symbol symbol (e.g. currency pair or an index)
+   * @return unmodifiable list of positions
+   */
+  public List<MetatraderPosition> getPositions(String symbol) {
+    return positionsBySymbol.getOrDefault(symbol, Collections.emptyList());
+  }
+
+  /**
+   * Returns MetaTrader orders opened, grouped by symbols
+   * @return unmodifiable list of orders
+   */
+  public List<MetatraderOrder> getOrders() {
+    if (orders == null) {
+      orders = flatten(ordersBySymbol.values());
+    }
+    return orders;
+  }
+
+  /**
+   * Returns MetaTrader orders opened by symbol
+   * @param symbol symbol (e.g. currency pair or an index)
+   * @return unmodifiable list of orders
+   */
+  public List<MetatraderOrder> getOrders(String symbol) {
+    return ordersBySymbol.getOrDefault(symbol, Collections.emptyList());
+  }
+
+  /**
+   * Returns MetaTrader symbol price by symbol
+   * @param symbol symbol (e.g. currency pair or an index)
+   * @return price or empty optional if price for a symbol is not found
+   */
+  public Optional<MetatraderSymbolPrice> getPrice(String symbol) {
+    return Optional.ofNullable(pricesBySymbol.get(symbol));
+  }
+
+  /**
+   * Returns MetaTrader symbol prices
+   * @return unmodifiable collection of prices
+   */
+  public Collection<MetatraderSymbolPrice> getPrices() {
+    return pricesBySymbol.values();
+  }
+
+  PersistentHashMap<String, List<MetatraderPosition>> getPositionsBySymbol() {
+    return positionsBySymbol;
+  }
+
+  PersistentHashMap<String, List<MetatraderOrder>> getOrdersBySymbol() {
+    return ordersBySymbol;
+  }
+
+  PersistentHashMap<String, MetatraderSymbolPrice> getPricesBySymbol() {
+    return pricesBySymbol;
+  }
+
+  private static <T> List<T> flatten(Collection<List<T>> lists) {
+    List<T> result = new ArrayList<>();
+    for (List<T> list : lists) {
+      result.addAll(list);
+    }
+    return Collections.unmodifiableList(result);
+  }
+}
@@ -0,0 +1,153 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link AccountEventQueue}
+ */
+class AccountEventQueueTest {
+
+  /**
+   * Tests {@link AccountEventQueue#add(java.util.function.Supplier)}
+   */
+  @Test
+  void testStartsNextEventOnlyAfterPreviousCompletes() {
+    AccountEventQueue queue = new AccountEventQueue("accountId");
+    List<Integer> started = new CopyOnWriteArrayList<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 3; ++i) {
+      int index = i;
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      futures.add(future);
+      queue.add(() -> {
+        started.add(index);
+        return future;
+      });
+    }
+    assertEquals(Arrays.asList(0), started);
+    assertEquals(2, queue.size());
+    futures.get(0).complete(null);
+    assertEquals(Arrays.asList(0, 1), started);
+    futures.get(1).complete(null);
+    futures.get(2).complete(null);
+    assertEquals(Arrays.asList(0, 1, 2), started);
+    assertFalse(queue.isBusy());
+  }
+
+  /**
+   * Tests {@link AccountEventQueue#add(java.util.function.Supplier)}
+   */
+  @Test
+  void testContinuesProcessingAfterFailedEvent() {
+    AccountEventQueue queue = new AccountEventQueue("accountId");
+    List<Integer> started = new CopyOnWriteArrayList<>();
+    CompletableFuture<Void> failing = new CompletableFuture<>();
+    queue.add(() -> {
+      started.add(0);
+      return failing;
+    });
+    queue.add(() -> {
+      started.add(1);
+      throw new RuntimeException("test");
+    });
+    queue.add(() -> {
+      started.add(2);
+      return CompletableFuture.completedFuture(null);
+    });
+    failing.completeExceptionally(new Exception("test"));
+    assertEquals(Arrays.asList(0, 1, 2), started);
+    assertFalse(queue.isBusy());
+  }
+
+  /**
+   * Tests {@link AccountEventQueue#add(java.util.function.Supplier)}
+   */
+  @Test
+  void testDoesNotBlockThreadsWhileEventsArePending() throws Exception {
+    int threadCount = Thread.activeCount();
+    List<AccountEventQueue> queues = new ArrayList<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      AccountEventQueue queue = new AccountEventQueue("accountId" + i);
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      futures.add(future);
+      queue.add(() -> future);
+      queue.add(() -> CompletableFuture.completedFuture(null));
+      queues.add(queue);
+    }
+    assertTrue(Thread.activeCount() <= threadCount + 1);
+    futures.forEach(future -> future.complete(null));
+    for (AccountEventQueue queue : queues) {
+      assertFalse(queue.isBusy());
+    }
+  }
+
+  /**
+   * Tests {@link AccountEventQueue#add(java.util.function.Supplier)}
+   */
+  @Test
+  void testDrainsEventsOnShardWithoutBlockingIt() throws Exception {
+    ShardedEventExecutor shards = new ShardedEventExecutor(1, null);
+    try {
+      AccountEventQueue queue1 = new AccountEventQueue("accountId1", task -> shards.execute("accountId1", task));
+      AccountEventQueue queue2 = new AccountEventQueue("accountId2", task -> shards.execute("accountId2", task));
+      List<String> started = new CopyOnWriteArrayList<>();
+      CompletableFuture<Void> pending = new CompletableFuture<>();
+      queue1.add(() -> {
+        started.add("accountId1:0:" + Thread.currentThread().getName());
+        return pending;
+      });
+      queue1.add(() -> {
+        started.add("accountId1:1:" + Thread.currentThread().getName());
+        return CompletableFuture.completedFuture(null);
+      });
+      CountDownLatch processed = new CountDownLatch(1);
+      queue2.add(() -> {
+        started.add("accountId2:0:" + Thread.currentThread().getName());
+        processed.countDown();
+        return CompletableFuture.completedFuture(null);
+      });
+      assertTrue(processed.await(1, TimeUnit.SECONDS));
+      assertEquals(Arrays.asList("accountId1:0:metaapi-event-shard-0", "accountId2:0:metaapi-event-shard-0"),
+        started);
+      pending.complete(null);
+      shards.execute("accountId1", () -> {}).get(1, TimeUnit.SECONDS);
+      assertEquals("accountId1:1:metaapi-event-shard-0", started.get(2));
+      assertFalse(queue1.isBusy());
+    } finally {
+      shards.stop();
+    }
+  }
+
+  /**
+   * Tests
+   * {@link AccountEventQueue#close()},
+   * {@link AccountEventQueue#add(java.util.function.Supplier)}
+   */
+  @Test
+  void testClosesOnlyIdleQueue() {
+    AccountEventQueue queue = new AccountEventQueue("accountId");
+    CompletableFuture<Void> pending = new CompletableFuture<>();
+    assertTrue(queue.add(() -> pending));
+    assertFalse(queue.close());
+    pending.complete(null);
+    assertTrue(queue.close());
+    List<Integer> started = new ArrayList<>();
+    assertFalse(queue.add(() -> {
+      started.add(0);
+      return CompletableFuture.completedFuture(null);
+    }));
+    assertTrue(started.isEmpty());
+    assertEquals(0, queue.size());
+  }
+}
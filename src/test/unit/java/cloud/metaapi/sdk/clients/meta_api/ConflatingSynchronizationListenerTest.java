@@ -0,0 +1,194 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cloud.metaapi.sdk.clients.meta_api.ConflatingSynchronizationListener.ConflationStatistics;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderPosition;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+
+/**
+ * Tests {@link ConflatingSynchronizationListener}
+ */
+class ConflatingSynchronizationListenerTest {
+
+  private List<List<MetatraderSymbolPrice>> deliveredBatches;
+  private List<MetatraderSymbolPrice> deliveredPrices;
+  private List<MetatraderPosition> deliveredPositions;
+  private List<CompletableFuture<Void>> pendingDeliveries;
+  private List<String> deliveredEvents;
+  private ConflatingSynchronizationListener listener;
+
+  @BeforeEach
+  void setUp() {
+    deliveredBatches = new ArrayList<>();
+    deliveredPrices = new ArrayList<>();
+    deliveredPositions = new ArrayList<>();
+    pendingDeliveries = new ArrayList<>();
+    deliveredEvents = new ArrayList<>();
+    listener = new ConflatingSynchronizationListener(new SynchronizationListener() {
+      @Override
+      public CompletableFuture<Void> onSymbolPricesUpdated(String instanceIndex, List<MetatraderSymbolPrice> prices,
+        Double equity, Double margin, Double freeMargin, Double marginLevel, Double accountCurrencyExchangeRate) {
+        deliveredBatches.add(prices);
+        deliveredEvents.add("prices:" + prices.stream().map(price -> String.valueOf(price.bid))
+          .collect(Collectors.joining(",")));
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        pendingDeliveries.add(future);
+        return future;
+      }
+
+      @Override
+      public CompletableFuture<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+        deliveredPrices.add(price);
+        return CompletableFuture.completedFuture(null);
+      }
+
+      @Override
+      public CompletableFuture<Void> onPositionUpdated(String instanceIndex, MetatraderPosition position) {
+        deliveredPositions.add(position);
+        deliveredEvents.add("position:" + position.id);
+        return CompletableFuture.completedFuture(null);
+      }
+    }, Runnable::run);
+  }
+
+  /**
+   * Tests {@link ConflatingSynchronizationListener#onSymbolPricesUpdated}
+   */
+  @Test
+  void testDeliversOnlyLatestPricePerSymbolToSlowListener() {
+    MetatraderSymbolPrice eurusd1 = createPrice("EURUSD", 1.1);
+    MetatraderSymbolPrice eurusd2 = createPrice("EURUSD", 1.2);
+    MetatraderSymbolPrice gbpusd = createPrice("GBPUSD", 1.3);
+    MetatraderSymbolPrice eurusd3 = createPrice("EURUSD", 1.4);
+    assertTrue(updatePrices(eurusd1).isDone());
+    assertTrue(updatePrices(eurusd2, gbpusd).isDone());
+    assertTrue(updatePrices(eurusd3).isDone());
+    assertEquals(1, deliveredBatches.size());
+    assertEquals(Arrays.asList(eurusd1), deliveredBatches.get(0));
+    assertEquals(0, deliveredPrices.size());
+    pendingDeliveries.get(0).complete(null);
+    assertEquals(Arrays.asList(eurusd1), deliveredPrices);
+    assertEquals(2, deliveredBatches.size());
+    assertEquals(Arrays.asList(1.4, 1.3), deliveredBatches.get(1).stream().map(price -> price.bid)
+      .collect(Collectors.toList()));
+    pendingDeliveries.get(1).complete(null);
+    assertEquals(Arrays.asList(eurusd1, eurusd3, gbpusd), deliveredPrices);
+    ConflationStatistics statistics = listener.getStatistics();
+    assertEquals(4, statistics.receivedPrices);
+    assertEquals(3, statistics.deliveredPrices);
+    assertEquals(1, statistics.conflatedPrices);
+  }
+
+  /**
+   * Tests {@link ConflatingSynchronizationListener#onPositionUpdated(String, MetatraderPosition)}
+   */
+  @Test
+  void testDeliversOtherEventsInOrderWithPrices() {
+    updatePrices(createPrice("EURUSD", 1.1));
+    updatePrices(createPrice("EURUSD", 1.2));
+    assertTrue(listener.onPositionUpdated("1:ps-mpa-1", createPosition("1")).isDone());
+    updatePrices(createPrice("EURUSD", 1.3));
+    updatePrices(createPrice("EURUSD", 1.4));
+    assertEquals(Arrays.asList("prices:1.1"), deliveredEvents);
+    pendingDeliveries.get(0).complete(null);
+    assertEquals(Arrays.asList("prices:1.1", "prices:1.2"), deliveredEvents);
+    pendingDeliveries.get(1).complete(null);
+    assertEquals(Arrays.asList("prices:1.1", "prices:1.2", "position:1", "prices:1.4"), deliveredEvents);
+  }
+
+  /**
+   * Tests {@link ConflatingSynchronizationListener#onSymbolPricesUpdated},
+   * {@link ConflatingSynchronizationListener#onPositionUpdated(String, MetatraderPosition)}
+   */
+  @Test
+  void testDoesNotBlockEventThreadOnBlockingListener() throws Exception {
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    List<String> events = new CopyOnWriteArrayList<>();
+    CountDownLatch allDelivered = new CountDownLatch(3);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      listener = new ConflatingSynchronizationListener(new SynchronizationListener() {
+        @Override
+        public CompletableFuture<Void> onSymbolPricesUpdated(String instanceIndex,
+          List<MetatraderSymbolPrice> prices, Double equity, Double margin, Double freeMargin, Double marginLevel,
+          Double accountCurrencyExchangeRate) {
+          try {
+            releaseListener.await();
+          } catch (InterruptedException err) {
+            throw new RuntimeException(err);
+          }
+          events.add("prices:" + prices.get(0).bid);
+          allDelivered.countDown();
+          return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> onPositionUpdated(String instanceIndex, MetatraderPosition position) {
+          events.add("position:" + position.id);
+          allDelivered.countDown();
+          return CompletableFuture.completedFuture(null);
+        }
+      }, executor);
+      assertTrue(updatePrices(createPrice("EURUSD", 1.1)).isDone());
+      assertTrue(listener.onPositionUpdated("1:ps-mpa-1", createPosition("1")).isDone());
+      assertTrue(updatePrices(createPrice("EURUSD", 1.2)).isDone());
+      assertTrue(updatePrices(createPrice("EURUSD", 1.3)).isDone());
+      assertTrue(events.isEmpty());
+      releaseListener.countDown();
+      assertTrue(allDelivered.await(1, TimeUnit.SECONDS));
+      assertEquals(Arrays.asList("prices:1.1", "position:1", "prices:1.3"), events);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Tests {@link ConflatingSynchronizationListener#onSymbolPricesUpdated}
+   */
+  @Test
+  void testContinuesDeliveryIfListenerFails() {
+    updatePrices(createPrice("EURUSD", 1.1));
+    updatePrices(createPrice("EURUSD", 1.2));
+    pendingDeliveries.get(0).completeExceptionally(new Exception("test"));
+    assertEquals(2, deliveredBatches.size());
+    assertEquals(1.2, deliveredBatches.get(1).get(0).bid);
+  }
+
+  private CompletableFuture<Void> updatePrices(MetatraderSymbolPrice... prices) {
+    CompletableFuture<Void> result = listener.onSymbolPricesUpdated("1:ps-mpa-1", Arrays.asList(prices),
+      100.0, 200.0, 400.0, 40000.0, 1.0);
+    for (MetatraderSymbolPrice price : prices) {
+      listener.onSymbolPriceUpdated("1:ps-mpa-1", price);
+    }
+    return result;
+  }
+
+  private MetatraderPosition createPosition(String id) {
+    MetatraderPosition position = new MetatraderPosition();
+    position.id = id;
+    return position;
+  }
+
+  private MetatraderSymbolPrice createPrice(String symbol, double bid) {
+    MetatraderSymbolPrice price = new MetatraderSymbolPrice();
+    price.symbol = symbol;
+    price.bid = bid;
+    price.ask = bid + 0.0001;
+    return price;
+  }
+}
@@ -0,0 +1,46 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ConnectedHostIndex}
+ */
+class ConnectedHostIndexTest {
+
+  /**
+   * Tests {@link ConnectedHostIndex#add(String, int, String)}
+   */
+  @Test
+  void testAddsAndRemovesHosts() {
+    ConnectedHostIndex index = new ConnectedHostIndex();
+    assertTrue(index.add("accountId", 0, "accountId:0:ps-mpa-0"));
+    assertFalse(index.add("accountId", 0, "accountId:0:ps-mpa-0"));
+    assertTrue(index.add("accountId", 0, "accountId:0:ps-mpa-1"));
+    assertTrue(index.contains("accountId:0:ps-mpa-1"));
+    assertEquals(2, index.getHostCount("accountId", 0));
+    assertTrue(index.remove("accountId", 0, "accountId:0:ps-mpa-1"));
+    assertFalse(index.remove("accountId", 0, "accountId:0:ps-mpa-1"));
+    assertFalse(index.contains("accountId:0:ps-mpa-1"));
+    assertEquals(1, index.getHostCount("accountId", 0));
+  }
+
+  /**
+   * Tests {@link ConnectedHostIndex#isOnlyActiveInstance(String, int, String)}
+   */
+  @Test
+  void testChecksIfInstanceIsOnlyActiveOne() {
+    ConnectedHostIndex index = new ConnectedHostIndex();
+    assertTrue(index.isOnlyActiveInstance("accountId", 0, "accountId:0:ps-mpa-0"));
+    index.add("accountId", 0, "accountId:0:ps-mpa-0");
+    index.add("accountId", 1, "accountId:1:ps-mpa-0");
+    index.add("accountId", 10, "accountId:10:ps-mpa-0");
+    assertTrue(index.isOnlyActiveInstance("accountId", 1, "accountId:1:ps-mpa-0"));
+    assertFalse(index.isOnlyActiveInstance("accountId", 0, "accountId:0:ps-mpa-1"));
+    index.add("accountId", 0, "accountId:0:ps-mpa-1");
+    assertFalse(index.isOnlyActiveInstance("accountId", 0, "accountId:0:ps-mpa-0"));
+    index.remove("accountId", 0, "accountId:0:ps-mpa-1");
+    assertTrue(index.isOnlyActiveInstance("accountId", 0, "accountId:0:ps-mpa-0"));
+  }
+}
@@ -0,0 +1,156 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link HashedTimingWheel}
+ */
+class HashedTimingWheelTest {
+
+  private HashedTimingWheel wheel;
+
+  @BeforeEach
+  void setUp() {
+    wheel = new HashedTimingWheel("test-timing-wheel", 10, 8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    wheel.stop();
+  }
+
+  /**
+   * Tests {@link HashedTimingWheel.Timeout#reset(long)}
+   */
+  @Test
+  void testRunsTaskAfterDelay() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    HashedTimingWheel.Timeout timeout = wheel.newTimeout(() -> counter.incrementAndGet());
+    timeout.reset(200);
+    assertTrue(timeout.isActive());
+    Thread.sleep(150);
+    assertEquals(0, counter.get());
+    Thread.sleep(150);
+    assertEquals(1, counter.get());
+    assertFalse(timeout.isActive());
+  }
+
+  /**
+   * Tests {@link HashedTimingWheel.Timeout#reset(long)}
+   */
+  @Test
+  void testMovesDeadlineOnReset() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    HashedTimingWheel.Timeout timeout = wheel.newTimeout(() -> counter.incrementAndGet());
+    for (int i = 0; i < 10; ++i) {
+      timeout.reset(200);
+      Thread.sleep(50);
+    }
+    assertEquals(0, counter.get());
+    Thread.sleep(250);
+    assertEquals(1, counter.get());
+    timeout.reset(50);
+    Thread.sleep(150);
+    assertEquals(2, counter.get());
+  }
+
+  /**
+   * Tests {@link HashedTimingWheel.Timeout#cancel()}
+   */
+  @Test
+  void testDoesNotRunCancelledTask() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    HashedTimingWheel.Timeout timeout = wheel.newTimeout(() -> counter.incrementAndGet());
+    timeout.reset(100);
+    timeout.cancel();
+    assertFalse(timeout.isActive());
+    Thread.sleep(200);
+    assertEquals(0, counter.get());
+    timeout.reset(50);
+    Thread.sleep(150);
+    assertEquals(1, counter.get());
+  }
+
+  /**
+   * Tests {@link HashedTimingWheel#stop()}
+   */
+  @Test
+  void testDoesNotRunTimeoutsAfterStop() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    HashedTimingWheel.Timeout timeout = wheel.newTimeout(() -> counter.incrementAndGet());
+    timeout.reset(50);
+    wheel.stop();
+    Thread.sleep(150);
+    assertEquals(0, counter.get());
+    HashedTimingWheel stoppedWheel = new HashedTimingWheel("stopped-timing-wheel", 10, 8);
+    stoppedWheel.stop();
+    stoppedWheel.newTimeout(() -> counter.incrementAndGet()).reset(10);
+    Thread.sleep(50);
+    assertEquals(0, counter.get());
+  }
+
+  /**
+   * Tests {@link HashedTimingWheel#newTimeout(Runnable)}
+   */
+  @Test
+  void testRunsManyTimeoutsOnOneThread() throws Exception {
+    int threadCount = Thread.activeCount();
+    AtomicInteger counter = new AtomicInteger();
+    for (int i = 0; i < 2000; ++i) {
+      wheel.newTimeout(() -> counter.incrementAndGet()).reset(100 + i % 200);
+    }
+    assertTrue(Thread.activeCount() <= threadCount + 1);
+    Thread.sleep(500);
+    assertEquals(2000, counter.get());
+  }
+
+  /**
+   * Tests {@link HashedTimingWheel.Timeout#reset(long)}
+   */
+  @Test
+  void testDoesNotRunTaskResetConcurrentlyWithExpiry() throws Exception {
+    int timeoutCount = 200;
+    AtomicInteger[] counters = new AtomicInteger[timeoutCount];
+    HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[timeoutCount];
+    for (int i = 0; i < timeoutCount; ++i) {
+      AtomicInteger counter = new AtomicInteger();
+      counters[i] = counter;
+      timeouts[i] = wheel.newTimeout(() -> counter.incrementAndGet());
+    }
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; ++t) {
+      threads[t] = new Thread(() -> {
+        long end = System.currentTimeMillis() + 300;
+        while (System.currentTimeMillis() < end) {
+          for (HashedTimingWheel.Timeout timeout : timeouts) {
+            timeout.reset(0);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (HashedTimingWheel.Timeout timeout : timeouts) {
+      timeout.reset(10000);
+    }
+    Thread.sleep(100);
+    int[] expiredCounts = new int[timeoutCount];
+    for (int i = 0; i < timeoutCount; ++i) {
+      expiredCounts[i] = counters[i].get();
+      assertTrue(timeouts[i].isActive());
+    }
+    Thread.sleep(300);
+    for (int i = 0; i < timeoutCount; ++i) {
+      assertEquals(expiredCounts[i], counters[i].get());
+      assertTrue(timeouts[i].isActive());
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.reactivestreams.tck.PublisherVerification;
+import org.reactivestreams.tck.TestEnvironment;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+
+import cloud.metaapi.sdk.clients.meta_api.MarketDataPublisher.OverflowStrategy;
+import cloud.metaapi.sdk.clients.meta_api.MarketDataPublisher.SubscriptionOptions;
+
+/**
+ * Tests {@link MarketDataPublisher}
+ */
+class MarketDataPublisherTest {
+
+  private MarketDataPublisher<String> publisher;
+  private TestSubscriber subscriber;
+
+  private static class TestSubscriber implements Subscriber<String> {
+    public Subscription subscription;
+    public List<String> items = new ArrayList<>();
+    public Throwable error;
+    public boolean isCompleted = false;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(String item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      this.error = error;
+    }
+
+    @Override
+    public void onComplete() {
+      isCompleted = true;
+    }
+  }
+
+  /**
+   * Reactive Streams TCK verification of the publisher. All subscribers of a created publisher share one
+   * market data publisher, as subscribers of a connection stream do, and receive items on a thread pool. The
+   * requested number of elements is published to the shared publisher once any subscriber requests items, so
+   * that subscribers which subscribed before receive the same elements
+   */
+  public static class Verification extends PublisherVerification<Long> {
+
+    public Verification() {
+      super(new TestEnvironment(300));
+    }
+
+    @Override
+    public Publisher<Long> createPublisher(long elements) {
+      MarketDataPublisher<Long> publisher = new MarketDataPublisher<>(String::valueOf, ForkJoinPool.commonPool());
+      AtomicBoolean isPublished = new AtomicBoolean(false);
+      SubscriptionOptions options = new SubscriptionOptions() {{
+        bufferSize = (int) Math.max(elements, 1);
+      }};
+      Runnable publish = () -> {
+        if (isPublished.compareAndSet(false, true)) {
+          for (long i = 0; i < elements; ++i) {
+            publisher.publish(i);
+          }
+          publisher.complete();
+        }
+      };
+      return subscriber -> {
+        if (subscriber == null) {
+          publisher.subscribe(null, options);
+        }
+        publisher.subscribe(new Subscriber<Long>() {
+          @Override
+          public void onSubscribe(Subscription subscription) {
+            subscriber.onSubscribe(new Subscription() {
+              @Override
+              public void request(long n) {
+                subscription.request(n);
+                publish.run();
+              }
+
+              @Override
+              public void cancel() {
+                subscription.cancel();
+              }
+            });
+          }
+
+          @Override
+          public void onNext(Long item) {
+            subscriber.onNext(item);
+          }
+
+          @Override
+          public void onError(Throwable error) {
+            subscriber.onError(error);
+          }
+
+          @Override
+          public void onComplete() {
+            subscriber.onComplete();
+          }
+        }, options);
+      };
+    }
+
+    @Override
+    public Publisher<Long> createFailedPublisher() {
+      return null;
+    }
+
+    @Override
+    public long maxElementsFromPublisher() {
+      return 1024;
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    publisher = new MarketDataPublisher<>(item -> item.split(":")[0], Runnable::run);
+    subscriber = new TestSubscriber();
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher#publish(Object)}
+   */
+  @Test
+  void testDeliversOnlyRequestedItems() {
+    publisher.subscribe(subscriber);
+    publisher.publish("EURUSD:1");
+    publisher.publish("EURUSD:2");
+    publisher.publish("EURUSD:3");
+    assertEquals(0, subscriber.items.size());
+    subscriber.subscription.request(2);
+    assertEquals(Arrays.asList("EURUSD:1", "EURUSD:2"), subscriber.items);
+    publisher.publish("EURUSD:4");
+    subscriber.subscription.request(5);
+    assertEquals(Arrays.asList("EURUSD:1", "EURUSD:2", "EURUSD:3", "EURUSD:4"), subscriber.items);
+    publisher.publish("EURUSD:5");
+    assertEquals(5, subscriber.items.size());
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher#subscribe(Subscriber, SubscriptionOptions)}
+   */
+  @Test
+  void testDropsOldestItemsOnOverflow() {
+    publisher.subscribe(subscriber, new SubscriptionOptions() {{
+      overflowStrategy = OverflowStrategy.DROP_OLDEST;
+      bufferSize = 2;
+    }});
+    publisher.publish("EURUSD:1");
+    publisher.publish("EURUSD:2");
+    publisher.publish("EURUSD:3");
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(Arrays.asList("EURUSD:2", "EURUSD:3"), subscriber.items);
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher#subscribe(Subscriber, SubscriptionOptions)}
+   */
+  @Test
+  void testConflatesItemsByKey() {
+    publisher.subscribe(subscriber, new SubscriptionOptions() {{
+      overflowStrategy = OverflowStrategy.CONFLATE;
+    }});
+    publisher.publish("EURUSD:1");
+    publisher.publish("GBPUSD:1");
+    publisher.publish("EURUSD:2");
+    subscriber.subscription.request(10);
+    assertEquals(Arrays.asList("EURUSD:2", "GBPUSD:1"), subscriber.items);
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher#subscribe(Subscriber, SubscriptionOptions)}
+   */
+  @Test
+  void testFailsSubscriptionOnBufferOverflow() {
+    publisher.subscribe(subscriber, new SubscriptionOptions() {{
+      bufferSize = 1;
+    }});
+    publisher.publish("EURUSD:1");
+    publisher.publish("EURUSD:2");
+    assertTrue(subscriber.error instanceof IllegalStateException);
+    assertEquals(0, publisher.getSubscriberCount());
+    subscriber.subscription.request(1);
+    assertEquals(0, subscriber.items.size());
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher#complete()}
+   */
+  @Test
+  void testCompletesAfterRemainingItemsAreRequested() {
+    publisher.subscribe(subscriber);
+    publisher.publish("EURUSD:1");
+    publisher.complete();
+    assertFalse(subscriber.isCompleted);
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList("EURUSD:1"), subscriber.items);
+    assertTrue(subscriber.isCompleted);
+    TestSubscriber lateSubscriber = new TestSubscriber();
+    publisher.subscribe(lateSubscriber);
+    assertTrue(lateSubscriber.isCompleted);
+  }
+
+  /**
+   * Tests {@link Subscription#request(long)}
+   */
+  @Test
+  void testFailsSubscriptionIfNonPositiveNumberIsRequested() {
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+  }
+
+  /**
+   * Tests {@link Subscription#cancel()}
+   */
+  @Test
+  void testStopsDeliveryAfterCancel() {
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(10);
+    publisher.publish("EURUSD:1");
+    subscriber.subscription.cancel();
+    publisher.publish("EURUSD:2");
+    assertEquals(Arrays.asList("EURUSD:1"), subscriber.items);
+    assertEquals(0, publisher.getSubscriberCount());
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher#subscribe(Subscriber)}
+   */
+  @Test
+  void testDoesNotSignalSubscriberBeforeOnSubscribeReturns() {
+    List<String> signals = new ArrayList<>();
+    publisher.subscribe(new TestSubscriber() {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        signals.add("onSubscribe");
+        subscription.request(1);
+        publisher.publish("EURUSD:1");
+        signals.add("onSubscribe returned");
+      }
+
+      @Override
+      public void onNext(String item) {
+        signals.add(item);
+      }
+    });
+    assertEquals(Arrays.asList("onSubscribe", "onSubscribe returned", "EURUSD:1"), signals);
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher#publish(Object)}
+   */
+  @Test
+  void testDeliversItemsOnExecutorOfSubscription() {
+    List<Runnable> publisherTasks = new ArrayList<>();
+    List<Runnable> subscriptionTasks = new ArrayList<>();
+    publisher = new MarketDataPublisher<>(item -> item.split(":")[0], publisherTasks::add);
+    TestSubscriber otherSubscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+    publisher.subscribe(otherSubscriber, new SubscriptionOptions() {{
+      executor = subscriptionTasks::add;
+    }});
+    assertEquals(1, publisherTasks.size());
+    assertEquals(1, subscriptionTasks.size());
+    publisherTasks.remove(0).run();
+    subscriptionTasks.remove(0).run();
+    subscriber.subscription.request(10);
+    otherSubscriber.subscription.request(10);
+    publisher.publish("EURUSD:1");
+    publisher.publish("EURUSD:2");
+    assertEquals(0, subscriber.items.size());
+    assertEquals(0, otherSubscriber.items.size());
+    assertEquals(1, publisherTasks.size());
+    assertEquals(1, subscriptionTasks.size());
+    subscriptionTasks.remove(0).run();
+    assertEquals(0, subscriber.items.size());
+    assertEquals(Arrays.asList("EURUSD:1", "EURUSD:2"), otherSubscriber.items);
+    publisherTasks.remove(0).run();
+    assertEquals(Arrays.asList("EURUSD:1", "EURUSD:2"), subscriber.items);
+  }
+
+  /**
+   * Tests {@link MarketDataPublisher} against the Reactive Streams TCK
+   */
+  @Test
+  void testFollowsReactiveStreamsSpecification() {
+    TestNG testng = new TestNG();
+    TestListenerAdapter listener = new TestListenerAdapter();
+    testng.setUseDefaultListeners(false);
+    testng.setVerbose(0);
+    testng.setTestClasses(new Class[] {Verification.class});
+    testng.addListener(listener);
+    testng.run();
+    assertFalse(listener.getPassedTests().isEmpty());
+    assertEquals(Arrays.asList(), listener.getFailedTests().stream()
+      .map(result -> result.getName() + ": " + result.getThrowable()).collect(Collectors.toList()));
+  }
+}
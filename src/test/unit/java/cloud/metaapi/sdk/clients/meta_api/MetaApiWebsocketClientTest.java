@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -20,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Stream;
 
@@ -148,7 +150,7 @@ class MetaApiWebsocketClientTest {
       useSharedClientApi = true;
     }});
     client.setUrl("http://localhost:6784");
-    client.socketInstancesByAccounts = Maps.newHashMap("accountId", 0);
+    client.placement.assign("accountId", 0);
     client.connect().join();
     SynchronizationThrottler clientSyncThrottler = Mockito
       .spy(client.socketInstances.get(0).synchronizationThrottler);
@@ -877,7 +879,7 @@ class MetaApiWebsocketClientTest {
   void testCreatesNewInstanceWhenAccountLimitIsReached() throws Exception {
     assertEquals(1, client.getSocketInstances().size());
     for (int i = 0; i < 100; i++) {
-      client.socketInstancesByAccounts.put("accountId" + i, 0);
+      client.placement.assign("accountId" + i, 0);
     }
 
     io.addEventListener("request", Object.class, new DataListener<Object>() {
@@ -1219,6 +1221,40 @@ class MetaApiWebsocketClientTest {
     assertFalse(client.socketInstancesByAccounts.containsKey("accountId"));
   }
   
+  /**
+   * Tests {@link MetaApiWebsocketClient#unsubscribe(String)}
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  void testRemovesDisconnectTimersOnUnsubscribe() throws Exception {
+    io.addEventListener("request", Object.class, new DataListener<Object>() {
+      @Override
+      public void onData(SocketIOClient client, Object data, AckRequest ackSender) throws Exception {
+        JsonNode request = jsonMapper.valueToTree(data);
+        ObjectNode response = jsonMapper.createObjectNode();
+        response.put("type", "response");
+        response.put("accountId", "accountId");
+        response.set("requestId", request.get("requestId"));
+        client.sendEvent("response", response.toString());
+      }
+    });
+    Map<String, HashedTimingWheel.Timeout> statusTimers = (Map<String, HashedTimingWheel.Timeout>)
+      FieldUtils.readField(client, "statusTimers", true);
+    ObjectNode authPacket = jsonMapper.createObjectNode();
+    authPacket.put("type", "authenticated");
+    authPacket.put("accountId", "accountId");
+    authPacket.put("host", "ps-mpa-1");
+    authPacket.put("instanceIndex", 1);
+    authPacket.put("replicas", 1);
+    server.sendEvent("synchronization", authPacket.toString());
+    Thread.sleep(200);
+    HashedTimingWheel.Timeout timer = statusTimers.get("accountId:1:ps-mpa-1");
+    assertTrue(timer.isActive());
+    client.unsubscribe("accountId").join();
+    assertTrue(statusTimers.isEmpty());
+    assertFalse(timer.isActive());
+  }
+  
   /**
    * Tests {@link MetaApiWebsocketClient#unsubscribe(String)}
    */
@@ -2335,6 +2371,31 @@ class MetaApiWebsocketClientTest {
     FieldUtils.writeField(client, "requestTimeout", defaultTimeout, true);
   }
   
+  /**
+   * Tests {@link MetaApiWebsocketClient#rpcRequest}
+   */
+  @Test
+  void testDoesNotBlockThreadsWhileRequestsAreInFlight() throws Exception {
+    FieldUtils.writeField(client, "requestTimeout", 1000, true);
+    FieldUtils.writeField(client, "retries", 0, true);
+    int threadCount = Thread.activeCount();
+    List<CompletableFuture<List<MetatraderOrder>>> futures = new ArrayList<>();
+    for (int i = 0; i < 2000; ++i) {
+      futures.add(client.getOrders("accountId"));
+    }
+    Thread.sleep(200);
+    assertTrue(Thread.activeCount() < threadCount + 20);
+    for (CompletableFuture<List<MetatraderOrder>> future : futures) {
+      try {
+        future.join();
+        throw new Exception("TimeoutException expected");
+      } catch (CompletionException e) {
+        assertTrue(e.getCause() instanceof TimeoutException);
+      }
+    }
+    assertEquals(0, client.socketInstances.get(0).requestResolves.size());
+  }
+  
   /**
    * Tests {@link MetaApiWebsocketClient#subscribeToMarketData(String, String)}
    */
@@ -2537,6 +2598,121 @@ class MetaApiWebsocketClientTest {
     }));
   }
   
+  /**
+   * Tests {@link MetaApiWebsocketClient#addSynchronizationListener(String, SynchronizationListener)}
+   */
+  @ParameterizedTest
+  @MethodSource("provideSymbolPrice")
+  void testSynchronizesSymbolPricesWithSynchronousListener(MetatraderSymbolPrice price) throws Exception {
+    List<MetatraderSymbolPrice> prices = Arrays.asList(price);
+    SynchronizationListener listener = Mockito.mock(SynchronizationListener.class,
+      Mockito.withSettings().extraInterfaces(SynchronousSynchronizationListener.class));
+    SynchronousSynchronizationListener syncListener = (SynchronousSynchronizationListener) listener;
+    Mockito.when(syncListener.isSynchronousPriceStreamEnabled()).thenReturn(true);
+    Mockito.doThrow(new RuntimeException("test")).when(syncListener).onSymbolPricesUpdatedSync(
+      Mockito.anyString(), Mockito.anyList(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+      Mockito.any());
+    client.addSynchronizationListener("accountId", listener);
+    ObjectNode packet = jsonMapper.createObjectNode();
+    packet.put("type", "prices");
+    packet.put("accountId", "accountId");
+    packet.set("prices", jsonMapper.valueToTree(prices));
+    packet.put("equity", 100);
+    packet.put("margin", 200);
+    packet.put("freeMargin", 400);
+    packet.put("marginLevel", 40000);
+    packet.put("instanceIndex", 1);
+    packet.put("host", "ps-mpa-1");
+    server.sendEvent("synchronization", packet.toString());
+    Thread.sleep(50);
+    Mockito.verify(syncListener).onSymbolPricesUpdatedSync(Mockito.eq("1:ps-mpa-1"), Mockito.argThat(arg -> {
+      assertThat(arg).usingRecursiveComparison().isEqualTo(prices);
+      return true;
+    }), Mockito.eq(100.0), Mockito.eq(200.0), Mockito.eq(400.0), Mockito.eq(40000.0), Mockito.any());
+    Mockito.verify(syncListener).onSymbolPriceUpdatedSync(Mockito.eq("1:ps-mpa-1"), Mockito.argThat(arg -> {
+      assertThat(arg).usingRecursiveComparison().isEqualTo(prices.get(0));
+      return true;
+    }));
+    Mockito.verify(syncListener, Mockito.never()).onCandlesUpdatedSync(Mockito.anyString(), Mockito.anyList(),
+      Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    Mockito.verify(listener, Mockito.never()).onSymbolPricesUpdated(Mockito.anyString(), Mockito.anyList(),
+      Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+  }
+  
+  /**
+   * Tests {@link MetaApiWebsocketClient#addSynchronizationListener(String, SynchronizationListener)}
+   */
+  @Test
+  void testDeliversPricesAsynchronouslyIfSynchronousPriceStreamIsNotEnabled() throws Exception {
+    MetatraderSymbolPrice price = new MetatraderSymbolPrice() {{
+      symbol = "EURUSD"; bid = 1.18; ask = 1.19; brokerTime = "2020-04-02 09:00:00.000";
+      time = new IsoTime("2020-04-02T09:00:00.000Z");
+    }};
+    SynchronizationListener listener = Mockito.mock(SynchronizationListener.class,
+      Mockito.withSettings().extraInterfaces(SynchronousSynchronizationListener.class));
+    SynchronousSynchronizationListener syncListener = (SynchronousSynchronizationListener) listener;
+    Mockito.when(listener.onSymbolPricesUpdated(Mockito.anyString(), Mockito.anyList(), Mockito.any(),
+      Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+      .thenReturn(CompletableFuture.completedFuture(null));
+    Mockito.when(listener.onSymbolPriceUpdated(Mockito.anyString(), Mockito.any()))
+      .thenReturn(CompletableFuture.completedFuture(null));
+    client.addSynchronizationListener("accountId", listener);
+    ObjectNode packet = jsonMapper.createObjectNode();
+    packet.put("type", "prices");
+    packet.put("accountId", "accountId");
+    packet.set("prices", jsonMapper.valueToTree(Arrays.asList(price)));
+    packet.put("instanceIndex", 1);
+    packet.put("host", "ps-mpa-1");
+    server.sendEvent("synchronization", packet.toString());
+    Thread.sleep(50);
+    Mockito.verify(listener).onSymbolPricesUpdated(Mockito.eq("1:ps-mpa-1"), Mockito.anyList(), Mockito.any(),
+      Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    Mockito.verify(listener).onSymbolPriceUpdated(Mockito.eq("1:ps-mpa-1"), Mockito.any());
+    Mockito.verify(syncListener, Mockito.never()).onSymbolPricesUpdatedSync(Mockito.anyString(),
+      Mockito.anyList(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    Mockito.verify(syncListener, Mockito.never()).onSymbolPriceUpdatedSync(Mockito.anyString(), Mockito.any());
+  }
+  
+  /**
+   * Tests {@link MetaApiWebsocketClient#registerPacketHandler(String, SynchronizationPacketHandler)}
+   */
+  @Test
+  void testProcessesCustomPacketTypeWithRegisteredHandler() throws Exception {
+    SynchronizationListener listener = Mockito.mock(SynchronizationListener.class);
+    client.addSynchronizationListener("accountId", listener);
+    List<String> handled = new CopyOnWriteArrayList<>();
+    client.registerPacketHandler("custom", (packet, instance, listeners) -> {
+      assertEquals("accountId", instance.getAccountId());
+      assertEquals(1, instance.getInstanceNumber());
+      assertEquals("ps-mpa-1", instance.getHost());
+      assertEquals("accountId:1:ps-mpa-1", instance.getInstanceId());
+      assertEquals(Arrays.asList(listener), listeners);
+      handled.add(instance.getInstanceIndex() + ":" + packet.get("value").asText());
+      return CompletableFuture.completedFuture(null);
+    });
+    for (String value : Arrays.asList("value1", "value2")) {
+      ObjectNode packet = jsonMapper.createObjectNode();
+      packet.put("type", "custom");
+      packet.put("accountId", "accountId");
+      packet.put("instanceIndex", 1);
+      packet.put("host", "ps-mpa-1");
+      packet.put("value", value);
+      server.sendEvent("synchronization", packet.toString());
+      Thread.sleep(50);
+    }
+    assertEquals(Arrays.asList("1:ps-mpa-1:value1", "1:ps-mpa-1:value2"), handled);
+    assertThrows(ValidationException.class, () -> client.registerPacketHandler("prices",
+      (packet, instance, listeners) -> CompletableFuture.completedFuture(null)));
+    client.removePacketHandler("custom");
+    ObjectNode packet = jsonMapper.createObjectNode();
+    packet.put("type", "custom");
+    packet.put("accountId", "accountId");
+    packet.put("value", "value3");
+    server.sendEvent("synchronization", packet.toString());
+    Thread.sleep(50);
+    assertEquals(2, handled.size());
+  }
+  
   /**
    * Tests {@link MetaApiWebsocketClient#waitSynchronized(String, String, Long)}
    */
@@ -0,0 +1,161 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cloud.metaapi.sdk.clients.meta_api.PacketDecoder.PricesPacket;
+import cloud.metaapi.sdk.clients.models.WebsocketError;
+import cloud.metaapi.sdk.util.JsonMapper;
+
+/**
+ * Tests {@link PacketDecoder}
+ */
+class PacketDecoderTest {
+
+  private static final String PACKET = "{\"type\":\"prices\",\"accountId\":\"accountId\","
+    + "\"sequenceNumber\":1603124267178,\"instanceIndex\":0,\"equity\":1000.5,\"host\":null,"
+    + "\"online\":true,\"prices\":[{\"symbol\":\"EURUSD\",\"bid\":1.18,\"ask\":1.19}]}";
+  private ObjectMapper jsonMapper = JsonMapper.getInstance();
+  private PacketDecoder decoder;
+
+  @BeforeEach
+  void setUp() {
+    decoder = new PacketDecoder(jsonMapper);
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decode(Object)}
+   */
+  @Test
+  void testDecodesTextFrame() throws Exception {
+    assertEquals(jsonMapper.readTree(PACKET), decoder.decode(PACKET));
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decode(Object)}
+   */
+  @Test
+  void testDecodesDoubleEncodedTextFrame() throws Exception {
+    String doubleEncoded = jsonMapper.writeValueAsString(PACKET);
+    assertEquals(jsonMapper.readTree(PACKET), decoder.decode(doubleEncoded));
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decode(Object)}
+   */
+  @Test
+  void testConvertsJsonObjectFrameWithoutReparsing() throws Exception {
+    JsonNode packet = decoder.decode(new JSONObject(PACKET));
+    assertEquals(jsonMapper.readTree(PACKET), packet);
+    assertEquals(1603124267178L, packet.get("sequenceNumber").asLong());
+    assertEquals(1000.5, packet.get("equity").asDouble());
+    assertTrue(packet.get("host").isNull());
+    assertTrue(packet.get("online").asBoolean());
+    assertEquals("EURUSD", packet.get("prices").get(0).get("symbol").asText());
+    assertEquals(1.19, packet.get("prices").get(0).get("ask").asDouble());
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decode(Object)}
+   */
+  @Test
+  void testConvertsJsonArrayFrame() throws Exception {
+    JsonNode packet = decoder.decode(new JSONArray("[1,\"two\",{\"three\":3}]"));
+    assertEquals(jsonMapper.readTree("[1,\"two\",{\"three\":3}]"), packet);
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decode(Object, Class)}
+   */
+  @Test
+  void testDecodesFrameIntoObject() throws Exception {
+    String error = "{\"id\":1,\"error\":\"NotFoundError\",\"message\":\"Not found\",\"requestId\":\"id\"}";
+    WebsocketError fromText = decoder.decode(error, WebsocketError.class);
+    WebsocketError fromObject = decoder.decode(new JSONObject(error), WebsocketError.class);
+    assertEquals("id", fromText.requestId);
+    assertEquals("id", fromObject.requestId);
+    assertEquals("NotFoundError", fromObject.error);
+    assertEquals("Not found", fromObject.message);
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decodePrices(JsonNode)}
+   */
+  @Test
+  void testDecodesPricesPacket() throws Exception {
+    PricesPacket packet = decoder.decodePrices(decoder.decode(PACKET));
+    assertEquals(1, packet.prices.size());
+    assertEquals("EURUSD", packet.prices.get(0).symbol);
+    assertEquals(1.18, packet.prices.get(0).bid);
+    assertEquals(1.19, packet.prices.get(0).ask);
+    assertEquals(1000.5, packet.equity);
+    assertNull(packet.margin);
+    assertNull(packet.freeMargin);
+    assertNull(packet.marginLevel);
+    assertNull(packet.accountCurrencyExchangeRate);
+    assertTrue(packet.candles.isEmpty());
+    assertTrue(packet.ticks.isEmpty());
+    assertTrue(packet.books.isEmpty());
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decodeSynchronizationPacket(Object)}
+   */
+  @Test
+  void testBindsMarketDataOfTextFrameWithoutTree() throws Exception {
+    JsonNode packet = decoder.decodeSynchronizationPacket(PACKET);
+    assertFalse(packet.has("prices"));
+    assertEquals(jsonMapper.readTree("{\"type\":\"prices\",\"accountId\":\"accountId\","
+      + "\"sequenceNumber\":1603124267178,\"instanceIndex\":0,\"equity\":1000.5,\"host\":null,"
+      + "\"online\":true}").toString(), packet.toString());
+    assertEquals("prices", packet.get("type").asText());
+    assertEquals(1603124267178L, packet.get("sequenceNumber").asLong());
+    assertTrue(packet.get("host").isNull());
+    PricesPacket pricesPacket = decoder.decodePrices(packet);
+    assertEquals(1, pricesPacket.prices.size());
+    assertEquals("EURUSD", pricesPacket.prices.get(0).symbol);
+    assertEquals(1.19, pricesPacket.prices.get(0).ask);
+    assertEquals(1000.5, pricesPacket.equity);
+    assertTrue(pricesPacket.candles.isEmpty());
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decodeSynchronizationPacket(Object)}
+   */
+  @Test
+  void testBindsMarketDataOfJsonObjectFrameWithoutTree() throws Exception {
+    JsonNode packet = decoder.decodeSynchronizationPacket(new JSONObject(PACKET));
+    assertFalse(packet.has("prices"));
+    assertEquals(7, packet.size());
+    assertEquals(0, packet.get("instanceIndex").asInt());
+    PricesPacket pricesPacket = decoder.decodePrices(packet);
+    assertEquals(1, pricesPacket.prices.size());
+    assertEquals("EURUSD", pricesPacket.prices.get(0).symbol);
+    assertEquals(1.18, pricesPacket.prices.get(0).bid);
+    assertEquals(1000.5, pricesPacket.equity);
+    PricesPacket copiedPricesPacket = decoder.decodePrices(packet.deepCopy());
+    assertEquals(pricesPacket.prices, copiedPricesPacket.prices);
+    JsonNode statusPacket = decoder.decodeSynchronizationPacket("{\"type\":\"status\",\"connected\":true}");
+    assertEquals(jsonMapper.readTree("{\"type\":\"status\",\"connected\":true}"), statusPacket);
+  }
+
+  /**
+   * Tests {@link PacketDecoder#decodePrices(JsonNode)}
+   */
+  @Test
+  void testTreatsNullPricesFieldsAsAbsent() throws Exception {
+    PricesPacket packet = decoder.decodePrices(decoder.decode(
+      "{\"type\":\"prices\",\"prices\":null,\"candles\":null,\"equity\":null,\"margin\":25.5}"));
+    assertTrue(packet.prices.isEmpty());
+    assertTrue(packet.candles.isEmpty());
+    assertNull(packet.equity);
+    assertEquals(25.5, packet.margin);
+  }
+}
@@ -0,0 +1,177 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+
+/**
+ * Tests {@link PriceRingBuffer}
+ */
+class PriceRingBufferTest {
+
+  private ExecutorService executor;
+  private PriceRingBuffer ringBuffer;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(2);
+    ringBuffer = new PriceRingBuffer("accountId", 6, executor);
+  }
+
+  @AfterEach
+  void tearDown() {
+    ringBuffer.stop();
+    executor.shutdown();
+  }
+
+  /**
+   * Tests {@link PriceRingBuffer#PriceRingBuffer(String, int, Executor)}
+   */
+  @Test
+  void testRoundsCapacityUpToPowerOfTwo() {
+    assertEquals(8, ringBuffer.getCapacity());
+    assertEquals(4096, new PriceRingBuffer("accountId", 4096, executor).getCapacity());
+  }
+
+  /**
+   * Tests {@link PriceRingBuffer#publish(String, List)}
+   */
+  @Test
+  void testDeliversPricesToEachConsumerInOrder() throws Exception {
+    List<String> received1 = new CopyOnWriteArrayList<>();
+    List<String> received2 = new CopyOnWriteArrayList<>();
+    ringBuffer.addConsumer(event -> received1.add(event.instanceIndex + ":" + event.symbol + ":" + event.bid));
+    ringBuffer.addConsumer(event -> received2.add(event.instanceIndex + ":" + event.symbol + ":" + event.bid));
+    ringBuffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.1), createPrice("GBPUSD", 1.3)));
+    ringBuffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.2)));
+    Thread.sleep(100);
+    List<String> expected = Arrays.asList("1:ps-mpa-1:EURUSD:1.1", "1:ps-mpa-1:GBPUSD:1.3",
+      "1:ps-mpa-1:EURUSD:1.2");
+    assertEquals(expected, received1);
+    assertEquals(expected, received2);
+    assertEquals(2, ringBuffer.getCursor());
+    for (PriceRingBuffer.Consumer consumer : ringBuffer.getConsumers()) {
+      assertEquals(2, consumer.getSequence());
+      assertEquals(0, consumer.getLag());
+    }
+  }
+
+  /**
+   * Tests {@link PriceRingBuffer.Consumer#getMissedEvents()}
+   */
+  @Test
+  void testSkipsOverwrittenPricesForSlowConsumer() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    List<Double> slowReceived = new CopyOnWriteArrayList<>();
+    List<Double> fastReceived = new CopyOnWriteArrayList<>();
+    PriceRingBuffer.Consumer slowConsumer = ringBuffer.addConsumer(event -> {
+      latch.await();
+      slowReceived.add(event.bid);
+    });
+    ringBuffer.addConsumer(event -> fastReceived.add(event.bid));
+    ringBuffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 0)));
+    Thread.sleep(50);
+    for (int i = 1; i < 20; ++i) {
+      ringBuffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", i)));
+      Thread.sleep(5);
+    }
+    assertEquals(20, fastReceived.size());
+    assertEquals(0, slowReceived.size());
+    latch.countDown();
+    Thread.sleep(100);
+    assertEquals(Arrays.asList(0.0, 12.0, 13.0, 14.0, 15.0, 16.0, 17.0, 18.0, 19.0), slowReceived);
+    assertEquals(11, slowConsumer.getMissedEvents());
+    assertEquals(19, slowConsumer.getSequence());
+  }
+
+  /**
+   * Tests {@link PriceRingBuffer.Consumer#stop()}
+   */
+  @Test
+  void testStopsConsumer() throws Exception {
+    List<Double> received = new CopyOnWriteArrayList<>();
+    PriceRingBuffer.Consumer consumer = ringBuffer.addConsumer(event -> received.add(event.bid));
+    ringBuffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.1)));
+    Thread.sleep(50);
+    consumer.stop();
+    Thread.sleep(50);
+    ringBuffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.2)));
+    Thread.sleep(50);
+    assertEquals(Arrays.asList(1.1), received);
+    assertEquals(0, ringBuffer.getConsumers().size());
+  }
+
+  /**
+   * Tests {@link PriceRingBuffer#PriceRingBuffer(String, int, Executor)}
+   */
+  @Test
+  void testSchedulesConsumersOnlyWhenPricesArePublished() {
+    List<Runnable> tasks = new ArrayList<>();
+    PriceRingBuffer buffer = new PriceRingBuffer("accountId", 8, tasks::add);
+    List<Double> received = new ArrayList<>();
+    buffer.addConsumer(event -> received.add(event.bid));
+    assertTrue(tasks.isEmpty());
+    buffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.1)));
+    buffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.2)));
+    assertEquals(1, tasks.size());
+    tasks.remove(0).run();
+    assertEquals(Arrays.asList(1.1, 1.2), received);
+    assertTrue(tasks.isEmpty());
+    buffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.3)));
+    assertEquals(1, tasks.size());
+    tasks.remove(0).run();
+    assertEquals(Arrays.asList(1.1, 1.2, 1.3), received);
+    assertTrue(tasks.isEmpty());
+  }
+
+  /**
+   * Tests {@link PriceRingBuffer#publish(String, List)}
+   */
+  @Test
+  void testWaitsForPublisherInsteadOfSpinningOnSlotBeingWritten() throws Exception {
+    List<Runnable> tasks = new ArrayList<>();
+    PriceRingBuffer buffer = new PriceRingBuffer("accountId", 8, tasks::add);
+    List<Double> received = new CopyOnWriteArrayList<>();
+    buffer.addConsumer(event -> received.add(event.bid));
+    buffer.publish("1:ps-mpa-1", Arrays.asList(createPrice("EURUSD", 1.1)));
+    Object slot = ((Object[]) FieldUtils.readField(buffer, "slots", true))[0];
+    Field slotSequence = slot.getClass().getField("sequence");
+    slotSequence.setAccessible(true);
+    Thread consumerThread = new Thread(tasks.remove(0));
+    synchronized (buffer) {
+      slotSequence.setLong(slot, -1);
+      consumerThread.start();
+      long deadline = System.currentTimeMillis() + 1000;
+      while (consumerThread.getState() != Thread.State.BLOCKED && System.currentTimeMillis() < deadline) {
+        Thread.sleep(1);
+      }
+      assertEquals(Thread.State.BLOCKED, consumerThread.getState());
+      slotSequence.setLong(slot, 0);
+    }
+    consumerThread.join(1000);
+    assertEquals(Arrays.asList(1.1), received);
+  }
+
+  private MetatraderSymbolPrice createPrice(String symbol, double bid) {
+    MetatraderSymbolPrice price = new MetatraderSymbolPrice();
+    price.symbol = symbol;
+    price.bid = bid;
+    price.ask = bid + 0.0001;
+    return price;
+  }
+}
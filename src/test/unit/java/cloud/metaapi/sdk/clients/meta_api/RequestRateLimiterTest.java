@@ -0,0 +1,158 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cloud.metaapi.sdk.clients.TimeoutException;
+import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException;
+import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException.TooManyRequestsExceptionMetadata;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Tests {@link RequestRateLimiter}
+ */
+class RequestRateLimiterTest {
+
+  private SdkScheduler scheduler;
+  private RequestRateLimiter limiter;
+
+  @BeforeEach
+  void setUp() {
+    scheduler = new SdkScheduler();
+    limiter = new RequestRateLimiter(scheduler, new RequestRateLimiter.Options() {{
+      safetyFactor = 1;
+    }});
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.stop();
+  }
+
+  /**
+   * Tests {@link RequestRateLimiter#acquire(String, String, int)}
+   */
+  @Test
+  void testDoesNotDelayRequestsWithoutLimits() {
+    assertTrue(limiter.acquire("getOrder", "accountId", 0).isDone());
+    limiter.onTooManyRequests("subscribe", "accountId", 0, createMetadata(
+      "LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_USER", 0, 1000));
+    assertTrue(limiter.acquire("subscribe", "accountId", 0).isDone());
+    assertEquals(0, limiter.getMetrics().activeLimits);
+    assertEquals(0, limiter.getMetrics().delayedRequests);
+  }
+
+  /**
+   * Tests {@link RequestRateLimiter#onTooManyRequests}
+   */
+  @Test
+  void testPausesRequestTypeUntilRecommendedRetryTime() throws Exception {
+    limiter.onTooManyRequests("getOrder", "accountId", 0, createMetadata("LIMIT_REQUEST_RATE_PER_USER", 0, 200));
+    CompletableFuture<Void> request = limiter.acquire("getOrder", "accountId", 0);
+    assertTrue(limiter.acquire("getPositions", "accountId", 0).isDone());
+    assertFalse(request.isDone());
+    assertEquals(1, limiter.getMetrics().queuedRequests);
+    Thread.sleep(100);
+    assertFalse(request.isDone());
+    Thread.sleep(200);
+    assertTrue(request.isDone());
+    RequestRateLimiter.RateLimiterMetrics metrics = limiter.getMetrics();
+    assertEquals(0, metrics.queuedRequests);
+    assertEquals(1, metrics.activeLimits);
+    assertEquals(1, metrics.delayedRequests);
+    assertEquals(1, metrics.tooManyRequestsErrors);
+  }
+
+  /**
+   * Tests {@link RequestRateLimiter#acquire(String, String, int)}
+   */
+  @Test
+  void testLimitsRequestRateFromErrorMetadata() throws Exception {
+    limiter.onTooManyRequests("getOrder", "accountId", 0, createMetadata("LIMIT_REQUEST_RATE_PER_USER", 600, 0));
+    CompletableFuture<Void> request1 = limiter.acquire("getOrder", "accountId", 0);
+    CompletableFuture<Void> request2 = limiter.acquire("getOrder", "accountId", 0);
+    CompletableFuture<Void> request3 = limiter.acquire("getOrder", "accountId", 0);
+    Thread.sleep(50);
+    assertTrue(request1.isDone());
+    assertFalse(request2.isDone());
+    Thread.sleep(100);
+    assertTrue(request2.isDone());
+    assertFalse(request3.isDone());
+    Thread.sleep(150);
+    assertTrue(request3.isDone());
+  }
+
+  /**
+   * Tests {@link RequestRateLimiter#onTooManyRequests}
+   */
+  @Test
+  void testLimitsAccountAndSocketInstanceScopes() {
+    limiter.onTooManyRequests("getOrder", "accountId1", 0, createMetadata(
+      "LIMIT_REQUEST_RATE_PER_ACCOUNT", 0, 1000));
+    limiter.onTooManyRequests("getOrder", "accountId3", 1, createMetadata(
+      "LIMIT_REQUEST_RATE_PER_SERVER", 0, 1000));
+    assertFalse(limiter.acquire("getPositions", "accountId1", 0).isDone());
+    assertTrue(limiter.acquire("getPositions", "accountId2", 0).isDone());
+    assertFalse(limiter.acquire("getPositions", "accountId4", 1).isDone());
+    assertEquals(2, limiter.getMetrics().activeLimits);
+  }
+
+  /**
+   * Tests {@link RequestRateLimiter#acquire(String, String, int, long)}
+   */
+  @Test
+  void testRejectsPausedTradesImmediately() {
+    limiter.onTooManyRequests("trade", "accountId", 0, createMetadata("LIMIT_REQUEST_RATE_PER_ACCOUNT", 0, 1000));
+    CompletableFuture<Void> request = limiter.acquire("trade", "accountId", 0, 60000);
+    assertTrue(request.isCompletedExceptionally());
+    ExecutionException error = assertThrows(ExecutionException.class, () -> request.get());
+    assertTrue(error.getCause() instanceof TooManyRequestsException);
+    TooManyRequestsExceptionMetadata metadata = ((TooManyRequestsException) error.getCause()).metadata;
+    assertEquals("LIMIT_REQUEST_RATE_PER_ACCOUNT", metadata.type);
+    assertTrue(metadata.recommendedRetryTime.getDate().getTime() > System.currentTimeMillis() + 500);
+    assertEquals(0, limiter.getMetrics().queuedRequests);
+    assertFalse(limiter.acquire("getOrder", "accountId", 0, 60000).isDone());
+  }
+
+  /**
+   * Tests {@link RequestRateLimiter#acquire(String, String, int, long)}
+   */
+  @Test
+  void testBoundsWaitByRequestTimeout() throws Exception {
+    limiter.onTooManyRequests("getOrder", "accountId", 0, createMetadata("LIMIT_REQUEST_RATE_PER_USER", 0, 1000));
+    assertTrue(limiter.acquire("getOrder", "accountId", 0, 500).isCompletedExceptionally());
+    limiter.onTooManyRequests("getPositions", "accountId", 0, createMetadata(
+      "LIMIT_REQUEST_RATE_PER_USER", 120, 100));
+    CompletableFuture<Void> request1 = limiter.acquire("getPositions", "accountId", 0, 200);
+    CompletableFuture<Void> request2 = limiter.acquire("getPositions", "accountId", 0, 200);
+    Thread.sleep(50);
+    assertFalse(request1.isDone());
+    assertFalse(request2.isDone());
+    Thread.sleep(100);
+    assertTrue(request1.isDone());
+    assertFalse(request1.isCompletedExceptionally());
+    assertFalse(request2.isDone());
+    Thread.sleep(200);
+    assertTrue(request2.isDone());
+    ExecutionException error = assertThrows(ExecutionException.class, () -> request2.get());
+    assertTrue(error.getCause() instanceof TimeoutException);
+  }
+
+  private TooManyRequestsExceptionMetadata createMetadata(String limitType, int requestsAllowed,
+    int retryDelayInMilliseconds) {
+    TooManyRequestsExceptionMetadata metadata = new TooManyRequestsExceptionMetadata();
+    metadata.type = limitType;
+    metadata.periodInMinutes = 1;
+    metadata.requestsPerPeriodAllowed = requestsAllowed;
+    metadata.recommendedRetryTime = new IsoTime(Date.from(Instant.now().plusMillis(retryDelayInMilliseconds)));
+    return metadata;
+  }
+}
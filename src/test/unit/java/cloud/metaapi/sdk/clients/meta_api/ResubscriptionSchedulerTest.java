@@ -0,0 +1,148 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cloud.metaapi.sdk.clients.error_handler.TooManyRequestsException.TooManyRequestsExceptionMetadata;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Tests {@link ResubscriptionScheduler}
+ */
+class ResubscriptionSchedulerTest {
+
+  private SdkScheduler scheduler;
+  private ResubscriptionScheduler resubscriptionScheduler;
+  private List<String> resubscribedAccountIds;
+
+  @BeforeEach
+  void setUp() {
+    scheduler = new SdkScheduler();
+    resubscriptionScheduler = new ResubscriptionScheduler(scheduler, new ResubscriptionScheduler.Options() {{
+      ratePerSecond = 10;
+      burst = 2;
+    }});
+    resubscribedAccountIds = new CopyOnWriteArrayList<>();
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.stop();
+  }
+
+  /**
+   * Tests {@link ResubscriptionScheduler#schedule(String, Runnable)}
+   */
+  @Test
+  void testLimitsResubscriptionRate() throws Exception {
+    for (String accountId : Arrays.asList("accountId1", "accountId2", "accountId3", "accountId4")) {
+      resubscriptionScheduler.schedule(accountId, () -> resubscribedAccountIds.add(accountId));
+    }
+    assertEquals(Arrays.asList("accountId1", "accountId2"), resubscribedAccountIds);
+    assertEquals(2, resubscriptionScheduler.getMetrics().queuedResubscriptions);
+    Thread.sleep(150);
+    assertEquals(Arrays.asList("accountId1", "accountId2", "accountId3"), resubscribedAccountIds);
+    Thread.sleep(100);
+    assertEquals(Arrays.asList("accountId1", "accountId2", "accountId3", "accountId4"), resubscribedAccountIds);
+  }
+
+  /**
+   * Tests {@link ResubscriptionScheduler#setPriority(String, int)}
+   */
+  @Test
+  void testResubscribesHighPriorityAccountsFirst() throws Exception {
+    resubscriptionScheduler.setPriority("accountId4", 1);
+    for (String accountId : Arrays.asList("accountId1", "accountId2", "accountId3", "accountId4")) {
+      resubscriptionScheduler.schedule(accountId, () -> resubscribedAccountIds.add(accountId));
+    }
+    Thread.sleep(250);
+    assertEquals(Arrays.asList("accountId1", "accountId2", "accountId4", "accountId3"), resubscribedAccountIds);
+  }
+
+  /**
+   * Tests {@link ResubscriptionScheduler#schedule(Map)}
+   */
+  @Test
+  void testQueuesAllResubscriptionsOfBatchBeforeSendingThem() throws Exception {
+    resubscriptionScheduler.setPriority("accountId4", 1);
+    Map<String, Runnable> tasks = new LinkedHashMap<>();
+    for (String accountId : Arrays.asList("accountId1", "accountId2", "accountId3", "accountId4")) {
+      tasks.put(accountId, () -> resubscribedAccountIds.add(accountId));
+    }
+    resubscriptionScheduler.schedule(tasks);
+    assertEquals(Arrays.asList("accountId4", "accountId1"), resubscribedAccountIds);
+    Thread.sleep(250);
+    assertEquals(Arrays.asList("accountId4", "accountId1", "accountId2", "accountId3"), resubscribedAccountIds);
+  }
+
+  /**
+   * Tests {@link ResubscriptionScheduler#onTooManyRequests(TooManyRequestsExceptionMetadata)}
+   */
+  @Test
+  void testPausesUntilRecommendedRetryTime() throws Exception {
+    resubscriptionScheduler.onTooManyRequests(new TooManyRequestsExceptionMetadata() {{
+      type = "LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_SERVER";
+      recommendedRetryTime = new IsoTime(Date.from(Instant.now().plusMillis(300)));
+    }});
+    resubscriptionScheduler.schedule("accountId1", () -> resubscribedAccountIds.add("accountId1"));
+    ResubscriptionScheduler.RecoveryMetrics metrics = resubscriptionScheduler.getMetrics();
+    assertNotNull(metrics.pausedUntil);
+    assertEquals(5, metrics.ratePerSecond);
+    assertEquals(1, metrics.tooManyRequestsErrors);
+    Thread.sleep(200);
+    assertEquals(0, resubscribedAccountIds.size());
+    Thread.sleep(200);
+    assertEquals(Arrays.asList("accountId1"), resubscribedAccountIds);
+    resubscriptionScheduler.onSubscribed("accountId1");
+    assertEquals(10, resubscriptionScheduler.getMetrics().ratePerSecond);
+  }
+
+  /**
+   * Tests {@link ResubscriptionScheduler#getMetrics()}
+   */
+  @Test
+  void testReportsRecoveryTime() throws Exception {
+    List<String> accountIds = Arrays.asList("accountId1", "accountId2", "accountId3");
+    resubscriptionScheduler.addPendingAccounts(accountIds);
+    for (String accountId : accountIds) {
+      resubscriptionScheduler.schedule(accountId, () -> resubscribedAccountIds.add(accountId));
+    }
+    resubscriptionScheduler.onSubscribed("accountId1");
+    resubscriptionScheduler.onSubscribed("accountId2");
+    assertEquals(1, resubscriptionScheduler.getMetrics().unrecoveredAccounts);
+    assertEquals(0, resubscriptionScheduler.getMetrics().recoveries);
+    Thread.sleep(150);
+    resubscriptionScheduler.onSubscribed("accountId3");
+    ResubscriptionScheduler.RecoveryMetrics metrics = resubscriptionScheduler.getMetrics();
+    assertEquals(0, metrics.unrecoveredAccounts);
+    assertEquals(1, metrics.recoveries);
+    assertTrue(metrics.lastRecoveryTimeInMilliseconds >= 100);
+    assertEquals(metrics.lastRecoveryTimeInMilliseconds, metrics.maxRecoveryTimeInMilliseconds);
+  }
+
+  /**
+   * Tests {@link ResubscriptionScheduler#cancel(String)}
+   */
+  @Test
+  void testDoesNotRunCancelledResubscription() throws Exception {
+    for (String accountId : Arrays.asList("accountId1", "accountId2", "accountId3")) {
+      resubscriptionScheduler.schedule(accountId, () -> resubscribedAccountIds.add(accountId));
+    }
+    resubscriptionScheduler.cancel("accountId3");
+    Thread.sleep(150);
+    assertEquals(Arrays.asList("accountId1", "accountId2"), resubscribedAccountIds);
+    assertEquals(0, resubscriptionScheduler.getMetrics().queuedResubscriptions);
+    assertEquals(2, resubscriptionScheduler.getMetrics().unrecoveredAccounts);
+  }
+}
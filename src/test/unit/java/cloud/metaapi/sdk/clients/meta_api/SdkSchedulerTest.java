@@ -0,0 +1,112 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link SdkScheduler}
+ */
+class SdkSchedulerTest {
+
+  private SdkScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    scheduler = new SdkScheduler(new SdkScheduler.Options() {{
+      threadCount = 1;
+    }});
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.stop();
+  }
+
+  /**
+   * Tests {@link SdkScheduler#schedule(Runnable, long)}
+   */
+  @Test
+  void testRunsTaskOnceAfterDelay() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    scheduler.schedule(() -> counter.incrementAndGet(), 100);
+    Thread.sleep(50);
+    assertEquals(0, counter.get());
+    Thread.sleep(100);
+    assertEquals(1, counter.get());
+  }
+
+  /**
+   * Tests {@link SdkScheduler#scheduleWithFixedDelay(Runnable, long, long)}
+   */
+  @Test
+  void testRunsPeriodicTaskUntilCancelled() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    ScheduledFuture<?> future = scheduler.scheduleWithFixedDelay(() -> counter.incrementAndGet(), 50, 50);
+    Thread.sleep(275);
+    future.cancel(false);
+    int count = counter.get();
+    assertTrue(count >= 4 && count <= 5);
+    Thread.sleep(150);
+    assertEquals(count, counter.get());
+    assertEquals(0, scheduler.getMetrics().pendingTasks);
+  }
+
+  /**
+   * Tests {@link SdkScheduler#scheduleWithFixedDelay(Runnable, long, long)}
+   */
+  @Test
+  void testKeepsRunningPeriodicTaskAfterError() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    scheduler.scheduleWithFixedDelay(() -> {
+      counter.incrementAndGet();
+      throw new RuntimeException("test");
+    }, 50, 50);
+    Thread.sleep(175);
+    assertTrue(counter.get() >= 2);
+  }
+
+  /**
+   * Tests {@link SdkScheduler#getMetrics()}
+   */
+  @Test
+  void testReportsTaskCountsAndLag() throws Exception {
+    scheduler.schedule(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }, 0);
+    scheduler.schedule(() -> {}, 10);
+    scheduler.schedule(() -> {}, 10000);
+    SdkScheduler.SchedulerMetrics metrics = scheduler.getMetrics();
+    assertEquals(1, metrics.threadCount);
+    assertEquals(3, metrics.scheduledTasks);
+    Thread.sleep(200);
+    metrics = scheduler.getMetrics();
+    assertEquals(2, metrics.executedTasks);
+    assertEquals(1, metrics.pendingTasks);
+    assertTrue(metrics.maxLagInMilliseconds >= 80);
+    assertTrue(metrics.averageLagInMilliseconds >= 40);
+  }
+
+  /**
+   * Tests {@link SdkScheduler#stop()}
+   */
+  @Test
+  void testDoesNotRunTasksAfterStop() throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+    scheduler.schedule(() -> counter.incrementAndGet(), 50);
+    scheduler.stop();
+    ScheduledFuture<?> future = scheduler.schedule(() -> counter.incrementAndGet(), 0);
+    assertTrue(future.isCancelled());
+    Thread.sleep(100);
+    assertEquals(0, counter.get());
+  }
+}
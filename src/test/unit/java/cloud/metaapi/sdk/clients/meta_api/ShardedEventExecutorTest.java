@@ -0,0 +1,144 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import cloud.metaapi.sdk.clients.meta_api.ShardedEventExecutor.ShardMetrics;
+
+/**
+ * Tests {@link ShardedEventExecutor}
+ */
+class ShardedEventExecutorTest {
+
+  private ShardedEventExecutor executor;
+
+  @AfterEach
+  void tearDown() {
+    executor.stop();
+  }
+
+  /**
+   * Tests {@link ShardedEventExecutor#execute(String, Runnable)}
+   */
+  @Test
+  void testExecutesAccountEventsInOrderOnOwningWorker() {
+    executor = new ShardedEventExecutor(4, null);
+    List<Integer> executed = new CopyOnWriteArrayList<>();
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      int index = i;
+      futures.add(executor.execute("accountId", () -> {
+        executed.add(index);
+        threadNames.add(Thread.currentThread().getName());
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(i, executed.get(i));
+    }
+    assertEquals(1, threadNames.size());
+    assertEquals("metaapi-event-shard-" + executor.getShardIndex("accountId"), threadNames.iterator().next());
+  }
+
+  /**
+   * Tests {@link ShardedEventExecutor#getShardIndex(String)}
+   */
+  @Test
+  void testPlacesAccountsWithPlacementFunction() {
+    executor = new ShardedEventExecutor(3, accountId -> accountId.equals("accountId1") ? 1 : 5);
+    assertEquals(1, executor.getShardIndex("accountId1"));
+    assertEquals(2, executor.getShardIndex("accountId2"));
+  }
+
+  /**
+   * Tests {@link ShardedEventExecutor#execute(String, Runnable)}
+   */
+  @Test
+  void testCompletesExceptionallyIfEventFails() {
+    executor = new ShardedEventExecutor(1, null);
+    CompletableFuture<Void> future = executor.execute("accountId", () -> {
+      throw new RuntimeException("test");
+    });
+    assertThrows(Exception.class, () -> future.join());
+    executor.execute("accountId", () -> {}).join();
+  }
+
+  /**
+   * Tests {@link ShardedEventExecutor#getMetrics()}
+   */
+  @Test
+  void testReturnsShardMetrics() throws Exception {
+    executor = new ShardedEventExecutor(2, accountId -> 0);
+    CountDownLatch latch = new CountDownLatch(1);
+    CompletableFuture<Void> blocking = executor.execute("accountId", () -> {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 3; ++i) {
+      futures.add(executor.execute("accountId", () -> {}));
+    }
+    Thread.sleep(50);
+    List<ShardMetrics> metrics = executor.getMetrics();
+    assertEquals(2, metrics.size());
+    assertEquals(3, metrics.get(0).queueDepth);
+    assertEquals(0, metrics.get(1).queueDepth);
+    latch.countDown();
+    blocking.join();
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    metrics = executor.getMetrics();
+    assertEquals(0, metrics.get(0).queueDepth);
+    assertEquals(4, metrics.get(0).executedEvents);
+    assertTrue(metrics.get(0).maxLagInMilliseconds >= 40);
+    assertEquals(0, metrics.get(1).executedEvents);
+  }
+
+  /**
+   * Tests {@link ShardedEventExecutor#createEventQueue(String)}
+   */
+  @Test
+  void testCountsEventsOfAccountEventQueuesInShardMetrics() throws Exception {
+    executor = new ShardedEventExecutor(2, accountId -> 0);
+    AccountEventQueue eventQueue = executor.createEventQueue("accountId");
+    CompletableFuture<Void> pending = new CompletableFuture<>();
+    CountDownLatch latch = new CountDownLatch(3);
+    eventQueue.add(() -> pending);
+    for (int i = 0; i < 3; ++i) {
+      eventQueue.add(() -> {
+        latch.countDown();
+        return CompletableFuture.completedFuture(null);
+      });
+    }
+    Thread.sleep(50);
+    List<ShardMetrics> metrics = executor.getMetrics();
+    assertEquals(3, metrics.get(0).queueDepth);
+    assertEquals(1, metrics.get(0).executedEvents);
+    pending.complete(null);
+    latch.await();
+    metrics = executor.getMetrics();
+    assertEquals(0, metrics.get(0).queueDepth);
+    assertEquals(4, metrics.get(0).executedEvents);
+    assertTrue(metrics.get(0).maxLagInMilliseconds >= 40);
+    assertEquals(0, metrics.get(1).executedEvents);
+    eventQueue.add(() -> new CompletableFuture<>());
+    eventQueue.add(() -> CompletableFuture.completedFuture(null));
+    Thread.sleep(50);
+    assertEquals(1, executor.getMetrics().get(0).queueDepth);
+    executor.releaseEventQueue(eventQueue);
+    assertEquals(0, executor.getMetrics().get(0).queueDepth);
+  }
+}
@@ -0,0 +1,153 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link SocketInstancePlacement}
+ */
+class SocketInstancePlacementTest {
+
+  /**
+   * Tests {@link SocketInstancePlacement#assign(String, int)}
+   */
+  @Test
+  void testTracksAssignedAccounts() {
+    SocketInstancePlacement placement = new SocketInstancePlacement(null);
+    placement.assign("accountId1", 0);
+    placement.assign("accountId2", 0);
+    placement.assign("accountId3", 1);
+    assertEquals(2, placement.getAssignedAccountCount(0));
+    assertEquals(1, placement.getAssignedAccountCount(1));
+    placement.assign("accountId2", 1);
+    assertEquals(Integer.valueOf(1), placement.unassign("accountId3"));
+    assertNull(placement.unassign("accountId3"));
+    assertEquals(Arrays.asList("accountId1"), placement.getAssignedAccounts(0));
+    assertEquals(Arrays.asList("accountId2"), placement.getAssignedAccounts(1));
+    assertEquals(Integer.valueOf(1), placement.getInstanceIndex("accountId2"));
+    assertNull(placement.getInstancesByAccounts().get("accountId3"));
+    placement.clear();
+    assertEquals(0, placement.getAssignedAccountCount(0));
+    assertTrue(placement.getInstancesByAccounts().isEmpty());
+  }
+
+  /**
+   * Tests {@link SocketInstancePlacement#getSubscribedAccountIds(Integer)}
+   */
+  @Test
+  void testTracksSubscribedAccounts() {
+    SocketInstancePlacement placement = new SocketInstancePlacement(null);
+    placement.onHostConnected("accountId1");
+    placement.assign("accountId1", 0);
+    placement.assign("accountId2", 1);
+    placement.onHostConnected("accountId2");
+    placement.onHostConnected("accountId2");
+    placement.onHostConnected("accountId3");
+    assertEquals(Arrays.asList("accountId1"), placement.getSubscribedAccountIds(0));
+    assertEquals(Arrays.asList("accountId2"), placement.getSubscribedAccountIds(1));
+    assertEquals(2, placement.getSubscribedAccountCount(null));
+    placement.onHostDisconnected("accountId2");
+    assertEquals(1, placement.getSubscribedAccountCount(1));
+    placement.onHostDisconnected("accountId2");
+    assertEquals(0, placement.getSubscribedAccountCount(1));
+    placement.assign("accountId1", 1);
+    assertEquals(0, placement.getSubscribedAccountCount(0));
+    assertEquals(Arrays.asList("accountId1"), placement.getSubscribedAccountIds(1));
+    placement.unassign("accountId1");
+    assertEquals(0, placement.getSubscribedAccountCount(null));
+  }
+
+  /**
+   * Tests {@link SocketInstancePlacement#FIRST_FIT}
+   */
+  @Test
+  void testSelectsFirstInstanceWithFreeCapacity() {
+    SocketInstancePlacement placement = new SocketInstancePlacement(SocketInstancePlacement.FIRST_FIT);
+    placement.assign("accountId1", 1);
+    assertEquals(0, placement.selectInstance("accountId2", Arrays.asList(0, 1)));
+    assertEquals(1, placement.selectInstance("accountId2", Arrays.asList(1)));
+    assertEquals(-1, placement.selectInstance("accountId2", new ArrayList<>()));
+  }
+
+  /**
+   * Tests {@link SocketInstancePlacement#LEAST_LOADED}
+   */
+  @Test
+  void testSelectsLeastLoadedInstance() {
+    SocketInstancePlacement placement = new SocketInstancePlacement(SocketInstancePlacement.LEAST_LOADED);
+    placement.assign("accountId1", 0);
+    placement.assign("accountId2", 0);
+    placement.assign("accountId3", 1);
+    assertEquals(2, placement.selectInstance("accountId4", Arrays.asList(0, 1, 2)));
+    assertEquals(1, placement.selectInstance("accountId4", Arrays.asList(0, 1)));
+  }
+
+  /**
+   * Tests {@link SocketInstancePlacement#PACK_BY_GROUP}
+   */
+  @Test
+  void testPacksAccountsOfSameGroup() {
+    SocketInstancePlacement placement = new SocketInstancePlacement(SocketInstancePlacement.PACK_BY_GROUP);
+    placement.setGroup("accountId1", "ICMarketsSC-Demo");
+    placement.setGroup("accountId2", "Other-Demo");
+    placement.setGroup("accountId3", "ICMarketsSC-Demo");
+    placement.setGroup("accountId4", "New-Demo");
+    placement.assign("accountId1", 1);
+    placement.assign("accountId2", 0);
+    placement.assign("accountId5", 0);
+    assertEquals(1, placement.getGroupAccountCount("ICMarketsSC-Demo", 1));
+    assertEquals(1, placement.selectInstance("accountId3", Arrays.asList(0, 1, 2)));
+    assertEquals(2, placement.selectInstance("accountId4", Arrays.asList(0, 1, 2)));
+    assertEquals(2, placement.selectInstance("accountId3", Arrays.asList(0, 2)));
+    placement.assign("accountId1", 2);
+    assertEquals(0, placement.getGroupAccountCount("ICMarketsSC-Demo", 1));
+    assertEquals(2, placement.selectInstance("accountId3", Arrays.asList(0, 1, 2)));
+  }
+
+  /**
+   * Tests {@link SocketInstancePlacement#CONSISTENT_HASHING}
+   */
+  @Test
+  void testSelectsSameInstanceForAccountWithConsistentHashing() {
+    SocketInstancePlacement placement = new SocketInstancePlacement(SocketInstancePlacement.CONSISTENT_HASHING);
+    List<Integer> candidates = Arrays.asList(0, 1, 2, 3);
+    int[] counts = new int[4];
+    for (int i = 0; i < 1000; i++) {
+      int index = placement.selectInstance("accountId" + i, candidates);
+      assertEquals(index, placement.selectInstance("accountId" + i, candidates));
+      int otherIndex = placement.selectInstance("accountId" + i, Arrays.asList(0, 1, 2, 3, 4));
+      assertTrue(otherIndex == index || otherIndex == 4);
+      counts[index]++;
+    }
+    for (int count : counts) {
+      assertTrue(count > 150);
+    }
+  }
+
+  /**
+   * Tests {@link SocketInstancePlacement#selectInstance(String, List)}
+   */
+  @Test
+  void testPlacesManyAccountsEvenly() {
+    SocketInstancePlacement placement = new SocketInstancePlacement(SocketInstancePlacement.LEAST_LOADED);
+    List<Integer> candidates = new ArrayList<>();
+    for (int index = 0; index < 100; index++) {
+      candidates.add(index);
+    }
+    for (int i = 0; i < 10000; i++) {
+      String accountId = "accountId" + i;
+      placement.assign(accountId, placement.selectInstance(accountId, candidates));
+      placement.onHostConnected(accountId);
+    }
+    for (int index = 0; index < 100; index++) {
+      assertEquals(100, placement.getAssignedAccountCount(index));
+      assertEquals(100, placement.getSubscribedAccountCount(index));
+    }
+    assertEquals(10000, placement.getSubscribedAccountCount(null));
+  }
+}
@@ -1,5 +1,6 @@
 package cloud.metaapi.sdk.clients.meta_api;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -7,11 +8,13 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.assertj.core.util.Maps;
@@ -133,6 +136,37 @@ class SubscriptionManagerTest {
     Mockito.verify(client, Mockito.times(2)).subscribe(Mockito.any(), Mockito.any());
   };
 
+  /**
+   * Tests {@link SubscriptionManager#subscribe(String, Integer)}
+   */
+  @Test
+  void testLocksSocketInstanceIfSubscriptionsLimitErrorReceived() throws InterruptedException {
+    SocketInstancePlacement placement = new SocketInstancePlacement(null);
+    placement.assign("accountId", 0);
+    Mockito.when(client.getSocketInstancesByAccounts()).thenReturn(placement.getInstancesByAccounts());
+    Mockito.when(client.unassignSocketInstance("accountId"))
+      .thenAnswer(invocation -> placement.unassign("accountId"));
+    TooManyRequestsExceptionMetadata metadata = new TooManyRequestsExceptionMetadata() {{
+      periodInMinutes = 60;
+      requestsPerPeriodAllowed = 2;
+      type = "LIMIT_ACCOUNT_SUBSCRIPTIONS_PER_SERVER";
+      recommendedRetryTime = new IsoTime(Date.from(Instant.now().plusMillis(5000)));
+    }};
+    CompletableFuture<Void> rejectedFuture = new CompletableFuture<>();
+    rejectedFuture.completeExceptionally(new TooManyRequestsException("limit", metadata));
+    Mockito.when(client.subscribe(Mockito.any(), Mockito.any()))
+      .thenReturn(rejectedFuture)
+      .thenReturn(CompletableFuture.completedFuture(null));
+    manager.subscribe("accountId", null, false);
+    Thread.sleep(100);
+    Mockito.verify(client).lockSocketInstance(0, metadata);
+    assertFalse(placement.getInstancesByAccounts().containsKey("accountId"));
+    assertTrue(manager.isAccountSubscribing("accountId", null));
+    Thread.sleep(3200);
+    manager.cancelSubscribe("accountId:0");
+    Mockito.verify(client, Mockito.times(2)).subscribe("accountId", null);
+  }
+
   /**
    * Tests {@link SubscriptionManager#onReconnected()}
    */
@@ -203,6 +237,63 @@ class SubscriptionManagerTest {
     Mockito.verify(client, Mockito.times(2)).subscribe(Mockito.anyString(), Mockito.nullable(Integer.class));
   };
   
+  /**
+   * Tests {@link SubscriptionManager#onReconnected}
+   */
+  @Test
+  void testResubscribesManyAccountsOnReconnectWithoutBlockingThreads() throws InterruptedException {
+    manager = new SubscriptionManager(client, SdkScheduler.getDefault(), new ResubscriptionScheduler.Options() {{
+      ratePerSecond = 2000;
+      burst = 500;
+    }});
+    Mockito.when(client.subscribe(Mockito.anyString(), Mockito.any()))
+      .thenReturn(CompletableFuture.completedFuture(null));
+    Map<String, Integer> socketInstancesByAccounts = new ConcurrentHashMap<>();
+    List<String> accountIds = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      socketInstancesByAccounts.put("accountId" + i, 0);
+      accountIds.add("accountId" + i);
+    }
+    Mockito.when(client.getSocketInstancesByAccounts()).thenReturn(socketInstancesByAccounts);
+    accountIds.forEach(accountId -> manager.subscribe(accountId, null, false));
+    Thread.sleep(100);
+    int threadCount = Thread.activeCount();
+    manager.onReconnected(0, accountIds);
+    Thread.sleep(900);
+    Mockito.verify(client, Mockito.times(1000)).subscribe(Mockito.anyString(), Mockito.any());
+    Thread.sleep(150);
+    assertTrue(Thread.activeCount() <= threadCount + 2);
+    Mockito.verify(client, Mockito.atMost(1900)).subscribe(Mockito.anyString(), Mockito.any());
+    Mockito.verify(client, Mockito.timeout(2000).times(2000)).subscribe(Mockito.anyString(), Mockito.any());
+    accountIds.forEach(accountId -> assertTrue(manager.isAccountSubscribing(accountId, 0)));
+    ResubscriptionScheduler.RecoveryMetrics metrics = manager.getResubscriptionMetrics();
+    assertEquals(0, metrics.unrecoveredAccounts);
+    assertEquals(1, metrics.recoveries);
+  };
+  
+  /**
+   * Tests {@link SubscriptionManager#onReconnected}
+   */
+  @Test
+  void testResubscribesHighPriorityAccountsFirst() throws InterruptedException {
+    manager = new SubscriptionManager(client, SdkScheduler.getDefault(), new ResubscriptionScheduler.Options() {{
+      ratePerSecond = 10;
+      burst = 1;
+    }});
+    List<String> subscribedAccountIds = new CopyOnWriteArrayList<>();
+    Mockito.when(client.subscribe(Mockito.anyString(), Mockito.any())).thenAnswer(invocation -> {
+      subscribedAccountIds.add(invocation.getArgument(0));
+      return CompletableFuture.completedFuture(null);
+    });
+    Mockito.when(client.getSocketInstancesByAccounts()).thenReturn(Js.asMap(
+      Pair.of("accountId", 0), Pair.of("accountId2", 0), Pair.of("accountId3", 0)
+    ));
+    manager.setResubscriptionPriority("accountId3", 1);
+    manager.onReconnected(0, Arrays.asList("accountId", "accountId2", "accountId3"));
+    Thread.sleep(1350);
+    assertEquals(Arrays.asList("accountId3", "accountId", "accountId2"), subscribedAccountIds);
+  };
+
   /**
    * Tests {@link SubscriptionManager#subscribe(String, Integer)}
    */
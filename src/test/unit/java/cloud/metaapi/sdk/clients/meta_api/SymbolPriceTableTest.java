@@ -0,0 +1,94 @@
+package cloud.metaapi.sdk.clients.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderSymbolPrice;
+import cloud.metaapi.sdk.clients.models.IsoTime;
+
+/**
+ * Tests {@link SymbolPriceTable}
+ */
+class SymbolPriceTableTest {
+
+  private SymbolPriceTable table;
+
+  @BeforeEach
+  void setUp() {
+    table = new SymbolPriceTable();
+  }
+
+  /**
+   * Tests {@link SymbolPriceTable#getSymbolId(String)}
+   */
+  @Test
+  void testInternsSymbols() {
+    int id = SymbolPriceTable.getSymbolId("SymbolPriceTableTest.EURUSD");
+    assertEquals(id, SymbolPriceTable.getSymbolId("SymbolPriceTableTest.EURUSD"));
+    assertEquals(id, SymbolPriceTable.findSymbolId("SymbolPriceTableTest.EURUSD"));
+    assertEquals("SymbolPriceTableTest.EURUSD", SymbolPriceTable.getSymbol(id));
+    assertNotEquals(id, SymbolPriceTable.getSymbolId("SymbolPriceTableTest.GBPUSD"));
+    assertEquals(-1, SymbolPriceTable.findSymbolId("SymbolPriceTableTest.AUDNZD"));
+  }
+
+  /**
+   * Tests
+   * {@link SymbolPriceTable#update(MetatraderSymbolPrice)},
+   * {@link SymbolPriceTable#read(int, SymbolPriceTable.Quote)}
+   */
+  @Test
+  void testUpdatesPricesInPlace() {
+    assertTrue(table.update(createPrice("EURUSD", 1.1, 1000)));
+    assertFalse(table.update(createPrice("EURUSD", 1.2, 2000)));
+    int id = SymbolPriceTable.getSymbolId("EURUSD");
+    SymbolPriceTable.Quote quote = new SymbolPriceTable.Quote();
+    assertTrue(table.read(id, quote));
+    assertEquals(id, quote.symbolId);
+    assertEquals(1.2, quote.bid);
+    assertEquals(2.4, quote.ask);
+    assertEquals(0.5, quote.profitTickValue);
+    assertEquals(0.6, quote.lossTickValue);
+    assertEquals(2000, quote.time);
+    assertEquals(1.2, table.getBid(id));
+    assertFalse(table.read(SymbolPriceTable.getSymbolId("GBPUSD"), quote));
+    assertTrue(Double.isNaN(table.getAsk(SymbolPriceTable.getSymbolId("GBPUSD"))));
+  }
+
+  /**
+   * Tests
+   * {@link SymbolPriceTable#getPrice(int)},
+   * {@link SymbolPriceTable#getSymbols()},
+   * {@link SymbolPriceTable#clear()}
+   */
+  @Test
+  void testReturnsAndClearsPrices() {
+    table.update(createPrice("EURUSD", 1.1, 1000));
+    table.update(createPrice("GBPUSD", 1.3, 1000));
+    MetatraderSymbolPrice price = table.getPrice(SymbolPriceTable.getSymbolId("GBPUSD"));
+    assertEquals("GBPUSD", price.symbol);
+    assertEquals(1.3, price.bid);
+    assertEquals(1000, price.time.getDate().getTime());
+    assertEquals(new HashSet<>(Arrays.asList("EURUSD", "GBPUSD")), new HashSet<>(table.getSymbols()));
+    table.clear();
+    assertTrue(table.getSymbols().isEmpty());
+    assertNull(table.getPrice(SymbolPriceTable.getSymbolId("GBPUSD")));
+    assertTrue(table.update(createPrice("GBPUSD", 1.4, 2000)));
+  }
+
+  private MetatraderSymbolPrice createPrice(String symbol, double bid, long time) {
+    MetatraderSymbolPrice price = new MetatraderSymbolPrice();
+    price.symbol = symbol;
+    price.bid = bid;
+    price.ask = bid * 2;
+    price.profitTickValue = 0.5;
+    price.lossTickValue = 0.6;
+    price.time = new IsoTime(new Date(time));
+    return price;
+  }
+}
@@ -1,9 +1,6 @@
 package cloud.metaapi.sdk.clients.meta_api;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -27,6 +24,7 @@ class SynchronizationThrottlerTest {
 
   private SynchronizationThrottler throttler;
   private MetaApiWebsocketClient websocketClient;
+  private SynchronizationThrottler.GlobalState globalState;
   
   @BeforeEach
   void setUp() throws Exception {
@@ -34,13 +32,10 @@ class SynchronizationThrottlerTest {
     websocketClient = Mockito.mock(MetaApiWebsocketClient.class);
     Mockito.when(websocketClient.rpcRequest(Mockito.anyString(), Mockito.any(), Mockito.any()))
       .thenReturn(CompletableFuture.completedFuture(null));
-    Mockito.when(websocketClient.getSubscribedAccountIds(Mockito.anyInt())).thenReturn(provideListOfSize(11));
-    SynchronizationThrottler socketInstanceSyncThrottler = Mockito.mock(SynchronizationThrottler.class);
-    Mockito.when(socketInstanceSyncThrottler.getSynchronizingAccounts()).thenReturn(Arrays.asList());
-    Mockito.when(websocketClient.getSocketInstances()).thenReturn(Arrays.asList(
-      new MetaApiWebsocketClient.SocketInstance() {{ synchronizationThrottler = socketInstanceSyncThrottler; }}
-    ));
-    throttler = new SynchronizationThrottler(websocketClient, 0, new SynchronizationThrottler.Options());
+    Mockito.when(websocketClient.getSubscribedAccountCount(Mockito.anyInt())).thenReturn(11);
+    globalState = new SynchronizationThrottler.GlobalState();
+    throttler = new SynchronizationThrottler(websocketClient, 0, new SynchronizationThrottler.Options(),
+      SdkScheduler.getDefault(), globalState);
     throttler.start();
   }
   
@@ -105,7 +100,7 @@ class SynchronizationThrottlerTest {
    */
   @Test
   void testIncreasesSlotAmountWithMoreSubscribedAccounts() {
-    Mockito.when(websocketClient.getSubscribedAccountIds(Mockito.anyInt())).thenReturn(provideListOfSize(21));
+    Mockito.when(websocketClient.getSubscribedAccountCount(Mockito.anyInt())).thenReturn(21);
     ObjectNode request1 = provideRequest("test1");
     ObjectNode request2 = provideRequest("test2");
     ObjectNode request3 = provideRequest("test3");
@@ -123,16 +118,11 @@ class SynchronizationThrottlerTest {
    */
   @Test
   void testSetsHardLimitForConcurrentSynchronizationsViaOptions() throws Exception {
-    Mockito.when(websocketClient.getSubscribedAccountIds(Mockito.anyInt())).thenReturn(provideListOfSize(21));
+    Mockito.when(websocketClient.getSubscribedAccountCount(Mockito.anyInt())).thenReturn(21);
     throttler = new SynchronizationThrottler(websocketClient, 0, new SynchronizationThrottler.Options() {{
       maxConcurrentSynchronizations = 3;
-    }});
-    SynchronizationThrottler socketInstanceSyncThrottler = Mockito.mock(SynchronizationThrottler.class);
-    Mockito.when(socketInstanceSyncThrottler.getSynchronizingAccounts()).thenReturn(Arrays.asList("accountId4"));
-    Mockito.when(websocketClient.getSocketInstances()).thenReturn(Arrays.asList(
-      new MetaApiWebsocketClient.SocketInstance() {{ synchronizationThrottler = throttler; }},
-      new MetaApiWebsocketClient.SocketInstance() {{ synchronizationThrottler = socketInstanceSyncThrottler; }}
-    ));
+    }}, SdkScheduler.getDefault(), globalState);
+    globalState.incrementSynchronizingAccounts();
     throttler.scheduleSynchronize("accountId1", provideRequest("test1")).join();
     throttler.scheduleSynchronize("accountId2", provideRequest("test2")).join();
     throttler.scheduleSynchronize("accountId3", provideRequest("test3"));
@@ -303,27 +293,18 @@ class SynchronizationThrottlerTest {
    */
   @Test
   void testDoesNotGetQueueStuckDueToAppSynchronizationsLimit() throws Exception {
-    SynchronizationThrottler otherThrottler = Mockito.mock(SynchronizationThrottler.class);
-    List<String> otherSynchronizingAccounts = Arrays.asList(
-      "accountId21", "accountId22", "accountId23", "accountId24", "accountId25", "accountId26",
-      "accountId27", "accountId28", "accountId29", "accountId210", "accountId211", "accountId212",
-      "accountId213", "accountId214", "accountId215");
-    Mockito.when(otherThrottler.getSynchronizingAccounts()).thenReturn(otherSynchronizingAccounts);
-    Mockito.when(websocketClient.getSocketInstances()).thenReturn(Arrays.asList(
-      new MetaApiWebsocketClient.SocketInstance() {{synchronizationThrottler = otherThrottler;}},
-      new MetaApiWebsocketClient.SocketInstance() {{synchronizationThrottler = throttler;}}
-    ));
+    for (int i = 0; i < 15; ++i) {
+      globalState.incrementSynchronizingAccounts();
+    }
     throttler.scheduleSynchronize("accountId1", provideRequest("test1"));
     throttler.scheduleSynchronize("accountId2", provideRequest("test2"));
     throttler.scheduleSynchronize("accountId3", provideRequest("test3"));
     tick(5000);
     Mockito.verify(websocketClient, Mockito.never()).rpcRequest(Mockito.anyString(), Mockito.any(), Mockito.any());
-    Mockito.when(otherThrottler.getSynchronizingAccounts())
-      .thenReturn(otherSynchronizingAccounts.subList(1, otherSynchronizingAccounts.size()));
+    globalState.decrementSynchronizingAccounts(1);
     tick(5000);
     Mockito.verify(websocketClient, Mockito.times(1)).rpcRequest(Mockito.anyString(), Mockito.any(), Mockito.any());
-    Mockito.when(otherThrottler.getSynchronizingAccounts())
-      .thenReturn(otherSynchronizingAccounts.subList(2, otherSynchronizingAccounts.size()));
+    globalState.decrementSynchronizingAccounts(1);
     tick(5000);
     Mockito.verify(websocketClient, Mockito.times(2)).rpcRequest(Mockito.anyString(), Mockito.any(), Mockito.any());
   }
@@ -375,6 +356,38 @@ class SynchronizationThrottlerTest {
     Mockito.verify(websocketClient, Mockito.times(4)).rpcRequest(Mockito.anyString(), Mockito.any(), Mockito.any());
   };
   
+  /**
+   * Tests {@link SynchronizationThrottler.GlobalState#setPriority(String, int)}
+   */
+  @Test
+  void testSendsQueuedSynchronizationsByPriority() throws InterruptedException {
+    globalState.setPriority("accountId4", 1);
+    throttler.scheduleSynchronize("accountId1", provideRequest("test1")).join();
+    throttler.scheduleSynchronize("accountId2", provideRequest("test2")).join();
+    throttler.scheduleSynchronize("accountId3", provideRequest("test3"));
+    Thread.sleep(50);
+    throttler.scheduleSynchronize("accountId4", provideRequest("test4"));
+    Thread.sleep(50);
+    throttler.removeSynchronizationId("test1");
+    Thread.sleep(50);
+    Mockito.verify(websocketClient, Mockito.times(3)).rpcRequest(Mockito.anyString(), Mockito.any(), Mockito.any());
+    Mockito.verify(websocketClient).rpcRequest("accountId4", provideRequest("test4"), null);
+    Assertions.assertThat(throttler.getSynchronizingAccounts()).containsExactlyInAnyOrder("accountId2", "accountId4");
+    Assertions.assertThat(globalState.getSynchronizingAccountCount()).isEqualTo(2);
+  }
+  
+  /**
+   * Tests {@link SynchronizationThrottler#onDisconnect()}
+   */
+  @Test
+  void testReleasesGlobalSlotsOnDisconnect() {
+    throttler.scheduleSynchronize("accountId1", provideRequest("test1", 0)).join();
+    throttler.scheduleSynchronize("accountId1", provideRequest("test2", 1)).join();
+    Assertions.assertThat(globalState.getSynchronizingAccountCount()).isEqualTo(1);
+    throttler.onDisconnect();
+    Assertions.assertThat(globalState.getSynchronizingAccountCount()).isEqualTo(0);
+  }
+  
   private ObjectNode provideRequest(String requestId) {
     ObjectNode request = JsonMapper.getInstance().createObjectNode();
     request.put("requestId", requestId);
@@ -393,14 +406,6 @@ class SynchronizationThrottlerTest {
     return request;
   }
   
-  private List<String> provideListOfSize(int size) {
-    List<String> result = new ArrayList<>();
-    for (int i = 0; i < size; ++i) {
-      result.add(String.valueOf(i));
-    }
-    return result;
-  }
-  
   private void tick(long milliseconds) throws InterruptedException {
     ServiceProvider.setNowInstantMock(ServiceProvider.getNow().plusMillis(milliseconds));
     Thread.sleep(1100);
@@ -0,0 +1,107 @@
+package cloud.metaapi.sdk.meta_api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import cloud.metaapi.sdk.clients.error_handler.UnauthorizedException;
+import cloud.metaapi.sdk.clients.meta_api.MetatraderAccountClient;
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
+import cloud.metaapi.sdk.clients.meta_api.models.AccountsFilter;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto;
+import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto.DeploymentState;
+
+/**
+ * Tests {@link AccountStatePoller}
+ */
+class AccountStatePollerTest {
+
+  private MetatraderAccountClient client;
+  private SdkScheduler scheduler;
+  private AccountStatePoller poller;
+
+  @BeforeEach
+  void setUp() {
+    client = Mockito.mock(MetatraderAccountClient.class);
+    scheduler = new SdkScheduler();
+    poller = new AccountStatePoller(client, scheduler);
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.stop();
+  }
+
+  /**
+   * Tests {@link AccountStatePoller#waitFor}
+   */
+  @Test
+  void testPollsManyAccountsWithOneRequestPerInterval() {
+    Mockito.when(client.getAccounts(Mockito.any(AccountsFilter.class)))
+      .thenReturn(CompletableFuture.completedFuture(Arrays.asList(
+        createAccount("accountId1", DeploymentState.DEPLOYING), createAccount("accountId2", DeploymentState.DEPLOYING),
+        createAccount("accountId3", DeploymentState.DELETING))))
+      .thenReturn(CompletableFuture.completedFuture(Arrays.asList(
+        createAccount("accountId1", DeploymentState.DEPLOYED), createAccount("accountId2", DeploymentState.DEPLOYED))));
+    MetatraderAccount account1 = createEntity(createAccount("accountId1", DeploymentState.DEPLOYING));
+    MetatraderAccount account2 = createEntity(createAccount("accountId2", DeploymentState.DEPLOYING));
+    MetatraderAccount account3 = createEntity(createAccount("accountId3", DeploymentState.DELETING));
+    CompletableFuture<Void> deployed1;
+    CompletableFuture<Void> deployed2;
+    CompletableFuture<Void> removed;
+    synchronized (poller) {
+      deployed1 = poller.waitFor(account1,
+        account -> account != null && account.state == DeploymentState.DEPLOYED, 1, 50, "Timed out");
+      deployed2 = poller.waitFor(account2,
+        account -> account != null && account.state == DeploymentState.DEPLOYED, 1, 50, "Timed out");
+      removed = poller.waitFor(account3, account -> account == null, 1, 50, "Timed out");
+    }
+    CompletableFuture.allOf(deployed1, deployed2, removed).join();
+    assertEquals(DeploymentState.DEPLOYED, account1.getState());
+    assertEquals(DeploymentState.DEPLOYED, account2.getState());
+    assertEquals(0, poller.getAccountCount());
+    Mockito.verify(client, Mockito.times(2)).getAccounts(Mockito.any(AccountsFilter.class));
+    Mockito.verify(client, Mockito.never()).getAccount(Mockito.anyString());
+  }
+
+  /**
+   * Tests {@link AccountStatePoller#waitFor}
+   */
+  @Test
+  void testFallsBackToAccountRequestsIfAccountsListIsNotAvailable() {
+    CompletableFuture<List<MetatraderAccountDto>> error = new CompletableFuture<>();
+    error.completeExceptionally(new UnauthorizedException("Error message"));
+    Mockito.when(client.getAccounts(Mockito.any(AccountsFilter.class))).thenReturn(error);
+    Mockito.when(client.getAccount("accountId1")).thenReturn(CompletableFuture.completedFuture(
+      createAccount("accountId1", DeploymentState.DEPLOYED)));
+    Mockito.when(client.getAccount("accountId2")).thenReturn(CompletableFuture.completedFuture(
+      createAccount("accountId2", DeploymentState.DEPLOYED)));
+    MetatraderAccount account1 = createEntity(createAccount("accountId1", DeploymentState.DEPLOYING));
+    MetatraderAccount account2 = createEntity(createAccount("accountId2", DeploymentState.DEPLOYING));
+    CompletableFuture.allOf(
+      poller.waitFor(account1, account -> account.state == DeploymentState.DEPLOYED, 1, 50, "Timed out"),
+      poller.waitFor(account2, account -> account.state == DeploymentState.DEPLOYED, 1, 50, "Timed out")
+    ).join();
+    assertEquals(DeploymentState.DEPLOYED, account1.getState());
+    Mockito.verify(client).getAccount("accountId1");
+    Mockito.verify(client).getAccount("accountId2");
+  }
+
+  private MetatraderAccountDto createAccount(String id, DeploymentState state) {
+    MetatraderAccountDto account = new MetatraderAccountDto();
+    account._id = id;
+    account.state = state;
+    return account;
+  }
+
+  private MetatraderAccount createEntity(MetatraderAccountDto data) {
+    return new MetatraderAccount(data, client, null, null, null, null, poller);
+  }
+}
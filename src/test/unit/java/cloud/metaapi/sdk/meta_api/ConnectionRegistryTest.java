@@ -2,8 +2,13 @@ package cloud.metaapi.sdk.meta_api;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -103,6 +108,110 @@ class ConnectionRegistryTest {
     assertNotEquals(connection0, connection1);
   }
   
+  /**
+   * Tests {@link ConnectionRegistry#connectAll(List, ConnectionRegistry.ConnectAllOptions)}
+   */
+  @Test
+  void testConnectsManyAccountsWithBoundedHistoryLoading() throws IllegalAccessException, InterruptedException {
+    List<MetatraderAccount> accounts = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      MetatraderAccount account = Mockito.mock(MetatraderAccount.class);
+      Mockito.when(account.getId()).thenReturn("id" + i);
+      accounts.add(account);
+    }
+    MetaApiConnection existingConnection = registry.connect(accounts.get(0), storage).join();
+    List<CompletableFuture<Void>> initializations = new CopyOnWriteArrayList<>();
+    AtomicInteger maxInitializationsInFlight = new AtomicInteger();
+    ServiceProvider.setMetApiConnectionMock(new ServiceProvider.MetaApiConnectionProvider() {
+      @Override
+      public MetaApiConnection create(MetaApiWebsocketClient websocketClient, MetatraderAccount account,
+        HistoryStorage historyStorage, ConnectionRegistry connectionRegistry, IsoTime historyStartTime) {
+        MetaApiConnection connection = Mockito.spy(new MetaApiConnection(websocketClient, account, historyStorage,
+          connectionRegistry, historyStartTime));
+        Mockito.doAnswer(invocation -> {
+          CompletableFuture<Void> initialization = new CompletableFuture<>();
+          initializations.add(initialization);
+          maxInitializationsInFlight.accumulateAndGet((int) initializations.stream()
+            .filter(future -> !future.isDone()).count(), Math::max);
+          return initialization;
+        }).when(connection).initialize();
+        Mockito.doReturn(CompletableFuture.completedFuture(null)).when(connection).subscribe();
+        return connection;
+      }
+    });
+    ConnectionRegistry.ConnectAllProgress progress = registry.connectAll(accounts,
+      new ConnectionRegistry.ConnectAllOptions() {{
+        historyLoadConcurrency = 2;
+        historyStorageProvider = account -> storage;
+      }});
+    assertEquals(2, initializations.size());
+    assertFalse(progress.getCompletion().isDone());
+    for (int i = 0; i < 19; i++) {
+      long deadline = System.currentTimeMillis() + 1000;
+      while (initializations.size() <= i && System.currentTimeMillis() < deadline) {
+        Thread.sleep(1);
+      }
+      assertTrue(initializations.size() > i);
+      initializations.get(i).complete(null);
+    }
+    assertEquals(19, initializations.size());
+    assertEquals(2, maxInitializationsInFlight.get());
+    progress.getCompletion().join();
+    assertEquals(20, progress.getConnections().size());
+    assertEquals(existingConnection, progress.getConnections().get("id0").join());
+    @SuppressWarnings("unchecked")
+    Map<String, MetaApiConnection> registryConnections = (Map<String, MetaApiConnection>) FieldUtils
+      .readField(registry, "connections", true);
+    for (int i = 1; i < 20; i++) {
+      MetaApiConnection connection = progress.getConnections().get("id" + i).join();
+      Mockito.verify(connection).initialize();
+      Mockito.verify(connection).subscribe();
+      assertEquals(connection, registryConnections.get("id" + i));
+    }
+    ConnectionRegistry.ConnectAllMetrics metrics = progress.getMetrics();
+    assertEquals(20, metrics.totalAccounts);
+    assertEquals(19, metrics.initializedAccounts);
+    assertEquals(19, metrics.subscribedAccounts);
+    assertEquals(0, metrics.failedAccounts);
+  }
+  
+  /**
+   * Tests {@link ConnectionRegistry#connectAll(List, ConnectionRegistry.ConnectAllOptions)}
+   */
+  @Test
+  void testReportsFailedConnectionsOfManyAccounts() {
+    MetatraderAccount account0 = Mockito.mock(MetatraderAccount.class);
+    Mockito.when(account0.getId()).thenReturn("id0");
+    MetatraderAccount account1 = Mockito.mock(MetatraderAccount.class);
+    Mockito.when(account1.getId()).thenReturn("id1");
+    ServiceProvider.setMetApiConnectionMock(new ServiceProvider.MetaApiConnectionProvider() {
+      @Override
+      public MetaApiConnection create(MetaApiWebsocketClient websocketClient, MetatraderAccount account,
+        HistoryStorage historyStorage, ConnectionRegistry connectionRegistry, IsoTime historyStartTime) {
+        MetaApiConnection connection = Mockito.spy(new MetaApiConnection(websocketClient, account, historyStorage,
+          connectionRegistry, historyStartTime));
+        CompletableFuture<Void> initialization = new CompletableFuture<>();
+        if (account.getId().equals("id1")) {
+          initialization.completeExceptionally(new Exception("test"));
+        } else {
+          initialization.complete(null);
+        }
+        Mockito.doReturn(initialization).when(connection).initialize();
+        Mockito.doReturn(CompletableFuture.completedFuture(null)).when(connection).subscribe();
+        return connection;
+      }
+    });
+    ConnectionRegistry.ConnectAllProgress progress = registry.connectAll(Arrays.asList(account0, account1),
+      new ConnectionRegistry.ConnectAllOptions() {{
+        historyStorageProvider = account -> storage;
+      }});
+    progress.getCompletion().join();
+    assertFalse(progress.getConnections().get("id0").isCompletedExceptionally());
+    assertTrue(progress.getConnections().get("id1").isCompletedExceptionally());
+    assertEquals(1, progress.getMetrics().failedAccounts);
+    assertEquals(1, progress.getMetrics().subscribedAccounts);
+  }
+  
   /**
    * Test {@link ConnectionRegistry#remove(String)}
    */
@@ -27,6 +27,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
 
 import cloud.metaapi.sdk.clients.TimeoutException;
+import cloud.metaapi.sdk.clients.meta_api.ConflatingSynchronizationListener;
 import cloud.metaapi.sdk.clients.meta_api.MetaApiWebsocketClient;
 import cloud.metaapi.sdk.clients.meta_api.SynchronizationListener;
 import cloud.metaapi.sdk.clients.meta_api.models.MarketDataSubscription;
@@ -1012,6 +1013,24 @@ class MetaApiConnectionTest {
     Mockito.verify(client).removeSynchronizationListener("accountId", listener);
   }
   
+  /**
+   * Tests {@link MetaApiConnection#removeSynchronizationListener(SynchronizationListener)}
+   */
+  @Test
+  void testRemovesSynchronizationListenersWithConflatedPrices() {
+    MetatraderAccount account = Mockito.mock(MetatraderAccount.class);
+    Mockito.when(account.getId()).thenReturn("accountId");
+    MetaApiConnection api = new MetaApiConnection(client, account, null, connectionRegistry);
+    SynchronizationListener listener = Mockito.mock(SynchronizationListener.class);
+    api.addSynchronizationListener(listener, true);
+    assertNotNull(api.getConflationStatistics(listener));
+    api.removeSynchronizationListener(listener);
+    Mockito.verify(client).removeSynchronizationListener("accountId", listener);
+    Mockito.verify(client).removeSynchronizationListener(Mockito.eq("accountId"),
+      Mockito.any(ConflatingSynchronizationListener.class));
+    assertNull(api.getConflationStatistics(listener));
+  }
+  
   /**
    * Tests {@link MetaApiConnection#onConnected()}
    */
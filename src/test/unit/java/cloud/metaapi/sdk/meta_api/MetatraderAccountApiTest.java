@@ -32,6 +32,7 @@ import cloud.metaapi.sdk.clients.meta_api.ExpertAdvisorClient.ExpertAdvisorDto;
 import cloud.metaapi.sdk.clients.meta_api.ExpertAdvisorClient.NewExpertAdvisorDto;
 import cloud.metaapi.sdk.clients.meta_api.MetaApiWebsocketClient;
 import cloud.metaapi.sdk.clients.meta_api.MetatraderAccountClient;
+import cloud.metaapi.sdk.clients.meta_api.SdkScheduler;
 import cloud.metaapi.sdk.clients.meta_api.models.AccountsFilter;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountDto;
 import cloud.metaapi.sdk.clients.meta_api.models.MetatraderAccountIdDto;
@@ -53,6 +54,7 @@ public class MetatraderAccountApiTest {
   private MetaApiWebsocketClient metaApiWebsocketClient;
   private ConnectionRegistry connectionRegistry;
   private HistoricalMarketDataClient historicalMarketDataClient;
+  private AccountStatePoller accountStatePoller;
 
   @BeforeEach
   void setUp() throws Exception {
@@ -63,6 +65,7 @@ public class MetatraderAccountApiTest {
     historicalMarketDataClient = Mockito.mock(HistoricalMarketDataClient.class);
     api = new MetatraderAccountApi(client, metaApiWebsocketClient, connectionRegistry,
       eaClient, historicalMarketDataClient);
+    accountStatePoller = new AccountStatePoller(client, SdkScheduler.getDefault());
   }
   
   @AfterEach
@@ -79,7 +82,8 @@ public class MetatraderAccountApiTest {
     AccountsFilter filter = new AccountsFilter() {{ provisioningProfileId = "profileId"; }};
     Mockito.when(client.getAccounts(filter)).thenReturn(CompletableFuture.completedFuture(Lists.list(accountDto)));
     List<MetatraderAccount> expectedAccounts = Lists.list(new MetatraderAccount(accountDto,
-      client, metaApiWebsocketClient, connectionRegistry, eaClient, historicalMarketDataClient));
+      client, metaApiWebsocketClient, connectionRegistry, eaClient, historicalMarketDataClient,
+      accountStatePoller));
     List<MetatraderAccount> actualAccounts = api.getAccounts(filter).get();
     assertThat(actualAccounts).usingRecursiveComparison().isEqualTo(expectedAccounts);
   }
@@ -92,7 +96,7 @@ public class MetatraderAccountApiTest {
   void testRetrievesMtAccountById(MetatraderAccountDto accountDto) throws Exception {
     Mockito.when(client.getAccount("id")).thenReturn(CompletableFuture.completedFuture(accountDto));
     MetatraderAccount expectedAccount = new MetatraderAccount(accountDto, client, metaApiWebsocketClient,
-      connectionRegistry, eaClient, historicalMarketDataClient);
+      connectionRegistry, eaClient, historicalMarketDataClient, accountStatePoller);
     MetatraderAccount actualAccount = api.getAccount("id").get();
     assertThat(actualAccount).usingRecursiveComparison().isEqualTo(expectedAccount);
   }
@@ -105,7 +109,7 @@ public class MetatraderAccountApiTest {
   void testRetrievesMtAccountByToken(MetatraderAccountDto accountDto) throws Exception {
     Mockito.when(client.getAccountByToken()).thenReturn(CompletableFuture.completedFuture(accountDto));
     MetatraderAccount expectedAccount = new MetatraderAccount(accountDto, client, metaApiWebsocketClient,
-      connectionRegistry, eaClient, historicalMarketDataClient);
+      connectionRegistry, eaClient, historicalMarketDataClient, accountStatePoller);
     MetatraderAccount actualAccount = api.getAccountByToken().get();
     assertThat(actualAccount).usingRecursiveComparison().isEqualTo(expectedAccount);
   }
@@ -130,7 +134,7 @@ public class MetatraderAccountApiTest {
     Mockito.when(client.createAccount(newAccountDto)).thenReturn(CompletableFuture.completedFuture(accountIdDto));
     Mockito.when(client.getAccount("id")).thenReturn(CompletableFuture.completedFuture(accountDto));
     MetatraderAccount expectedAccount = new MetatraderAccount(accountDto, client, metaApiWebsocketClient,
-      connectionRegistry, eaClient, historicalMarketDataClient);
+      connectionRegistry, eaClient, historicalMarketDataClient, accountStatePoller);
     MetatraderAccount actualAccount = api.createAccount(newAccountDto).get();
     assertThat(actualAccount).usingRecursiveComparison().isEqualTo(expectedAccount);
   }
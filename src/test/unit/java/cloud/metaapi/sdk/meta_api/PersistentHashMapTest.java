@@ -0,0 +1,101 @@
+package cloud.metaapi.sdk.meta_api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link PersistentHashMap}
+ */
+class PersistentHashMapTest {
+
+  private static class CollidingKey {
+    private String name;
+
+    public CollidingKey(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof CollidingKey && ((CollidingKey) other).name.equals(name);
+    }
+  }
+
+  /**
+   * Tests
+   * {@link PersistentHashMap#plus(Object, Object)},
+   * {@link PersistentHashMap#minus(Object)}
+   */
+  @Test
+  void testKeepsPreviousVersionsUnchanged() {
+    PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+    PersistentHashMap<String, Integer> map1 = empty.plus("EURUSD", 1).plus("GBPUSD", 2);
+    PersistentHashMap<String, Integer> map2 = map1.plus("EURUSD", 3);
+    PersistentHashMap<String, Integer> map3 = map2.minus("GBPUSD");
+    assertTrue(empty.isEmpty());
+    assertEquals(new HashMap<String, Integer>() {{
+      put("EURUSD", 1);
+      put("GBPUSD", 2);
+    }}, map1);
+    assertEquals(new HashMap<String, Integer>() {{
+      put("EURUSD", 3);
+      put("GBPUSD", 2);
+    }}, map2);
+    assertEquals(1, map3.size());
+    assertEquals(3, map3.get("EURUSD"));
+    assertNull(map3.get("GBPUSD"));
+    assertSame(map3, map3.minus("AUDNZD"));
+    assertSame(map2, map2.plus("EURUSD", map2.get("EURUSD")));
+    assertEquals(4, map2.plus("EURUSD", 4).get("EURUSD"));
+    assertThrows(UnsupportedOperationException.class, () -> map1.put("AUDNZD", 4));
+  }
+
+  /**
+   * Tests {@link PersistentHashMap#plus(Object, Object)}
+   */
+  @Test
+  void testStoresKeysWithCollidingHashes() {
+    PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.<CollidingKey, Integer>empty()
+      .plus(new CollidingKey("a"), 1).plus(new CollidingKey("b"), 2).plus(new CollidingKey("c"), 3);
+    assertEquals(3, map.size());
+    assertEquals(2, map.get(new CollidingKey("b")));
+    map = map.minus(new CollidingKey("a")).minus(new CollidingKey("b"));
+    assertEquals(1, map.size());
+    assertEquals(3, map.get(new CollidingKey("c")));
+    assertFalse(map.containsKey(new CollidingKey("a")));
+    assertTrue(map.minus(new CollidingKey("c")).isEmpty());
+  }
+
+  /**
+   * Tests {@link PersistentHashMap}
+   */
+  @Test
+  void testMatchesHashMapOnRandomUpdates() {
+    Random random = new Random(1);
+    Map<Integer, Integer> expected = new HashMap<>();
+    PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+    for (int i = 0; i < 20000; ++i) {
+      int key = random.nextInt(2000) - 1000;
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.minus(key);
+      } else {
+        expected.put(key, i);
+        map = map.plus(key, i);
+      }
+    }
+    assertEquals(expected.size(), map.size());
+    assertEquals(expected, map);
+    assertEquals(expected.size(), map.entrySet().stream().count());
+  }
+}
@@ -3,9 +3,12 @@ package cloud.metaapi.sdk.meta_api;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
@@ -13,6 +16,7 @@ import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import cloud.metaapi.sdk.clients.meta_api.SymbolPriceTable;
 import cloud.metaapi.sdk.clients.meta_api.models.*;
 import cloud.metaapi.sdk.clients.models.IsoTime;
 
@@ -287,6 +291,236 @@ class TerminalStateTest {
     assertThat(state.getOrders().stream().map(order -> order.currentPrice).toArray())
       .isEqualTo(Stream.of(11.0, 9.0).toArray());
   }
+
+  /**
+   * Tests
+   * {@link TerminalState#onSymbolPriceUpdated(MetatraderSymbolPrice)},
+   * {@link TerminalState#onPositionUpdated(MetatraderPosition)},
+   * {@link TerminalState#onOrderCompleted(String)}
+   */
+  @Test
+  void testUpdatesPositionsAndOrdersOfPriceSymbolOnly() {
+    state.onSymbolSpecificationsUpdated("1:ps-mpa-1", Arrays.asList(
+      new MetatraderSymbolSpecification() {{ symbol = "EURUSD"; tickSize = 0.01; digits = 5; }},
+      new MetatraderSymbolSpecification() {{ symbol = "AUDUSD"; tickSize = 0.01; digits = 5; }}
+    ), Arrays.asList());
+    for (String positionId : Arrays.asList("1", "2", "3")) {
+      state.onPositionUpdated("1:ps-mpa-1", new MetatraderPosition() {{
+        id = positionId;
+        symbol = "AUDUSD";
+        type = PositionType.POSITION_TYPE_BUY;
+        currentPrice = 9;
+        currentTickValue = 0.5;
+        openPrice = 8;
+        profit = 100.0;
+        unrealizedProfit = 100.0;
+        realizedProfit = 0.0;
+        volume = 2;
+      }});
+    }
+    state.onPositionUpdated("1:ps-mpa-1", new MetatraderPosition() {{
+      id = "2";
+      symbol = "EURUSD";
+      type = PositionType.POSITION_TYPE_BUY;
+      currentPrice = 9;
+      currentTickValue = 0.5;
+      openPrice = 8;
+      profit = 100.0;
+      unrealizedProfit = 100.0;
+      realizedProfit = 0.0;
+      volume = 2;
+    }});
+    state.onOrderUpdated("1:ps-mpa-1", new MetatraderOrder() {{
+      id = "1";
+      symbol = "EURUSD";
+      type = OrderType.ORDER_TYPE_BUY_LIMIT;
+      currentPrice = 9;
+    }});
+    state.onSymbolPricesUpdated("1:ps-mpa-1", Arrays.asList(new MetatraderSymbolPrice() {{
+      time = new IsoTime();
+      symbol = "EURUSD";
+      profitTickValue = 0.5;
+      lossTickValue = 0.5;
+      bid = 10;
+      ask = 11;
+    }}), null, null, null, null, null);
+    assertThat(state.getPositions().stream().map(position -> position.id).toArray())
+      .isEqualTo(Stream.of("1", "2", "3").toArray());
+    assertThat(state.getPositions().stream().map(position -> position.currentPrice).toArray())
+      .isEqualTo(Stream.of(9.0, 10.0, 9.0).toArray());
+    assertEquals(11, state.getOrders().get(0).currentPrice);
+    state.onOrderCompleted("1:ps-mpa-1", "1");
+    assertTrue(state.getOrders().isEmpty());
+  }
+
+  /**
+   * Tests
+   * {@link TerminalState#onSymbolPricesUpdated(List, Double, Double, Double, Double)},
+   * {@link TerminalState#getAccountInformation()}
+   */
+  @Test
+  void testMaintainsEquityOfLargeAccountsOnPriceUpdates() {
+    for (String accountPlatform : Arrays.asList("mt4", "mt5")) {
+      TerminalState state = new TerminalState();
+      Random random = new Random(1);
+      state.onAccountInformationUpdated("1:ps-mpa-1", new MetatraderAccountInformation() {{
+        platform = accountPlatform; equity = 1000; balance = 800; }});
+      List<MetatraderSymbolSpecification> specifications = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        String specificationSymbol = "SYMBOL" + i;
+        specifications.add(new MetatraderSymbolSpecification() {{
+          symbol = specificationSymbol; tickSize = 0.01; digits = 5; }});
+      }
+      state.onSymbolSpecificationsUpdated("1:ps-mpa-1", specifications, Arrays.asList());
+      List<MetatraderPosition> positions = new ArrayList<>();
+      for (int i = 0; i < 5000; i++) {
+        String positionId = String.valueOf(i);
+        positions.add(new MetatraderPosition() {{
+          id = positionId;
+          symbol = "SYMBOL" + (random.nextInt(50));
+          type = random.nextBoolean() ? PositionType.POSITION_TYPE_BUY : PositionType.POSITION_TYPE_SELL;
+          currentPrice = 9;
+          currentTickValue = 0.5;
+          openPrice = 8 + random.nextDouble();
+          profit = 100.0;
+          swap = random.nextDouble() * 10 - 5;
+          commission = -random.nextDouble() * 5;
+          volume = 0.01 + random.nextInt(100) / 100.0;
+        }});
+      }
+      state.onPositionsReplaced("1:ps-mpa-1", positions);
+      for (int packet = 0; packet < 3; packet++) {
+        List<MetatraderSymbolPrice> prices = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+          String priceSymbol = "SYMBOL" + i;
+          double priceBid = 8 + random.nextDouble() * 2;
+          prices.add(new MetatraderSymbolPrice() {{
+            time = new IsoTime();
+            symbol = priceSymbol;
+            profitTickValue = 0.5;
+            lossTickValue = 0.6;
+            bid = priceBid;
+            ask = priceBid + 0.0002;
+          }});
+        }
+        state.onSymbolPricesUpdated("1:ps-mpa-1", prices, null, null, null, null, null);
+        double expectedEquity = 800;
+        for (MetatraderPosition p : state.getPositions()) {
+          expectedEquity += accountPlatform.equals("mt5")
+            ? Math.round(p.unrealizedProfit * 100.0) / 100.0 + Math.round(p.swap * 100.0) / 100.0
+            : Math.round(p.swap * 100) / 100 + Math.round(p.commission * 100) / 100
+              + Math.round(p.unrealizedProfit * 100) / 100;
+        }
+        assertEquals(Math.round(expectedEquity * 100.0) / 100.0, state.getAccountInformation().get().equity);
+        state.onPositionRemoved("1:ps-mpa-1", String.valueOf(packet));
+      }
+    }
+  }
+  
+  /**
+   * Tests
+   * {@link TerminalState#getAccountInformation()},
+   * {@link TerminalState#getPrice(String)}
+   */
+  @Test
+  void testReturnsDataFromBestState() {
+    state.onAccountInformationUpdated("1:ps-mpa-1", new MetatraderAccountInformation() {{ balance = 1000; }});
+    state.onSymbolPricesUpdated("1:ps-mpa-2", Arrays.asList(new MetatraderSymbolPrice() {{
+      time = new IsoTime(new Date(2000)); symbol = "EURUSD"; bid = 1; ask = 1.1; }}), null, null, null, null, null);
+    assertEquals(1000, state.getAccountInformation().get().balance);
+    assertEquals(1, state.getPrice("EURUSD").get().bid);
+    state.onSymbolPricesUpdated("1:ps-mpa-1", Arrays.asList(new MetatraderSymbolPrice() {{
+      time = new IsoTime(new Date(1000)); symbol = "EURUSD"; bid = 2; ask = 2.1; }}), null, null, null, null, null);
+    assertEquals(2, state.getPrice("EURUSD").get().bid);
+    state.onAccountInformationUpdated("1:ps-mpa-2", new MetatraderAccountInformation() {{ balance = 2000; }});
+    state.onPositionsReplaced("1:ps-mpa-2", Arrays.asList());
+    state.onOrdersReplaced("1:ps-mpa-2", Arrays.asList());
+    assertEquals(2000, state.getAccountInformation().get().balance);
+    assertEquals(1, state.getPrice("EURUSD").get().bid);
+    state.onPositionsReplaced("1:ps-mpa-1", Arrays.asList());
+    state.onOrdersReplaced("1:ps-mpa-1", Arrays.asList());
+    assertEquals(2000, state.getAccountInformation().get().balance);
+    state.onSymbolPricesUpdated("1:ps-mpa-1", Arrays.asList(new MetatraderSymbolPrice() {{
+      time = new IsoTime(new Date(3000)); symbol = "EURUSD"; bid = 3; ask = 3.1; }}), null, null, null, null, null);
+    assertEquals(1000, state.getAccountInformation().get().balance);
+    assertEquals(3, state.getPrice("EURUSD").get().bid);
+    state.onStreamClosed("1:ps-mpa-1");
+    assertEquals(2000, state.getAccountInformation().get().balance);
+    assertEquals(1, state.getPrice("EURUSD").get().bid);
+  }
+  
+  /**
+   * Tests {@link TerminalState#getSnapshot()}
+   */
+  @Test
+  void testPublishesImmutableSnapshots() {
+    TerminalStateSnapshot emptySnapshot = state.getSnapshot();
+    assertEquals(0, emptySnapshot.getVersion());
+    assertTrue(emptySnapshot.getPositions().isEmpty());
+    state.onAccountInformationUpdated("1:ps-mpa-1", new MetatraderAccountInformation() {{
+      equity = 1000; balance = 800; }});
+    state.onPositionsReplaced("1:ps-mpa-1", Arrays.asList(new MetatraderPosition() {{
+      id = "1"; symbol = "EURUSD"; type = PositionType.POSITION_TYPE_BUY; currentPrice = 9;
+      currentTickValue = 0.5; openPrice = 8; profit = 100.0; volume = 2; }}));
+    state.onPositionUpdated("1:ps-mpa-1", new MetatraderPosition() {{
+      id = "2"; symbol = "AUDUSD"; type = PositionType.POSITION_TYPE_BUY; currentPrice = 9;
+      currentTickValue = 0.5; openPrice = 8; profit = 100.0; volume = 2; }});
+    state.onSymbolSpecificationsUpdated("1:ps-mpa-1", Arrays.asList(
+      new MetatraderSymbolSpecification() {{ symbol = "EURUSD"; tickSize = 0.01; digits = 5; }},
+      new MetatraderSymbolSpecification() {{ symbol = "AUDUSD"; tickSize = 0.01; digits = 5; }}
+    ), Arrays.asList());
+    TerminalStateSnapshot snapshot1 = state.getSnapshot();
+    assertTrue(snapshot1.getVersion() > 0);
+    assertEquals(2, snapshot1.getPositions().size());
+    assertEquals(1000, snapshot1.getAccountInformation().get().equity);
+    state.onSymbolPricesUpdated("1:ps-mpa-1", Arrays.asList(new MetatraderSymbolPrice() {{
+      time = new IsoTime(); symbol = "EURUSD"; profitTickValue = 0.5; lossTickValue = 0.5; bid = 10; ask = 11;
+    }}), null, null, null, null, null);
+    TerminalStateSnapshot snapshot2 = state.getSnapshot();
+    assertTrue(snapshot2.getVersion() > snapshot1.getVersion());
+    assertEquals(200, snapshot2.getPositions("EURUSD").get(0).profit);
+    assertEquals(100, snapshot1.getPositions("EURUSD").get(0).profit);
+    assertSame(snapshot1.getPositions("AUDUSD"), snapshot2.getPositions("AUDUSD"));
+    assertEquals(10, snapshot2.getPrice("EURUSD").get().bid);
+    assertFalse(snapshot1.getPrice("EURUSD").isPresent());
+    assertThrows(UnsupportedOperationException.class, () -> snapshot2.getPositions().clear());
+    state.onOrderUpdated("1:ps-mpa-1", new MetatraderOrder() {{ id = "1"; symbol = "EURUSD"; }});
+    assertEquals(1, state.getSnapshot().getOrders("EURUSD").size());
+    assertTrue(snapshot2.getOrders().isEmpty());
+  }
+  
+  /**
+   * Tests
+   * {@link TerminalState#TerminalState(boolean)},
+   * {@link TerminalState#getPrice(String)},
+   * {@link TerminalState#getPrice(int, SymbolPriceTable.Quote)}
+   */
+  @Test
+  void testStoresPricesInCompactTable() {
+    TerminalState state = new TerminalState(true);
+    state.onAccountInformationUpdated("1:ps-mpa-1", new MetatraderAccountInformation() {{
+      equity = 1000; balance = 800; }});
+    state.onPositionsReplaced("1:ps-mpa-1", Arrays.asList(new MetatraderPosition() {{
+      id = "1"; symbol = "EURUSD"; type = PositionType.POSITION_TYPE_BUY; currentPrice = 9;
+      currentTickValue = 0.5; openPrice = 8; profit = 100.0; volume = 2; }}));
+    state.onSymbolSpecificationsUpdated("1:ps-mpa-1", Arrays.asList(
+      new MetatraderSymbolSpecification() {{ symbol = "EURUSD"; tickSize = 0.01; digits = 5; }}), Arrays.asList());
+    SymbolPriceTable.Quote quote = new SymbolPriceTable.Quote();
+    assertFalse(state.getPrice(SymbolPriceTable.getSymbolId("EURUSD"), quote));
+    state.onSymbolPricesUpdated("1:ps-mpa-1", Arrays.asList(new MetatraderSymbolPrice() {{
+      time = new IsoTime(new Date(1000)); symbol = "EURUSD"; profitTickValue = 0.5; lossTickValue = 0.5;
+      bid = 10; ask = 11; brokerTime = "2020-04-02 09:00:00.000"; }}), null, null, null, null, null);
+    assertTrue(state.getPrice(SymbolPriceTable.getSymbolId("EURUSD"), quote));
+    assertEquals(10, quote.bid);
+    assertEquals(11, quote.ask);
+    assertEquals(1000, quote.time);
+    MetatraderSymbolPrice price = state.getPrice("EURUSD").get();
+    assertEquals(10, price.bid);
+    assertNull(price.brokerTime);
+    assertFalse(state.getPrice("GBPUSD").isPresent());
+    assertEquals(200, state.getPositions().get(0).profit);
+    assertEquals(1000, state.getAccountInformation().get().equity);
+  }
   
   /**
    * Tests {@link TerminalState#onStreamClosed}
@@ -305,4 +539,18 @@ class TerminalStateTest {
     state.onStreamClosed("1:ps-mpa-1").join();
     assertFalse(state.getPrice("EURUSD").isPresent());
   }
-}
\ No newline at end of file
+  
+  /**
+   * Tests {@link TerminalState#isSynchronousPriceStreamEnabled()}
+   */
+  @Test
+  void testEnablesSynchronousPricesOnlyWithoutSubclass() {
+    assertTrue(state.isSynchronousPriceStreamEnabled());
+    assertFalse(new TerminalState() {
+      @Override
+      public CompletableFuture<Void> onSymbolPriceUpdated(String instanceIndex, MetatraderSymbolPrice price) {
+        return super.onSymbolPriceUpdated(instanceIndex, price);
+      }
+    }.isSynchronousPriceStreamEnabled());
+  }
+}